@@ -63,6 +63,7 @@ public class DynamicObject extends TruffleObject.InstanceBased {
     private static final String TRIE_PROPERTY_MAP_FQN = "com.oracle.truffle.object.TriePropertyMap"; // NOI18N
     private static final String PROPERTY_FQN = "com.oracle.truffle.object.PropertyImpl"; // NOI18N
     private static final String OBJECT_TYPE_FQN = "com.oracle.truffle.api.object.ObjectType"; // NOI18N
+    static final String SHAPE_FIELD = "shape"; // NOI18N
 
     private final Instance instance;
     
@@ -152,7 +153,7 @@ public class DynamicObject extends TruffleObject.InstanceBased {
     }
     
     public static Instance getShape(Instance instance) {
-        return (Instance)instance.getValueOfField("shape"); // NOI18N
+        return (Instance)instance.getValueOfField(SHAPE_FIELD);
     }
     
     @Override
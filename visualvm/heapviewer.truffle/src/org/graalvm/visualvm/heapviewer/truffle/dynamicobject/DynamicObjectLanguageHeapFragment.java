@@ -32,6 +32,7 @@ import org.graalvm.visualvm.heapviewer.truffle.TruffleLanguage;
 import org.graalvm.visualvm.heapviewer.truffle.TruffleLanguageHeapFragment;
 import org.graalvm.visualvm.heapviewer.truffle.TruffleType;
 import org.graalvm.visualvm.heapviewer.utils.HeapUtils;
+import org.graalvm.visualvm.lib.jfluid.heap.FieldAccessor;
 import org.graalvm.visualvm.lib.jfluid.heap.Heap;
 import org.graalvm.visualvm.lib.jfluid.heap.Instance;
 import org.graalvm.visualvm.lib.jfluid.heap.JavaClass;
@@ -117,6 +118,9 @@ public abstract class DynamicObjectLanguageHeapFragment<D extends DynamicObject,
         private final String languageID;
         private final Iterator<Instance> instancesIterator;
         private Instance next;
+        // instances are iterated class by class, shape field is resolved once per class
+        private JavaClass shapeClass;
+        private FieldAccessor shapeAccessor;
 
         private LanguageInstanceFilterIterator(Iterator<Instance> instIt, String langID) {
             instancesIterator = instIt;
@@ -130,7 +134,7 @@ public abstract class DynamicObjectLanguageHeapFragment<D extends DynamicObject,
             }
             while (instancesIterator.hasNext()) {
                 Instance inst = instancesIterator.next();
-                Instance shape = DynamicObject.getShape(inst);
+                Instance shape = getShape(inst);
                 JavaClass langId = DynamicObjectLanguageHeapFragment.this.getLanguageID(shape);
                 if (langId != null && languageID.equals(langId.getName())) {
                     next = inst;
@@ -149,6 +153,15 @@ public abstract class DynamicObjectLanguageHeapFragment<D extends DynamicObject,
             }
             throw new NoSuchElementException();
         }
+
+        private Instance getShape(Instance inst) {
+            JavaClass cls = inst.getJavaClass();
+            if (!cls.equals(shapeClass)) {
+                shapeClass = cls;
+                shapeAccessor = cls.getFieldAccessor(DynamicObject.SHAPE_FIELD);
+            }
+            return shapeAccessor == null ? null : (Instance) shapeAccessor.getValue(inst);
+        }
     }
     
 }
@@ -105,6 +105,10 @@ public final class HeapViewer {
     public void closed() {
         if (component instanceof HeapViewerComponent)
             ((HeapViewerComponent)component).closed();
+        
+        if (heapFragments != null)
+            for (HeapFragment fragment : heapFragments)
+                HeapOperations.cancel(fragment.getHeap());
     }
 
     
@@ -25,6 +25,7 @@
 package org.graalvm.visualvm.heapviewer.java.impl;
 
 import org.graalvm.visualvm.lib.jfluid.heap.Field;
+import org.graalvm.visualvm.lib.jfluid.heap.FieldAccessor;
 import org.graalvm.visualvm.lib.jfluid.heap.FieldValue;
 import org.graalvm.visualvm.lib.jfluid.heap.Instance;
 import org.graalvm.visualvm.lib.jfluid.heap.ObjectFieldValue;
@@ -37,6 +38,7 @@ final class HeapPatterns {
 
     static PathToGCRootPlugin.SkipNode processGCRootReference(ObjectFieldValue reference) {
         ObjectFieldValue ref = reference;
+        FieldAccessor accessor = null;
         int skipped = 0;
         for (; ;skipped++) {
             Instance i = ref.getDefiningInstance();
@@ -44,7 +46,11 @@ final class HeapPatterns {
             if (!i.getJavaClass().equals(path.getJavaClass())) {
                 break;
             }
-            ObjectFieldValue oval = getValueOfField(path, ref.getField());
+            if (accessor == null) {
+                // all instances in the chain have the same class and field
+                accessor = getFieldAccessor(i, ref.getField());
+            }
+            ObjectFieldValue oval = getValueOfField(path, ref.getField(), accessor);
             if (oval == null || !i.equals(oval.getInstance())) {
                 break;
             }
@@ -56,7 +62,19 @@ final class HeapPatterns {
         return null;
     }
 
-    private static ObjectFieldValue getValueOfField(Instance i, Field f) {
+    private static FieldAccessor getFieldAccessor(Instance i, Field f) {
+        FieldAccessor accessor = i.getJavaClass().getFieldAccessor(f.getName());
+        if (accessor != null && accessor.getField().equals(f)) {
+            return accessor;
+        }
+        return null;
+    }
+
+    private static ObjectFieldValue getValueOfField(Instance i, Field f, FieldAccessor accessor) {
+        if (accessor != null) {
+            FieldValue val = accessor.getFieldValue(i);
+            return val instanceof ObjectFieldValue ? (ObjectFieldValue) val : null;
+        }
         for (FieldValue val : i.getFieldValues()) {
             if (val instanceof ObjectFieldValue) {
                 ObjectFieldValue oval = (ObjectFieldValue) val;
@@ -27,6 +27,7 @@ package org.graalvm.visualvm.heapviewer.java.impl;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import javax.swing.SortOrder;
 import org.graalvm.visualvm.heapviewer.java.ClassNode;
 import org.graalvm.visualvm.heapviewer.java.InstanceNode;
@@ -41,6 +42,7 @@ import org.graalvm.visualvm.heapviewer.utils.ProgressIterator;
 import org.graalvm.visualvm.lib.jfluid.heap.Heap;
 import org.graalvm.visualvm.lib.jfluid.heap.Instance;
 import org.graalvm.visualvm.lib.jfluid.heap.JavaClass;
+import org.graalvm.visualvm.lib.jfluid.heap.SortedInstances;
 import org.openide.util.NbBundle;
 import org.openide.util.lookup.ServiceProvider;
 
@@ -87,6 +89,16 @@ public class JavaInstancesProvider extends HeapViewerNode.Provider {
                 Iterator<Instance> iterator = jclass.getInstancesIterator();
                 return new ProgressIterator<>(iterator, index, true, progress);
             }
+            protected ProgressIterator<Instance> sortedObjectsIterator(int index, DataType dataType, SortOrder sortOrder, Progress progress) {
+                SortedInstances.Key key;
+                if (DataType.OWN_SIZE.equals(dataType)) key = SortedInstances.Key.SIZE;
+                else if (DataType.RETAINED_SIZE.equals(dataType) && DataType.RETAINED_SIZE.valuesAvailable(heap)) key = SortedInstances.Key.RETAINED_SIZE;
+                else return null;
+                
+                SortedInstances sorted = heap.getSortedInstances(jclass, key);
+                Iterator<Instance> iterator = SortOrder.ASCENDING.equals(sortOrder) ? ascendingIterator(heap, sorted, index) : sorted.getInstancesIterator(index);
+                return new ProgressIterator<>(iterator, index, false, progress);
+            }
             protected String getMoreNodesString(String moreNodesCount)  {
                 return Bundle.JavaInstancesProvider_MoreNodes(moreNodesCount);
             }
@@ -105,13 +117,9 @@ public class JavaInstancesProvider extends HeapViewerNode.Provider {
     public static HeapViewerNode[] getHeapInstances(final HeapViewerNode parent, final Heap heap, String viewID, HeapViewerNodeFilter viewFilter, List<DataType> dataTypes, List<SortOrder> sortOrders, Progress progress) throws InterruptedException {
         // TODO: might be faster to process just instances of the classes matching viewFilter, if defined
         
-        long totalInstancesL = heap.getSummary().getTotalLiveInstances();
-        int totalInstancesI = totalInstancesL < 0 || totalInstancesL > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int)totalInstancesL;
-        
-//        int totalInstancesI = Integer.MAX_VALUE;
-//        System.err.println(">>> Computing " + heap.getSummary().getTotalLiveInstances() + " instances");
+        long totalInstances = heap.getSummary().getTotalLiveInstances();
         
-        NodesComputer<Instance> computer = new NodesComputer<Instance>(totalInstancesI, UIThresholds.MAX_TOPLEVEL_INSTANCES) {
+        NodesComputer<Instance> computer = new NodesComputer<Instance>(totalInstances, UIThresholds.MAX_TOPLEVEL_INSTANCES) {
             protected boolean sorts(DataType dataType) {
                 return !DataType.COUNT.equals(dataType);
             }
@@ -137,6 +145,17 @@ public class JavaInstancesProvider extends HeapViewerNode.Provider {
         return nodes.length == 0 ? new HeapViewerNode[] { new TextNode(getNoInstancesString(viewFilter)) } : nodes;
     }
     
+    private static Iterator<Instance> ascendingIterator(final Heap heap, final SortedInstances sorted, final int index) {
+        return new Iterator<Instance>() {
+            private long position = sorted.getInstancesCount() - 1 - index;
+            public boolean hasNext() { return position >= 0; }
+            public Instance next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return heap.getInstanceByID(sorted.getInstanceId(position--));
+            }
+        };
+    }
+    
     private static String getNoInstancesString(HeapViewerNodeFilter viewFilter) {
         return viewFilter == null ? Bundle.JavaInstancesProvider_NoInstances() :
                                     Bundle.JavaInstancesProvider_NoInstancesFilter();
@@ -43,6 +43,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.PriorityQueue;
 import javax.swing.BorderFactory;
+import javax.swing.Icon;
 import javax.swing.JButton;
 import javax.swing.JComponent;
 import javax.swing.JLabel;
@@ -52,6 +53,7 @@ import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableModel;
+import org.graalvm.visualvm.core.ui.components.ScrollableContainer;
 import org.graalvm.visualvm.heapviewer.HeapContext;
 import org.graalvm.visualvm.heapviewer.java.ClassNode;
 import org.graalvm.visualvm.heapviewer.java.ClassNodeRenderer;
@@ -67,6 +69,8 @@ import org.graalvm.visualvm.heapviewer.ui.HeapViewerActions;
 import org.graalvm.visualvm.heapviewer.ui.HeapViewerNodeAction;
 import org.graalvm.visualvm.heapviewer.ui.SummaryView;
 import org.graalvm.visualvm.heapviewer.ui.TreeTableViewColumn;
+import org.graalvm.visualvm.heapviewer.utils.HeapOperations;
+import org.graalvm.visualvm.lib.jfluid.heap.DuplicateArrays;
 import org.graalvm.visualvm.lib.jfluid.heap.Heap;
 import org.graalvm.visualvm.lib.jfluid.heap.Instance;
 import org.graalvm.visualvm.lib.jfluid.heap.JavaClass;
@@ -80,6 +84,8 @@ import org.graalvm.visualvm.lib.ui.swing.renderer.LabelRenderer;
 import org.graalvm.visualvm.lib.ui.swing.renderer.ProfilerRenderer;
 import org.graalvm.visualvm.uisupport.SeparatorLine;
 import org.graalvm.visualvm.uisupport.VerticalLayout;
+import org.openide.DialogDescriptor;
+import org.openide.DialogDisplayer;
 import org.openide.util.NbBundle;
 import org.openide.util.RequestProcessor;
 import org.openide.util.lookup.ServiceProvider;
@@ -96,12 +102,18 @@ import org.openide.util.lookup.ServiceProvider;
     "JavaObjectsSummary_ClassesInstancesSize=Classes by Size of Instances",
     "JavaObjectsSummary_InstancesSize=Instances by Size",
     "JavaObjectsSummary_DominatorsRetainedSize=Dominators by Retained Size",
+    "JavaObjectsSummary_DuplicateArrays=Duplicate Arrays by Wasted Size",
     "JavaObjectsSummary_ComputeRetainedSizesLbl=Retained sizes must be computed first:",
     "JavaObjectsSummary_ComputeRetainedSizesBtn=Compute Retained Sizes",
     "JavaObjectsSummary_ComputingRetainedSizes=computing retained sizes...",
+    "JavaObjectsSummary_ComputeDuplicateArraysLbl=Duplicate arrays must be computed first:",
+    "JavaObjectsSummary_ComputeDuplicateArraysBtn=Compute Duplicate Arrays",
+    "JavaObjectsSummary_ComputingDuplicateArrays=computing duplicate arrays...",
+    "JavaObjectsSummary_DuplicateArraysFailed=Failed to compute duplicate arrays:",
     "JavaObjectsSummary_ComputingProgress=computing...",
     "JavaObjectsSummary_ViewAll=view all",
     "JavaObjectsSummary_NameColumn=Name",
+    "JavaObjectsSummary_OwnersColumn=Owners",
     "JavaObjectsSummary_ValueColumn=Value"
 })
 class JavaObjectsSummary extends HeapView {
@@ -216,44 +228,11 @@ class JavaObjectsSummary extends HeapView {
                 if (retainedAvailable) {
                     return super.createComponent();
                 } else {
-                    final JPanel p = new JPanel(new GridBagLayout());
-                    p.setOpaque(false);
-                    
-                    final JLabel l = new JLabel(Bundle.JavaObjectsSummary_ComputeRetainedSizesLbl(), JLabel.LEADING);
-                    GridBagConstraints c = new GridBagConstraints();
-                    c.gridx = 0;
-                    c.gridy = 0;
-                    c.fill = GridBagConstraints.NONE;
-                    c.anchor = GridBagConstraints.NORTHWEST;
-                    c.insets = new Insets(2, 2, 2, 2);
-                    p.add(l, c);
-                    
-                    c = new GridBagConstraints();
-                    c.gridx = 1;
-                    c.gridy = 0;
-                    c.weightx = 1d;
-                    c.fill = GridBagConstraints.HORIZONTAL;
-                    c.anchor = GridBagConstraints.NORTHWEST;
-                    c.insets = new Insets(0, 0, 0, 0);
-                    p.add(UIUtils.createFillerPanel(), c);
-                    
-                    c = new GridBagConstraints();
-                    c.gridx = 0;
-                    c.gridy = 1;
-                    c.fill = GridBagConstraints.NONE;
-                    c.anchor = GridBagConstraints.NORTHWEST;
-                    c.insets = new Insets(2, 2, 2, 2);
-                    
-                    JButton lb = new JButton(Bundle.JavaObjectsSummary_ComputeRetainedSizesBtn()) {
-                        protected void fireActionPerformed(ActionEvent e) {
-                            if (DataType.RETAINED_SIZE.computeValues(heap, null)) {
-                                p.remove(this);
-                                l.setText(Bundle.JavaObjectsSummary_ComputingRetainedSizes());
-                                l.setIcon(Icons.getIcon(HeapWalkerIcons.PROGRESS));
-                                p.invalidate();
-                                p.revalidate();
-                                p.repaint();
-                            }
+                    ComputePanel p = new ComputePanel(Bundle.JavaObjectsSummary_ComputeRetainedSizesLbl(),
+                                                      Bundle.JavaObjectsSummary_ComputeRetainedSizesBtn(),
+                                                      Bundle.JavaObjectsSummary_ComputingRetainedSizes()) {
+                        protected boolean compute() {
+                            return DataType.RETAINED_SIZE.computeValues(heap, null);
                         }
                     };
                     
@@ -270,27 +249,6 @@ class JavaObjectsSummary extends HeapView {
                     };
                     DataType.RETAINED_SIZE.notifyWhenAvailable(heap, retainedSizesUpdater);
                     
-                    p.add(lb, c);
-                    
-                    c = new GridBagConstraints();
-                    c.gridx = 1;
-                    c.gridy = 1;
-                    c.weightx = 1d;
-                    c.fill = GridBagConstraints.HORIZONTAL;
-                    c.anchor = GridBagConstraints.NORTHWEST;
-                    c.insets = new Insets(0, 0, 0, 0);
-                    p.add(UIUtils.createFillerPanel(), c);
-                    
-                    c = new GridBagConstraints();
-                    c.gridx = 0;
-                    c.gridy = 2;
-                    c.weightx = 1d;
-                    c.weighty = 1d;
-                    c.fill = GridBagConstraints.BOTH;
-                    c.anchor = GridBagConstraints.NORTHWEST;
-                    c.insets = new Insets(0, 0, 0, 0);
-                    p.add(UIUtils.createFillerPanel(), c);
-                    
                     return p;
                 }
             }
@@ -306,6 +264,43 @@ class JavaObjectsSummary extends HeapView {
         
         Splitter instancesRow = new Splitter(Splitter.HORIZONTAL_SPLIT, instancesBySize, dominatorsByRetainedSize);
         
+        final boolean duplicatesAvailable = HeapOperations.isInitialized(heap, HeapOperations.Phase.DUPLICATE_ARRAYS);
+        Runnable duplicateArraysDisplayer = new Runnable() {
+            public void run() {
+                showDuplicateArrays(heap, instanceRenderer, sizeRenderer);
+            }
+        };
+        final ResultsSnippet duplicateArrays = new DuplicateArraysSnippet(Bundle.JavaObjectsSummary_DuplicateArrays(), duplicateArraysDisplayer, instanceRenderer, sizeRenderer) {
+            protected JComponent createComponent() {
+                if (duplicatesAvailable) return super.createComponent();
+                
+                final ResultsSnippet rs = this;
+                return new ComputePanel(Bundle.JavaObjectsSummary_ComputeDuplicateArraysLbl(),
+                                        Bundle.JavaObjectsSummary_ComputeDuplicateArraysBtn(),
+                                        Bundle.JavaObjectsSummary_ComputingDuplicateArrays()) {
+                    protected boolean compute() {
+                        final ComputePanel p = this;
+                        // the listener runs also when the computation fails, it is registered again for every attempt
+                        HeapOperations.notifyWhenInitialized(heap, HeapOperations.Phase.DUPLICATE_ARRAYS, new Runnable() {
+                            public void run() {
+                                if (HeapOperations.isInitialized(heap, HeapOperations.Phase.DUPLICATE_ARRAYS)) {
+                                    new RequestProcessor("Objects Summary Duplicate Arrays Worker").post(new Runnable() { // NOI18N
+                                        public void run() { computeDuplicateArrays(heap, rs); }
+                                    });
+                                } else {
+                                    SwingUtilities.invokeLater(new Runnable() {
+                                        public void run() { p.failed(Bundle.JavaObjectsSummary_DuplicateArraysFailed()); }
+                                    });
+                                }
+                            }
+                        });
+                        HeapOperations.start(heap, HeapOperations.Phase.DUPLICATE_ARRAYS);
+                        return true;
+                    }
+                };
+            }
+        };
+        
         
         component = new JPanel(new VerticalLayout(false, 5)) {
             public Dimension getMinimumSize() {
@@ -324,6 +319,7 @@ class JavaObjectsSummary extends HeapView {
         
         component.add(classesRow);
         component.add(instancesRow);
+        component.add(duplicateArrays);
         
         new RequestProcessor("Objects Summary Worker").post(new Runnable() { // NOI18N
             public void run() {
@@ -377,6 +373,10 @@ class JavaObjectsSummary extends HeapView {
                 
                 // --- Dominators by Retained Size -----------------------------
                 if (retainedAvailable) computeDominators(heap, dominatorsByRetainedSize);
+                
+                
+                // --- Duplicate Arrays by Wasted Size -------------------------
+                if (duplicatesAvailable) computeDuplicateArrays(heap, duplicateArrays);
             }
         });
     }
@@ -396,13 +396,61 @@ class JavaObjectsSummary extends HeapView {
     }
     
     
-    private void configureSnippet(final ResultsSnippet snippet, final Object[][] data) {
-        final TableModel model = new DefaultTableModel(data, new Object[] {
-                                            Bundle.JavaObjectsSummary_NameColumn(),
-                                            Bundle.JavaObjectsSummary_ValueColumn() }) {
+    private void computeDuplicateArrays(Heap heap, ResultsSnippet duplicateArrays) {
+        configureSnippet(duplicateArrays, createDuplicateArraysModel(heap, PREVIEW_ITEMS));
+    }
+    
+    private void showDuplicateArrays(final Heap heap, ProfilerRenderer instanceRenderer, HideableBarRenderer sizeRenderer) {
+        final ResultsSnippet allDuplicates = new DuplicateArraysSnippet(Bundle.JavaObjectsSummary_DuplicateArrays(), null, instanceRenderer, sizeRenderer);
+        
+        new RequestProcessor("Objects Summary Duplicate Arrays Worker").post(new Runnable() { // NOI18N
+            public void run() {
+                configureSnippet(allDuplicates, createDuplicateArraysModel(heap, Integer.MAX_VALUE));
+            }
+        });
+        
+        ScrollableContainer allDuplicatesScroll = new ScrollableContainer(allDuplicates);
+        allDuplicatesScroll.setPreferredSize(new Dimension(700, 450));
+        DialogDescriptor dd = new DialogDescriptor(allDuplicatesScroll,
+                              Bundle.JavaObjectsSummary_DuplicateArrays(), false,
+                              new Object[] { DialogDescriptor.OK_OPTION },
+                              DialogDescriptor.OK_OPTION, DialogDescriptor.DEFAULT_ALIGN,
+                              null, null);
+        DialogDisplayer.getDefault().createDialog(dd).setVisible(true);
+    }
+    
+    private static TableModel createDuplicateArraysModel(Heap heap, int number) {
+        List<DuplicateArrays> duplicates = heap.getDuplicateArrays(number);
+        Object[][] duplicatesData = new Object[duplicates.size()][3];
+        for (int i = 0; i < duplicatesData.length; i++) {
+            DuplicateArrays group = duplicates.get(i);
+            StringBuilder owners = new StringBuilder();
+            for (JavaClass owner : group.getOwnerClasses()) {
+                if (owners.length() > 0) owners.append(", "); // NOI18N
+                owners.append(owner.getName());
+            }
+            duplicatesData[i][0] = new InstanceNode(group.getInstances().get(0));
+            duplicatesData[i][1] = owners.toString();
+            duplicatesData[i][2] = group.getWastedSize();
+        }
+        return createModel(duplicatesData, Bundle.JavaObjectsSummary_NameColumn(),
+                                           Bundle.JavaObjectsSummary_OwnersColumn(),
+                                           Bundle.JavaObjectsSummary_ValueColumn());
+    }
+    
+    
+    private void configureSnippet(ResultsSnippet snippet, Object[][] data) {
+        configureSnippet(snippet, createModel(data, Bundle.JavaObjectsSummary_NameColumn(),
+                                                    Bundle.JavaObjectsSummary_ValueColumn()));
+    }
+    
+    private static TableModel createModel(Object[][] data, Object... columns) {
+        return new DefaultTableModel(data, columns) {
             public boolean isCellEditable(int row, int column) { return false; }
         };
-        
+    }
+    
+    private void configureSnippet(final ResultsSnippet snippet, final TableModel model) {
         SwingUtilities.invokeLater(new Runnable() {
             public void run() {
                 snippet.setRealModel(model);
@@ -433,30 +481,34 @@ class JavaObjectsSummary extends HeapView {
             c.weighty = 1d;
             sectionSeparator.add(caption, c);
 
-            c = new GridBagConstraints();
-            c.gridx = 1;
-            c.gridy = 0;
-            c.insets = new Insets(0, 5, 0, 0);
-            sectionSeparator.add(new JLabel("["), c); // NOI18N
-            
-            link = new LinkButton(Bundle.JavaObjectsSummary_ViewAll()) {
-                @Override
-                protected void clicked() {
-                    SwingUtilities.invokeLater(allDisplayer);
-                }
-            };
-            link.setEnabled(false);
-            c = new GridBagConstraints();
-            c.gridx = 2;
-            c.gridy = 0;
-            c.insets = new Insets(0, 0, 0, 0);
-            sectionSeparator.add(link, c);
-            
-            c = new GridBagConstraints();
-            c.gridx = 3;
-            c.gridy = 0;
-            c.insets = new Insets(0, 0, 0, 0);
-            sectionSeparator.add(new JLabel("]"), c); // NOI18N
+            if (allDisplayer != null) {
+                c = new GridBagConstraints();
+                c.gridx = 1;
+                c.gridy = 0;
+                c.insets = new Insets(0, 5, 0, 0);
+                sectionSeparator.add(new JLabel("["), c); // NOI18N
+
+                link = new LinkButton(Bundle.JavaObjectsSummary_ViewAll()) {
+                    @Override
+                    protected void clicked() {
+                        SwingUtilities.invokeLater(allDisplayer);
+                    }
+                };
+                link.setEnabled(false);
+                c = new GridBagConstraints();
+                c.gridx = 2;
+                c.gridy = 0;
+                c.insets = new Insets(0, 0, 0, 0);
+                sectionSeparator.add(link, c);
+
+                c = new GridBagConstraints();
+                c.gridx = 3;
+                c.gridy = 0;
+                c.insets = new Insets(0, 0, 0, 0);
+                sectionSeparator.add(new JLabel("]"), c); // NOI18N
+            } else {
+                link = null;
+            }
 
             c = new GridBagConstraints();
             c.gridx = 4;
@@ -523,7 +575,7 @@ class JavaObjectsSummary extends HeapView {
             setupTable(table);
             enableTableEvents(table);
             
-            link.setEnabled(true);
+            if (link != null) link.setEnabled(true);
         }
         
         protected void setupTable(ProfilerTable table) {}
@@ -604,6 +656,112 @@ class JavaObjectsSummary extends HeapView {
     }
     
     
+    private class DuplicateArraysSnippet extends ResultsSnippet {
+        
+        private final ProfilerRenderer instanceRenderer;
+        private final HideableBarRenderer sizeRenderer;
+        
+        DuplicateArraysSnippet(String text, Runnable allDisplayer, ProfilerRenderer instanceRenderer, HideableBarRenderer sizeRenderer) {
+            super(text, allDisplayer);
+            this.instanceRenderer = instanceRenderer;
+            this.sizeRenderer = sizeRenderer;
+        }
+        
+        protected void setupTable(ProfilerTable table) {
+            table.setColumnRenderer(0, instanceRenderer);
+            table.setColumnRenderer(1, new LabelRenderer());
+            table.setColumnRenderer(2, sizeRenderer);
+            table.setDefaultColumnWidth(2, sizeRenderer.getNoBarWidth() + 10);
+        }
+        
+    }
+    
+    
+    // asks to compute data, which the snippet displays
+    private static abstract class ComputePanel extends JPanel {
+        
+        private final JLabel label;
+        private final JButton button;
+        
+        ComputePanel(String labelText, String buttonText, final String computingText) {
+            super(new GridBagLayout());
+            setOpaque(false);
+            
+            label = new JLabel(labelText, JLabel.LEADING);
+            GridBagConstraints c = new GridBagConstraints();
+            c.gridx = 0;
+            c.gridy = 0;
+            c.fill = GridBagConstraints.NONE;
+            c.anchor = GridBagConstraints.NORTHWEST;
+            c.insets = new Insets(2, 2, 2, 2);
+            add(label, c);
+            
+            c = new GridBagConstraints();
+            c.gridx = 1;
+            c.gridy = 0;
+            c.weightx = 1d;
+            c.fill = GridBagConstraints.HORIZONTAL;
+            c.anchor = GridBagConstraints.NORTHWEST;
+            c.insets = new Insets(0, 0, 0, 0);
+            add(UIUtils.createFillerPanel(), c);
+            
+            c = new GridBagConstraints();
+            c.gridx = 0;
+            c.gridy = 1;
+            c.fill = GridBagConstraints.NONE;
+            c.anchor = GridBagConstraints.NORTHWEST;
+            c.insets = new Insets(2, 2, 2, 2);
+            
+            button = new JButton(buttonText) {
+                protected void fireActionPerformed(ActionEvent e) {
+                    if (compute()) {
+                        setVisible(false);
+                        update(computingText, Icons.getIcon(HeapWalkerIcons.PROGRESS));
+                    }
+                }
+            };
+            add(button, c);
+            
+            c = new GridBagConstraints();
+            c.gridx = 1;
+            c.gridy = 1;
+            c.weightx = 1d;
+            c.fill = GridBagConstraints.HORIZONTAL;
+            c.anchor = GridBagConstraints.NORTHWEST;
+            c.insets = new Insets(0, 0, 0, 0);
+            add(UIUtils.createFillerPanel(), c);
+            
+            c = new GridBagConstraints();
+            c.gridx = 0;
+            c.gridy = 2;
+            c.weightx = 1d;
+            c.weighty = 1d;
+            c.fill = GridBagConstraints.BOTH;
+            c.anchor = GridBagConstraints.NORTHWEST;
+            c.insets = new Insets(0, 0, 0, 0);
+            add(UIUtils.createFillerPanel(), c);
+        }
+        
+        // starts the computation, returns false if it has not been started
+        protected abstract boolean compute();
+        
+        // the computation can be started again
+        void failed(String text) {
+            button.setVisible(true);
+            update(text, null);
+        }
+        
+        private void update(String text, Icon icon) {
+            label.setText(text);
+            label.setIcon(icon);
+            invalidate();
+            revalidate();
+            repaint();
+        }
+        
+    }
+    
+    
     @ServiceProvider(service=SummaryView.ContentProvider.class, position = 300)
     public static class Provider extends SummaryView.ContentProvider {
 
@@ -124,6 +124,11 @@ public abstract class HeapViewerNode extends CCTNode {
         }
     }
     
+    // children currently held by the node, does not compute or retrieve them
+    HeapViewerNode[] getLoadedChildren() {
+        return children;
+    }
+    
     private boolean childrenComputed() {
         if (children == null) return false;
         if (children.length == 0 || children.length > 1) return true;
@@ -26,41 +26,191 @@
 package org.graalvm.visualvm.heapviewer.model;
 
 import java.lang.ref.Reference;
-import java.lang.ref.WeakReference;
-import java.util.HashMap;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.graalvm.visualvm.lib.jfluid.results.CCTNode;
 
 /**
+ * Cache of children of collapsed nodes. The cache is split into shards
+ * guarded by separate locks, each shard evicts the entries stored first (FIFO)
+ * when the number of cached nodes exceeds its share of the limit. Retrieved
+ * entries leave the cache, collapsing the node again stores them as the newest.
+ * Children are softly referenced, entries are also released under memory pressure.
  *
  * @author Jiri Sedlacek
  */
 public final class NodesCache {
     
-    private Reference<Map<NodeKey, HeapViewerNode[]>> cache;
+    private static final Logger LOGGER = Logger.getLogger(NodesCache.class.getName());
+    
+    private static final String MAX_NODES_PROP = "org.graalvm.visualvm.heapviewer.nodesCache.maxNodes"; // NOI18N
+    private static final long MAX_NODES = Long.getLong(MAX_NODES_PROP, Math.max(100000, Runtime.getRuntime().maxMemory() / 2048));
+    private static final int SHARDS = 16;
+    
+    private final Shard[] shards;
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    
+    
+    public NodesCache() {
+        this(MAX_NODES);
+    }
+    
+    public NodesCache(long maxNodes) {
+        shards = new Shard[SHARDS];
+        for (int i = 0; i < shards.length; i++)
+            shards[i] = new Shard(Math.max(1, maxNodes / SHARDS));
+    }
     
     
     public void storeChildren(HeapViewerNode node, HeapViewerNode[] children) {
-        getCache().put(new NodeKey(node), children);
+        NodeKey key = new NodeKey(node);
+        getShard(key).put(key, children);
     }
     
     public HeapViewerNode[] retrieveChildren(HeapViewerNode node) {
-        return getCache().remove(new NodeKey(node));
+        NodeKey key = new NodeKey(node);
+        HeapViewerNode[] children = getShard(key).remove(key);
+        
+        if (children != null) hits.incrementAndGet();
+        else misses.incrementAndGet();
+        
+        return children;
     }
     
     
     public void clear() {
-        cache = null;
+        if (LOGGER.isLoggable(Level.FINE)) LOGGER.log(Level.FINE, "Nodes cache cleared: {0} nodes, {1} hits, {2} misses, {3} evictions", // NOI18N
+                                                      new Object[] { getNodesCount(), getHitCount(), getMissCount(), getEvictionCount() });
+        for (Shard shard : shards) shard.clear();
+    }
+    
+    
+    public long getHitCount() {
+        return hits.get();
+    }
+    
+    public long getMissCount() {
+        return misses.get();
+    }
+    
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+    
+    public long getNodesCount() {
+        long count = 0;
+        for (Shard shard : shards) count += shard.getWeight();
+        return count;
+    }
+    
+    
+    private Shard getShard(NodeKey key) {
+        int hash = key.hashCode();
+        return shards[(hash ^ (hash >>> 16)) & (SHARDS - 1)];
+    }
+    
+    
+    private final class Shard {
+        
+        private final long maxWeight;
+        private final Map<NodeKey, Entry> entries = new LinkedHashMap<>();
+        private final ReferenceQueue<HeapViewerNode[]> collected = new ReferenceQueue<>();
+        private long weight;
+        
+        Shard(long maxWeight) {
+            this.maxWeight = maxWeight;
+        }
+        
+        synchronized void put(NodeKey key, HeapViewerNode[] children) {
+            expungeCollected();
+            
+            Entry previous = entries.remove(key);
+            if (previous != null) weight -= previous.weight;
+            
+            // the weight of an entry is the number of nodes it keeps reachable,
+            // just the direct children when their own children have been forgotten
+            long childrenWeight = Math.max(1, weight(children));
+            if (childrenWeight > maxWeight) {
+                evictions.incrementAndGet();
+                return;
+            }
+            
+            entries.put(key, new Entry(key, children, childrenWeight, collected));
+            weight += childrenWeight;
+            
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (weight > maxWeight) {
+                weight -= eldest.next().weight;
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+        
+        synchronized HeapViewerNode[] remove(NodeKey key) {
+            expungeCollected();
+            
+            Entry entry = entries.remove(key);
+            if (entry == null) return null;
+            
+            weight -= entry.weight;
+            return entry.get();
+        }
+        
+        synchronized void clear() {
+            entries.clear();
+            weight = 0;
+            while (collected.poll() != null);
+        }
+        
+        synchronized long getWeight() {
+            expungeCollected();
+            return weight;
+        }
+        
+        private long weight(HeapViewerNode[] children) {
+            long nodes = children.length;
+            for (HeapViewerNode child : children) {
+                HeapViewerNode[] loaded = child.getLoadedChildren();
+                if (loaded != null) nodes += weight(loaded);
+            }
+            return nodes;
+        }
+        
+        // removes entries released by the GC
+        private void expungeCollected() {
+            Reference<? extends HeapViewerNode[]> reference;
+            while ((reference = collected.poll()) != null) {
+                Entry entry = (Entry)reference;
+                if (entries.remove(entry.key, entry)) {
+                    weight -= entry.weight;
+                    evictions.incrementAndGet();
+                }
+            }
+        }
+        
     }
     
     
-    private Map<NodeKey, HeapViewerNode[]> getCache() {
-        Map<NodeKey, HeapViewerNode[]> c = cache == null ? null : cache.get();
-        if (c == null) {
-            c = new HashMap<>();
-            cache = new WeakReference<>(c);
+    private static final class Entry extends SoftReference<HeapViewerNode[]> {
+        
+        private final NodeKey key;
+        private final long weight;
+        
+        Entry(NodeKey key, HeapViewerNode[] children, long weight, ReferenceQueue<HeapViewerNode[]> queue) {
+            super(children, queue);
+            this.key = key;
+            this.weight = weight;
         }
-        return c;
+        
     }
     
     
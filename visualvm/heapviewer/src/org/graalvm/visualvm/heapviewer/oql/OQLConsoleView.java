@@ -278,6 +278,7 @@ public class OQLConsoleView extends HeapViewerFeature {
     @Override
     protected void closed() {
         if (objectsView != null) objectsView.closed();
+        if (oqlExecutor != null) oqlExecutor.release();
     }
     
     
@@ -136,6 +136,14 @@ class OQLQueryExecutor {
         queryFinished(hasObjectsResults, hasHTMLResults, errorMessage);
     }
     
+    void release() {
+        try {
+            engine.cancelQuery();
+        } catch (OQLException e) {}
+        engine.release();
+        progressUpdater.shutdown();
+    }
+    
     boolean isQueryRunning() {
         return queryRunning.get();
     }
@@ -26,9 +26,15 @@ package org.graalvm.visualvm.heapviewer.utils;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 import org.graalvm.visualvm.lib.jfluid.heap.Heap;
@@ -40,19 +46,52 @@ import org.openide.util.NbBundle;
 import org.openide.util.RequestProcessor;
 
 /**
+ * Computes heap data in phases. Every phase is started once its dependencies
+ * are computed, independent phases run concurrently. Listeners registered for
+ * a phase are notified as soon as the phase is computed.
  *
  * @author Jiri Sedlacek
  */
 @NbBundle.Messages({
+    "HeapOperations_ComputingInstances=Computing Instances...",
     "HeapOperations_ComputingReferences=Computing References...",
     "HeapOperations_ComputingGCRoots=Computing GC Roots...",
-    "HeapOperations_ComputingRetainedSizes=Computing Retained Sizes..."
+    "HeapOperations_ComputingRetainedSizes=Computing Retained Sizes...",
+    "HeapOperations_ComputingDuplicateArrays=Computing Duplicate Arrays..."
 })
 public final class HeapOperations {
     
+    public static enum Phase {
+        
+        INSTANCES,
+        REFERENCES(INSTANCES),
+        GC_ROOTS(REFERENCES),
+        RETAINED_SIZES(GC_ROOTS),
+        DUPLICATE_ARRAYS(REFERENCES); // owners of the duplicate arrays are displayed
+        
+        private final Phase[] dependencies;
+        
+        private Phase(Phase... dependencies) {
+            this.dependencies = dependencies;
+        }
+        
+    }
+    
+    
+    // one thread per phase, phases waiting for dependencies do not block other phases
+    private static final RequestProcessor PROCESSOR = new RequestProcessor("Heap Operations", Phase.values().length); // NOI18N
+    
+    private static final Logger LOGGER = Logger.getLogger(HeapOperations.class.getName());
+    
     private static Map<Heap, HeapOperations> INSTANCES;
     
     
+    private final Set<Phase> computed = EnumSet.noneOf(Phase.class);
+    private final Set<Phase> cancelled = EnumSet.noneOf(Phase.class);
+    private final Map<Phase, RequestProcessor.Task> computers = new EnumMap<>(Phase.class);
+    private final Map<Phase, List<Runnable>> listeners = new EnumMap<>(Phase.class);
+    
+    
     private HeapOperations() {}
     
     
@@ -66,167 +105,195 @@ public final class HeapOperations {
     
     
     public static void initializeReferences(Heap heap) throws InterruptedException {
-        get(heap).initializeReferencesImpl(heap);
+        initialize(heap, Phase.REFERENCES);
     }
     
     public static void initializeGCRoots(Heap heap) throws InterruptedException {
-        get(heap).initializeGCRootsImpl(heap);
+        initialize(heap, Phase.GC_ROOTS);
     }
     
     public static void initializeRetainedSizes(Heap heap) throws InterruptedException {
-        get(heap).initializeRetainedSizesImpl(heap);
+        initialize(heap, Phase.RETAINED_SIZES);
     }
     
+    // Waits until the phase and all its dependencies are computed
+    public static void initialize(Heap heap, Phase phase) throws InterruptedException {
+        assert !SwingUtilities.isEventDispatchThread();
+        
+        get(heap).initializeImpl(heap, phase);
+    }
     
-    // --- References ----------------------------------------------------------
+    // Starts computing the phases without waiting for the result
+    public static void start(Heap heap, Phase... phases) {
+        HeapOperations operations = get(heap);
+        for (Phase phase : phases) operations.schedule(heap, phase);
+    }
     
-    private volatile boolean referencesInitialized;
-    private volatile RequestProcessor.Task referencesComputer;
+    public static boolean isInitialized(Heap heap, Phase phase) {
+        return get(heap).isComputed(phase);
+    }
     
-    private void initializeReferencesImpl(Heap heap) throws InterruptedException {
-        RequestProcessor.Task _referencesComputer;
-        
-        synchronized (this) {
-            if (referencesInitialized) return;
-            
-            if (referencesComputer == null) {
-                Runnable workerR = new Runnable() {
-                    public void run() {
-                        OpProgressHandle pHandle = null;
-
-                        try {
-                            pHandle = new OpProgressHandle(Bundle.HeapOperations_ComputingReferences());
-                            pHandle.setInitialDelay(1000);
-                            pHandle.start(HeapProgress.PROGRESS_MAX);
-
-                            pHandle.setProgress(0);
-
-                            Instance dummy = heap.getAllInstancesIterator().next();
-                            dummy.getReferences();
-                        } finally {
-                            if (pHandle != null) pHandle.finish();
-                        }
-
-                        synchronized (HeapOperations.this) {
-                            referencesInitialized = true;
-                            referencesComputer = null;
-                        }
-                    }
-                };
-                referencesComputer = new RequestProcessor("References Computer").post(workerR); // NO18N
-                _referencesComputer = referencesComputer;
-            } else {
-                _referencesComputer = referencesComputer;
-            }
-        }
-        
-        assert !SwingUtilities.isEventDispatchThread();
-
-        _referencesComputer.waitFinished(0);
+    // Runs the target in a worker thread once the phase is computed or its computation failed,
+    // immediately if already computed. The target checks isInitialized() to find out which one.
+    public static void notifyWhenInitialized(Heap heap, Phase phase, Runnable target) {
+        get(heap).addListener(phase, target);
     }
     
+    // Cancels phases which have not started computing yet
+    public static void cancel(Heap heap) {
+        get(heap).cancelImpl();
+    }
     
-    // --- GC Roots ------------------------------------------------------------
     
-    private volatile boolean gcrootsInitialized;
-    private volatile RequestProcessor.Task gcrootsComputer;
+    private void initializeImpl(Heap heap, Phase phase) throws InterruptedException {
+        RequestProcessor.Task computer = schedule(heap, phase);
+        if (computer != null) computer.waitFinished(0);
+        
+        if (!isComputed(phase)) throw new InterruptedException();
+    }
     
-    private void initializeGCRootsImpl(Heap heap) throws InterruptedException {
-        initializeReferencesImpl(heap);
+    private synchronized boolean isComputed(Phase phase) {
+        return computed.contains(phase);
+    }
+    
+    private synchronized RequestProcessor.Task schedule(final Heap heap, final Phase phase) {
+        if (computed.contains(phase)) return null;
         
-        RequestProcessor.Task _gcrootsComputer;
+        RequestProcessor.Task computer = computers.get(phase);
+        if (computer != null) return computer;
         
-        synchronized (this) {
-            if (gcrootsInitialized) return;
+        final List<RequestProcessor.Task> dependencies = new ArrayList<>();
+        for (Phase dependency : phase.dependencies) {
+            RequestProcessor.Task dependencyComputer = schedule(heap, dependency);
+            if (dependencyComputer != null) dependencies.add(dependencyComputer);
+        }
+        
+        computer = PROCESSOR.create(new Runnable() {
+            public void run() { compute(heap, phase, dependencies); }
+        });
+        computers.put(phase, computer);
+        cancelled.remove(phase);
+        computer.schedule(0);
+        
+        return computer;
+    }
+    
+    private void compute(Heap heap, Phase phase, List<RequestProcessor.Task> dependencies) {
+        List<Runnable> targets = null;
+        
+        try {
+            for (RequestProcessor.Task dependency : dependencies) dependency.waitFinished(0);
             
-            if (gcrootsComputer == null) {
-                Runnable workerR = new Runnable() {
-                    public void run() {
-                        OpProgressHandle pHandle = null;
-
-                        try {
-                            pHandle = new OpProgressHandle(Bundle.HeapOperations_ComputingGCRoots());
-                            pHandle.setInitialDelay(1000);
-                            pHandle.start(HeapProgress.PROGRESS_MAX);
-
-                            pHandle.setProgress(0);
-
-                            Instance dummy = heap.getAllInstancesIterator().next();
-                            dummy.getNearestGCRootPointer();
-                        } finally {
-                            if (pHandle != null) pHandle.finish();
-                        }
-
-                        synchronized (HeapOperations.this) {
-                            gcrootsInitialized = true;
-                            gcrootsComputer = null;
-                        }
-                    }
-                };
-                gcrootsComputer = new RequestProcessor("GC Roots Computer").post(workerR); // NO18N
-                _gcrootsComputer = gcrootsComputer;
-            } else {
-                _gcrootsComputer = gcrootsComputer;
+            synchronized (this) {
+                if (cancelled.remove(phase)) return;
+                for (Phase dependency : phase.dependencies)
+                    if (!computed.contains(dependency)) return; // dependency has been cancelled
+            }
+            
+            computePhase(heap, phase);
+            
+            synchronized (this) {
+                computed.add(phase);
+            }
+        } catch (InterruptedException ex) {
+            // worker interrupted while waiting for dependencies
+        } catch (OutOfMemoryError e) {
+            HeapUtils.handleOOME(true, e);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.INFO, "Failed to compute " + phase, e); // NOI18N
+        } finally {
+            synchronized (this) {
+                computers.remove(phase);
+                // listeners are notified and released whether the phase has been computed or not
+                targets = listeners.remove(phase);
             }
         }
         
-        assert !SwingUtilities.isEventDispatchThread();
-
-        _gcrootsComputer.waitFinished(0);
+        if (targets != null) for (Runnable target : targets) target.run();
     }
     
-    // --- Retained Sizes ------------------------------------------------------------
-    
-    private volatile boolean retainedInitialized;
-    private volatile RequestProcessor.Task retainedComputer;
-    
-    private void initializeRetainedSizesImpl(Heap heap) throws InterruptedException {
-        initializeGCRootsImpl(heap);
+    private static void computePhase(Heap heap, Phase phase) {
+        OpProgressHandle pHandle = null;
         
-        RequestProcessor.Task _retainedComputer;
+        try {
+            switch (phase) {
+                case INSTANCES:
+                    pHandle = startProgress(Bundle.HeapOperations_ComputingInstances());
+                    
+                    List<JavaClass> classes = heap.getAllClasses();
+                    if (!classes.isEmpty()) classes.get(0).getInstancesCount();
+                    break;
+                case REFERENCES:
+                    pHandle = startProgress(Bundle.HeapOperations_ComputingReferences());
+                    
+                    Instance dummy = heap.getAllInstancesIterator().next();
+                    dummy.getReferences();
+                    break;
+                case GC_ROOTS:
+                    pHandle = startProgress(Bundle.HeapOperations_ComputingGCRoots());
+                    
+                    dummy = heap.getAllInstancesIterator().next();
+                    dummy.getNearestGCRootPointer();
+                    break;
+                case RETAINED_SIZES:
+                    pHandle = new OpProgressHandle(Bundle.HeapOperations_ComputingRetainedSizes());
+                    pHandle.setInitialDelay(1000);
+                    pHandle.start();
+
+                    pHandle.setRetainedSizesProgress(HeapProgress.PROGRESS_MAX, 3*HeapProgress.PROGRESS_MAX);
+
+                    dummy = heap.getAllInstancesIterator().next();
+                    dummy.getRetainedSize();
+
+                    pHandle.setProgress(2*HeapProgress.PROGRESS_MAX);
+
+                    classes = heap.getAllClasses();
+                    if (!classes.isEmpty()) classes.get(0).getRetainedSizeByClass();
+                    break;
+                case DUPLICATE_ARRAYS:
+                    pHandle = startProgress(Bundle.HeapOperations_ComputingDuplicateArrays());
+                    
+                    heap.getDuplicateArrays(1);
+                    break;
+            }
+        } finally {
+            if (pHandle != null) pHandle.finish();
+        }
+    }
+    
+    private static OpProgressHandle startProgress(String displayName) {
+        OpProgressHandle pHandle = new OpProgressHandle(displayName);
+        pHandle.setInitialDelay(1000);
+        pHandle.start(HeapProgress.PROGRESS_MAX);
+
+        pHandle.setProgress(0);
         
+        return pHandle;
+    }
+    
+    private void addListener(Phase phase, Runnable target) {
         synchronized (this) {
-            if (retainedInitialized) return;
-            
-            if (retainedComputer == null) {
-                Runnable workerR = new Runnable() {
-                    public void run() {
-                        OpProgressHandle pHandle = null;
-
-                        try {
-                            pHandle = new OpProgressHandle(Bundle.HeapOperations_ComputingRetainedSizes());
-                            pHandle.setInitialDelay(1000);
-                            pHandle.start();
-
-                            pHandle.setRetainedSizesProgress(HeapProgress.PROGRESS_MAX, 3*HeapProgress.PROGRESS_MAX);
-
-                            Instance dummy = heap.getAllInstancesIterator().next();
-                            dummy.getRetainedSize();
-
-                            pHandle.setProgress(2*HeapProgress.PROGRESS_MAX);
-
-                            List<JavaClass> classes = heap.getAllClasses();
-                            if (!classes.isEmpty()) classes.get(0).getRetainedSizeByClass();
-                        } finally {
-                            if (pHandle != null) pHandle.finish();
-                        }
-
-                        synchronized (HeapOperations.this) {
-                            retainedInitialized = true;
-                            retainedComputer = null;
-                        }
-                    }
-                };
-                retainedComputer = new RequestProcessor("Retained Sizes Computer").post(workerR); // NO18N
-                _retainedComputer = retainedComputer;
-            } else {
-                _retainedComputer = retainedComputer;
+            if (!computed.contains(phase)) {
+                List<Runnable> targets = listeners.get(phase);
+                if (targets == null) {
+                    targets = new ArrayList<>();
+                    listeners.put(phase, targets);
+                }
+                targets.add(target);
+                return;
             }
         }
         
-        assert !SwingUtilities.isEventDispatchThread();
-
-        _retainedComputer.waitFinished(0);
+        PROCESSOR.post(target);
+    }
+    
+    private synchronized void cancelImpl() {
+        // running heap computations cannot be stopped safely, they finish and remain computed
+        for (Map.Entry<Phase, RequestProcessor.Task> entry : new ArrayList<>(computers.entrySet())) {
+            if (entry.getValue().cancel()) computers.remove(entry.getKey());
+            else cancelled.add(entry.getKey());
+        }
+        listeners.clear();
     }
 
     public static class OpProgressHandle {
@@ -51,7 +51,7 @@ public abstract class NodesComputer<T> {
     
     private static final int EXTRA_ALLOWED_ITEMS = 10;
     
-    private final int itemsCount;
+    private final long itemsCount;
     private final int maxItemsCount;
     
     
@@ -59,8 +59,8 @@ public abstract class NodesComputer<T> {
         this(Integer.MAX_VALUE, maxItemsCount);
     }
     
-    // TODO: itemsCount may be long, disable random access and provide just <next N objects>
-    public NodesComputer(int itemsCount, int maxItemsCount) {
+    // itemsCount which does not fit into int is handled as unknown, random access is not provided for such items
+    public NodesComputer(long itemsCount, int maxItemsCount) {
         this.itemsCount = itemsCount;
         this.maxItemsCount = maxItemsCount;
     }
@@ -72,6 +72,11 @@ public abstract class NodesComputer<T> {
     
     protected abstract ProgressIterator<T> objectsIterator(int index, Progress progress);
     
+    // Objects sorted according to the dataType and sortOrder starting at index, null if random access to sorted objects is not available
+    protected ProgressIterator<T> sortedObjectsIterator(int index, DataType dataType, SortOrder sortOrder, Progress progress) {
+        return null;
+    }
+    
     
     protected String getMoreNodesString(String moreNodesCount)  {
         return Bundle.NodesComputer_MoreNodes(moreNodesCount);
@@ -87,10 +92,12 @@ public abstract class NodesComputer<T> {
     
     
     public HeapViewerNode[] computeNodes(HeapViewerNode parent, final Heap heap, String viewID, final HeapViewerNodeFilter viewFilter, List<DataType> dataTypes, List<SortOrder> sortOrders, Progress progress) throws InterruptedException {
-        if (itemsCount <= (maxItemsCount + EXTRA_ALLOWED_ITEMS)) {
+        boolean countKnown = itemsCount >= 0 && itemsCount < Integer.MAX_VALUE;
+        
+        if (countKnown && itemsCount <= (maxItemsCount + EXTRA_ALLOWED_ITEMS)) {
             // All objects unsorted
             int i = 0;
-            HeapViewerNode[] nodes = new HeapViewerNode[itemsCount];
+            HeapViewerNode[] nodes = new HeapViewerNode[(int)itemsCount];
             Iterator<HeapViewerNode> nodesIt = nodesIterator(0, viewFilter, heap, progress);
             // Do not count progress, expected to perform fast
             while (nodesIt.hasNext()) nodes[i++] = nodesIt.next();
@@ -105,8 +112,11 @@ public abstract class NodesComputer<T> {
             if (dataType != null && !sorts(dataType)) dataType = null;
             
             SortOrder sortOrder = dataType == null || sortOrders == null || sortOrders.isEmpty() ? null : sortOrders.get(0);
+            boolean unsorted = dataType == null || sortOrder == null || SortOrder.UNSORTED.equals(sortOrder);
             
-            if (itemsCount < Integer.MAX_VALUE && viewFilter == null && (dataType == null || sortOrder == null || SortOrder.UNSORTED.equals(sortOrder))) {
+            ProgressIterator<T> sortedIt = countKnown && viewFilter == null && !unsorted ? sortedObjectsIterator(0, dataType, sortOrder, progress) : null;
+            
+            if (countKnown && viewFilter == null && unsorted) {
                 // First N objects unsorted
                 int i = 0;
                 HeapViewerNode[] nodes = new HeapViewerNode[maxItemsCount + 1];
@@ -118,7 +128,7 @@ public abstract class NodesComputer<T> {
                 
                 Format format = Formatters.numberFormat();
                 String moreNodesString = getMoreNodesString(format.format(itemsCount - maxItemsCount));
-                nodes[maxItemsCount] = new MoreObjectsNode<T>(moreNodesString, itemsCount, itemsCount, nodesIt.nextObject, maxItemsCount - 1) {
+                nodes[maxItemsCount] = new MoreObjectsNode<T>(moreNodesString, (int)itemsCount, (int)itemsCount, nodesIt.nextObject, maxItemsCount - 1) {
                     protected boolean sorts(DataType dataType) {
                         return NodesComputer.this.sorts(dataType);
                     }
@@ -136,6 +146,51 @@ public abstract class NodesComputer<T> {
                     }
                 };
                 
+                return nodes;
+            } else if (sortedIt != null) {
+                // First N objects according to the provided sorting, sorted objects provide random access
+                final DataType sortedDataType = dataType;
+                final SortOrder sortedSortOrder = sortOrder;
+                
+                int i = 0;
+                HeapViewerNode[] nodes = new HeapViewerNode[maxItemsCount + 1];
+                T lastObject = null;
+                
+                try {
+                    progress.setupKnownSteps(maxItemsCount);
+                    
+                    Iterator<T> objectsIt = new InterruptibleIterator<>(sortedIt);
+                    while (i < maxItemsCount && objectsIt.hasNext()) {
+                        lastObject = objectsIt.next();
+                        nodes[i++] = createNode(lastObject);
+                    }
+                    
+                    if (Thread.currentThread().isInterrupted()) throw new InterruptedException();
+                } finally {
+                    progress.finish();
+                }
+                
+                Format format = Formatters.numberFormat();
+                String moreNodesString = getMoreNodesString(format.format(itemsCount - maxItemsCount));
+                nodes[maxItemsCount] = new MoreObjectsNode<T>(moreNodesString, (int)itemsCount, (int)itemsCount, lastObject, maxItemsCount - 1) {
+                    protected boolean sorts(DataType dataType) {
+                        // objects are already sorted, containers are plain offset lookups
+                        return false;
+                    }
+                    protected HeapViewerNode createNode(T object) {
+                        return NodesComputer.this.createNode(object);
+                    }
+                    protected Iterator<T> objectsIterator(int index, Progress progress) {
+                        return new InterruptibleIterator<>(NodesComputer.this.sortedObjectsIterator(index, sortedDataType, sortedSortOrder, progress));
+                    }
+                    protected String getSamplesContainerString(String objectsCount)  {
+                        return NodesComputer.this.getSamplesContainerString(objectsCount);
+                    }
+                    protected String getNodesContainerString(String firstNodeIdx, String lastNodeIdx)  {
+                        return NodesComputer.this.getNodesContainerString(firstNodeIdx, lastNodeIdx);
+                    }
+                };
+                
                 return nodes;
             } else {
                 // First N objects according to the provided sorting
@@ -148,7 +203,7 @@ public abstract class NodesComputer<T> {
                 T[] objects;
                 
                 try {
-                    if (itemsCount == Integer.MAX_VALUE) progress.setupUnknownSteps();
+                    if (!countKnown) progress.setupUnknownSteps();
                     else progress.setupKnownSteps(itemsCount);
                     
                     objectsIt = objectsIterator(0, 0, -1, viewFilter, heap, progress);
@@ -163,7 +218,7 @@ public abstract class NodesComputer<T> {
                 
                 int objectsCount = objects.length;
 //                final int totalObjectsCount = buffer.getTotalObjects();
-                final int totalOwnItems = objectsIt.getTotalOwnItems();
+                final int totalOwnItems = (int)Math.min(objectsIt.getTotalOwnItems(), Integer.MAX_VALUE);
                 if (objectsCount == totalOwnItems) {
                     // No MoreNodesNode needed
                     HeapViewerNode[] nodes = new HeapViewerNode[objectsCount];
@@ -182,7 +237,8 @@ public abstract class NodesComputer<T> {
 
                     Format format = Formatters.numberFormat();
                     String moreNodesString = getMoreNodesString(format.format(totalOwnItems - maxItemsCount));
-                    nodes[objectsCount] = new MoreObjectsNode<T>(moreNodesString, totalOwnItems, objectsIt.getTotalItems(), lastObject, objectsCount - 1) {
+                    int totalItems = (int)Math.min(objectsIt.getTotalItems(), Integer.MAX_VALUE);
+                    nodes[objectsCount] = new MoreObjectsNode<T>(moreNodesString, totalOwnItems, totalItems, lastObject, objectsCount - 1) {
                         protected boolean sorts(DataType dataType) {
                             return NodesComputer.this.sorts(dataType);
                         }
@@ -230,15 +286,15 @@ public abstract class NodesComputer<T> {
     
     private abstract class ObjectsIterator implements Iterator<T> {
         
-        int totalItems;
+        long totalItems;
         
         int firstOwnItem;
-        int totalOwnItems;
+        long totalOwnItems;
         
-        int getTotalItems() { return totalItems; }
+        long getTotalItems() { return totalItems; }
         
         int getFirstOwnItem() { return firstOwnItem; }
-        int getTotalOwnItems() { return totalOwnItems; }
+        long getTotalOwnItems() { return totalOwnItems; }
     }
     
     private class PlainObjectsIterator extends ObjectsIterator {
@@ -302,7 +358,7 @@ public abstract class NodesComputer<T> {
                 T object = iterator.next();
                 HeapViewerNode node = createNode(object);
                 if (viewFilter.passes(node, heap)) {
-                    if (firstOwnItem == -1) firstOwnItem = totalItems;
+                    if (firstOwnItem == -1) firstOwnItem = (int)Math.min(totalItems, Integer.MAX_VALUE);
                     return object;
                 }
             }
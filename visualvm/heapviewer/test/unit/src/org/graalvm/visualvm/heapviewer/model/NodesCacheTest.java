@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.heapviewer.model;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class NodesCacheTest {
+    
+    /**
+     * Cached children are retrieved just once.
+     */
+    @Test
+    public void testRetrieveChildren() {
+        NodesCache cache = new NodesCache(1000);
+        TestNode child = new TestNode();
+        TestNode root = new TestNode(child, new TestNode());
+        HeapViewerNode[] children = new HeapViewerNode[] { new TestNode(), new TestNode(), new TestNode() };
+        
+        cache.storeChildren(child, children);
+        assertEquals(3, cache.getNodesCount());
+        assertNull(cache.retrieveChildren(root));
+        assertSame(children, cache.retrieveChildren(child));
+        assertNull(cache.retrieveChildren(child));
+        
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0, cache.getNodesCount());
+    }
+    
+    /**
+     * Nodes with the same path to the root share the key.
+     */
+    @Test
+    public void testEqualPaths() {
+        NodesCache cache = new NodesCache(1000);
+        TestNode node1 = new TestNode("a"); // NOI18N
+        new TestNode("root", node1); // NOI18N
+        TestNode node2 = new TestNode("a"); // NOI18N
+        new TestNode("root", node2); // NOI18N
+        TestNode node3 = new TestNode("a"); // NOI18N
+        new TestNode("other", node3); // NOI18N
+        
+        HeapViewerNode[] children = new HeapViewerNode[] { new TestNode() };
+        cache.storeChildren(node1, children);
+        assertNull(cache.retrieveChildren(node3));
+        assertSame(children, cache.retrieveChildren(node2));
+    }
+    
+    /**
+     * The entries stored first are evicted when the cache is full.
+     */
+    @Test
+    public void testEviction() {
+        // 16 shards of 10 nodes
+        NodesCache cache = new NodesCache(160);
+        TestNode[] nodes = new TestNode[200];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new TestNode(i);
+            cache.storeChildren(nodes[i], new HeapViewerNode[] { new TestNode(), new TestNode(), new TestNode(), new TestNode() });
+            assertTrue(cache.getNodesCount() <= 160);
+        }
+        assertTrue(cache.getEvictionCount() > 0);
+        assertEquals(nodes.length * 4, cache.getNodesCount() + cache.getEvictionCount() * 4);
+        // the most recently stored children are available
+        assertNotNull(cache.retrieveChildren(nodes[nodes.length - 1]));
+    }
+    
+    /**
+     * Children exceeding the shard limit are not cached.
+     */
+    @Test
+    public void testTooManyChildren() {
+        NodesCache cache = new NodesCache(160);
+        HeapViewerNode[] children = new HeapViewerNode[11];
+        for (int i = 0; i < children.length; i++) children[i] = new TestNode();
+        
+        TestNode node = new TestNode();
+        cache.storeChildren(node, children);
+        assertEquals(0, cache.getNodesCount());
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.retrieveChildren(node));
+    }
+    
+    /**
+     * Children which still hold their own children are weighed with the whole subtree.
+     */
+    @Test
+    public void testLoadedSubtree() {
+        NodesCache cache = new NodesCache(1000);
+        TestNode child = new TestNode(1, new TestNode(), new TestNode(new TestNode()));
+        TestNode node = new TestNode(0);
+        
+        cache.storeChildren(node, new HeapViewerNode[] { child, new TestNode() });
+        assertEquals(5, cache.getNodesCount());
+        assertNotNull(cache.retrieveChildren(node));
+        assertEquals(0, cache.getNodesCount());
+    }
+    
+    /**
+     * Children of a collapsed subtree are cached node by node.
+     */
+    @Test
+    public void testForgetChildren() {
+        NodesCache cache = new NodesCache(1000);
+        TestNode leaf1 = new TestNode();
+        TestNode leaf2 = new TestNode();
+        TestNode child = new TestNode(1, leaf1, leaf2);
+        TestNode root = new TestNode(0, child);
+        
+        root.forgetChildren(cache);
+        assertEquals(3, cache.getNodesCount());
+        
+        HeapViewerNode[] rootChildren = cache.retrieveChildren(root);
+        assertSame(child, rootChildren[0]);
+        HeapViewerNode[] childChildren = cache.retrieveChildren(child);
+        assertSame(leaf1, childChildren[0]);
+        assertSame(leaf2, childChildren[1]);
+    }
+    
+    
+    private static class TestNode extends HeapViewerNode {
+        
+        private final Object id;
+        
+        TestNode(HeapViewerNode... children) {
+            this(new Object(), children);
+        }
+        
+        TestNode(Object id, HeapViewerNode... children) {
+            this.id = id;
+            if (children.length > 0) setChildren(children);
+        }
+        
+        public int hashCode() {
+            return id.hashCode();
+        }
+        
+        public boolean equals(Object o) {
+            return o instanceof TestNode && id.equals(((TestNode)o).id);
+        }
+        
+    }
+    
+}
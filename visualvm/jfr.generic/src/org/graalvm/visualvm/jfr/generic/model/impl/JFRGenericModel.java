@@ -27,10 +27,13 @@ package org.graalvm.visualvm.jfr.generic.model.impl;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.graalvm.visualvm.jfr.model.JFREvent;
@@ -38,6 +41,8 @@ import org.graalvm.visualvm.jfr.model.JFREventType;
 import org.graalvm.visualvm.jfr.model.JFREventTypeVisitor;
 import org.graalvm.visualvm.jfr.model.JFREventVisitor;
 import org.graalvm.visualvm.jfr.model.JFRModel;
+import org.graalvm.visualvm.jfr.model.JFRModelScope;
+import org.graalvm.visualvm.jfr.model.JFRPropertyNotAvailableException;
 import org.openjdk.jmc.common.io.IOToolkit;
 import org.openjdk.jmc.common.item.IItem;
 import org.openjdk.jmc.common.item.IType;
@@ -54,36 +59,52 @@ final class JFRGenericModel extends JFRModel {
     private static final Logger LOGGER = Logger.getLogger(JFRModel.class.getName());
     
     
-    private final EventArray[] types;
+    private final File snapshotFile;
+    
+    private final TypeEvents[] types;
     
     private final JFRGenericEventFactory factory;
     
     
     JFRGenericModel(String id, File snapshotFile) throws IOException, CouldNotLoadRecordingException {
-        super(id);
+        this(id, snapshotFile, JFRModelScope.FULL);
+    }
+    
+    JFRGenericModel(String id, File snapshotFile, JFRModelScope scope) throws IOException, CouldNotLoadRecordingException {
+        super(id, scope);
+        
+        this.snapshotFile = snapshotFile;
+        
+        EventArray[] arrays = loadFile(snapshotFile);
         
-        types = loadFile(snapshotFile);
+        factory = JFRGenericEventFactory.resolve(arrays);
         
-        factory = JFRGenericEventFactory.resolve(types);
+        types = selectEvents(arrays, scope, factory);
        
         initialize();
     }
     
     
     @Override
-    public void visitEvents(JFREventVisitor... visitors) {
+    protected void readEvents(JFREventVisitor... visitors) {
+        for (JFREventVisitor visitor : visitors)
+            if (visitor.requiresTimeOrder()) {
+                readEventsByTime(visitors);
+                return;
+            }
+        
         // Notify all visitors 'init'
         for (JFREventVisitor visitor : visitors) visitor.init();
         
         // Notify visitors that are not done 'visit'
         try {
             List<JFREventVisitor> _visitors = new ArrayList<>(Arrays.asList(visitors));
-            Iterator<EventArray> iterables = Arrays.asList(types).iterator();
+            Iterator<TypeEvents> iterables = Arrays.asList(types).iterator();
             long id = 0;
             while (!_visitors.isEmpty() && iterables.hasNext()) {
-                EventArray type = iterables.next();
-                String typeId = type.getType().getIdentifier();
-                Iterator<IItem> items = Arrays.asList(type.getEvents()).iterator();
+                TypeEvents type = iterables.next();
+                String typeId = type.type.getIdentifier();
+                Iterator<IItem> items = Arrays.asList(type.events).iterator();
                 while (!_visitors.isEmpty() && items.hasNext()) {
                     JFREvent event = factory.createEvent(items.next(), id++);
                     Iterator<JFREventVisitor> _visitorsI = _visitors.iterator();
@@ -100,6 +121,75 @@ final class JFRGenericModel extends JFRModel {
         }
     }
     
+    // Events are loaded grouped by type, the types are merged by the event time.
+    // Event IDs are the same as when visiting the types one after another.
+    private void readEventsByTime(JFREventVisitor... visitors) {
+        // Notify all visitors 'init'
+        for (JFREventVisitor visitor : visitors) visitor.init();
+        
+        // Notify visitors that are not done 'visit'
+        try {
+            List<JFREventVisitor> _visitors = new ArrayList<>(Arrays.asList(visitors));
+            PriorityQueue<TypeCursor> cursors = new PriorityQueue<>(Math.max(1, types.length), Comparator.comparingLong(cursor -> cursor.time));
+            long id = 0;
+            for (TypeEvents type : types) {
+                TypeCursor cursor = new TypeCursor(type, id);
+                if (cursor.next()) cursors.add(cursor);
+                id += type.events.length;
+            }
+            while (!_visitors.isEmpty() && !cursors.isEmpty()) {
+                TypeCursor cursor = cursors.poll();
+                Iterator<JFREventVisitor> _visitorsI = _visitors.iterator();
+                while (_visitorsI.hasNext())
+                    if (_visitorsI.next().visit(cursor.typeId, cursor.event))
+                        _visitorsI.remove();
+                if (cursor.next()) cursors.add(cursor);
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.INFO, "Error visiting JFR events (generic loader)", e);   // NOI18N
+        } finally {
+            // Notify all visitors 'done'
+            for (JFREventVisitor visitor : visitors) visitor.done();
+        }
+    }
+    
+    // Events are loaded grouped by type, every type is a segment
+    @Override
+    protected int getSegmentsCount() {
+        return types.length;
+    }
+    
+    @Override
+    protected void readEvents(int segment, long firstID, JFREventVisitor... visitors) {
+        // Notify all visitors 'init'
+        for (JFREventVisitor visitor : visitors) visitor.init();
+        
+        // Notify visitors that are not done 'visit'
+        try {
+            List<JFREventVisitor> _visitors = new ArrayList<>(Arrays.asList(visitors));
+            String typeId = types[segment].type.getIdentifier();
+            Iterator<IItem> items = Arrays.asList(types[segment].events).iterator();
+            long id = firstID;
+            while (!_visitors.isEmpty() && items.hasNext()) {
+                JFREvent event = factory.createEvent(items.next(), id++);
+                Iterator<JFREventVisitor> _visitorsI = _visitors.iterator();
+                while (_visitorsI.hasNext())
+                    if (_visitorsI.next().visit(typeId, event))
+                        _visitorsI.remove();
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.INFO, "Error visiting JFR events (generic loader)", e);   // NOI18N
+        } finally {
+            // Notify all visitors 'done'
+            for (JFREventVisitor visitor : visitors) visitor.done();
+        }
+    }
+    
+    @Override
+    protected File getSnapshotFile() {
+        return snapshotFile;
+    }
+    
     @Override
     public void visitEventTypes(JFREventTypeVisitor... visitors) {
         // Notify all visitors 'init'
@@ -110,10 +200,10 @@ final class JFRGenericModel extends JFRModel {
             List<JFREventTypeVisitor> _visitors = new ArrayList<>(Arrays.asList(visitors));
             int typeIdx = 0;
             while (!_visitors.isEmpty() && typeIdx < types.length) {
-                EventArray type = types[typeIdx];
-                IType<IItem> itype = type.getType();
+                TypeEvents type = types[typeIdx];
+                IType<IItem> itype = type.type;
                 String typeId = itype.getIdentifier();
-                String[] typeCategory = type.getTypeCategory();
+                String[] typeCategory = type.category;
                 if (typeCategory == null) typeCategory = new String[] { "Uncategorized" };
                 JFREventType event = new JFRGenericEventType(typeIdx++, itype, typeCategory);
                 Iterator<JFREventTypeVisitor> _visitorsI = _visitors.iterator();
@@ -139,4 +229,81 @@ final class JFRGenericModel extends JFRModel {
         }
     }
     
+    // The loader always reads the whole recording, events out of scope are released right after loading
+    private static TypeEvents[] selectEvents(EventArray[] arrays, JFRModelScope scope, JFRGenericEventFactory factory) {
+        List<TypeEvents> selected = new ArrayList<>(arrays.length);
+        for (EventArray array : arrays) {
+            IType<IItem> type = array.getType();
+            if (!scope.includesType(type.getIdentifier())) continue;
+            
+            IItem[] events = array.getEvents();
+            if (scope.isTimeRestricted()) events = selectItems(events, scope, factory);
+            selected.add(new TypeEvents(type, array.getTypeCategory(), events));
+        }
+        return selected.toArray(new TypeEvents[0]);
+    }
+    
+    private static IItem[] selectItems(IItem[] events, JFRModelScope scope, JFRGenericEventFactory factory) {
+        List<IItem> selected = new ArrayList<>();
+        for (IItem event : events) {
+            Instant eventTime;
+            try {
+                eventTime = factory.createEvent(event, -1).getInstant("eventTime"); // NOI18N
+            } catch (JFRPropertyNotAvailableException e) {
+                eventTime = null;
+            }
+            if (scope.includesTime(eventTime)) selected.add(event);
+        }
+        return selected.size() == events.length ? events : selected.toArray(new IItem[0]);
+    }
+    
+    
+    private final class TypeCursor {
+        
+        final String typeId;
+        final IItem[] events;
+        
+        private long id;
+        private int index;
+        
+        JFREvent event;
+        long time;
+        
+        TypeCursor(TypeEvents type, long firstID) {
+            typeId = type.type.getIdentifier();
+            events = type.events;
+            id = firstID;
+        }
+        
+        // Moves to the next event of the type, events without time go first
+        boolean next() {
+            if (index == events.length) return false;
+            
+            event = factory.createEvent(events[index++], id++);
+            try {
+                Instant eventTime = event.getInstant("eventTime"); // NOI18N
+                time = eventTime == null ? Long.MIN_VALUE : eventTime.getEpochSecond() * 1000000000L + eventTime.getNano();
+            } catch (JFRPropertyNotAvailableException e) {
+                time = Long.MIN_VALUE;
+            }
+            return true;
+        }
+        
+    }
+    
+    
+    private static final class TypeEvents {
+        
+        final IType<IItem> type;
+        final String[] category;
+        final IItem[] events;
+        
+        TypeEvents(IType<IItem> type, String[] category, IItem[] events) {
+            this.type = type;
+            this.category = category;
+            this.events = events;
+        }
+        
+    }
+    
 }
@@ -29,6 +29,7 @@ import java.io.IOException;
 import org.graalvm.visualvm.jfr.model.JFRModel;
 import org.graalvm.visualvm.jfr.model.JFRModelFactory;
 import org.graalvm.visualvm.jfr.model.JFRModelProvider;
+import org.graalvm.visualvm.jfr.model.JFRModelScope;
 import org.openjdk.jmc.flightrecorder.CouldNotLoadRecordingException;
 import org.openjdk.jmc.flightrecorder.internal.NotEnoughMemoryException;
 
@@ -50,8 +51,13 @@ public final class JFRGenericModelProvider extends JFRModelProvider {
     
     @Override
     protected JFRModel createModel(String id, File file) throws IOException, CouldNotLoadRecordingException {
+        return createModel(id, file, JFRModelScope.FULL);
+    }
+    
+    @Override
+    protected JFRModel createModel(String id, File file, JFRModelScope scope) throws IOException, CouldNotLoadRecordingException {
         try {
-            return new JFRGenericModel(id, file);
+            return new JFRGenericModel(id, file, scope);
         } catch (NotEnoughMemoryException e) {
             throw new OutOfMemoryError(e.getMessage());
         }
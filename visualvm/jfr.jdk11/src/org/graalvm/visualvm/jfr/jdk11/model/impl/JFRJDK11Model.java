@@ -26,6 +26,11 @@ package org.graalvm.visualvm.jfr.jdk11.model.impl;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -40,6 +45,7 @@ import org.graalvm.visualvm.jfr.model.JFREventType;
 import org.graalvm.visualvm.jfr.model.JFREventTypeVisitor;
 import org.graalvm.visualvm.jfr.model.JFREventVisitor;
 import org.graalvm.visualvm.jfr.model.JFRModel;
+import org.graalvm.visualvm.jfr.model.JFRModelScope;
 
 /**
  *
@@ -51,35 +57,177 @@ public class JFRJDK11Model extends JFRModel {
     protected static final String SNAPSHOT_V1_PREFIX = "com.oracle."; // NOI18N
     protected static final int SNAPSHOT_V1_PREFIX_LENGTH = SNAPSHOT_V1_PREFIX.length();
 
+    private static final byte[] CHUNK_MAGIC = { 'F', 'L', 'R', 0 }; // NOI18N
+    private static final int CHUNK_HEADER_SIZE = 16;
+    private static final int CHUNK_TIMES_OFFSET = 32;
+
     private int snapshotVersion;
     private final File snapshotFile;
+    // start offsets of the chunks, chunkOffsets[chunksCount] is the file length
+    private final long[] chunkOffsets;
+    // chunks within the model scope, every chunk is a segment
+    private final int[] chunks;
+    // chunks of a multi-chunk file copied to separate files, every chunk is copied once
+    private final Path[] chunkFiles;
+    private Path chunksDirectory;
+    private final Object chunkFilesLock = new Object();
     
     
     protected JFRJDK11Model(String id, File file) throws IOException {
-        super(id);
+        this(id, file, JFRModelScope.FULL);
+    }
+    
+    protected JFRJDK11Model(String id, File file, JFRModelScope scope) throws IOException {
+        super(id, scope);
 
         this.snapshotFile = file;
 
         // Will throw IOException for an unsupported JFR format (0.9 or 2+)
         try (RecordingFile events = new RecordingFile(snapshotFile.toPath())) {}
 
+        chunkOffsets = readChunkOffsets(snapshotFile);
+        chunks = selectChunks(snapshotFile, chunkOffsets, scope);
+        if (chunks.length == 0) throw new IOException("No chunks within " + scope + ": " + file); // NOI18N
+        chunkFiles = new Path[chunks.length];
+
         initialize();
         LOGGER.log(Level.FINE, "JFRJDK11Model created for "+file);
     }
 
 
     @Override
-    public void visitEvents(JFREventVisitor... visitors) {
+    protected void readEvents(JFREventVisitor... visitors) {
+        if (isSingleChunk()) {
+            readEvents(snapshotFile.toPath(), 0, visitors);
+            return;
+        }
+
+        // RecordingFile reading a multi-chunk file at once skips events repeated at the start
+        // of every chunk (jdk.InitialSecurityProperty etc.), chunks are read separately to keep
+        // the event IDs consistent with readEvents(segment, ...)
+
         // Notify all visitors 'init'
         for (JFREventVisitor visitor : visitors) visitor.init();
 
         // Notify visitors that are not done 'visit'
-        try (RecordingFile events = new RecordingFile(snapshotFile.toPath())) {
+        try {
+            final List<JFREventVisitor> _visitors = new ArrayList<>(Arrays.asList(visitors));
+            final long[] id = new long[1];
+            for (int segment = 0; segment < getSegmentsCount() && !_visitors.isEmpty(); segment++)
+                readEvents(segment, id[0], new JFREventVisitor() {
+                    @Override
+                    public boolean visit(String typeName, JFREvent event) {
+                        id[0]++;
+                        Iterator<JFREventVisitor> _visitorsI = _visitors.iterator();
+                        while (_visitorsI.hasNext())
+                            if (_visitorsI.next().visit(typeName, event))
+                                _visitorsI.remove();
+                        return _visitors.isEmpty();
+                    }
+                });
+        } finally {
+            // Notify all visitors 'done'
+            for (JFREventVisitor visitor : visitors) visitor.done();
+        }
+    }
+
+    @Override
+    protected int getSegmentsCount() {
+        return chunks.length;
+    }
+
+    @Override
+    protected void readEvents(int segment, long firstID, JFREventVisitor... visitors) {
+        if (isSingleChunk()) {
+            readEvents(snapshotFile.toPath(), firstID, visitors);
+            return;
+        }
+
+        Path chunkFile;
+        try {
+            chunkFile = getChunkFile(segment);
+        } catch (IOException e) {
+            LOGGER.log(Level.INFO, "Error reading JFR chunk (" + getID()+ ")", e);   // NOI18N
+            for (JFREventVisitor visitor : visitors) visitor.init();
+            for (JFREventVisitor visitor : visitors) visitor.done();
+            return;
+        }
+        readEvents(chunkFile, firstID, visitors);
+    }
+
+    // RecordingFile reads a whole file, a chunk is a complete recording on its own
+    private Path getChunkFile(int segment) throws IOException {
+        synchronized (chunkFilesLock) {
+            Path chunkFile = chunkFiles[segment];
+            if (chunkFile != null && Files.isRegularFile(chunkFile)) return chunkFile;
+
+            if (chunksDirectory == null || !Files.isDirectory(chunksDirectory)) {
+                chunksDirectory = Files.createTempDirectory("visualvm-jfr"); // NOI18N
+                chunksDirectory.toFile().deleteOnExit();
+            }
+            chunkFile = chunksDirectory.resolve("chunk" + chunks[segment] + ".jfr"); // NOI18N
+            chunkFile.toFile().deleteOnExit();
+            try (FileChannel source = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.READ);
+                 FileChannel target = FileChannel.open(chunkFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                long offset = chunkOffsets[chunks[segment]];
+                long size = chunkOffsets[chunks[segment] + 1] - offset;
+                while (size > 0) {
+                    long transferred = source.transferTo(offset, size, target);
+                    offset += transferred;
+                    size -= transferred;
+                }
+            } catch (IOException e) {
+                Files.deleteIfExists(chunkFile);
+                throw e;
+            }
+            chunkFiles[segment] = chunkFile;
+            return chunkFile;
+        }
+    }
+
+    @Override
+    public void release() {
+        super.release();
+        synchronized (chunkFilesLock) {
+            for (int segment = 0; segment < chunkFiles.length; segment++) {
+                if (chunkFiles[segment] != null) chunkFiles[segment].toFile().delete();
+                chunkFiles[segment] = null;
+            }
+            if (chunksDirectory != null) chunksDirectory.toFile().delete();
+            chunksDirectory = null;
+        }
+    }
+
+    @Override
+    protected File getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    // Every chunk is parsed by its own RecordingFile
+    @Override
+    protected boolean isParallelReadSupported() {
+        return true;
+    }
+
+    private boolean isSingleChunk() {
+        return chunkOffsets.length == 2;
+    }
+
+    private void readEvents(Path file, long firstID, JFREventVisitor... visitors) {
+        // Notify all visitors 'init'
+        for (JFREventVisitor visitor : visitors) visitor.init();
+
+        // Notify visitors that are not done 'visit'
+        try (RecordingFile events = new RecordingFile(file)) {
+            JFRModelScope scope = getScope();
+            boolean timeRestricted = scope.isTimeRestricted();
             List<JFREventVisitor> _visitors = new ArrayList<>(Arrays.asList(visitors));
-            long id = 0;
+            long id = firstID;
             while (!_visitors.isEmpty() && events.hasMoreEvents()) {
                 RecordedEvent revent = events.readEvent();
                 String typeId = getTypeId(revent.getEventType());
+                // events out of scope are skipped before creating the JFREvent and assigning the ID
+                if (!scope.includesType(typeId) || timeRestricted && !scope.includesTime(revent.getStartTime())) continue;
                 JFREvent event = createEvent(revent, id++);
                 Iterator<JFREventVisitor> _visitorsI = _visitors.iterator();
                 while (_visitorsI.hasNext())
@@ -107,6 +255,7 @@ public class JFRJDK11Model extends JFRModel {
             while (!_visitors.isEmpty() && types.hasNext()) {
                 EventType etype = types.next();
                 String typeId = getTypeId(etype);
+                if (!getScope().includesType(typeId)) continue;
                 JFREventType type = new JFRJDK11EventType(etype);
                 Iterator<JFREventTypeVisitor> _visitorsI = _visitors.iterator();
                 while (_visitorsI.hasNext())
@@ -122,6 +271,73 @@ public class JFRJDK11Model extends JFRModel {
     }
 
 
+    private static long[] readChunkOffsets(File file) {
+        long length = file.length();
+        List<Long> offsets = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(CHUNK_HEADER_SIZE);
+            long offset = 0;
+            while (offset < length) {
+                header.clear();
+                while (header.hasRemaining() && channel.read(header, offset + header.position()) > 0);
+                if (header.hasRemaining()) break;
+                if (!isChunkHeader(header)) return new long[] { 0, length };
+                long size = header.getLong(8);
+                if (size <= CHUNK_HEADER_SIZE || offset + size > length) break;
+                offsets.add(offset);
+                offset += size;
+            }
+            if (offset != length || offsets.isEmpty()) return new long[] { 0, length };
+        } catch (IOException e) {
+            return new long[] { 0, length };
+        }
+
+        long[] chunkOffsets = new long[offsets.size() + 1];
+        for (int i = 0; i < offsets.size(); i++) chunkOffsets[i] = offsets.get(i);
+        chunkOffsets[offsets.size()] = length;
+        return chunkOffsets;
+    }
+
+
+    // Chunks not overlapping the time window of the scope are never parsed. Events are
+    // written to the chunk in which they end, long events which started within the
+    // window but ended in a skipped chunk are not available in the scoped model.
+    private static int[] selectChunks(File file, long[] chunkOffsets, JFRModelScope scope) {
+        int chunksCount = chunkOffsets.length - 1;
+        int[] chunks = new int[chunksCount];
+        int selected = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(CHUNK_TIMES_OFFSET + 16);
+            for (int chunk = 0; chunk < chunksCount; chunk++) {
+                if (scope.isTimeRestricted()) {
+                    header.clear();
+                    long offset = chunkOffsets[chunk];
+                    while (header.hasRemaining() && channel.read(header, offset + header.position()) > 0);
+                    if (!header.hasRemaining() && isChunkHeader(header)) {
+                        long startNanos = header.getLong(CHUNK_TIMES_OFFSET);
+                        long durationNanos = header.getLong(CHUNK_TIMES_OFFSET + 8);
+                        // duration of an unfinished chunk is not known
+                        long endNanos = durationNanos > 0 ? startNanos + durationNanos : Long.MAX_VALUE;
+                        if (!scope.overlaps(startNanos, endNanos)) continue;
+                    }
+                }
+                chunks[selected++] = chunk;
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.INFO, "Error reading JFR chunk headers", e);   // NOI18N
+            for (int chunk = 0; chunk < chunksCount; chunk++) chunks[chunk] = chunk;
+            return chunks;
+        }
+        return Arrays.copyOf(chunks, selected);
+    }
+
+    private static boolean isChunkHeader(ByteBuffer header) {
+        for (int i = 0; i < CHUNK_MAGIC.length; i++)
+            if (header.get(i) != CHUNK_MAGIC[i]) return false;
+        return true;
+    }
+
+
     protected String getTypeId(EventType eventType) {
         String typeId = eventType.getName();
         if (snapshotVersion == 0) {
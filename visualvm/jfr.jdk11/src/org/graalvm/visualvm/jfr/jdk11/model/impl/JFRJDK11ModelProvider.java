@@ -29,6 +29,7 @@ import java.io.IOException;
 import org.graalvm.visualvm.jfr.model.JFRModel;
 import org.graalvm.visualvm.jfr.model.JFRModelFactory;
 import org.graalvm.visualvm.jfr.model.JFRModelProvider;
+import org.graalvm.visualvm.jfr.model.JFRModelScope;
 
 /**
  *
@@ -51,4 +52,9 @@ public final class JFRJDK11ModelProvider extends JFRModelProvider {
         return new JFRJDK11Model(id, file);
     }
     
+    @Override
+    protected JFRModel createModel(String id, File file, JFRModelScope scope) throws IOException {
+        return new JFRJDK11Model(id, file, scope);
+    }
+    
 }
@@ -30,6 +30,7 @@ import java.io.IOException;
 import org.graalvm.visualvm.core.datasource.DataSource;
 import org.graalvm.visualvm.core.snapshot.Snapshot;
 import org.graalvm.visualvm.core.snapshot.SnapshotsSupport;
+import org.graalvm.visualvm.jfr.model.JFRModelScope;
 import org.openide.util.NbBundle;
 
 /**
@@ -39,15 +40,28 @@ import org.openide.util.NbBundle;
  */
 public abstract class JFRSnapshot extends Snapshot {
     
+    private final JFRModelScope scope;
+    
+    
     public JFRSnapshot(File file) throws IOException {
         this(file, null);
     }
     
     public JFRSnapshot(File file, DataSource master) throws IOException {
+        this(file, master, JFRModelScope.FULL);
+    }
+    
+    public JFRSnapshot(File file, DataSource master, JFRModelScope scope) throws IOException {
         super(file, JFRSnapshotSupport.getCategory(), master);
         
         if (!file.exists() || !file.isFile())
             throw new IOException("File " + file.getAbsolutePath() + " does not exist");    // NOI18N
+        
+        this.scope = scope;
+    }
+    
+    public JFRModelScope getScope() {
+        return scope;
     }
     
     public boolean supportsSaveAs() {
@@ -47,11 +47,17 @@ public class JFRSnapshotDescriptor extends SnapshotDescriptor<JFRSnapshot> {
      * @param snapshot JFRSnapshot for the descriptor.
      */
     public JFRSnapshotDescriptor(JFRSnapshot snapshot) {
-        super(snapshot, resolveSnapshotName(snapshot), NbBundle.getMessage(JFRSnapshotDescriptor.class, "DESCR_CoreDump"), ICON, // NOI18N
+        super(snapshot, resolveScopedName(snapshot), NbBundle.getMessage(JFRSnapshotDescriptor.class, "DESCR_CoreDump"), ICON, // NOI18N
               resolvePosition(snapshot, POSITION_AT_THE_END, true), EXPAND_NEVER);
     }
     
     
+    private static String resolveScopedName(JFRSnapshot snapshot) {
+        String name = resolveSnapshotName(snapshot);
+        if (snapshot.getScope().isFull()) return name;
+        return NbBundle.getMessage(JFRSnapshotDescriptor.class, "LBL_ScopedSnapshot", name, snapshot.getScope().getDescription()); // NOI18N
+    }
+    
     private static String resolveName(JFRSnapshot snapshot) {
         String persistedName = resolveName(snapshot, null);
         return persistedName != null ? persistedName : snapshot.getFile().getName();
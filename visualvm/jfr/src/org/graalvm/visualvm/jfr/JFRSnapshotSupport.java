@@ -40,6 +40,7 @@ import org.graalvm.visualvm.jfr.impl.JFRRecordingProvider;
 import org.graalvm.visualvm.jfr.impl.JFRSnapshotCategory;
 import org.graalvm.visualvm.jfr.impl.JFRSnapshotDescriptorProvider;
 import org.graalvm.visualvm.jfr.impl.JFRSnapshotProvider;
+import org.graalvm.visualvm.jfr.model.JFRModelScope;
 import org.graalvm.visualvm.jfr.view.JFRViewProvider;
 import org.graalvm.visualvm.lib.profiler.api.ProfilerDialogs;
 import org.graalvm.visualvm.tools.jfr.JfrModel;
@@ -75,6 +76,16 @@ public final class JFRSnapshotSupport {
         return category;
     }
     
+    /**
+     * Opens a part of the JFR snapshot, only events within the scope are loaded.
+     * 
+     * @param file JFR snapshot file
+     * @param scope time window and event types to be loaded
+     */
+    public static void openSnapshot(File file, JFRModelScope scope) {
+        category.openSnapshot(file, scope);
+    }
+    
     static String getStorageDirectoryString() {
         synchronized(jfrSnapshotsStorageDirectoryStringLock) {
             if (jfrSnapshotsStorageDirectoryString == null)
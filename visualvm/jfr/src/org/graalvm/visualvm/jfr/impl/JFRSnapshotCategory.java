@@ -32,6 +32,7 @@ import java.util.logging.Logger;
 import org.graalvm.visualvm.core.snapshot.SnapshotCategory;
 import org.graalvm.visualvm.core.ui.DataSourceWindowManager;
 import org.graalvm.visualvm.jfr.JFRSnapshot;
+import org.graalvm.visualvm.jfr.model.JFRModelScope;
 import org.openide.util.NbBundle;
 
 /**
@@ -59,8 +60,12 @@ public class JFRSnapshotCategory extends SnapshotCategory<JFRSnapshot> {
     
     @Override
     public void openSnapshot(File file) {
+        openSnapshot(file, JFRModelScope.FULL);
+    }
+    
+    public void openSnapshot(File file, JFRModelScope scope) {
         try {
-            JFRSnapshot snapshot = new JFRSnapshotImpl(file);
+            JFRSnapshot snapshot = new JFRSnapshotImpl(file, scope);
             DataSourceWindowManager.sharedInstance().openDataSource(snapshot); // TODO: instance should be created by JFRSnapshotProvider!
         } catch (IOException ex) {
             LOGGER.log(Level.SEVERE, "Error opening JFR snapshot", ex); // NOI18N
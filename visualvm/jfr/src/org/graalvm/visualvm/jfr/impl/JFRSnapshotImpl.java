@@ -31,6 +31,7 @@ import org.graalvm.visualvm.core.datasource.Storage;
 import org.graalvm.visualvm.core.datasupport.Utils;
 import org.graalvm.visualvm.jfr.JFRSnapshot;
 import org.graalvm.visualvm.jfr.JFRSnapshotSupport;
+import org.graalvm.visualvm.jfr.model.JFRModelScope;
 
 /**
  *
@@ -50,6 +51,11 @@ class JFRSnapshotImpl extends JFRSnapshot {
         this.storage = storage;
     }
     
+    JFRSnapshotImpl(File file, JFRModelScope scope) throws IOException {
+        super(file, null, scope);
+        this.storage = new Storage();
+    }
+    
     public boolean supportsDelete() {
         return false;
     }
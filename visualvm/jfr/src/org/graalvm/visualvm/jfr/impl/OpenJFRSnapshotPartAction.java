@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.jfr.impl;
+
+import java.awt.Dialog;
+import java.awt.GridBagConstraints;
+import java.awt.GridBagLayout;
+import java.awt.Insets;
+import java.awt.event.ActionEvent;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+import javax.swing.BorderFactory;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JSpinner;
+import javax.swing.JTextField;
+import javax.swing.SpinnerNumberModel;
+import javax.swing.SwingUtilities;
+import org.graalvm.visualvm.core.VisualVM;
+import org.graalvm.visualvm.core.ui.actions.SingleDataSourceAction;
+import org.graalvm.visualvm.jfr.JFRSnapshot;
+import org.graalvm.visualvm.jfr.JFRSnapshotSupport;
+import org.graalvm.visualvm.jfr.model.JFRModel;
+import org.graalvm.visualvm.jfr.model.JFRModelFactory;
+import org.graalvm.visualvm.jfr.model.JFRModelScope;
+import org.openide.DialogDescriptor;
+import org.openide.DialogDisplayer;
+import org.openide.NotifyDescriptor;
+import org.openide.awt.Mnemonics;
+import org.openide.util.NbBundle;
+
+/**
+ * Opens a time window and a subset of event types of a JFR snapshot as a new snapshot.
+ */
+class OpenJFRSnapshotPartAction extends SingleDataSourceAction<JFRSnapshot> {
+    
+    private static OpenJFRSnapshotPartAction INSTANCE;
+    
+    public static synchronized OpenJFRSnapshotPartAction instance() {
+        if (INSTANCE == null) {
+            INSTANCE = new OpenJFRSnapshotPartAction();
+        }
+        return INSTANCE;
+    }
+    
+    
+    private OpenJFRSnapshotPartAction() {
+        super(JFRSnapshot.class);
+        putValue(NAME, NbBundle.getMessage(OpenJFRSnapshotPartAction.class, "MSG_Open_JFR_Part")); // NOI18N
+        putValue(SHORT_DESCRIPTION, NbBundle.getMessage(OpenJFRSnapshotPartAction.class, "LBL_Open_JFR_Part"));    // NOI18N
+    }
+    
+    
+    protected void actionPerformed(final JFRSnapshot snapshot, ActionEvent actionEvent) {
+        VisualVM.getInstance().runTask(new Runnable() {
+            public void run() {
+                // bounds of the recording are known by the full model, usually shared with the opened snapshot view
+                JFRModel model = JFRModelFactory.getJFRModelFor(snapshot);
+                if (model == null || model.getFirstEventTime() == null) {
+                    DialogDisplayer.getDefault().notifyLater(new NotifyDescriptor.Message(NbBundle.getMessage(OpenJFRSnapshotPartAction.class,
+                            "MSG_Open_JFR_Part_failed"), NotifyDescriptor.ERROR_MESSAGE)); // NOI18N
+                    return;
+                }
+                
+                JFRModelScope scope = defineScope(model.getFirstEventTime(), model.getLastEventTime());
+                if (scope != null) JFRSnapshotSupport.openSnapshot(snapshot.getFile(), scope);
+            }
+        });
+    }
+    
+    protected boolean isEnabled(JFRSnapshot snapshot) {
+        // a part of a part would be relative to the original recording
+        return snapshot.getScope().isFull();
+    }
+    
+    
+    private static JFRModelScope defineScope(final Instant recordingStart, Instant recordingEnd) {
+        final double duration = Duration.between(recordingStart, recordingEnd).toMillis() / 1000d;
+        final JFRModelScope[] scope = new JFRModelScope[1];
+        
+        try {
+            SwingUtilities.invokeAndWait(new Runnable() {
+                public void run() {
+                    JSpinner fromSpinner = new JSpinner(new SpinnerNumberModel(0d, 0d, duration, 1d));
+                    JSpinner toSpinner = new JSpinner(new SpinnerNumberModel(duration, 0d, duration, 1d));
+                    JTextField typesField = new JTextField(30);
+                    
+                    JPanel selector = new JPanel(new GridBagLayout());
+                    selector.setBorder(BorderFactory.createEmptyBorder(15, 10, 5, 10));
+                    addRow(selector, 0, "LBL_Open_JFR_Part_From", fromSpinner); // NOI18N
+                    addRow(selector, 1, "LBL_Open_JFR_Part_To", toSpinner); // NOI18N
+                    addRow(selector, 2, "LBL_Open_JFR_Part_Types", typesField); // NOI18N
+                    
+                    DialogDescriptor dd = new DialogDescriptor(selector,
+                            NbBundle.getMessage(OpenJFRSnapshotPartAction.class,
+                                    "CAPTION_Open_JFR_Part"), true, null); // NOI18N
+                    Dialog d = DialogDisplayer.getDefault().createDialog(dd);
+                    d.pack();
+                    d.setVisible(true);
+                    
+                    if (dd.getValue() != DialogDescriptor.OK_OPTION) return;
+                    
+                    double from = ((Number)fromSpinner.getValue()).doubleValue();
+                    double to = ((Number)toSpinner.getValue()).doubleValue();
+                    if (from > to) {
+                        DialogDisplayer.getDefault().notify(new NotifyDescriptor.Message(NbBundle.getMessage(OpenJFRSnapshotPartAction.class,
+                                "MSG_Open_JFR_Part_invalid"), NotifyDescriptor.ERROR_MESSAGE)); // NOI18N
+                        return;
+                    }
+                    
+                    Set<String> types = new HashSet<>();
+                    for (String type : typesField.getText().split(",")) // NOI18N
+                        if (!type.trim().isEmpty()) types.add(type.trim());
+                    
+                    scope[0] = JFRModelScope.create(recordingStart.plusMillis((long)(from * 1000)),
+                                                    recordingStart.plusMillis((long)(to * 1000)),
+                                                    types.isEmpty() ? null : types);
+                }
+            });
+        } catch (Throwable t) {
+            return null;
+        }
+        
+        return scope[0];
+    }
+    
+    private static void addRow(JPanel panel, int row, String labelKey, JComponent component) {
+        JLabel label = new JLabel();
+        Mnemonics.setLocalizedText(label, NbBundle.getMessage(OpenJFRSnapshotPartAction.class, labelKey));
+        label.setLabelFor(component);
+        
+        GridBagConstraints c = new GridBagConstraints();
+        c.gridx = 0;
+        c.gridy = row;
+        c.anchor = GridBagConstraints.WEST;
+        c.insets = new Insets(0, 0, 5, 10);
+        panel.add(label, c);
+        
+        c = new GridBagConstraints();
+        c.gridx = 1;
+        c.gridy = row;
+        c.fill = GridBagConstraints.HORIZONTAL;
+        c.weightx = 1;
+        c.insets = new Insets(0, 0, 5, 0);
+        panel.add(component, c);
+    }
+    
+}
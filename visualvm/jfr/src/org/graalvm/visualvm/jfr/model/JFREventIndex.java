@@ -0,0 +1,452 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.jfr.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.graalvm.visualvm.jfr.utils.ValuesConverter;
+
+/**
+ * Columnar index of the events of a recording. For every event ID the index
+ * holds its type, for every type the IDs of its events, and for every segment
+ * of the recording the first event ID, the time range and the number of events
+ * of each type. Columns are stored in separate files in a directory next to the
+ * snapshot and memory mapped when used.
+ */
+final class JFREventIndex {
+    
+    private static final Logger LOGGER = Logger.getLogger(JFRModel.class.getName());
+    
+    static final long NO_VALUE = Long.MIN_VALUE;
+    
+    private static final String DIRECTORY_EXT = ".index"; // NOI18N
+    private static final String META_FILE = "meta"; // NOI18N
+    private static final String TYPES_FILE = "types.col"; // NOI18N
+    private static final String BY_TYPE_FILE = "bytype.col"; // NOI18N
+    
+    private static final int INDEX_ID = 0x4A465249; // JFRI
+    private static final int INDEX_VERSION = 2;
+    
+    
+    private final String[] typeNames;
+    private final Map<String, Integer> typeIndexes;
+    // offsets of the types in the byType column, typeOffsets[typeNames.length] is the events count
+    private final long[] typeOffsets;
+    
+    // segmentFirstIDs[segmentsCount] is the events count
+    private final long[] segmentFirstIDs;
+    private final long[] segmentStartTimes;
+    private final long[] segmentEndTimes;
+    private final int[][] segmentTypeCounts;
+    
+    private final IntBuffer types;
+    private final LongBuffer byType;
+    
+    private final File directory;
+    private final boolean temporary;
+    
+    
+    private JFREventIndex(String[] typeNames, long[] segmentFirstIDs, long[] segmentStartTimes, long[] segmentEndTimes,
+                          int[][] segmentTypeCounts, File directory, boolean temporary) throws IOException {
+        this.typeNames = typeNames;
+        this.segmentFirstIDs = segmentFirstIDs;
+        this.segmentStartTimes = segmentStartTimes;
+        this.segmentEndTimes = segmentEndTimes;
+        this.segmentTypeCounts = segmentTypeCounts;
+        this.directory = directory;
+        this.temporary = temporary;
+        
+        typeIndexes = new HashMap<>();
+        for (int type = 0; type < typeNames.length; type++) typeIndexes.put(typeNames[type], type);
+        
+        typeOffsets = new long[typeNames.length + 1];
+        for (int[] counts : segmentTypeCounts)
+            for (int type = 0; type < counts.length; type++)
+                typeOffsets[type + 1] += counts[type];
+        for (int type = 0; type < typeNames.length; type++) typeOffsets[type + 1] += typeOffsets[type];
+        
+        types = map(new File(directory, TYPES_FILE), false).asIntBuffer();
+        byType = map(new File(directory, BY_TYPE_FILE), false).asLongBuffer();
+        
+        long eventsCount = getEventsCount();
+        if (types.limit() != eventsCount || byType.limit() != eventsCount)
+            throw new IOException("Inconsistent JFR index " + directory); // NOI18N
+    }
+    
+    
+    long getEventsCount() {
+        return segmentFirstIDs[segmentFirstIDs.length - 1];
+    }
+    
+    String getTypeName(long eventID) {
+        return typeNames[types.get((int)eventID)];
+    }
+    
+    
+    long getEventsCount(String typeName) {
+        Integer type = typeIndexes.get(typeName);
+        return type == null ? 0 : typeOffsets[type + 1] - typeOffsets[type];
+    }
+    
+    // Returns ascending IDs of up to count events of the same type around the event, all within its segment
+    long[] getNeighbourIDs(long eventID, int count) {
+        int type = types.get((int)eventID);
+        int segment = getSegment(eventID);
+        long segmentStart = segmentFirstIDs[segment];
+        long segmentEnd = segmentFirstIDs[segment + 1];
+        
+        // IDs of a type are ascending in the byType column
+        long low = typeOffsets[type];
+        long high = typeOffsets[type + 1] - 1;
+        long position = low;
+        while (low <= high) {
+            long middle = (low + high) >>> 1;
+            long id = byType.get((int)middle);
+            if (id < eventID) low = middle + 1;
+            else if (id > eventID) high = middle - 1;
+            else { position = middle; break; }
+        }
+        
+        long from = Math.max(typeOffsets[type], position - count / 2);
+        long to = Math.min(typeOffsets[type + 1], from + count);
+        long[] ids = new long[(int)(to - from)];
+        int idsCount = 0;
+        for (long i = from; i < to; i++) {
+            long id = byType.get((int)i);
+            if (id >= segmentStart && id < segmentEnd) ids[idsCount++] = id;
+        }
+        return Arrays.copyOf(ids, idsCount);
+    }
+    
+    
+    int getSegmentsCount() {
+        return segmentFirstIDs.length - 1;
+    }
+    
+    int getSegment(long eventID) {
+        int segment = Arrays.binarySearch(segmentFirstIDs, eventID);
+        if (segment < 0) segment = -segment - 2;
+        
+        // skip empty segments
+        while (segmentFirstIDs[segment + 1] == eventID) segment++;
+        
+        return segment;
+    }
+    
+    long getSegmentFirstID(int segment) {
+        return segmentFirstIDs[segment];
+    }
+    
+    // Returns NO_VALUE if the segment has no events with time
+    long getSegmentStartTime(int segment) {
+        return segmentStartTimes[segment];
+    }
+    
+    int getEventsCount(int segment, String typeName) {
+        Integer type = typeIndexes.get(typeName);
+        int[] counts = segmentTypeCounts[segment];
+        return type != null && type < counts.length ? counts[type] : 0;
+    }
+    
+    
+    // Deletes a temporary index, a persistent index is kept for the next session
+    void release() {
+        if (!temporary) return;
+        File[] files = directory.listFiles();
+        if (files != null) for (File file : files) file.delete();
+        directory.delete();
+    }
+    
+    
+    // Model is the name of the model which created the index, every model defines its own segments and event IDs
+    static JFREventIndex load(File snapshotFile, String model, int segmentsCount) {
+        File directory = getDirectory(snapshotFile);
+        if (directory == null) return null;
+        
+        File meta = new File(directory, META_FILE);
+        if (!meta.isFile()) return null;
+        
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(meta)))) {
+            if (in.readInt() != INDEX_ID || in.readInt() != INDEX_VERSION) return null;
+            if (in.readLong() != snapshotFile.length() || in.readLong() != snapshotFile.lastModified()) return null;
+            if (!model.equals(in.readUTF())) return null;
+            
+            String[] typeNames = new String[in.readInt()];
+            for (int type = 0; type < typeNames.length; type++) typeNames[type] = in.readUTF();
+            
+            if (in.readInt() != segmentsCount) return null;
+            long[] segmentFirstIDs = new long[segmentsCount + 1];
+            long[] segmentStartTimes = new long[segmentsCount];
+            long[] segmentEndTimes = new long[segmentsCount];
+            int[][] segmentTypeCounts = new int[segmentsCount][];
+            for (int segment = 0; segment < segmentsCount; segment++) {
+                segmentFirstIDs[segment] = in.readLong();
+                segmentStartTimes[segment] = in.readLong();
+                segmentEndTimes[segment] = in.readLong();
+                segmentTypeCounts[segment] = new int[in.readInt()];
+                for (int type = 0; type < segmentTypeCounts[segment].length; type++)
+                    segmentTypeCounts[segment][type] = in.readInt();
+            }
+            segmentFirstIDs[segmentsCount] = in.readLong();
+            
+            return new JFREventIndex(typeNames, segmentFirstIDs, segmentStartTimes, segmentEndTimes, segmentTypeCounts, directory, false);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.INFO, "Failed to load JFR events index " + directory, e); // NOI18N
+            return null;
+        }
+    }
+    
+    static Builder builder(File snapshotFile, String model) {
+        try {
+            File directory = getDirectory(snapshotFile);
+            boolean temporary = directory == null || !(directory.isDirectory() || directory.mkdir()) || !directory.canWrite();
+            if (temporary) {
+                directory = Files.createTempDirectory("visualvm-jfr").toFile(); // NOI18N
+                directory.deleteOnExit();
+            } else {
+                // invalidate previous index, files of an older index version are not reused
+                File[] files = directory.listFiles();
+                if (files != null) for (File file : files) file.delete();
+            }
+            return new Builder(snapshotFile, model, directory, temporary);
+        } catch (IOException e) {
+            LOGGER.log(Level.INFO, "Failed to create JFR events index for " + snapshotFile, e); // NOI18N
+            return null;
+        }
+    }
+    
+    private static File getDirectory(File snapshotFile) {
+        if (snapshotFile == null) return null;
+        return new File(snapshotFile.getParentFile(), snapshotFile.getName() + DIRECTORY_EXT);
+    }
+    
+    private static ByteBuffer map(File file, boolean write) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, write ? "rw" : "r"); // NOI18N
+             FileChannel channel = raf.getChannel()) {
+            return channel.map(write ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+    
+    
+    static final class Builder {
+        
+        private final File snapshotFile;
+        private final String model;
+        private final File directory;
+        private final boolean temporary;
+        
+        private final DataOutputStream typesOut;
+        
+        private final List<String> typeNames = new ArrayList<>();
+        private final Map<String, Integer> typeIndexes = new HashMap<>();
+        
+        private final List<long[]> segments = new ArrayList<>();
+        private final List<int[]> segmentTypeCounts = new ArrayList<>();
+        
+        private long eventsCount;
+        private IOException exception;
+        
+        
+        private Builder(File snapshotFile, String model, File directory, boolean temporary) throws IOException {
+            this.snapshotFile = snapshotFile;
+            this.model = model;
+            this.directory = directory;
+            this.temporary = temporary;
+            
+            typesOut = createOutput(TYPES_FILE);
+        }
+        
+        
+        long getEventsCount() {
+            return eventsCount;
+        }
+        
+        void startSegment() {
+            segments.add(new long[] { eventsCount, NO_VALUE, NO_VALUE });
+            segmentTypeCounts.add(new int[typeNames.size()]);
+        }
+        
+        void add(String typeName, JFREvent event) {
+            if (exception != null) return;
+            
+            Integer type = typeIndexes.get(typeName);
+            if (type == null) {
+                type = typeNames.size();
+                typeNames.add(typeName);
+                typeIndexes.put(typeName, type);
+            }
+            
+            long time;
+            try {
+                time = ValuesConverter.instantToNanos(event.getInstant("eventTime")); // NOI18N
+            } catch (JFRPropertyNotAvailableException e) {
+                time = NO_VALUE;
+            }
+            
+            int segment = segments.size() - 1;
+            long[] segmentData = segments.get(segment);
+            if (time != NO_VALUE) {
+                if (segmentData[1] == NO_VALUE || segmentData[1] > time) segmentData[1] = time;
+                if (segmentData[2] == NO_VALUE || segmentData[2] < time) segmentData[2] = time;
+            }
+            int[] counts = segmentTypeCounts.get(segment);
+            if (type >= counts.length) {
+                counts = Arrays.copyOf(counts, typeNames.size());
+                segmentTypeCounts.set(segment, counts);
+            }
+            counts[type]++;
+            
+            try {
+                typesOut.writeInt(type);
+                eventsCount++;
+            } catch (IOException e) {
+                exception = e;
+            }
+        }
+        
+        JFREventIndex finish() {
+            try {
+                typesOut.close();
+                
+                if (exception != null) throw exception;
+                // columns are mapped, a single mapping is limited to Integer.MAX_VALUE bytes
+                if (eventsCount > Integer.MAX_VALUE / Long.BYTES) throw new IOException("Too many events to index: " + eventsCount); // NOI18N
+                
+                writeByType();
+                writeMeta();
+                
+                String[] typeNamesArr = typeNames.toArray(new String[0]);
+                long[] segmentFirstIDs = new long[segments.size() + 1];
+                long[] segmentStartTimes = new long[segments.size()];
+                long[] segmentEndTimes = new long[segments.size()];
+                for (int segment = 0; segment < segments.size(); segment++) {
+                    long[] segmentData = segments.get(segment);
+                    segmentFirstIDs[segment] = segmentData[0];
+                    segmentStartTimes[segment] = segmentData[1];
+                    segmentEndTimes[segment] = segmentData[2];
+                }
+                segmentFirstIDs[segments.size()] = eventsCount;
+                
+                return new JFREventIndex(typeNamesArr, segmentFirstIDs, segmentStartTimes, segmentEndTimes,
+                                         segmentTypeCounts.toArray(new int[0][]), directory, temporary);
+            } catch (IOException e) {
+                LOGGER.log(Level.INFO, "Failed to create JFR events index for " + snapshotFile, e); // NOI18N
+                discard();
+                return null;
+            }
+        }
+        
+        // Drops an unfinished index, a temporary directory is deleted
+        void discard() {
+            try {
+                typesOut.close();
+            } catch (IOException e) {}
+            
+            if (temporary) {
+                File[] files = directory.listFiles();
+                if (files != null) for (File file : files) file.delete();
+                directory.delete();
+            } else {
+                new File(directory, META_FILE).delete();
+            }
+        }
+        
+        private void writeByType() throws IOException {
+            long[] positions = new long[typeNames.size()];
+            for (int[] counts : segmentTypeCounts)
+                for (int type = 0; type < counts.length; type++)
+                    positions[type] += counts[type];
+            long offset = 0;
+            for (int type = 0; type < positions.length; type++) {
+                long count = positions[type];
+                positions[type] = offset;
+                offset += count;
+            }
+            
+            File byTypeFile = createFile(BY_TYPE_FILE);
+            try (RandomAccessFile raf = new RandomAccessFile(byTypeFile, "rw")) { // NOI18N
+                raf.setLength(eventsCount * Long.BYTES);
+            }
+            
+            IntBuffer typesBuffer = map(new File(directory, TYPES_FILE), false).asIntBuffer();
+            LongBuffer byTypeBuffer = map(byTypeFile, true).asLongBuffer();
+            for (int id = 0; id < eventsCount; id++)
+                byTypeBuffer.put((int)positions[typesBuffer.get(id)]++, id);
+        }
+        
+        private void writeMeta() throws IOException {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(createFile(META_FILE))))) {
+                out.writeInt(INDEX_ID);
+                out.writeInt(INDEX_VERSION);
+                out.writeLong(snapshotFile == null ? 0 : snapshotFile.length());
+                out.writeLong(snapshotFile == null ? 0 : snapshotFile.lastModified());
+                out.writeUTF(model);
+                
+                out.writeInt(typeNames.size());
+                for (String typeName : typeNames) out.writeUTF(typeName);
+                
+                out.writeInt(segments.size());
+                for (int segment = 0; segment < segments.size(); segment++) {
+                    for (long value : segments.get(segment)) out.writeLong(value);
+                    int[] counts = segmentTypeCounts.get(segment);
+                    out.writeInt(counts.length);
+                    for (int count : counts) out.writeInt(count);
+                }
+                out.writeLong(eventsCount);
+            }
+        }
+        
+        private DataOutputStream createOutput(String name) throws IOException {
+            return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(createFile(name)), 64 * 1024));
+        }
+        
+        private File createFile(String name) {
+            File file = new File(directory, name);
+            if (temporary) file.deleteOnExit();
+            return file;
+        }
+        
+    }
+    
+}
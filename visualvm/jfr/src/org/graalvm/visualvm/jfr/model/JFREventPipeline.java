@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.jfr.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Shares a single read of the recording among all visitEvents requests issued
+ * at about the same time. Requests waiting for a read are joined into a pass,
+ * the pass reads the events once and dispatches them in batches to a bounded
+ * queue of each request. Every request visits its events in its own thread,
+ * an exception thrown while reading is rethrown in the thread of every request.
+ */
+final class JFREventPipeline {
+    
+    private static final Logger LOGGER = Logger.getLogger(JFRModel.class.getName());
+    
+    // time to wait for other requests before the recording is read while another pass is running
+    private static final int GATHER_DELAY = Integer.getInteger("org.graalvm.visualvm.jfr.model.gatherDelay", 200); // NOI18N
+    private static final int BATCH_SIZE = 256;
+    // maximum number of batches queued for a request, the read waits for the slowest request
+    private static final int QUEUE_CAPACITY = 32;
+    
+    private static final RequestProcessor PROCESSOR = new RequestProcessor("JFR Event Pipeline", 4); // NOI18N
+    
+    private static final Batch END = new Batch(null);
+    
+    
+    private final JFRModel model;
+    
+    private Pass pendingPass;
+    private int runningPasses;
+    
+    
+    JFREventPipeline(JFRModel model) {
+        this.model = model;
+    }
+    
+    
+    void visitEvents(JFREventVisitor... visitors) {
+        // Notify all visitors 'init'
+        for (JFREventVisitor visitor : visitors) visitor.init();
+        
+        // Notify visitors that are not done 'visit'
+        Subscriber subscriber = new Subscriber(visitors);
+        try {
+            join(subscriber);
+            subscriber.consume();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOGGER.log(Level.INFO, "Error visiting JFR events (" + model.getID() + ")", e); // NOI18N
+        } finally {
+            // Notify all visitors 'done'
+            for (JFREventVisitor visitor : visitors) visitor.done();
+        }
+    }
+    
+    
+    private synchronized void join(Subscriber subscriber) {
+        if (pendingPass == null) {
+            pendingPass = new Pass();
+            // requests are gathered only while the recording is being read, otherwise the pass starts immediately
+            PROCESSOR.post(pendingPass, runningPasses == 0 ? 0 : GATHER_DELAY);
+        }
+        pendingPass.subscribers.add(subscriber);
+    }
+    
+    private synchronized List<Subscriber> start(Pass pass) {
+        if (pendingPass == pass) pendingPass = null;
+        runningPasses++;
+        return pass.subscribers;
+    }
+    
+    private synchronized void finish() {
+        runningPasses--;
+    }
+    
+    
+    private final class Pass implements Runnable {
+        
+        private final List<Subscriber> subscribers = new ArrayList<>();
+        
+        @Override
+        public void run() {
+            final List<Subscriber> _subscribers = start(this);
+            JFRSegmentReader.Order order = JFRSegmentReader.Order.NONE;
+            for (Subscriber subscriber : _subscribers)
+                if (subscriber.order.compareTo(order) > 0) order = subscriber.order;
+            Batch end = END;
+            try {
+                model.readEvents(order, new JFREventVisitor() {
+                    private Batch batch = new Batch(BATCH_SIZE);
+                    @Override
+                    public boolean visit(String typeName, JFREvent event) {
+                        if (!batch.add(typeName, event)) return false;
+                        
+                        boolean finished = dispatch(_subscribers, batch);
+                        batch = new Batch(BATCH_SIZE);
+                        return finished;
+                    }
+                    @Override
+                    public void done() {
+                        if (batch.size > 0) dispatch(_subscribers, batch);
+                    }
+                });
+            } catch (RuntimeException | Error e) {
+                // handled by the requests like an exception of their own read
+                end = new Batch(e);
+            } finally {
+                finish();
+                dispatch(_subscribers, end);
+            }
+        }
+        
+        // Returns true when all subscribers are finished
+        private boolean dispatch(List<Subscriber> _subscribers, Batch batch) {
+            boolean finished = true;
+            for (Subscriber subscriber : _subscribers)
+                if (subscriber.offer(batch)) finished = false;
+            return finished;
+        }
+        
+    }
+    
+    
+    private static final class Batch {
+        
+        private final String[] typeNames;
+        private final JFREvent[] events;
+        private int size;
+        
+        private final boolean end;
+        private final Throwable error;
+        
+        Batch(int capacity) {
+            typeNames = new String[capacity];
+            events = new JFREvent[capacity];
+            end = false;
+            error = null;
+        }
+        
+        // Last batch of a pass, error is the exception thrown while reading or null
+        Batch(Throwable error) {
+            typeNames = new String[0];
+            events = new JFREvent[0];
+            end = true;
+            this.error = error;
+        }
+        
+        // Returns true when the batch is full
+        boolean add(String typeName, JFREvent event) {
+            typeNames[size] = typeName;
+            events[size] = event;
+            return ++size == events.length;
+        }
+        
+    }
+    
+    
+    private static final class Subscriber {
+        
+        private final List<JFREventVisitor> visitors;
+        private final JFRSegmentReader.Order order;
+        private final BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private volatile boolean finished;
+        
+        Subscriber(JFREventVisitor[] visitors) {
+            this.visitors = new ArrayList<>(Arrays.asList(visitors));
+            order = JFRModel.getOrder(visitors);
+        }
+        
+        // Called by the reading thread, returns false when the subscriber is finished
+        boolean offer(Batch batch) {
+            try {
+                while (!finished)
+                    if (queue.offer(batch, 100, TimeUnit.MILLISECONDS)) return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+        
+        // Called by the requesting thread
+        void consume() throws InterruptedException {
+            try {
+                while (!visitors.isEmpty()) {
+                    Batch batch = queue.take();
+                    if (batch.end) {
+                        if (batch.error instanceof RuntimeException) throw (RuntimeException)batch.error;
+                        if (batch.error instanceof Error) throw (Error)batch.error;
+                        return;
+                    }
+                    
+                    for (int i = 0; i < batch.size && !visitors.isEmpty(); i++) {
+                        Iterator<JFREventVisitor> visitorsI = visitors.iterator();
+                        while (visitorsI.hasNext())
+                            if (visitorsI.next().visit(batch.typeNames[i], batch.events[i]))
+                                visitorsI.remove();
+                    }
+                }
+            } finally {
+                finished = true;
+                queue.clear();
+            }
+        }
+        
+    }
+    
+}
@@ -39,4 +39,14 @@ public interface JFREventVisitor {
     // Called after visiting finished
     public default void done() {}
     
+    // Returns false when the result does not depend on the order of events, chunks
+    // of a recording parsed in parallel are then visited as soon as available.
+    // Otherwise events are visited in the recorded order.
+    public default boolean requiresOrder() { return true; }
+    
+    // Returns true to visit events merged by the event time if the recording can be
+    // read by chunks. Only a limited number of consecutive chunks is merged at once,
+    // events recorded far apart from each other may still be visited out of order.
+    public default boolean requiresTimeOrder() { return false; }
+    
 }
@@ -24,9 +24,11 @@
  */
 package org.graalvm.visualvm.jfr.model;
 
+import java.io.File;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -49,10 +51,20 @@ public abstract class JFRModel extends Model {
     private static final Logger LOGGER = Logger.getLogger(JFRModel.class.getName());
     
     private final String id;
+    private final JFRModelScope scope;
+    
+    private final JFREventPipeline eventPipeline;
     
     
     protected JFRModel(String id) {
+        this(id, JFRModelScope.FULL);
+    }
+    
+    // Scoped model only provides events within the scope, filtered by the implementation when reading the recording
+    protected JFRModel(String id, JFRModelScope scope) {
         this.id = id;
+        this.scope = scope;
+        eventPipeline = new JFREventPipeline(this);
     }
     
     
@@ -60,8 +72,193 @@ public abstract class JFRModel extends Model {
         return id;
     }
     
+    public JFRModelScope getScope() {
+        return scope;
+    }
+    
+    
+    // Requests issued at about the same time share a single read of the recording
+    public void visitEvents(JFREventVisitor... visitors) {
+        eventPipeline.visitEvents(visitors);
+    }
+    
+    // Visits events of a single type, only segments containing the type are read
+    public void visitEvents(final String typeName, JFREventVisitor... visitors) {
+        JFREventVisitor[] typeVisitors = new JFREventVisitor[visitors.length];
+        for (int i = 0; i < visitors.length; i++) {
+            final JFREventVisitor visitor = visitors[i];
+            typeVisitors[i] = new JFREventVisitor() {
+                @Override
+                public void init() { visitor.init(); }
+                @Override
+                public boolean visit(String _typeName, JFREvent event) {
+                    return typeName.equals(_typeName) && visitor.visit(_typeName, event);
+                }
+                @Override
+                public void done() { visitor.done(); }
+                @Override
+                public boolean requiresOrder() { return visitor.requiresOrder(); }
+                @Override
+                public boolean requiresTimeOrder() { return visitor.requiresTimeOrder(); }
+            };
+        }
+        
+        if (eventIndex == null) {
+            visitEvents(typeVisitors);
+            return;
+        }
+        
+        List<Integer> typeSegments = new ArrayList<>();
+        int segments = eventIndex.getSegmentsCount();
+        for (int segment = 0; segment < segments; segment++)
+            if (eventIndex.getEventsCount(segment, typeName) > 0) typeSegments.add(segment);
+        
+        JFRSegmentReader.Order order = getOrder(visitors);
+        if (isSegmentReadEnabled(order, typeSegments.size())) {
+            readEvents(toArray(typeSegments), order, createVisitor(typeVisitors));
+            return;
+        }
+        
+        for (JFREventVisitor visitor : typeVisitors) visitor.init();
+        try {
+            List<JFREventVisitor> _visitors = new ArrayList<>(Arrays.asList(typeVisitors));
+            for (int i = 0; i < typeSegments.size() && !_visitors.isEmpty(); i++) {
+                int segment = typeSegments.get(i);
+                // the rest of the segment is skipped once all its events of the type are visited
+                final int[] remaining = new int[] { eventIndex.getEventsCount(segment, typeName) };
+                readEvents(segment, eventIndex.getSegmentFirstID(segment), new JFREventVisitor() {
+                    @Override
+                    public boolean visit(String _typeName, JFREvent event) {
+                        if (!typeName.equals(_typeName)) return false;
+                        _visitors.removeIf(visitor -> visitor.visit(_typeName, event));
+                        return _visitors.isEmpty() || --remaining[0] == 0;
+                    }
+                });
+            }
+        } finally {
+            for (JFREventVisitor visitor : typeVisitors) visitor.done();
+        }
+    }
+    
+    // Returns number of events of the type, or -1 if not known without reading the recording
+    public long getEventsCount(String typeName) {
+        return eventIndex == null ? -1 : eventIndex.getEventsCount(typeName);
+    }
+    
+    
+    // Releases resources of a model which is no longer used, temporary files are deleted
+    public void release() {
+        synchronized (eventsCache) {
+            eventsCache.clear();
+        }
+        if (eventIndex != null) eventIndex.release();
+    }
+    
     
-    public abstract void visitEvents(JFREventVisitor... visitors);
+    // Reads all events of the recording, visitors are notified in the calling thread.
+    // Events are visited in the recorded order, merging them by the event time for
+    // visitors requiring the time order is optional.
+    protected abstract void readEvents(JFREventVisitor... visitors);
+    
+    // Number of parts of the recording which can be read separately
+    protected int getSegmentsCount() {
+        return 1;
+    }
+    
+    // Reads events of a single segment, IDs of the events start at firstID
+    protected void readEvents(int segment, long firstID, JFREventVisitor... visitors) {
+        readEvents(visitors);
+    }
+    
+    // Snapshot file used to persist the events index next to it, null for a temporary index
+    protected File getSnapshotFile() {
+        return null;
+    }
+    
+    // Returns true if separate segments can be read concurrently and parsing them in parallel pays off
+    protected boolean isParallelReadSupported() {
+        return false;
+    }
+    
+    
+    // Reads all events, segments of an indexed recording are parsed in parallel when supported
+    void readEvents(JFRSegmentReader.Order order, JFREventVisitor visitor) {
+        if (eventIndex != null && isSegmentReadEnabled(order, eventIndex.getSegmentsCount())) {
+            int[] segments = new int[eventIndex.getSegmentsCount()];
+            for (int segment = 0; segment < segments.length; segment++) segments[segment] = segment;
+            readEvents(segments, order, visitor);
+        } else {
+            readEvents(getOrder(visitor) == order ? visitor : withOrder(order, visitor));
+        }
+    }
+    
+    private void readEvents(int[] segments, JFRSegmentReader.Order order, JFREventVisitor visitor) {
+        long[] firstIDs = new long[segments.length];
+        long[] startTimes = new long[segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            firstIDs[i] = eventIndex.getSegmentFirstID(segments[i]);
+            startTimes[i] = eventIndex.getSegmentStartTime(segments[i]);
+        }
+        new JFRSegmentReader(this, segments, firstIDs, startTimes, order).readEvents(visitor, null);
+    }
+    
+    // Time order is only provided by the segment reader, otherwise it's used to parse segments in parallel
+    private boolean isSegmentReadEnabled(JFRSegmentReader.Order order, int segmentsCount) {
+        if (eventIndex == null || !isParallelReadSupported() || segmentsCount == 0) return false;
+        return order == JFRSegmentReader.Order.TIMESTAMPS || JFRSegmentReader.isEnabled(segmentsCount);
+    }
+    
+    // Returns the most strict order required by the visitors
+    static JFRSegmentReader.Order getOrder(JFREventVisitor... visitors) {
+        JFRSegmentReader.Order order = JFRSegmentReader.Order.NONE;
+        for (JFREventVisitor visitor : visitors) {
+            if (visitor.requiresTimeOrder()) return JFRSegmentReader.Order.TIMESTAMPS;
+            if (visitor.requiresOrder()) order = JFRSegmentReader.Order.SEGMENTS;
+        }
+        return order;
+    }
+    
+    // Reports the order to a model reading all events at once, the model may provide the time order on its own
+    private static JFREventVisitor withOrder(final JFRSegmentReader.Order order, final JFREventVisitor visitor) {
+        return new JFREventVisitor() {
+            @Override
+            public void init() { visitor.init(); }
+            @Override
+            public boolean visit(String typeName, JFREvent event) { return visitor.visit(typeName, event); }
+            @Override
+            public void done() { visitor.done(); }
+            @Override
+            public boolean requiresOrder() { return order != JFRSegmentReader.Order.NONE; }
+            @Override
+            public boolean requiresTimeOrder() { return order == JFRSegmentReader.Order.TIMESTAMPS; }
+        };
+    }
+    
+    // Dispatches events to all visitors until every visitor is done
+    private static JFREventVisitor createVisitor(final JFREventVisitor... visitors) {
+        return new JFREventVisitor() {
+            private final List<JFREventVisitor> _visitors = new ArrayList<>(Arrays.asList(visitors));
+            @Override
+            public void init() {
+                for (JFREventVisitor visitor : visitors) visitor.init();
+            }
+            @Override
+            public boolean visit(String typeName, JFREvent event) {
+                _visitors.removeIf(visitor -> visitor.visit(typeName, event));
+                return _visitors.isEmpty();
+            }
+            @Override
+            public void done() {
+                for (JFREventVisitor visitor : visitors) visitor.done();
+            }
+        };
+    }
+    
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) array[i] = list.get(i);
+        return array;
+    }
     
     public abstract void visitEventTypes(JFREventTypeVisitor... visitors);
     
@@ -85,6 +282,11 @@ public abstract class JFRModel extends Model {
     
     private Map<String, Boolean> checkedEvents;
     
+    private JFREventIndex eventIndex;
+    
+    private static final int EVENTS_CACHE_SIZE = 256;
+    private final Map<Long, JFREvent> eventsCache = new HashMap<>();
+    
     public boolean containsEvent(Class<? extends JFREventChecker> eventCheckerClass) {
         Boolean contains = checkedEvents == null ? null : checkedEvents.get(eventCheckerClass.getName());
         return Boolean.TRUE.equals(contains);
@@ -92,6 +294,9 @@ public abstract class JFRModel extends Model {
     
     
     public JFREvent getEvent(final long eventID) {
+        if (eventIndex != null && eventID >= 0 && eventID < eventIndex.getEventsCount())
+            return getIndexedEvent(eventID);
+        
         final JFREvent[] foundEvent = new JFREvent[] { null };
         
         visitEvents(new JFREventVisitor() {
@@ -106,6 +311,36 @@ public abstract class JFRModel extends Model {
         return foundEvent[0];
     }
     
+    // Reads only the segment containing the event. Events of a single type are typically
+    // requested one after another, neighbouring events of the same type are read together
+    // and cached to be available without reading the segment again.
+    private JFREvent getIndexedEvent(long eventID) {
+        synchronized (eventsCache) {
+            JFREvent event = eventsCache.get(eventID);
+            if (event != null) return event;
+        }
+        
+        final String eventType = eventIndex.getTypeName(eventID);
+        final long[] ids = eventIndex.getNeighbourIDs(eventID, EVENTS_CACHE_SIZE);
+        final Map<Long, JFREvent> events = new HashMap<>();
+        
+        int segment = eventIndex.getSegment(eventID);
+        readEvents(segment, eventIndex.getSegmentFirstID(segment), new JFREventVisitor() {
+            @Override
+            public boolean visit(String typeName, JFREvent event) {
+                long id = event.getID();
+                if (eventType.equals(typeName) && Arrays.binarySearch(ids, id) >= 0) events.put(id, event);
+                return id >= ids[ids.length - 1];
+            }
+        });
+        
+        synchronized (eventsCache) {
+            eventsCache.clear();
+            eventsCache.putAll(events);
+        }
+        return events.get(eventID);
+    }
+    
     
     public Instant getJvmStartTime() {
         return jvmStartTime;
@@ -209,7 +444,7 @@ public abstract class JFRModel extends Model {
             }
         });
 
-        visitEvents(new JFREventVisitor() {
+        JFREventVisitor initializer = new JFREventVisitor() {
             private List<? extends JFREventChecker> checkers;
             @Override
             public void init() {
@@ -267,11 +502,73 @@ public abstract class JFRModel extends Model {
 
                 return false;
             }
-        });
+        };
+        
+        // build the events index within the initial read of the recording if not available,
+        // the persistent index describes the complete recording, scoped models use a temporary one
+        File indexFile = scope.isFull() ? getSnapshotFile() : null;
+        eventIndex = JFREventIndex.load(indexFile, getClass().getName(), getSegmentsCount());
+        JFREventIndex.Builder indexBuilder = eventIndex == null ? JFREventIndex.builder(indexFile, getClass().getName()) : null;
+        if (indexBuilder == null) readEvents(initializer);
+        else eventIndex = buildIndex(indexBuilder, initializer);
+        
+        if (firstEventTime == null && !scope.isFull()) {
+            // the model is not created, nobody else releases its temporary index
+            release();
+            throw new IllegalStateException("No events within " + scope + " (" + getID() + ")"); // NOI18N
+        }
         
         firstEventTimeMs = ValuesConverter.instantToMillis(firstEventTime);
     }
     
+    private JFREventIndex buildIndex(final JFREventIndex.Builder indexBuilder, final JFREventVisitor visitor) {
+        try {
+            return buildIndexImpl(indexBuilder, visitor);
+        } catch (RuntimeException | Error e) {
+            indexBuilder.discard();
+            throw e;
+        }
+    }
+    
+    private JFREventIndex buildIndexImpl(final JFREventIndex.Builder indexBuilder, final JFREventVisitor visitor) {
+        JFREventVisitor indexer = new JFREventVisitor() {
+            @Override
+            public boolean visit(String typeName, JFREvent event) {
+                indexBuilder.add(typeName, event);
+                visitor.visit(typeName, event);
+                return false;
+            }
+        };
+        
+        int segments = getSegmentsCount();
+        if (isParallelReadSupported() && JFRSegmentReader.isEnabled(segments)) {
+            // IDs of the segments are not known yet, the index and the initializer don't use them
+            int[] allSegments = new int[segments];
+            for (int segment = 0; segment < segments; segment++) allSegments[segment] = segment;
+            JFRSegmentReader reader = new JFRSegmentReader(this, allSegments, new long[segments], null, JFRSegmentReader.Order.SEGMENTS);
+            reader.readEvents(new JFREventVisitor() {
+                @Override
+                public void init() { visitor.init(); }
+                @Override
+                public boolean visit(String typeName, JFREvent event) { return indexer.visit(typeName, event); }
+                @Override
+                public void done() { visitor.done(); }
+            }, segment -> indexBuilder.startSegment());
+            return indexBuilder.finish();
+        }
+        
+        visitor.init();
+        try {
+            for (int segment = 0; segment < segments; segment++) {
+                indexBuilder.startSegment();
+                readEvents(segment, indexBuilder.getEventsCount(), indexer);
+            }
+        } finally {
+            visitor.done();
+        }
+        return indexBuilder.finish();
+    }
+    
     private static final String TYPE_JVM_INFORMATION = "jdk.JVMInformation"; // NOI18N
     private static final String TYPE_SYSTEM_PROPERTY = "jdk.InitialSystemProperty"; // NOI18N
     private static final String TYPE_SHUTDOWN = "jdk.Shutdown"; // NOI18N
@@ -279,7 +576,7 @@ public abstract class JFRModel extends Model {
     
     // --- Workaround until GH-141 is available ---
     static final JFRModel OOME = new JFRModel("OOME") { // NOI18N
-        @Override public void visitEvents(JFREventVisitor... visitors) {}
+        @Override protected void readEvents(JFREventVisitor... visitors) {}
         @Override public void visitEventTypes(JFREventTypeVisitor... visitors) {}
     };
     
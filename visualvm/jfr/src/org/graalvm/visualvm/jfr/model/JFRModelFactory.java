@@ -80,6 +80,9 @@ public final class JFRModelFactory extends ModelFactory<JFRModel, DataSource> {
     // Currently the JFRModel is kept on heap using a SoftReference, eventually
     // reused on subsequent snapshot open. Takes too much space for JFRModelImpl.
     @Deprecated public static void cleanupModel__Workaround(JFRModel model) {
+        // Temporary files of the model are no longer needed
+        if (model != null) model.release();
+        
         // Dummy JFRModelProvider with no functionality
         ModelProvider<JFRModel, DataSource> workaround = new AbstractModelProvider<JFRModel, DataSource>() {
             @Override public JFRModel createModelFor(DataSource b) { return null; }
@@ -55,6 +55,11 @@ public abstract class JFRModelProvider extends AbstractModelProvider<JFRModel, D
     
     protected abstract JFRModel createModel(String id, File file) throws Exception;
     
+    // Creates a model of a part of the recording, returns null if the provider doesn't support scoped models
+    protected JFRModel createModel(String id, File file, JFRModelScope scope) throws Exception {
+        return scope.isFull() ? createModel(id, file) : null;
+    }
+    
     
     @Override
     public final JFRModel createModelFor(final DataSource dataSource) {
@@ -62,7 +67,7 @@ public abstract class JFRModelProvider extends AbstractModelProvider<JFRModel, D
             JFRSnapshot snapshot = (JFRSnapshot)dataSource;
             File file = snapshot.getFile();
             try {
-                return createModel(id, file);
+                return createModel(id, file, snapshot.getScope());
             } catch (OutOfMemoryError e) {
                 SwingUtilities.invokeLater(new Runnable() {
                     public void run() {
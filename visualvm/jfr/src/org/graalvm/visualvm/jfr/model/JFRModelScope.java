@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.jfr.model;
+
+import java.text.DateFormat;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import org.openide.util.NbBundle;
+
+/**
+ * Part of a JFR recording to be loaded by a JFRModel: a time window and a set of
+ * event types. Events are included by their eventTime, null bounds and null types
+ * are not restricted.
+ */
+public final class JFRModelScope {
+    
+    public static final JFRModelScope FULL = new JFRModelScope(null, null, null);
+    
+    
+    private final Instant startTime;
+    private final Instant endTime;
+    private final Set<String> typeNames;
+    
+    
+    private JFRModelScope(Instant startTime, Instant endTime, Set<String> typeNames) {
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.typeNames = typeNames;
+    }
+    
+    
+    public static JFRModelScope create(Instant startTime, Instant endTime, Set<String> typeNames) {
+        if (startTime != null && endTime != null && startTime.isAfter(endTime))
+            throw new IllegalArgumentException("Start time " + startTime + " is after end time " + endTime); // NOI18N
+        
+        if (startTime == null && endTime == null && typeNames == null) return FULL;
+        
+        Set<String> types = typeNames == null ? null : Collections.unmodifiableSet(new HashSet<>(typeNames));
+        return new JFRModelScope(startTime, endTime, types);
+    }
+    
+    
+    public Instant getStartTime() {
+        return startTime;
+    }
+    
+    public Instant getEndTime() {
+        return endTime;
+    }
+    
+    // Returns null if events of all types are included
+    public Set<String> getTypeNames() {
+        return typeNames;
+    }
+    
+    public boolean isFull() {
+        return startTime == null && endTime == null && typeNames == null;
+    }
+    
+    public boolean isTimeRestricted() {
+        return startTime != null || endTime != null;
+    }
+    
+    
+    public boolean includesType(String typeName) {
+        return typeNames == null || typeNames.contains(typeName);
+    }
+    
+    public boolean includesTime(Instant time) {
+        if (time == null) return !isTimeRestricted();
+        return (startTime == null || !time.isBefore(startTime)) && (endTime == null || !time.isAfter(endTime));
+    }
+    
+    // Times in nanoseconds since epoch, used to skip whole parts of the recording
+    public boolean overlaps(long startNanos, long endNanos) {
+        return (startTime == null || endNanos >= toNanos(startTime)) && (endTime == null || startNanos <= toNanos(endTime));
+    }
+    
+    private static long toNanos(Instant time) {
+        try {
+            return Math.addExact(Math.multiplyExact(time.getEpochSecond(), 1000000000L), time.getNano());
+        } catch (ArithmeticException e) {
+            return time.getEpochSecond() < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+    
+    
+    public String getDescription() {
+        if (isFull()) return NbBundle.getMessage(JFRModelScope.class, "LBL_Scope_Full"); // NOI18N
+        
+        DateFormat format = DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.MEDIUM);
+        String start = startTime == null ? NbBundle.getMessage(JFRModelScope.class, "LBL_Scope_Start") : format.format(Date.from(startTime)); // NOI18N
+        String end = endTime == null ? NbBundle.getMessage(JFRModelScope.class, "LBL_Scope_End") : format.format(Date.from(endTime)); // NOI18N
+        
+        if (typeNames == null) return NbBundle.getMessage(JFRModelScope.class, "LBL_Scope_Time", start, end); // NOI18N
+        else if (!isTimeRestricted()) return NbBundle.getMessage(JFRModelScope.class, "LBL_Scope_Types", typeNames.size()); // NOI18N
+        else return NbBundle.getMessage(JFRModelScope.class, "LBL_Scope_TimeTypes", start, end, typeNames.size()); // NOI18N
+    }
+    
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof JFRModelScope)) return false;
+        JFRModelScope scope = (JFRModelScope)o;
+        return Objects.equals(startTime, scope.startTime) && Objects.equals(endTime, scope.endTime) && Objects.equals(typeNames, scope.typeNames);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(startTime, endTime, typeNames);
+    }
+    
+    @Override
+    public String toString() {
+        return "JFRModelScope [" + startTime + " - " + endTime + ", types: " + typeNames + "]"; // NOI18N
+    }
+    
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.jfr.model;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.IntConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.graalvm.visualvm.jfr.utils.ValuesConverter;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Parses segments (chunks) of a recording in parallel. Every segment is read by
+ * a worker into a batch of events, the batches are visited in the calling thread.
+ * Events are visited either in segment order, segment by segment as soon as
+ * a segment is parsed, or merged by event time. Only a limited number of segments
+ * is parsed ahead of the visitor and merged at once.
+ */
+final class JFRSegmentReader {
+    
+    private static final Logger LOGGER = Logger.getLogger(JFRModel.class.getName());
+    
+    private static final int PARALLELISM = Math.max(1, Integer.getInteger("org.graalvm.visualvm.jfr.model.parallelism", // NOI18N
+                                                                            Runtime.getRuntime().availableProcessors()));
+    // maximum number of segments parsed but not yet visited
+    private static final int READ_AHEAD = PARALLELISM * 2;
+    // maximum number of segments merged at once for Order.TIMESTAMPS
+    private static final int MERGE_WINDOW = Math.max(4, READ_AHEAD);
+    
+    private static final RequestProcessor PROCESSOR = new RequestProcessor("JFR Segment Reader", PARALLELISM); // NOI18N
+    
+    
+    // from the least to the most strict order
+    enum Order {
+        // segments in the order they are parsed, events of a segment in the recorded order
+        NONE,
+        // segments in order, events of a segment in the recorded order
+        SEGMENTS,
+        // events merged by event time, at most MERGE_WINDOW consecutive segments at once
+        TIMESTAMPS
+    }
+    
+    
+    private final JFRModel model;
+    private final int[] segments;
+    private final long[] firstIDs;
+    // minimal start time of segments[i..], only used for Order.TIMESTAMPS
+    private final long[] startTimeBounds;
+    private final Order order;
+    
+    private final BlockingQueue<Segment> parsed = new LinkedBlockingQueue<>();
+    private final Segment[] pending;
+    private int submitted;
+    private int taken;
+    private volatile boolean cancelled;
+    
+    
+    // startTimes are needed for Order.TIMESTAMPS, events without time are sorted first
+    JFRSegmentReader(JFRModel model, int[] segments, long[] firstIDs, long[] startTimes, Order order) {
+        this.model = model;
+        this.segments = segments;
+        this.firstIDs = firstIDs;
+        this.order = order;
+        
+        pending = new Segment[segments.length];
+        
+        if (order == Order.TIMESTAMPS) {
+            startTimeBounds = new long[segments.length + 1];
+            startTimeBounds[segments.length] = Long.MAX_VALUE;
+            for (int i = segments.length - 1; i >= 0; i--)
+                startTimeBounds[i] = Math.min(startTimes[i], startTimeBounds[i + 1]);
+        } else {
+            startTimeBounds = null;
+        }
+    }
+    
+    
+    static boolean isEnabled(int segmentsCount) {
+        return PARALLELISM > 1 && segmentsCount > 1;
+    }
+    
+    // maximum number of segments held by the reader at once
+    static int getSegmentsLimit(Order order) {
+        return order == Order.TIMESTAMPS ? MERGE_WINDOW + READ_AHEAD : READ_AHEAD;
+    }
+    
+    
+    // segmentListener is notified before visiting events of a segment, not supported for Order.TIMESTAMPS
+    void readEvents(JFREventVisitor visitor, IntConsumer segmentListener) {
+        visitor.init();
+        try {
+            submit();
+            if (order == Order.TIMESTAMPS) readMerged(visitor);
+            else readSegments(visitor, segmentListener);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            cancelled = true;
+            visitor.done();
+        }
+    }
+    
+    
+    private void readSegments(JFREventVisitor visitor, IntConsumer segmentListener) throws InterruptedException {
+        for (int i = 0; i < segments.length; i++) {
+            Segment segment = order == Order.NONE ? next() : await(i);
+            if (segmentListener != null) segmentListener.accept(segments[segment.position]);
+            while (segment.hasNext()) {
+                if (visitor.visit(segment.typeName(), segment.event())) return;
+                segment.advance();
+            }
+        }
+    }
+    
+    private void readMerged(JFREventVisitor visitor) throws InterruptedException {
+        PriorityQueue<Segment> heads = new PriorityQueue<>(new Comparator<Segment>() {
+            @Override
+            public int compare(Segment s1, Segment s2) {
+                int result = Long.compare(s1.time(), s2.time());
+                return result != 0 ? result : Integer.compare(s1.position, s2.position);
+            }
+        });
+        int loaded = 0;
+        while (true) {
+            Segment head = heads.peek();
+            // events of a segment which has not been parsed yet may precede the head,
+            // the number of merged segments is limited regardless of their times
+            if (loaded < segments.length && (head == null || heads.size() < MERGE_WINDOW && head.time() >= startTimeBounds[loaded])) {
+                Segment segment = await(loaded++);
+                if (segment.hasNext()) heads.add(segment);
+                continue;
+            }
+            if (head == null) return;
+            
+            heads.poll();
+            if (visitor.visit(head.typeName(), head.event())) return;
+            head.advance();
+            if (head.hasNext()) heads.add(head);
+        }
+    }
+    
+    
+    private Segment next() throws InterruptedException {
+        Segment segment = parsed.take();
+        taken++;
+        submit();
+        return segment;
+    }
+    
+    private Segment await(int position) throws InterruptedException {
+        while (pending[position] == null) {
+            Segment segment = parsed.take();
+            pending[segment.position] = segment;
+        }
+        Segment segment = pending[position];
+        pending[position] = null;
+        taken++;
+        submit();
+        return segment;
+    }
+    
+    private void submit() {
+        while (submitted < segments.length && submitted - taken < READ_AHEAD) {
+            final int position = submitted++;
+            PROCESSOR.post(new Runnable() {
+                @Override
+                public void run() {
+                    Segment segment = new Segment(position, order == Order.TIMESTAMPS);
+                    try {
+                        if (!cancelled) model.readEvents(segments[position], firstIDs[position], segment);
+                        segment.sort();
+                    } catch (Exception e) {
+                        LOGGER.log(Level.INFO, "Error reading JFR segment (" + model.getID() + ")", e); // NOI18N
+                    } finally {
+                        parsed.add(segment);
+                    }
+                }
+            });
+        }
+    }
+    
+    
+    private final class Segment implements JFREventVisitor {
+        
+        private final int position;
+        private final boolean sorted;
+        
+        private String[] typeNames = new String[256];
+        private JFREvent[] events = new JFREvent[256];
+        private long[] times;
+        private int[] order;
+        private int size;
+        private int cursor;
+        
+        
+        Segment(int position, boolean sorted) {
+            this.position = position;
+            this.sorted = sorted;
+            if (sorted) times = new long[256];
+        }
+        
+        
+        @Override
+        public boolean visit(String typeName, JFREvent event) {
+            if (size == events.length) {
+                typeNames = Arrays.copyOf(typeNames, size * 2);
+                events = Arrays.copyOf(events, size * 2);
+                if (sorted) times = Arrays.copyOf(times, size * 2);
+            }
+            typeNames[size] = typeName;
+            events[size] = event;
+            if (sorted) times[size] = time(event);
+            size++;
+            return cancelled;
+        }
+        
+        void sort() {
+            if (sorted) {
+                // sorting is stable, events with the same time keep the recorded order
+                Integer[] sortedOrder = new Integer[size];
+                for (int i = 0; i < size; i++) sortedOrder[i] = i;
+                Arrays.sort(sortedOrder, Comparator.comparingLong(i -> times[i]));
+                order = new int[size];
+                for (int i = 0; i < size; i++) order[i] = sortedOrder[i];
+            }
+        }
+        
+        
+        boolean hasNext() {
+            return cursor < size;
+        }
+        
+        String typeName() {
+            return typeNames[index()];
+        }
+        
+        JFREvent event() {
+            return events[index()];
+        }
+        
+        long time() {
+            return times[index()];
+        }
+        
+        void advance() {
+            // release the visited event
+            events[index()] = null;
+            cursor++;
+        }
+        
+        private int index() {
+            return order == null ? cursor : order[cursor];
+        }
+        
+        private long time(JFREvent event) {
+            try {
+                return ValuesConverter.instantToNanos(event.getInstant("eventTime")); // NOI18N
+            } catch (JFRPropertyNotAvailableException e) {
+                return JFREventIndex.NO_VALUE;
+            }
+        }
+        
+    }
+    
+}
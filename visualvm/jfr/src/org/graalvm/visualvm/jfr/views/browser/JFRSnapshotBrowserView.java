@@ -85,7 +85,9 @@ class JFRSnapshotBrowserView extends JFRViewTab {
             final BrowserViewSupport.EventsTreeViewSupport eventsTree = new BrowserViewSupport.EventsTreeViewSupport(model.getEventsCount()) {
                 @Override
                 void eventsSelected(String eventType, long eventsCount, List<JFRDataDescriptor> dataDescriptors) {
-                    initialize(null, eventsTable.getVisitor(eventType, eventsCount, dataDescriptors));
+                    JFREventVisitor visitor = eventsTable.getVisitor(eventType, eventsCount, dataDescriptors);
+                    if (eventType == null) initialize(null, visitor);
+                    else initializeType(eventType, visitor);
                 }
             };
             eventsTree.setIncludeExperimental(false);
@@ -136,4 +138,12 @@ class JFRSnapshotBrowserView extends JFRViewTab {
         });
     }
     
+    private void initializeType(final String eventType, final JFREventVisitor visitor) {
+        new RequestProcessor("JFR Events Browser Initializer").post(new Runnable() { // NOI18N
+            public void run() {
+                getModel().visitEvents(eventType, visitor);
+            }
+        });
+    }
+    
 }
@@ -147,6 +147,12 @@ class JFRSnapshotOverviewView extends JFRViewTab {
             if (model != null) {
                 StringBuilder data = new StringBuilder();
                 
+                // Part of the recording presented by the model
+                if (!model.getScope().isFull()) {
+                    String scopeLbl = NbBundle.getMessage(JFRSnapshotOverviewView.class, "LBL_Scope");    // NOI18N
+                    data.append("<b>"+scopeLbl+":</b> " + model.getScope().getDescription() + "<br><br>");  // NOI18N
+                }
+                
                 // JFR Snapshot information
                 String commandLine = model.getJavaCommand();
 
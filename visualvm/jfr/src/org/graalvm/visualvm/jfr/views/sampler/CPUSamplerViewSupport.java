@@ -28,12 +28,8 @@ import java.awt.BorderLayout;
 import java.awt.Font;
 import java.text.Format;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import javax.swing.JPanel;
@@ -76,9 +72,9 @@ final class CPUSamplerViewSupport {
         
         private final boolean hasData;
         
-        private List<JFREventWithStack> data;
+        private StackTraceSnapshotBuilder builder;
+        private JFRThreadSamples samples;
         private Set<String> ignoredEvents;
-        private JFRThreadInfoSupport tiSupport;
         
         
         CPUViewSupport(JFRModel model) {
@@ -94,9 +90,9 @@ final class CPUSamplerViewSupport {
         @Override
         public void init() {
             if (hasData) {
-                data = new ArrayList<>();
+                builder = new StackTraceSnapshotBuilder();
+                samples = new JFRThreadSamples(builder, System.nanoTime());
                 ignoredEvents = new HashSet<>();
-                tiSupport = new JFRThreadInfoSupport();
             }
         }
 
@@ -106,40 +102,32 @@ final class CPUSamplerViewSupport {
             
             try {
                 if (!ignoredEvents.contains(typeName))
-                    data.add(new JFREventWithStack(typeName, event, model, tiSupport));
+                    addSample(typeName, event);
             } catch (JFRPropertyNotAvailableException e) {
                 ignoredEvents.add(typeName);
             }
             
             return false;
         }
+        
+        @Override
+        public boolean requiresTimeOrder() {
+            return true; // samples are passed to the builder as they arrive, only slightly misplaced samples are ordered by JFRThreadSamples
+        }
 
         @Override
         public void done() {
             if (hasData) {
-                StackTraceSnapshotBuilder builder = new StackTraceSnapshotBuilder();
-                Map<Long, Map<String, Object>> threads = new HashMap<>();
-
-                Collections.sort(data);
+                samples.finish();
                 
-                long baseTime = System.nanoTime();
-                for (JFREventWithStack ev : data) {
-                    if (ev.isThreadEnd()) {
-                        threads.remove(ev.getThreadId());
-                    } else {
-                        threads.put(ev.getThreadId(), ev.getThreadInfo());
-                        builder.addStacktrace(getAllThreads(threads), baseTime + ev.getRelativeTime());
-                    }
-                }
+                StackTraceSnapshotBuilder _builder = builder;
 
-                data = null;
+                builder = null;
+                samples = null;
                 ignoredEvents = null;
-                tiSupport = null;
-                threads = null;
 
                 try {
-                    final CPUResultsSnapshot snapshot = builder.createSnapshot(ValuesConverter.instantToMillis(model.getFirstEventTime()));
-                    builder = null;
+                    final CPUResultsSnapshot snapshot = _builder.createSnapshot(ValuesConverter.instantToMillis(model.getFirstEventTime()));
                     
                     SwingUtilities.invokeLater(new Runnable() {
                         public void run() {
@@ -188,22 +176,7 @@ final class CPUSamplerViewSupport {
             };
         }
 
-        private Map<String, Object>[] getAllThreads(Map<Long, Map<String, Object>> threads) {
-            Collection<Map<String, Object>> allThreds = threads.values();
-
-            return  allThreds.toArray(new Map[0]);
-        }
-        
-    }
-    
-    
-    private static class JFREventWithStack implements Comparable<JFREventWithStack> {
-        
-        private final long eventTime;
-        private final Map<String, Object> threadInfo;
-        
-        
-        JFREventWithStack(String type, JFREvent event, JFRModel model, JFRThreadInfoSupport tiSupport) throws JFRPropertyNotAvailableException {
+        private void addSample(String type, JFREvent event) throws JFRPropertyNotAvailableException {
             JFRStackTrace stack;
             if ("jdk.ThreadEnd".equals(type)) { // NOI18N
                 stack = null;
@@ -220,30 +193,13 @@ final class CPUSamplerViewSupport {
             
             Instant eventTimeI = event.getInstant("eventTime"); // NOI18N
             if (eventTimeI == null) throw new JFRPropertyNotAvailableException("Must define eventTime to include into sampled snapshot"); // NOI18N
-            eventTime = ValuesConverter.instantToRelativeNanos(eventTimeI, model);
+            long eventTime = ValuesConverter.instantToRelativeNanos(eventTimeI, model);
             
-            if (profilingEvent) threadInfo = tiSupport.getThreadInfo(thread, stack, event.getString("state")); // NOI18N
-            else threadInfo = tiSupport.getThreadInfo(thread, stack, getState(type));
+            if (stack == null) samples.addThreadEnd(thread, eventTime);
+            else if (profilingEvent) samples.addSample(thread, stack, event.getString("state"), eventTime); // NOI18N
+            else samples.addSample(thread, stack, getState(type), eventTime);
         }
         
-        
-        long getRelativeTime() {
-            return eventTime;
-        }
-        
-        long getThreadId() {
-            return (Long)threadInfo.get(JFRThreadInfoSupport.THREAD_ID);
-        }
-        
-        Map<String, Object> getThreadInfo() {
-            return threadInfo;
-        }
-        
-        boolean isThreadEnd() {
-            return threadInfo.get(JFRThreadInfoSupport.THREAD_STACK) == null;
-        }
-        
-        
         private static Thread.State getState(String type) {
             switch (type) {
                 case ("jdk.JavaMonitorWait"):   return Thread.State.WAITING;        // NOI18N
@@ -254,12 +210,6 @@ final class CPUSamplerViewSupport {
             }
         }
         
-
-        @Override
-        public int compareTo(JFREventWithStack o) {
-            return Long.compare(eventTime, o.eventTime);
-        }
-        
     }
     
     private static class ThreadCPUData {
@@ -314,6 +264,11 @@ final class CPUSamplerViewSupport {
             }
             return false;
         }
+        
+        @Override
+        public boolean requiresOrder() {
+            return false;
+        }
 
         @Override
         public void done() {
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.jfr.views.sampler;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.graalvm.visualvm.jfr.model.JFRMethod;
+import org.graalvm.visualvm.jfr.model.JFRStackFrame;
+import org.graalvm.visualvm.jfr.model.JFRStackTrace;
+import org.graalvm.visualvm.jfr.model.JFRThread;
+import org.graalvm.visualvm.lib.jfluid.results.cpu.StackTraceSnapshotBuilder;
+
+/**
+ * Feeds stack samples to the snapshot builder per thread as they arrive. Each distinct
+ * stack trace is converted only once. Samples only need to be ordered per thread, a few
+ * recent samples of every thread are held back to order samples arriving slightly out
+ * of order, no global ordering or dumps of all live threads are necessary.
+ */
+final class JFRThreadSamples {
+    
+    // samples of a thread held back to be ordered before passed to the builder
+    private static final int PENDING_LIMIT = 1024;
+    
+    private static final Thread.State[] STATES = Thread.State.values();
+    
+    private final StackTraceSnapshotBuilder builder;
+    private final long baseTime;
+    
+    private final Map<JFRStackTrace,StackTraceElement[]> stacks;
+    private final Map<List<StackTraceElement>,StackTraceElement[]> stackContents;
+    private final Map<StackTraceElement,StackTraceElement> elements;
+    private final Map<Long,ThreadSamples> threads;
+    
+    
+    JFRThreadSamples(StackTraceSnapshotBuilder builder, long baseTime) {
+        this.builder = builder;
+        this.baseTime = baseTime;
+        
+        stacks = new HashMap<>();
+        stackContents = new HashMap<>();
+        elements = new HashMap<>();
+        threads = new HashMap<>();
+    }
+    
+    
+    void addSample(JFRThread thread, JFRStackTrace stack, String state, long time) {
+        addSample(thread, stack, state(state), time);
+    }
+    
+    void addSample(JFRThread thread, JFRStackTrace stack, Thread.State state, long time) {
+        getThreadSamples(thread).add(time, stackTrace(stack), state);
+    }
+    
+    void addThreadEnd(JFRThread thread, long time) {
+        getThreadSamples(thread).add(time, null, Thread.State.TERMINATED);
+    }
+    
+    
+    // Passes all samples held back to the builder, live threads are extended up to the last sample
+    void finish() {
+        for (ThreadSamples samples : threads.values()) samples.flush(samples.count);
+        builder.finishThreadSamples();
+        
+        stacks.clear();
+        stackContents.clear();
+        elements.clear();
+        threads.clear();
+    }
+    
+    
+    private ThreadSamples getThreadSamples(JFRThread thread) {
+        Long id = Long.valueOf(thread.getId());
+        ThreadSamples samples = threads.get(id);
+        if (samples == null) {
+            samples = new ThreadSamples(id.longValue(), thread.getName());
+            threads.put(id, samples);
+        }
+        return samples;
+    }
+    
+    private StackTraceElement[] stackTrace(JFRStackTrace stack) {
+        // identical JFR stack traces resolve to the same stack without converting the frames
+        StackTraceElement[] stackTrace = stacks.get(stack);
+        if (stackTrace == null) {
+            StackTraceElement[] converted = convert(stack);
+            stackTrace = stackContents.computeIfAbsent(Arrays.asList(converted), v -> converted);
+            stacks.put(stack, stackTrace);
+        }
+        return stackTrace;
+    }
+    
+    private StackTraceElement[] convert(JFRStackTrace stack) {
+        List<JFRStackFrame> frames = stack.getFrames();
+        StackTraceElement[] elements = new StackTraceElement[frames.size()];
+        
+        for (int i = 0; i < frames.size(); i++)
+            elements[i] = stackTraceElement(frames.get(i));
+        
+        return elements;
+    }
+    
+    private StackTraceElement stackTraceElement(JFRStackFrame frame) {
+        JFRMethod method = frame.getMethod();
+        
+        String className = method == null ? null : method.getType().getName(); // NOI18N
+        String methodName = method == null ? null : method.getName(); // TODO: add signature! // NOI18N
+        
+        if (className == null) className = "<unknown class>";
+        if (methodName == null) methodName = "<unknown method>";
+        
+        int lineNumber = "Native".equals(frame.getType()) ? -2 : frame.getLine(); // NOI18N
+        
+        StackTraceElement el = new StackTraceElement(className, methodName, null, lineNumber);
+        return elements.computeIfAbsent(el, v -> el);
+    }
+    
+    private static Thread.State state(String state) {
+        if ("STATE_RUNNABLE".equals(state)) return Thread.State.RUNNABLE; // NOI18N
+        return Thread.State.WAITING; // safe fallback, no other states seem to be used for jdk.ExecutionSample and jdk.NativeMethodSample
+    }
+    
+    
+    private final class ThreadSamples {
+        
+        private final long threadId;
+        private final String threadName;
+        
+        private long[] times;
+        private StackTraceElement[][] stackTraces;
+        private byte[] states;
+        private int count;
+        private boolean sorted;
+        
+        
+        ThreadSamples(long threadId, String threadName) {
+            this.threadId = threadId;
+            this.threadName = threadName;
+            
+            times = new long[16];
+            stackTraces = new StackTraceElement[16][];
+            states = new byte[16];
+            sorted = true;
+        }
+        
+        
+        void add(long time, StackTraceElement[] stackTrace, Thread.State state) {
+            if (count == PENDING_LIMIT) {
+                // the older half is passed to the builder, a later sample older than that is ignored as misplaced
+                flush(count / 2);
+            } else if (count == times.length) {
+                int capacity = count * 2;
+                times = Arrays.copyOf(times, capacity);
+                stackTraces = Arrays.copyOf(stackTraces, capacity);
+                states = Arrays.copyOf(states, capacity);
+            }
+            
+            if (count > 0 && time < times[count - 1]) sorted = false;
+            
+            times[count] = time;
+            stackTraces[count] = stackTrace;
+            states[count] = (byte)state.ordinal();
+            count++;
+        }
+        
+        // Passes the oldest n samples to the builder
+        void flush(int n) {
+            if (!sorted) sort();
+            
+            for (int i = 0; i < n; i++) {
+                long time = baseTime + times[i];
+                StackTraceElement[] stackTrace = stackTraces[i];
+                
+                if (stackTrace == null) builder.addThreadEnd(threadId, time);
+                else builder.addThreadSample(threadId, threadName, STATES[states[i]], stackTrace, time);
+            }
+            
+            count -= n;
+            System.arraycopy(times, n, times, 0, count);
+            System.arraycopy(stackTraces, n, stackTraces, 0, count);
+            System.arraycopy(states, n, states, 0, count);
+            Arrays.fill(stackTraces, count, count + n, null);
+        }
+        
+        private void sort() {
+            // samples may arrive slightly out of order, e.g. from overlapping chunks
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) order[i] = i;
+            Arrays.sort(order, Comparator.comparingLong(i -> times[i]));
+            
+            long[] _times = new long[times.length];
+            StackTraceElement[][] _stackTraces = new StackTraceElement[stackTraces.length][];
+            byte[] _states = new byte[states.length];
+            for (int i = 0; i < count; i++) {
+                int o = order[i];
+                _times[i] = times[o];
+                _stackTraces[i] = stackTraces[o];
+                _states[i] = states[o];
+            }
+            times = _times;
+            stackTraces = _stackTraces;
+            states = _states;
+            sorted = true;
+        }
+        
+    }
+    
+}
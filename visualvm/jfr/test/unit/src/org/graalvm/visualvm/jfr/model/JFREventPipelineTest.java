@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.jfr.model;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class JFREventPipelineTest {
+    
+    private static final int GATHER_DELAY = Integer.getInteger("org.graalvm.visualvm.jfr.model.gatherDelay", 200); // NOI18N
+    
+    
+    /**
+     * A request is not delayed when no other pass is running.
+     */
+    @Test
+    public void testNoDelay() {
+        TestModel model = new TestModel(100);
+        TestVisitor visitor = new TestVisitor();
+        
+        long start = System.nanoTime();
+        model.visitEvents(visitor);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        
+        assertEquals(100, visitor.events);
+        assertTrue("Request took " + elapsed + " ms", elapsed < GATHER_DELAY); // NOI18N
+    }
+    
+    /**
+     * Requests issued while the recording is being read share the next read.
+     */
+    @Test
+    public void testSharedPass() throws Exception {
+        TestModel model = new TestModel(100);
+        model.blocked = new CountDownLatch(1);
+        
+        Thread first = visitInThread(model, new TestVisitor());
+        model.reading.await();
+        
+        TestVisitor second = new TestVisitor();
+        TestVisitor third = new TestVisitor();
+        Thread secondThread = visitInThread(model, second);
+        Thread thirdThread = visitInThread(model, third);
+        Thread.sleep(GATHER_DELAY / 4);
+        model.blocked.countDown();
+        
+        first.join();
+        secondThread.join();
+        thirdThread.join();
+        assertEquals(100, second.events);
+        assertEquals(100, third.events);
+        assertEquals(2, model.reads.get());
+    }
+    
+    /**
+     * An exception thrown while reading is handled in the thread of the request.
+     */
+    @Test
+    public void testReadException() {
+        TestModel model = new TestModel(1000);
+        model.failAt = 500;
+        TestVisitor visitor = new TestVisitor();
+        final List<LogRecord> records = Collections.synchronizedList(new ArrayList<>());
+        final Thread requestThread = Thread.currentThread();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                if (Thread.currentThread() == requestThread) records.add(record);
+            }
+            @Override
+            public void flush() {}
+            @Override
+            public void close() {}
+        };
+        Logger logger = Logger.getLogger(JFRModel.class.getName());
+        logger.addHandler(handler);
+        try {
+            model.visitEvents(visitor);
+        } finally {
+            logger.removeHandler(handler);
+        }
+        
+        assertEquals(1, visitor.doneCount);
+        assertTrue(visitor.events <= 500);
+        assertEquals(1, records.size());
+        assertTrue(records.get(0).getThrown() instanceof IllegalStateException);
+    }
+    
+    
+    private static Thread visitInThread(final JFRModel model, final JFREventVisitor visitor) {
+        Thread thread = new Thread(() -> model.visitEvents(visitor));
+        thread.start();
+        return thread;
+    }
+    
+    
+    private static class TestVisitor implements JFREventVisitor {
+        
+        volatile int events;
+        volatile int doneCount;
+        
+        @Override
+        public boolean visit(String typeName, JFREvent event) {
+            events++;
+            return false;
+        }
+        
+        @Override
+        public void done() {
+            doneCount++;
+        }
+        
+    }
+    
+    
+    private static class TestModel extends JFRModel {
+        
+        private final int eventsCount;
+        final AtomicInteger reads = new AtomicInteger();
+        final CountDownLatch reading = new CountDownLatch(1);
+        volatile CountDownLatch blocked;
+        volatile int failAt = -1;
+        
+        TestModel(int eventsCount) {
+            super("test"); // NOI18N
+            this.eventsCount = eventsCount;
+        }
+        
+        @Override
+        protected void readEvents(JFREventVisitor... visitors) {
+            reads.incrementAndGet();
+            reading.countDown();
+            try {
+                if (blocked != null) blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            
+            for (JFREventVisitor visitor : visitors) visitor.init();
+            try {
+                for (int i = 0; i < eventsCount; i++) {
+                    if (i == failAt) throw new IllegalStateException("Broken recording"); // NOI18N
+                    TestEvent event = new TestEvent(i);
+                    for (JFREventVisitor visitor : visitors) visitor.visit("test.Event", event); // NOI18N
+                }
+            } finally {
+                for (JFREventVisitor visitor : visitors) visitor.done();
+            }
+        }
+        
+        @Override
+        public void visitEventTypes(JFREventTypeVisitor... visitors) {}
+        
+    }
+    
+    
+    private static class TestEvent extends JFREvent {
+        
+        TestEvent(long id) {
+            super(id);
+        }
+        
+        @Override
+        public Instant getInstant(String key) throws JFRPropertyNotAvailableException {
+            if ("eventTime".equals(key)) return Instant.ofEpochSecond(0, getID()); // NOI18N
+            throw new JFRPropertyNotAvailableException(key);
+        }
+        
+        @Override
+        public Duration getDuration(String key) throws JFRPropertyNotAvailableException {
+            throw new JFRPropertyNotAvailableException(key);
+        }
+        
+        @Override
+        public JFRClass getClass(String key) throws JFRPropertyNotAvailableException {
+            throw new JFRPropertyNotAvailableException(key);
+        }
+        
+        @Override
+        public JFRThread getThread(String key) throws JFRPropertyNotAvailableException {
+            throw new JFRPropertyNotAvailableException(key);
+        }
+        
+        @Override
+        public JFRStackTrace getStackTrace(String key) throws JFRPropertyNotAvailableException {
+            throw new JFRPropertyNotAvailableException(key);
+        }
+        
+        @Override
+        public Object getValue(String key) throws JFRPropertyNotAvailableException {
+            throw new JFRPropertyNotAvailableException(key);
+        }
+        
+        @Override
+        public List<Comparable<?>> getDisplayableValues(boolean includeExperimental) {
+            return Collections.emptyList();
+        }
+        
+    }
+    
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.jfr.model;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class JFRModelScopeTest {
+    
+    private static final Instant START = Instant.ofEpochSecond(1000);
+    private static final Instant END = Instant.ofEpochSecond(2000);
+    
+    
+    @Test
+    public void testCreate() {
+        assertSame(JFRModelScope.FULL, JFRModelScope.create(null, null, null));
+        assertTrue(JFRModelScope.FULL.isFull());
+        
+        Set<String> types = new HashSet<>(Arrays.asList("jdk.CPULoad")); // NOI18N
+        JFRModelScope scope = JFRModelScope.create(START, END, types);
+        types.add("jdk.GCHeapSummary"); // NOI18N
+        assertEquals(1, scope.getTypeNames().size());
+        assertEquals(scope, JFRModelScope.create(START, END, new HashSet<>(Arrays.asList("jdk.CPULoad")))); // NOI18N
+        assertFalse(scope.isFull());
+        
+        try {
+            JFRModelScope.create(END, START, null);
+            fail("Start after end accepted"); // NOI18N
+        } catch (IllegalArgumentException e) {}
+    }
+    
+    @Test
+    public void testIncludes() {
+        JFRModelScope scope = JFRModelScope.create(START, END, new HashSet<>(Arrays.asList("jdk.CPULoad"))); // NOI18N
+        
+        assertTrue(scope.includesType("jdk.CPULoad")); // NOI18N
+        assertFalse(scope.includesType("jdk.GCHeapSummary")); // NOI18N
+        assertTrue(scope.includesTime(START));
+        assertTrue(scope.includesTime(END));
+        assertFalse(scope.includesTime(START.minusNanos(1)));
+        assertFalse(scope.includesTime(END.plusNanos(1)));
+        assertFalse(scope.includesTime(null));
+        
+        JFRModelScope types = JFRModelScope.create(null, null, new HashSet<>(Arrays.asList("jdk.CPULoad"))); // NOI18N
+        assertFalse(types.isTimeRestricted());
+        assertTrue(types.includesTime(null));
+    }
+    
+    @Test
+    public void testOverlaps() {
+        JFRModelScope scope = JFRModelScope.create(START, END, null);
+        long start = START.getEpochSecond() * 1000000000L;
+        long end = END.getEpochSecond() * 1000000000L;
+        
+        assertTrue(scope.overlaps(start - 10, start));
+        assertTrue(scope.overlaps(end, end + 10));
+        assertTrue(scope.overlaps(start - 10, end + 10));
+        assertFalse(scope.overlaps(start - 10, start - 1));
+        assertFalse(scope.overlaps(end + 1, end + 10));
+        assertTrue(JFRModelScope.create(START, null, null).overlaps(end + 1, Long.MAX_VALUE));
+    }
+    
+    /**
+     * Scoped model builds a temporary events index, it is deleted when the model is released.
+     */
+    @Test
+    public void testReleaseDeletesIndex() {
+        Set<File> before = getIndexDirectories();
+        TestModel model = new TestModel(JFRModelScope.create(Instant.ofEpochSecond(0, 10), Instant.ofEpochSecond(0, 19), null));
+        
+        assertEquals(10, model.getEventsCount());
+        Set<File> created = getIndexDirectories();
+        created.removeAll(before);
+        assertEquals(1, created.size());
+        
+        model.release();
+        assertFalse(created.iterator().next().exists());
+    }
+    
+    /**
+     * No temporary index is left when there are no events within the scope.
+     */
+    @Test
+    public void testNoEventsInScope() {
+        Set<File> before = getIndexDirectories();
+        try {
+            new TestModel(JFRModelScope.create(Instant.ofEpochSecond(10), null, null));
+            fail("Model without events created"); // NOI18N
+        } catch (IllegalStateException e) {}
+        
+        assertEquals(before, getIndexDirectories());
+    }
+    
+    
+    private static Set<File> getIndexDirectories() {
+        File[] directories = new File(System.getProperty("java.io.tmpdir")).listFiles((dir, name) -> name.startsWith("visualvm-jfr")); // NOI18N
+        return directories == null ? new HashSet<>() : new HashSet<>(Arrays.asList(directories));
+    }
+    
+    
+    // 2 segments of 20 events, event i of a segment is at i + 20 * segment nanoseconds,
+    // events out of the scope are skipped like in the model implementations
+    private static class TestModel extends JFRModel {
+        
+        TestModel(JFRModelScope scope) {
+            super("test", scope); // NOI18N
+            initialize();
+        }
+        
+        @Override
+        protected int getSegmentsCount() {
+            return 2;
+        }
+        
+        @Override
+        protected void readEvents(int segment, long firstID, JFREventVisitor... visitors) {
+            long id = firstID;
+            for (int i = 0; i < 20; i++) {
+                Instant time = Instant.ofEpochSecond(0, i + 20 * segment);
+                if (!getScope().includesTime(time)) continue;
+                TestEvent event = new TestEvent(id++, time);
+                for (JFREventVisitor visitor : visitors) visitor.visit("test.Event", event); // NOI18N
+            }
+        }
+        
+        @Override
+        protected void readEvents(JFREventVisitor... visitors) {
+            for (JFREventVisitor visitor : visitors) visitor.init();
+            for (int segment = 0; segment < getSegmentsCount(); segment++) readEvents(segment, 0, visitors);
+            for (JFREventVisitor visitor : visitors) visitor.done();
+        }
+        
+        @Override
+        public void visitEventTypes(JFREventTypeVisitor... visitors) {}
+        
+    }
+    
+    
+    private static class TestEvent extends JFREvent {
+        
+        private final Instant time;
+        
+        TestEvent(long id, Instant time) {
+            super(id);
+            this.time = time;
+        }
+        
+        @Override
+        public Instant getInstant(String key) throws JFRPropertyNotAvailableException {
+            if ("eventTime".equals(key)) return time; // NOI18N
+            throw new JFRPropertyNotAvailableException(key);
+        }
+        
+        @Override
+        public Duration getDuration(String key) throws JFRPropertyNotAvailableException {
+            throw new JFRPropertyNotAvailableException(key);
+        }
+        
+        @Override
+        public JFRClass getClass(String key) throws JFRPropertyNotAvailableException {
+            throw new JFRPropertyNotAvailableException(key);
+        }
+        
+        @Override
+        public JFRThread getThread(String key) throws JFRPropertyNotAvailableException {
+            throw new JFRPropertyNotAvailableException(key);
+        }
+        
+        @Override
+        public JFRStackTrace getStackTrace(String key) throws JFRPropertyNotAvailableException {
+            throw new JFRPropertyNotAvailableException(key);
+        }
+        
+        @Override
+        public Object getValue(String key) throws JFRPropertyNotAvailableException {
+            throw new JFRPropertyNotAvailableException(key);
+        }
+        
+        @Override
+        public List<Comparable<?>> getDisplayableValues(boolean includeExperimental) {
+            return Collections.emptyList();
+        }
+        
+    }
+    
+}
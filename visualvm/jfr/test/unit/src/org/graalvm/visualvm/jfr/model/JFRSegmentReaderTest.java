@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.jfr.model;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class JFRSegmentReaderTest {
+    
+    /**
+     * Events are visited in the recorded order unless another order is requested.
+     */
+    @Test
+    public void testSegmentsOrder() {
+        TestModel model = new TestModel(10, 100);
+        List<TestEvent> events = read(model, JFRSegmentReader.Order.SEGMENTS);
+        
+        assertEquals(1000, events.size());
+        for (int i = 0; i < events.size(); i++) assertEquals(i, events.get(i).getID());
+        
+        assertEquals(JFRSegmentReader.Order.SEGMENTS, JFRModel.getOrder(new TestVisitor(-1)));
+    }
+    
+    /**
+     * Segments may be visited in any order, events of a segment are visited together in the recorded order.
+     */
+    @Test
+    public void testNoOrder() {
+        TestModel model = new TestModel(10, 100);
+        List<TestEvent> events = read(model, JFRSegmentReader.Order.NONE);
+        
+        assertEquals(1000, events.size());
+        for (int i = 0; i < events.size(); i++) {
+            TestEvent event = events.get(i);
+            if (event.index > 0) assertEquals(event.getID() - 1, events.get(i - 1).getID());
+        }
+        List<Long> ids = new ArrayList<>();
+        for (TestEvent event : events) ids.add(event.getID());
+        Collections.sort(ids);
+        for (int i = 0; i < ids.size(); i++) assertEquals(i, ids.get(i).longValue());
+    }
+    
+    /**
+     * Events of overlapping segments are merged by the event time.
+     */
+    @Test
+    public void testTimeOrder() {
+        TestModel model = new TestModel(3, 100);
+        List<TestEvent> events = read(model, JFRSegmentReader.Order.TIMESTAMPS);
+        
+        assertEquals(300, events.size());
+        for (int i = 1; i < events.size(); i++) assertTrue(events.get(i - 1).time <= events.get(i).time);
+        
+        JFREventVisitor timeOrdered = new TestVisitor(-1) {
+            @Override
+            public boolean requiresTimeOrder() { return true; }
+        };
+        assertEquals(JFRSegmentReader.Order.TIMESTAMPS, JFRModel.getOrder(new TestVisitor(-1), timeOrdered));
+    }
+    
+    /**
+     * The number of merged segments is bounded even if a segment starts with an event without time.
+     */
+    @Test
+    public void testTimeOrderBounded() {
+        TestModel model = new TestModel(50, 100);
+        model.startTimes[49] = JFREventIndex.NO_VALUE;
+        List<TestEvent> events = read(model, JFRSegmentReader.Order.TIMESTAMPS);
+        
+        assertEquals(5000, events.size());
+        assertTrue("Segments held: " + model.maxHeld, model.maxHeld <= JFRSegmentReader.getSegmentsLimit(JFRSegmentReader.Order.TIMESTAMPS));
+    }
+    
+    /**
+     * Reading stops once the visitor is done.
+     */
+    @Test
+    public void testStop() {
+        for (JFRSegmentReader.Order order : JFRSegmentReader.Order.values()) {
+            TestModel model = new TestModel(10, 100);
+            TestVisitor visitor = new TestVisitor(150);
+            new JFRSegmentReader(model, model.segments, model.firstIDs, model.startTimes, order).readEvents(visitor, null);
+            
+            assertEquals(150, visitor.events.size());
+            assertEquals(1, visitor.initCount);
+            assertEquals(1, visitor.doneCount);
+        }
+    }
+    
+    
+    private static List<TestEvent> read(TestModel model, JFRSegmentReader.Order order) {
+        TestVisitor visitor = new TestVisitor(-1) {
+            @Override
+            public boolean visit(String typeName, JFREvent event) {
+                TestEvent testEvent = (TestEvent)event;
+                if (testEvent.index == model.eventsPerSegment - 1) model.finished.incrementAndGet();
+                return super.visit(typeName, event);
+            }
+        };
+        new JFRSegmentReader(model, model.segments, model.firstIDs, model.startTimes, order).readEvents(visitor, null);
+        
+        assertEquals(1, visitor.initCount);
+        assertEquals(1, visitor.doneCount);
+        return visitor.events;
+    }
+    
+    
+    private static class TestVisitor implements JFREventVisitor {
+        
+        private final int limit;
+        final List<TestEvent> events = new ArrayList<>();
+        int initCount;
+        int doneCount;
+        
+        TestVisitor(int limit) {
+            this.limit = limit;
+        }
+        
+        @Override
+        public void init() {
+            initCount++;
+        }
+        
+        @Override
+        public boolean visit(String typeName, JFREvent event) {
+            events.add((TestEvent)event);
+            return events.size() == limit;
+        }
+        
+        @Override
+        public void done() {
+            doneCount++;
+        }
+        
+    }
+    
+    
+    // Segment s starts at time s, its events are interleaved with events of the other segments
+    private static class TestModel extends JFRModel {
+        
+        final int eventsPerSegment;
+        final int[] segments;
+        final long[] firstIDs;
+        final long[] startTimes;
+        
+        final AtomicInteger parsed = new AtomicInteger();
+        final AtomicInteger finished = new AtomicInteger();
+        volatile int maxHeld;
+        
+        TestModel(int segmentsCount, int eventsPerSegment) {
+            super("test"); // NOI18N
+            this.eventsPerSegment = eventsPerSegment;
+            segments = new int[segmentsCount];
+            firstIDs = new long[segmentsCount];
+            startTimes = new long[segmentsCount];
+            for (int segment = 0; segment < segmentsCount; segment++) {
+                segments[segment] = segment;
+                firstIDs[segment] = segment * eventsPerSegment;
+                startTimes[segment] = segment;
+            }
+        }
+        
+        @Override
+        protected void readEvents(int segment, long firstID, JFREventVisitor... visitors) {
+            int held = parsed.incrementAndGet() - finished.get();
+            synchronized (this) {
+                maxHeld = Math.max(maxHeld, held);
+            }
+            for (int i = 0; i < eventsPerSegment; i++) {
+                long time = i * segments.length + segment;
+                TestEvent event = new TestEvent(firstID + i, i, time);
+                for (JFREventVisitor visitor : visitors)
+                    if (visitor.visit("test.Event", event)) return; // NOI18N
+            }
+        }
+        
+        @Override
+        protected void readEvents(JFREventVisitor... visitors) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public void visitEventTypes(JFREventTypeVisitor... visitors) {
+            throw new UnsupportedOperationException();
+        }
+        
+    }
+    
+    
+    private static class TestEvent extends JFREvent {
+        
+        final int index;
+        final long time;
+        
+        TestEvent(long id, int index, long time) {
+            super(id);
+            this.index = index;
+            this.time = time;
+        }
+        
+        @Override
+        public Instant getInstant(String key) throws JFRPropertyNotAvailableException {
+            if ("eventTime".equals(key)) return Instant.ofEpochSecond(0, time); // NOI18N
+            throw new JFRPropertyNotAvailableException(key);
+        }
+        
+        @Override
+        public Duration getDuration(String key) throws JFRPropertyNotAvailableException {
+            throw new JFRPropertyNotAvailableException(key);
+        }
+        
+        @Override
+        public JFRClass getClass(String key) throws JFRPropertyNotAvailableException {
+            throw new JFRPropertyNotAvailableException(key);
+        }
+        
+        @Override
+        public JFRThread getThread(String key) throws JFRPropertyNotAvailableException {
+            throw new JFRPropertyNotAvailableException(key);
+        }
+        
+        @Override
+        public JFRStackTrace getStackTrace(String key) throws JFRPropertyNotAvailableException {
+            throw new JFRPropertyNotAvailableException(key);
+        }
+        
+        @Override
+        public Object getValue(String key) throws JFRPropertyNotAvailableException {
+            throw new JFRPropertyNotAvailableException(key);
+        }
+        
+        @Override
+        public List<Comparable<?>> getDisplayableValues(boolean includeExperimental) {
+            return Collections.emptyList();
+        }
+        
+    }
+    
+}
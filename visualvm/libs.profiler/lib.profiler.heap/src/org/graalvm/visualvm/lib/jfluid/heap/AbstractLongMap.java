@@ -32,6 +32,7 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import static java.nio.channels.FileChannel.MapMode.*;
@@ -46,8 +47,13 @@ abstract class AbstractLongMap {
     abstract class Entry {
     }
 
+    //~ Static fields/initializers -----------------------------------------------------------------------------------------------
+
+    private static final int LOCKS = 1024;
+
     //~ Instance fields ----------------------------------------------------------------------------------------------------------
 
+    private final Object[] locks = createLocks();
     private final int VALUE_SIZE;
     final int ENTRY_SIZE;
     long fileSize;
@@ -117,6 +123,28 @@ abstract class AbstractLongMap {
         }
     }
 
+    /**
+     * Thread safe variant of {@link #put(long, long)}. Each probed slot is
+     * examined and claimed under a lock striped by slot index, so that
+     * concurrent writers never claim the same empty slot.
+     */
+    Entry putConcurrently(long key, long value) {
+        long index = getIndex(key);
+
+        while (true) {
+            synchronized (locks[(int)((index / ENTRY_SIZE) & (LOCKS - 1))]) {
+                long mapKey = getID(index, 0);
+                if (mapKey == 0L) {
+                    putID(index, 0, key);
+                    return createEntry(index,value);
+                } else if (mapKey == key) {
+                    return createEntry(index);
+                }
+            }
+            index = getNextIndex(index);
+        }
+    }
+
     static Data getDumpBuffer(File f, RandomAccessFile file, int entrySize) throws IOException {
         long length = file.length();
 
@@ -200,6 +228,15 @@ abstract class AbstractLongMap {
         return index;
     }
     
+    private static Object[] createLocks() {
+        Object[] locks = new Object[LOCKS];
+
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
+    }
+
     private static boolean isLinux() {
         String osName = System.getProperty("os.name");  // NOI18N
         
@@ -260,7 +297,7 @@ abstract class AbstractLongMap {
 
         //---- Serialization support
         public void writeToStream(DataOutputStream out) throws IOException {
-            out.writeUTF(bufferFile.getAbsolutePath());
+            CacheDirectory.writeFile(out, bufferFile);
             force();
         }
 
@@ -437,10 +474,12 @@ abstract class AbstractLongMap {
             if (MAP_MODE == PRIVATE) {
                 File newBufferFile = new File(bufferFile.getAbsolutePath()+".new"); // NOI18N
                 int length = buf.capacity();
-                new FileOutputStream(newBufferFile).getChannel().write(buf);
-                buf = null;
+                try (FileChannel channel = new FileOutputStream(newBufferFile).getChannel()) {
+                    channel.write((ByteBuffer)buf.duplicate().position(0));
+                }
                 bufferFile.delete();
                 newBufferFile.renameTo(bufferFile);
+                // concurrent readers keep using the old mapping until the new one is set
                 buf = createBuffer(new RandomAccessFile(bufferFile, "rw"), length); // NOI18N
             } else {
                 buf.force();
@@ -530,7 +569,7 @@ abstract class AbstractLongMap {
                     int offset_start = 0;
 
                     for (int i = 0; i < dumpBuffer.length; i++) {
-                        MappedByteBuffer buf = dumpBuffer[i];
+                        ByteBuffer buf = dumpBuffer[i].duplicate();
                         long offset_end = (((i+1)*BUFFER_SIZE)/entrySize)*entrySize + entrySize;
 
                         if (offset_end > length) {
@@ -542,9 +581,9 @@ abstract class AbstractLongMap {
                         offset_start = (int)(offset_end - (i+1)*BUFFER_SIZE);
                     }
                 }
-                dumpBuffer = null;
                 bufferFile.delete();
                 newBufferFile.renameTo(bufferFile);
+                // concurrent readers keep using the old mappings until the new ones are set
                 dumpBuffer = createBuffers(new RandomAccessFile(bufferFile, "rw"), length); // NOI18N
             } else {
                 for (MappedByteBuffer buf : dumpBuffer) {
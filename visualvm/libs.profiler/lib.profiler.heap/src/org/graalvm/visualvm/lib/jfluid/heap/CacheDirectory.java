@@ -24,22 +24,61 @@
  */
 package org.graalvm.visualvm.lib.jfluid.heap;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 
 /**
+ * Directory with cached heap dump index files. Computed state is committed
+ * as a sequence of snapshot segments. Every segment is written atomically and
+ * carries a checksum of its content together with checksums of the index
+ * files it refers to, so that a dump can be reopened from the last committed
+ * phase even if the previous session did not finish.
+ * <p>
+ * Segment layout: id, version, segment number, snapshot, table of the referenced
+ * files, offset of the table and checksum of all the preceding bytes.
  *
  * @author Tomas Hurka
  */
 class CacheDirectory {
 
     private static final String DIR_EXT = ".hwcache";   // NOI18N
-    private static final String DUMP_AUX_FILE = "NBProfiler.nphd";   // NOI18N
+    private static final String SEGMENT_PREFIX = "NBProfiler.";   // NOI18N
+    private static final String SEGMENT_EXT = ".nphd";   // NOI18N
+    private static final String SEGMENT_TMP_FILE = "NBProfiler.nphd.tmp";   // NOI18N
+    private static final String SEGMENT_ID = "NBPHS";   // NOI18N
+    private static final int SEGMENT_VERSION = 2;
+    private static final int SEGMENT_TRAILER_SIZE = 16;
     private static final String DIRTY_FILENAME = "dirty.lck";   // NOI18N
 
     private File cacheDirectory;
+    // checksums of files in the last committed segment, Map <file name,{length, last modified, crc}>
+    private Map<String,long[]> committedFiles = new HashMap<>();
+    // files from the last committed segment, which are deleted after the next commit
+    private final Set<File> pendingDeletes = new HashSet<>();
+    private long segmentNumber;
 
     static CacheDirectory getHeapDumpCacheDirectory(File heapDump, int seg) {
         String dumpName = heapDump.getName();
@@ -75,9 +114,279 @@ class CacheDirectory {
         return newFile;
     }
 
-    File getHeapDumpAuxFile() {
+    boolean hasSnapshot() {
+        return !isTemporary() && !getSegments().isEmpty();
+    }
+
+    /**
+     * Commits snapshot of the heap as a new segment. The segment is first written
+     * to a temporary file, which is then atomically renamed, so the previous segment
+     * is valid until the new one is complete. The snapshot is streamed to the file,
+     * checksums are computed only for files the snapshot refers to, which changed
+     * since the previous commit.
+     */
+    synchronized void commitSnapshot(SnapshotWriter writer) throws IOException {
+        assert !isTemporary();
+        Map<String,long[]> files = new HashMap<>();
+        File tmpFile = new File(cacheDirectory, SEGMENT_TMP_FILE);
+
+        try (FileOutputStream fos = new FileOutputStream(tmpFile)) {
+            CheckedOutputStream checked = new CheckedOutputStream(fos, new CRC32());
+            SnapshotOutputStream out = new SnapshotOutputStream(new BufferedOutputStream(checked, 64*1024));
+
+            out.writeUTF(SEGMENT_ID);
+            out.writeInt(SEGMENT_VERSION);
+            out.writeLong(segmentNumber + 1);
+            writer.writeSnapshot(out);
+            for (File f : out.files) {
+                files.put(f.getName(), getChecksum(f, committedFiles.get(f.getName())));
+            }
+            out.flush();
+            long filesOffset = fos.getChannel().position();
+            out.writeInt(files.size());
+            for (Map.Entry<String,long[]> file : files.entrySet()) {
+                long[] checksum = file.getValue();
+                out.writeUTF(file.getKey());
+                out.writeLong(checksum[0]);
+                out.writeLong(checksum[2]);
+            }
+            out.writeLong(filesOffset);
+            out.flush();
+            new DataOutputStream(fos).writeLong(checked.getChecksum().getValue());
+            fos.getFD().sync();
+        }
+        File segmentFile = getSegmentFile(segmentNumber + 1);
+        try {
+            Files.move(tmpFile.toPath(), segmentFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(tmpFile.toPath(), segmentFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        segmentNumber++;
+        committedFiles = files;
+        // older segments and files released since the last commit are not needed anymore
+        for (File segment : getSegments()) {
+            if (!segment.equals(segmentFile)) {
+                segment.delete();
+            }
+        }
+        for (File f : pendingDeletes) {
+            if (!files.containsKey(f.getName())) {
+                f.delete();
+            }
+        }
+        pendingDeletes.clear();
+    }
+
+    /**
+     * Writes reference to a cache file. Files written to a snapshot stream
+     * are part of the committed snapshot.
+     */
+    static void writeFile(DataOutputStream out, File file) throws IOException {
+        out.writeUTF(file.getAbsolutePath());
+        if (out instanceof SnapshotOutputStream) {
+            ((SnapshotOutputStream)out).files.add(file);
+        }
+    }
+
+    /**
+     * Opens the last valid snapshot segment. If the previous session was interrupted,
+     * checksums of all index files are verified, otherwise only their lengths are checked.
+     * Index files, which are not part of the snapshot, are deleted.
+     * @throws IOException if there is no valid snapshot
+     */
+    synchronized DataInputStream openSnapshot() throws IOException {
         assert !isTemporary();
-        return new File(cacheDirectory, DUMP_AUX_FILE);
+        List<File> segments = getSegments();
+        boolean verifyContent = isDirty();
+        IOException lastException = null;
+
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            File segment = segments.get(i);
+            try {
+                DataInputStream snapshot = readSegment(segment, verifyContent);
+
+                for (File f : cacheDirectory.listFiles()) {
+                    if (isIndexFile(f) && !committedFiles.containsKey(f.getName())) {
+                        f.delete();     // leftover of unfinished phase
+                    }
+                }
+                for (File other : segments) {
+                    if (!other.equals(segment)) {
+                        other.delete();
+                    }
+                }
+                if (verifyContent) {
+                    setDirty(false);    // snapshot is consistent, resume from it
+                }
+                return snapshot;
+            } catch (IOException ex) {
+                lastException = ex;
+            }
+        }
+        if (lastException == null) {
+            throw new FileNotFoundException(new File(cacheDirectory, SEGMENT_PREFIX+"*"+SEGMENT_EXT).getPath());
+        }
+        throw lastException;
+    }
+
+    /**
+     * Deletes a cache file. Files, which are part of the last committed
+     * snapshot, are deleted after the next snapshot is committed.
+     */
+    synchronized void deleteFile(File f) {
+        if (isCommitted(f)) {
+            pendingDeletes.add(f);
+        } else {
+            f.delete();
+        }
+    }
+
+    /**
+     * Checks if the file is part of the last committed snapshot. Such file
+     * must not be modified until the next snapshot is committed.
+     */
+    synchronized boolean isCommitted(File f) {
+        return !isTemporary() && committedFiles.containsKey(f.getName())
+                && f.getAbsoluteFile().getParentFile().equals(cacheDirectory.getAbsoluteFile());
+    }
+
+    // Returns stream positioned at the snapshot
+    private DataInputStream readSegment(File segment, boolean verifyContent) throws IOException {
+        long trailerOffset = segment.length() - SEGMENT_TRAILER_SIZE;
+        long filesOffset;
+        long checksum;
+
+        if (trailerOffset < 0) {
+            throw new IOException("Invalid length of "+segment);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "r")) { // NOI18N
+            raf.seek(trailerOffset);
+            filesOffset = raf.readLong();
+            checksum = raf.readLong();
+        }
+        // checksum covers everything up to the checksum itself
+        if (getChecksum(segment, trailerOffset + 8) != checksum || filesOffset < 0 || filesOffset > trailerOffset) {
+            throw new IOException("Invalid checksum of "+segment);
+        }
+        Map<String,long[]> files = new HashMap<>();
+
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(segment)))) {
+            skipFully(dis, filesOffset);
+            int count = dis.readInt();
+
+            for (int i = 0; i < count; i++) {
+                String name = dis.readUTF();
+                long fileLength = dis.readLong();
+                long crc = dis.readLong();
+                File f = new File(cacheDirectory, name);
+
+                // files, which do not exist anymore, are reported when the snapshot is read
+                if (f.exists()) {
+                    if (f.length() != fileLength) {
+                        throw new IOException("Invalid length of "+f);
+                    }
+                    if (verifyContent && getChecksum(f, null)[2] != crc) {
+                        throw new IOException("Invalid checksum of "+f);
+                    }
+                    files.put(name, new long[] {fileLength, f.lastModified(), crc});
+                }
+            }
+        }
+        DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(segment), 64*1024));
+        try {
+            if (!SEGMENT_ID.equals(dis.readUTF())) {
+                throw new IOException("Invalid segment id "+segment);
+            }
+            int version = dis.readInt();
+            if (version != SEGMENT_VERSION) {
+                throw new IOException("Invalid segment version "+SEGMENT_VERSION+" loaded "+version);
+            }
+            segmentNumber = dis.readLong();
+        } catch (IOException ex) {
+            dis.close();
+            throw ex;
+        }
+        committedFiles = files;
+        return dis;
+    }
+
+    private static void skipFully(DataInputStream dis, long bytes) throws IOException {
+        while (bytes > 0) {
+            long skipped = dis.skip(bytes);
+            if (skipped <= 0) {
+                throw new EOFException();
+            }
+            bytes -= skipped;
+        }
+    }
+
+    private List<File> getSegments() {
+        List<File> segments = new ArrayList<>();
+        File[] files = cacheDirectory.listFiles();
+
+        if (files != null) {
+            for (File f : files) {
+                if (getSegmentNumber(f) > 0) {
+                    segments.add(f);
+                }
+            }
+        }
+        segments.sort((f1, f2) -> Long.compare(getSegmentNumber(f1), getSegmentNumber(f2)));
+        return segments;
+    }
+
+    private File getSegmentFile(long number) {
+        return new File(cacheDirectory, SEGMENT_PREFIX+number+SEGMENT_EXT);
+    }
+
+    private static long getSegmentNumber(File f) {
+        String name = f.getName();
+
+        if (f.isFile() && name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_EXT)) {
+            try {
+                return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_EXT.length()));
+            } catch (NumberFormatException ex) {
+                // not a segment
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isIndexFile(File f) {
+        String name = f.getName();
+        return f.isFile() && getSegmentNumber(f) < 0 && !name.equals(DIRTY_FILENAME) && !name.equals(SEGMENT_TMP_FILE);
+    }
+
+    private static long[] getChecksum(File f, long[] previous) throws IOException {
+        long length = f.length();
+        long modified = f.lastModified();
+
+        if (previous != null && previous[0] == length && previous[1] == modified) {
+            return previous;
+        }
+        return new long[] {length, modified, getChecksum(f, length)};
+    }
+
+    // checksum of the first length bytes of the file
+    private static long getChecksum(File f, long length) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(1024*1024);
+        try (FileChannel channel = new FileInputStream(f).getChannel()) {
+            while (length > 0) {
+                if (buffer.remaining() > length) {
+                    buffer.limit((int)length);
+                }
+                int read = channel.read(buffer);
+                if (read == -1) {
+                    throw new EOFException(f.getPath());
+                }
+                buffer.flip();
+                crc.update(buffer.array(), 0, buffer.limit());
+                length -= buffer.limit();
+                buffer.clear();
+            }
+        }
+        return crc.getValue();
     }
 
     boolean isTemporary() {
@@ -101,6 +410,9 @@ class CacheDirectory {
         for (File f : cacheDirectory.listFiles()) {
             f.delete();
         }
+        committedFiles = new HashMap<>();
+        pendingDeletes.clear();
+        segmentNumber = 0;
     }
 
     boolean isDirty() {
@@ -109,12 +421,13 @@ class CacheDirectory {
         return isFileR(dirtyFile);
     }
 
-    void setDirty(boolean dirty) {
+    // phases can run concurrently, the cache is dirty until the snapshot is committed
+    // by the last running phase
+    synchronized void setDirty(boolean dirty) {
         if (!isTemporary()) {
             File dirtyFile = new File(cacheDirectory, DIRTY_FILENAME);
             try {
                 if (dirty) {
-                    assert !isFileR(dirtyFile);
                     dirtyFile.createNewFile();
                 } else {
                     assert isFileRW(dirtyFile);
@@ -187,4 +500,18 @@ class CacheDirectory {
 
         return osName.endsWith("Linux"); // NOI18N
     }
+
+    interface SnapshotWriter {
+        void writeSnapshot(DataOutputStream out) throws IOException;
+    }
+
+    // Collects cache files referenced by the snapshot
+    private static class SnapshotOutputStream extends DataOutputStream {
+
+        private final Set<File> files = new HashSet<>();
+
+        SnapshotOutputStream(OutputStream out) {
+            super(out);
+        }
+    }
 }
@@ -64,6 +64,7 @@ class ClassDump extends HprofObject implements JavaClass {
     private long firstInstanceOffset;
     private long loadClassOffset;
     private long retainedSizeByClass;
+    private volatile Map<String,HprofFieldAccessor> fieldAccessors;
 
     //~ Constructors -------------------------------------------------------------------------------------------------------------
 
@@ -126,6 +127,10 @@ class ClassDump extends HprofObject implements JavaClass {
         return null;
     }
 
+    public FieldAccessor getFieldAccessor(String name) {
+        return getFieldAccessors().get(name);
+    }
+
     public List<Field> getFields() {
         List<Field> filedsList = classDumpSegment.fieldsCache.get(this);
         if (filedsList == null) {
@@ -366,6 +371,33 @@ class ClassDump extends HprofObject implements JavaClass {
         return fields;
     }
 
+    // field offset table, the first field with given name from java.lang.Object is used
+    Map<String,HprofFieldAccessor> getFieldAccessors() {
+        Map<String,HprofFieldAccessor> accessors = fieldAccessors;
+
+        if (accessors == null) {
+            List<Field> fields = getAllInstanceFields();
+            int[] offsets = new int[fields.size()];
+            int offset = InstanceDump.getInstanceFieldValuesOffset(getHprofBuffer().getIDSize());
+
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = offset;
+                offset += ((HprofField) fields.get(i)).getValueSize();
+            }
+            accessors = new HashMap<>(fields.size() * 4 / 3 + 1);
+            for (int i = offsets.length - 1; i >= 0; i--) {
+                HprofField field = (HprofField) fields.get(i);
+                String name = field.getName();
+
+                if (!accessors.containsKey(name)) {
+                    accessors.put(name, new HprofFieldAccessor(this, field, name, offsets[i]));
+                }
+            }
+            fieldAccessors = accessors;
+        }
+        return accessors;
+    }
+
     void setClassLoadOffset(long offset) {
         loadClassOffset = offset;
     }
@@ -491,10 +523,26 @@ class ClassDump extends HprofObject implements JavaClass {
         }
     }
 
+    int registerInstances(int count, long offset) {
+        int registered = instances;
+
+        if (count > 0) {
+            if (firstInstanceOffset == 0) {
+                firstInstanceOffset = offset;
+            }
+            instances += count;
+        }
+        return registered;
+    }
+
     void addSizeForInstance(Instance i) {
         retainedSizeByClass+=i.getRetainedSize();
     }
 
+    void addRetainedSizeByClass(long size) {
+        retainedSizeByClass+=size;
+    }
+
     boolean canContainItself() {
         if (getInstancesCount()>=2 && !CANNOT_CONTAIN_ITSELF.contains(getName())) {
             for (Field f : getAllInstanceFields()) {
@@ -71,7 +71,7 @@ class ClassDumpInstance implements Instance {
     }
 
     public long getReachableSize() {
-        return 0;
+        return classDump.getHprof().getReachableSize(this);
     }
 
     public List<Value> getReferences() {
@@ -176,18 +176,34 @@ class ClassDumpSegment extends TagBounds {
     void addInstanceSize(ClassDump cls, int tag, long instanceOffset) {
         if ((tag == HprofHeap.OBJECT_ARRAY_DUMP) || (tag == HprofHeap.PRIMITIVE_ARRAY_DUMP)) {
             long sizeLong[] = arrayMap.get(cls);
-            HprofByteBuffer dumpBuffer = hprofHeap.dumpBuffer;
-            int idSize = dumpBuffer.getIDSize();
-            long elementsOffset = instanceOffset + 1 + idSize + 4;
 
             if (sizeLong == null) {
                 sizeLong = new long[OBJECT_ALIGNMENT+1];
                 arrayMap.put(cls, sizeLong);
             }
+            addArraySize(sizeLong, instanceOffset);
+        }
+    }
+
+    void addArraySize(long[] sizeLong, long instanceOffset) {
+        HprofByteBuffer dumpBuffer = hprofHeap.dumpBuffer;
+        int idSize = dumpBuffer.getIDSize();
+        long elementsOffset = instanceOffset + 1 + idSize + 4;
+        int elements = dumpBuffer.getInt(elementsOffset);
+
+        sizeLong[OBJECT_ALIGNMENT] += elements/OBJECT_ALIGNMENT;
+        sizeLong[elements%OBJECT_ALIGNMENT]++;
+    }
+
+    void addArraySizes(ClassDump cls, long[] partialSize) {
+        long sizeLong[] = arrayMap.get(cls);
 
-            int elements = dumpBuffer.getInt(elementsOffset);
-            sizeLong[OBJECT_ALIGNMENT] += elements/OBJECT_ALIGNMENT;
-            sizeLong[elements%OBJECT_ALIGNMENT]++;
+        if (sizeLong == null) {
+            arrayMap.put(cls, partialSize.clone());
+        } else {
+            for (int i = 0; i < sizeLong.length; i++) {
+                sizeLong[i] += partialSize[i];
+            }
         }
     }
 
@@ -29,11 +29,10 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  *
@@ -45,6 +44,7 @@ class DominatorTree {
     private static final int BUFFER_SIZE = (64 * 1024) / 8;
     private static final int ADDITIONAL_IDS_THRESHOLD = 30;
     private static final int ADDITIONAL_IDS_THRESHOLD_DIRTYSET_SAME_SIZE = 5;
+    private static final int NEAREST_GC_ROOT_CACHE_SIZE = 512 * 1024;
 
     //~ Instance fields ----------------------------------------------------------------------------------------------------------
 
@@ -52,11 +52,12 @@ class DominatorTree {
     private LongBuffer multipleParents;
     private LongBuffer revertedMultipleParents;
     private LongBuffer currentMultipleParents;
-    private LongHashMap map;
-    private LongSet dirtySet;
+    private OffHeapLongMap map;
+    private OffHeapLongSet dirtySet;
     private int dirtySetSameSize;
-    private Map<ClassDump,Boolean> canContainItself;
-    private Map<Long,Long> nearestGCRootCache = new NearestGCRootCache<>(400000);
+    private final Map<ClassDump,Boolean> canContainItself = new ConcurrentHashMap<>();
+    // direct mapped cache of nearest GC root pointers, key and value pairs
+    private long[] nearestGCRootCache = new long[2 * NEAREST_GC_ROOT_CACHE_SIZE];
 
     //~ Constructors -------------------------------------------------------------------------------------------------------------
 
@@ -64,10 +65,9 @@ class DominatorTree {
         heap = h;
         multipleParents = multiParents;
         currentMultipleParents = multipleParents;
-        map = new LongHashMap(multiParents.getSize());
-        dirtySet = new LongSet();
         try {
-            revertedMultipleParents = multiParents.revertBuffer();
+            map = new OffHeapLongMap(multiParents.getSize(), heap.cacheDirectory);
+            dirtySet = new OffHeapLongSet(heap.cacheDirectory);
         } catch (IOException ex) {
             throw new IllegalArgumentException(ex.getLocalizedMessage(),ex);
         }
@@ -78,6 +78,15 @@ class DominatorTree {
     synchronized void computeDominators() {
         boolean changed = true;
         boolean ignoreDirty;
+        try {
+            if (ParallelScan.isEnabled() && new ParallelDominators(heap).computeDominators(multipleParents, map)) {
+                deleteBuffers();
+                return;
+            }
+            revertedMultipleParents = multipleParents.revertBuffer();
+        } catch (IOException ex) {
+            throw new IllegalArgumentException(ex.getLocalizedMessage(),ex);
+        }
         try {
             do {
                 currentMultipleParents.startReading();
@@ -89,12 +98,11 @@ class DominatorTree {
             ex.printStackTrace();
         }
         deleteBuffers();
-        dirtySet = new LongSet();
     }
     
     private boolean computeOneLevel(boolean ignoreDirty) throws IOException {
         boolean changed = false;
-        LongSet newDirtySet = new LongSet(map.size()/10);
+        OffHeapLongSet newDirtySet = new OffHeapLongSet(map.size()/10, heap.cacheDirectory);
         List<Long> additionalIds = new ArrayList<>();
         int additionalIndex = 0;
         // debug 
@@ -164,6 +172,7 @@ class DominatorTree {
         } else {
             dirtySetSameSize++;
         }
+        dirtySet.delete();
         dirtySet = newDirtySet;
 //System.out.println("Processed: "+processedId);
 //System.out.println("Changed:   "+changedId);
@@ -196,7 +205,11 @@ class DominatorTree {
     
     private void deleteBuffers() {
         multipleParents.delete();
-        revertedMultipleParents.delete();
+        if (revertedMultipleParents != null) {
+            revertedMultipleParents.delete();
+        }
+        dirtySet.delete();
+        dirtySet = null;
     }
         
     private long readLong() throws IOException {
@@ -215,6 +228,14 @@ class DominatorTree {
     }
     
     boolean hasInstanceInChain(int tag, Instance i) {
+        return hasInstanceInChain(tag, i, false);
+    }
+
+    /**
+     * @param concurrent <code>true</code> if the method can be called from many threads
+     * at once, nearest GC root cache is not used in such case
+     */
+    boolean hasInstanceInChain(int tag, Instance i, boolean concurrent) {
         ClassDump javaClass;
         long idom;
         long instanceId;
@@ -223,9 +244,6 @@ class DominatorTree {
             return false;
         }        
         javaClass = (ClassDump) i.getJavaClass();
-        if (canContainItself == null) {
-            canContainItself = new HashMap<>(heap.getAllClasses().size()/2);
-        }
         if (tag == HprofHeap.INSTANCE_DUMP) {
             Boolean canContain = canContainItself.get(javaClass);
 
@@ -238,8 +256,8 @@ class DominatorTree {
             }
         }
         instanceId = i.getInstanceId();
-        idom = getIdomId(instanceId);
-        for (;idom!=0;idom=getIdomId(idom)) {
+        idom = concurrent ? getIdomId(instanceId, null) : getIdomId(instanceId);
+        for (;idom!=0;idom=concurrent ? getIdomId(idom, null) : getIdomId(idom)) {
             Instance ip = heap.getInstanceByID(idom);
             JavaClass cls = ip.getJavaClass();
             
@@ -250,16 +268,16 @@ class DominatorTree {
         return false;
     }
 
-    private Long getNearestGCRootPointer(Long instanceIdLong) {
-        LongMap.Entry entry;
-        Long nearestGCLong = nearestGCRootCache.get(instanceIdLong);
-        Long nearestGC;
-        if (nearestGCLong != null) {
-            return nearestGCLong;
+    private long getNearestGCRootPointer(long instanceId) {
+        int index = (int) ((instanceId * 0x9E3779B97F4A7C15L) >>> 32) & (NEAREST_GC_ROOT_CACHE_SIZE - 1);
+        long nearestGC;
+
+        if (nearestGCRootCache[2*index] == instanceId) {
+            return nearestGCRootCache[2*index+1];
         }
-        entry = heap.idToOffsetMap.get(instanceIdLong.longValue());
-        nearestGC = Long.valueOf(entry.getNearestGCRootPointer());
-        nearestGCRootCache.put(instanceIdLong,nearestGC);
+        nearestGC = heap.idToOffsetMap.get(instanceId).getNearestGCRootPointer();
+        nearestGCRootCache[2*index] = instanceId;
+        nearestGCRootCache[2*index+1] = nearestGC;
         return nearestGC;
     }
     
@@ -359,20 +377,6 @@ class DominatorTree {
 
     DominatorTree(HprofHeap h, DataInputStream dis) throws IOException {
         heap = h;
-        map = new LongHashMap(dis);
-    }
-    
-    private static final class NearestGCRootCache<K,V> extends LinkedHashMap<K,V> {
-        private final int maxSize;
-        
-        private NearestGCRootCache(int size) {
-            super(size,0.75F,true);
-            maxSize = size;
-        }
-
-        protected boolean removeEldestEntry(Map.Entry<K,V> eldest) {
-            return size() > maxSize;
-        }
-
+        map = new OffHeapLongMap(dis, heap.cacheDirectory);
     }
 }
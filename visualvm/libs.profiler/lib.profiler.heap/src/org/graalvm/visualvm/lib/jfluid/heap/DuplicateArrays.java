@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+
+package org.graalvm.visualvm.lib.jfluid.heap;
+
+import java.util.Collection;
+import java.util.List;
+
+
+/**
+ * This object represents group of primitive arrays with the same type and
+ * identical content. Duplicate strings are reported as groups of their
+ * <CODE>value</CODE> arrays, which are referenced from <CODE>java.lang.String</CODE>.
+ */
+public interface DuplicateArrays {
+    //~ Methods ------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * returns array class of the duplicate arrays.
+     * <br>
+     * Speed: fast
+     * @return {@link JavaClass} of the arrays
+     */
+    JavaClass getJavaClass();
+
+    /**
+     * returns number of elements of every array in the group.
+     * <br>
+     * Speed: fast
+     * @return length of the arrays
+     */
+    int getLength();
+
+    /**
+     * returns number of arrays with the identical content.
+     * <br>
+     * Speed: fast
+     * @return number of arrays in the group
+     */
+    int getInstancesCount();
+
+    /**
+     * returns size of one array in the group.
+     * <br>
+     * Speed: fast
+     * @return size of one array in bytes
+     */
+    long getInstanceSize();
+
+    /**
+     * returns size, which would be saved if all arrays were replaced by one of them.
+     * <br>
+     * Speed: fast
+     * @return wasted size in bytes
+     */
+    long getWastedSize();
+
+    /**
+     * returns arrays in the group.
+     * <br>
+     * Speed: normal
+     * @return list of {@link PrimitiveArrayInstance}
+     */
+    List<Instance> getInstances();
+
+    /**
+     * returns classes of instances, which reference arrays in the group.
+     * <br>
+     * Speed: slow for the first time, references must be computed
+     * @return collection of owning {@link JavaClass}
+     */
+    Collection<JavaClass> getOwnerClasses();
+}
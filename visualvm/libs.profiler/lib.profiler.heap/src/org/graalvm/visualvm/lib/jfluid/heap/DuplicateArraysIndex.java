@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+
+package org.graalvm.visualvm.lib.jfluid.heap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Index of groups of primitive arrays with identical content. Contents of
+ * PRIMITIVE_ARRAY_DUMP records are hashed in parallel directly from the dump
+ * buffer and (hash, offset) pairs are spilled into {@link PairPartitions}.
+ * Partitions are then sorted one by one, arrays with the same hash are
+ * compared and grouped by content. Just the groups wasting the most memory
+ * are kept, sorted by wasted size they are stored in a file in the cache
+ * directory.
+ */
+class DuplicateArraysIndex {
+
+    //~ Static fields/initializers -----------------------------------------------------------------------------------------------
+
+    // maximum number of groups kept in the index
+    private static final int INDEX_SIZE = 10000;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    //~ Instance fields ----------------------------------------------------------------------------------------------------------
+
+    private final HprofHeap heap;
+    private final File indexFile;
+    private List<long[]> groups;
+
+    //~ Constructors -------------------------------------------------------------------------------------------------------------
+
+    private DuplicateArraysIndex(HprofHeap h, File file, List<long[]> duplicates) {
+        heap = h;
+        indexFile = file;
+        groups = duplicates;
+    }
+
+    DuplicateArraysIndex(HprofHeap h, DataInputStream dis) throws IOException {
+        heap = h;
+        indexFile = h.cacheDirectory.getCacheFile(dis.readUTF());
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------------------------------------
+
+    static DuplicateArraysIndex compute(HprofHeap heap) throws IOException {
+        List<long[]> groups = new Finder(heap).find();
+        File file = heap.cacheDirectory.createTempFile("NBProfiler", ".dup"); // NOI18N
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(groups.size());
+            for (long[] ids : groups) {
+                out.writeInt(ids.length);
+                for (long id : ids) {
+                    out.writeLong(id);
+                }
+            }
+        }
+        return new DuplicateArraysIndex(heap, file, groups);
+    }
+
+    synchronized List<DuplicateArrays> getDuplicateArrays(int number) {
+        if (groups == null) {
+            try {
+                groups = readGroups();
+            } catch (IOException ex) {
+                throw new IllegalArgumentException(ex.getLocalizedMessage(), ex);
+            }
+        }
+        List<DuplicateArrays> duplicates = new ArrayList<>(Math.min(number, groups.size()));
+
+        for (int i = 0; i < number && i < groups.size(); i++) {
+            duplicates.add(new HprofDuplicateArrays(heap, groups.get(i)));
+        }
+        return duplicates;
+    }
+
+    void writeToStream(DataOutputStream out) throws IOException {
+        CacheDirectory.writeFile(out, indexFile);
+    }
+
+    private List<long[]> readGroups() throws IOException {
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            int size = dis.readInt();
+            List<long[]> duplicates = new ArrayList<>(size);
+
+            for (int i = 0; i < size; i++) {
+                long[] ids = new long[dis.readInt()];
+
+                for (int j = 0; j < ids.length; j++) {
+                    ids[j] = dis.readLong();
+                }
+                duplicates.add(ids);
+            }
+            return duplicates;
+        }
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------------------------------------
+
+    private static class Finder {
+
+        private final HprofHeap heap;
+        private final HprofByteBuffer dumpBuffer;
+        private final int dataOffset;
+        private final int lengthOffset;
+        private final int typeOffset;
+
+        private Finder(HprofHeap h) {
+            heap = h;
+            dumpBuffer = h.dumpBuffer;
+            lengthOffset = 1 + dumpBuffer.getIDSize() + 4;
+            typeOffset = lengthOffset + 4;
+            dataOffset = typeOffset + 1;
+        }
+
+        private List<long[]> find() throws IOException {
+            TagBounds bounds = heap.getAllInstanceDumpBounds();
+            // upper bound of number of primitive arrays, an empty array takes dataOffset bytes
+            long maxPairs = (bounds.endOffset - bounds.startOffset) / dataOffset;
+            PairPartitions partitions = new PairPartitions(heap.cacheDirectory, ".dpt", maxPairs); // NOI18N
+            TopGroups groups = new TopGroups();
+
+            try {
+                // first pass - hash contents of all primitive arrays
+                HeapProgress.progressStart();
+                ParallelScan.scan(heap.getInstanceChunks(), bounds.endOffset, (chunk, start, end) -> {
+                    PairPartitions.Writer writer = partitions.createWriter();
+                    long[] offset = new long[] { start };
+
+                    while (offset[0] < end) {
+                        long instanceOffset = offset[0];
+                        int tag = heap.readDumpTag(offset);
+
+                        if (tag == HprofHeap.PRIMITIVE_ARRAY_DUMP) {
+                            writer.add(hash(instanceOffset), instanceOffset);
+                        }
+                    }
+                    writer.flush();
+                    return null;
+                });
+                HeapProgress.progressFinish();
+
+                // second pass - compare arrays with the same hash, hash collisions are split by content
+                HeapProgress.progressStart();
+                PairPartitions.process(partitions.split(), (partition) -> {
+                    int size = partition.getPairsCount();
+                    long[] hashes = new long[size];
+                    long[] offsets = new long[size];
+
+                    partition.read(hashes, offsets);
+                    partition.delete();
+                    // equal hashes are ordered by offset
+                    LongPairSort.sort(hashes, offsets, 0, size);
+                    for (int start = 0; start < size; ) {
+                        int end = start + 1;
+
+                        while (end < size && hashes[end] == hashes[start]) {
+                            end++;
+                        }
+                        if (end - start > 1) {
+                            groupByContent(offsets, start, end, groups);
+                        }
+                        start = end;
+                    }
+                });
+                HeapProgress.progressFinish();
+            } finally {
+                partitions.delete();
+            }
+            return groups.getIds();
+        }
+
+        private void groupByContent(long[] offsets, int start, int end, TopGroups groups) {
+            List<long[]> members = new ArrayList<>();
+            int[] counts = new int[end - start];
+
+            for (int i = start; i < end; i++) {
+                int content = 0;
+
+                while (content < members.size() && !equalContent(members.get(content)[0], offsets[i])) {
+                    content++;
+                }
+                if (content == members.size()) {
+                    members.add(new long[end - start]);
+                }
+                members.get(content)[counts[content]++] = offsets[i];
+            }
+            for (int content = 0; content < members.size(); content++) {
+                int count = counts[content];
+
+                if (count > 1) {
+                    long[] arrayOffsets = members.get(content);
+                    Instance array = heap.getInstanceByOffset(new long[] { arrayOffsets[0] });
+                    long wastedSize = array.getSize() * (count - 1);
+
+                    if (groups.accepts(wastedSize)) {
+                        long[] ids = new long[count];
+
+                        for (int i = 0; i < count; i++) {
+                            ids[i] = dumpBuffer.getID(arrayOffsets[i] + 1);
+                        }
+                        Arrays.sort(ids);
+                        groups.add(new Group(ids, wastedSize));
+                    }
+                }
+            }
+        }
+
+        private long getDataSize(long start) {
+            int elements = dumpBuffer.getInt(start + lengthOffset);
+            byte type = dumpBuffer.get(start + typeOffset);
+
+            return (long) elements * heap.getValueSize(type);
+        }
+
+        private long hash(long start) {
+            long dataSize = getDataSize(start);
+            long position = start + dataOffset;
+            long end = position + dataSize;
+            long hash = FNV_OFFSET;
+
+            hash = (hash ^ dumpBuffer.get(start + typeOffset)) * FNV_PRIME;
+            hash = (hash ^ dataSize) * FNV_PRIME;
+            for (; position + 8 <= end; position += 8) {
+                hash = (hash ^ dumpBuffer.getLong(position)) * FNV_PRIME;
+            }
+            for (; position < end; position++) {
+                hash = (hash ^ dumpBuffer.get(position)) * FNV_PRIME;
+            }
+            return hash ^ (hash >>> 32);
+        }
+
+        private boolean equalContent(long start1, long start2) {
+            long dataSize = getDataSize(start1);
+
+            if (dumpBuffer.get(start1 + typeOffset) != dumpBuffer.get(start2 + typeOffset) || getDataSize(start2) != dataSize) {
+                return false;
+            }
+            long position1 = start1 + dataOffset;
+            long position2 = start2 + dataOffset;
+            long i = 0;
+
+            for (; i + 8 <= dataSize; i += 8) {
+                if (dumpBuffer.getLong(position1 + i) != dumpBuffer.getLong(position2 + i)) {
+                    return false;
+                }
+            }
+            for (; i < dataSize; i++) {
+                if (dumpBuffer.get(position1 + i) != dumpBuffer.get(position2 + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class Group {
+
+        // groups wasting more memory first, groups wasting the same memory by their first ID
+        private static final Comparator<Group> ORDER = (g1, g2) -> {
+            int result = Long.compare(g2.wastedSize, g1.wastedSize);
+            return result != 0 ? result : Long.compare(g1.ids[0], g2.ids[0]);
+        };
+
+        private final long[] ids;
+        private final long wastedSize;
+
+        private Group(long[] ids, long wastedSize) {
+            this.ids = ids;
+            this.wastedSize = wastedSize;
+        }
+    }
+
+    // keeps just INDEX_SIZE groups wasting the most memory, partitions add groups concurrently
+    private static class TopGroups {
+
+        // the group, which would be dropped first, is at the head
+        private final PriorityQueue<Group> groups = new PriorityQueue<>(Group.ORDER.reversed());
+
+        private synchronized boolean accepts(long wastedSize) {
+            return groups.size() < INDEX_SIZE || wastedSize >= groups.peek().wastedSize;
+        }
+
+        private synchronized void add(Group group) {
+            if (groups.size() < INDEX_SIZE) {
+                groups.add(group);
+            } else if (Group.ORDER.compare(group, groups.peek()) < 0) {
+                groups.poll();
+                groups.add(group);
+            }
+        }
+
+        private synchronized List<long[]> getIds() {
+            List<Group> sorted = new ArrayList<>(groups);
+            List<long[]> ids = new ArrayList<>(sorted.size());
+
+            sorted.sort(Group.ORDER);
+            for (Group group : sorted) {
+                ids.add(group.ids);
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+
+package org.graalvm.visualvm.lib.jfluid.heap;
+
+
+/**
+ * represents an instance field resolved once for a given {@link JavaClass}.
+ * Values of the field are read directly from the heap dump without computing
+ * other field values of the instance. Use it when the same field is read
+ * from many instances of one class.
+ */
+public interface FieldAccessor {
+    //~ Methods ------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * returns the field read by this accessor.
+     * <br>
+     * speed: fast
+     * @return {@link Field} read by this accessor
+     */
+    Field getField();
+
+    /**
+     * returns value of the field for the instance. The instance should be an instance
+     * of the class this accessor was obtained from, instances of other classes
+     * are handled by {@link Instance#getValueOfField(String)}.
+     * <br>
+     * Speed: fast
+     * @param instance instance whose field is read
+     * @return the same value as {@link Instance#getValueOfField(String)}
+     */
+    Object getValue(Instance instance);
+
+    /**
+     * returns field value of the field for the instance. The instance should be an instance
+     * of the class this accessor was obtained from.
+     * <br>
+     * Speed: fast
+     * @param instance instance whose field is read
+     * @return {@link FieldValue} of the field, {@link ObjectFieldValue} for object fields or
+     * <CODE>null</CODE> if the instance does not have this field
+     */
+    FieldValue getFieldValue(Instance instance);
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.lib.jfluid.heap;
+
+import java.util.List;
+
+
+/**
+ * {@link FieldAccessor} which looks the field up in the field values of the instance.
+ * Used by {@link JavaClass} implementations which do not read instances from a heap dump.
+ */
+class FieldLookupAccessor implements FieldAccessor {
+    //~ Instance fields ----------------------------------------------------------------------------------------------------------
+
+    private final Field field;
+
+    //~ Constructors -------------------------------------------------------------------------------------------------------------
+
+    FieldLookupAccessor(Field f) {
+        field = f;
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------------------------------------
+
+    public Field getField() {
+        return field;
+    }
+
+    public Object getValue(Instance instance) {
+        return instance.getValueOfField(field.getName());
+    }
+
+    public FieldValue getFieldValue(Instance instance) {
+        return getFieldValue(instance, field);
+    }
+
+    static FieldValue getFieldValue(Instance instance, Field field) {
+        for (FieldValue value : instance.getFieldValues()) {
+            if (field.equals(value.getField())) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    // the field is resolved like Instance.getValueOfField(String), the first field with the name from java.lang.Object is used
+    static Field findField(JavaClass cls, String name) {
+        Field field = null;
+
+        for (JavaClass jcls = cls; jcls != null; jcls = jcls.getSuperClass()) {
+            List<Field> fields = jcls.getFields();
+
+            if (fields != null) {
+                for (Field f : fields) {
+                    if (f.getName().equals(name)) {
+                        field = f;
+                    }
+                }
+            }
+        }
+        return field;
+    }
+}
@@ -29,6 +29,7 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
+import java.util.function.Predicate;
 
 
 /**
@@ -57,6 +58,27 @@ public interface Heap {
      */
     List<Instance> getBiggestObjectsByRetainedSize(int number);
 
+    /**
+     * computes List of N groups of primitive arrays with identical content.
+     * The groups are ordered according to their wasted size.
+     * <br>
+     * Speed: slow for the first time, subsequent invocations are fast.
+     * @param number maximum size of the returned List
+     * @return list of N biggest {@link DuplicateArrays}.
+     */
+    List<DuplicateArrays> getDuplicateArrays(int number);
+
+    /**
+     * computes order of all instances of the {@link JavaClass} by the key.
+     * Big orders are spilled to the cache directory.
+     * <br>
+     * Speed: slow for the first time, subsequent invocations are fast.
+     * @param jcls {@link JavaClass} whose instances are sorted
+     * @param key size used to sort the instances
+     * @return {@link SortedInstances} with random access to the sorted instances
+     */
+    SortedInstances getSortedInstances(JavaClass jcls, SortedInstances.Key key);
+
     /**
      * returns list of {@link GCRoot} for {@link Instance}.
      * <br>
@@ -124,6 +146,19 @@ public interface Heap {
      * @return an <tt>Iterator</tt> over the {@link Instance}es in this heap
      */
     public Iterator<Instance> getAllInstancesIterator();
+
+    /**
+     * returns an iterator over the {@link Instance}es reachable from the root {@link Instance}.
+     * References from object fields and object array elements are followed, every reachable
+     * {@link Instance} is returned once. The root is returned only if it is reachable from itself.
+     * <br>
+     * Speed: normal for every returned {@link Instance}
+     *
+     * @param root {@link Instance} where the traversal starts
+     * @param excludedFields fields, which are not followed, or <CODE>null</CODE> to follow all fields
+     * @return an <tt>Iterator</tt> over the reachable {@link Instance}es
+     */
+    Iterator<Instance> getReachableInstancesIterator(Instance root, Predicate<Field> excludedFields);
     
     /**
      * returns optional summary information of the heap.
@@ -25,13 +25,10 @@
 
 package org.graalvm.visualvm.lib.jfluid.heap;
 
-import java.io.BufferedInputStream;
 import java.io.DataInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 
 
 /**
@@ -72,17 +69,16 @@ public class HeapFactory {
                            throws FileNotFoundException, IOException {
         CacheDirectory cacheDir = CacheDirectory.getHeapDumpCacheDirectory(heapDump, segment);
         if (!cacheDir.isTemporary()) {
-            File savedDump = cacheDir.getHeapDumpAuxFile();
-
-            if (savedDump.exists() && savedDump.isFile() && savedDump.canRead()) {
+            if (cacheDir.hasSnapshot()) {
                 try {
                     return loadHeap(cacheDir);
                 } catch (IOException ex) {
                     System.err.println("Loading heap dump "+heapDump+" from cache failed.");
                     ex.printStackTrace(System.err);
-                    cacheDir.deleteAllCachedFiles();
                 }
             }
+            // no valid snapshot, remove stale files
+            cacheDir.deleteAllCachedFiles();
         }
         return new HprofHeap(heapDump, segment, cacheDir);
 
@@ -107,9 +103,7 @@ public class HeapFactory {
 
     static Heap loadHeap(CacheDirectory cacheDir)
                            throws FileNotFoundException, IOException {
-        File savedDump = cacheDir.getHeapDumpAuxFile();
-        InputStream is = new BufferedInputStream(new FileInputStream(savedDump), 64*1024);
-        try (DataInputStream dis = new DataInputStream(is)) {
+        try (DataInputStream dis = cacheDir.openSnapshot()) {
             return new HprofHeap(dis, cacheDir);
         }
     }
@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+
+package org.graalvm.visualvm.lib.jfluid.heap;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Trend of per-class statistics across several heap dumps of one application,
+ * used to find slowly growing leaks. Dumps are processed one by one, only the
+ * per-class numbers are kept after a dump is processed and the dump is closed,
+ * so indexes of at most one dump are held in memory. Dumps with a valid cache are
+ * loaded from it without parsing, computed retained sizes are committed to the cache. Classes are matched by name, classes with the same name are merged.
+ */
+public final class HeapTrend {
+    //~ Instance fields ----------------------------------------------------------------------------------------------------------
+
+    private final File[] dumps;
+    private final long[] times;
+    private final boolean retained;
+    private final List<ClassTrend> classes;
+
+    //~ Constructors -------------------------------------------------------------------------------------------------------------
+
+    private HeapTrend(File[] dumps, long[] times, boolean retained, List<ClassTrend> classes) {
+        this.dumps = dumps;
+        this.times = times;
+        this.retained = retained;
+        this.classes = classes;
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * computes trend from heap dumps. Dumps are ordered by the time they were taken.
+     * <br>
+     * Speed: slow, retained sizes are computed for dumps without them when requested
+     * @param heapDumps files which contain memory dumps
+     * @param retained <CODE>true</CODE> if retained sizes should be tracked
+     * @return trend of the classes across the dumps
+     * @throws IOException if I/O error occurred while accessing the dumps
+     */
+    public static HeapTrend compute(List<File> heapDumps, boolean retained) throws IOException {
+        int n = heapDumps.size();
+        File[] files = new File[n];
+        long[] times = new long[n];
+        Map<String,ClassTrend> classMap = new HashMap<>();
+
+        for (int i = 0; i < n; i++) {
+            Heap heap = HeapFactory.createHeap(heapDumps.get(i));
+
+            try {
+                files[i] = heapDumps.get(i);
+                times[i] = heap.getSummary().getTime();
+                for (JavaClass jcls : heap.getAllClasses()) {
+                    ClassTrend trend = classMap.get(jcls.getName());
+
+                    if (trend == null) {
+                        trend = new ClassTrend(jcls.getName(), n, retained);
+                        classMap.put(trend.name, trend);
+                    }
+                    trend.add(i, jcls);
+                }
+            } finally {
+                // the dump file and the index files are released before the next dump is opened
+                if (heap instanceof HprofHeap) {
+                    ((HprofHeap) heap).close();
+                }
+            }
+        }
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong((Integer i) -> times[i]));
+        long[] sortedTimes = new long[n];
+        File[] sortedFiles = new File[n];
+        for (int i = 0; i < n; i++) {
+            sortedTimes[i] = times[order[i]];
+            sortedFiles[i] = files[order[i]];
+        }
+        List<ClassTrend> classes = new ArrayList<>(classMap.values());
+        for (ClassTrend trend : classes) {
+            trend.reorder(order);
+        }
+        classes.sort(Comparator.comparing(ClassTrend::getName));
+        return new HeapTrend(sortedFiles, sortedTimes, retained, Collections.unmodifiableList(classes));
+    }
+
+    /**
+     * returns heap dumps in the order they were taken.
+     * @return files with heap dumps
+     */
+    public List<File> getDumps() {
+        return Collections.unmodifiableList(Arrays.asList(dumps));
+    }
+
+    /**
+     * returns times when heap dumps were taken.
+     * @return time in milliseconds for every dump
+     */
+    public long[] getTimes() {
+        return times.clone();
+    }
+
+    /**
+     * distinguish if retained sizes are tracked.
+     * @return <CODE>true</CODE> if retained sizes are tracked
+     */
+    public boolean isRetainedSizeTracked() {
+        return retained;
+    }
+
+    /**
+     * returns trends of all classes sorted by name.
+     * @return list of {@link ClassTrend}
+     */
+    public List<ClassTrend> getClasses() {
+        return classes;
+    }
+
+    /**
+     * returns classes which grow the most across the dumps. Only classes with
+     * both size and instance count larger in the last dump than in the first one are
+     * considered. Classes are ordered by their growth score.
+     * @param number maximum number of returned classes
+     * @return list of growing {@link ClassTrend} ordered from the biggest suspect
+     */
+    public List<ClassTrend> getGrowthSuspects(int number) {
+        List<ClassTrend> suspects = new ArrayList<>();
+
+        for (ClassTrend trend : classes) {
+            if (trend.getGrowthScore() > 0) {
+                suspects.add(trend);
+            }
+        }
+        suspects.sort(Comparator.comparingDouble(ClassTrend::getGrowthScore).reversed());
+        return suspects.size() > number ? suspects.subList(0, number) : suspects;
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------------------------------------
+
+    /**
+     * time series of statistics of one class across heap dumps.
+     */
+    public static final class ClassTrend {
+        //~ Instance fields ------------------------------------------------------------------------------------------------------
+
+        private final String name;
+        private long[] instancesCounts;
+        private long[] ownSizes;
+        private long[] retainedSizes;
+        private double score = Double.NaN;
+
+        //~ Constructors ---------------------------------------------------------------------------------------------------------
+
+        private ClassTrend(String name, int dumps, boolean retained) {
+            this.name = name;
+            instancesCounts = new long[dumps];
+            ownSizes = new long[dumps];
+            retainedSizes = retained ? new long[dumps] : null;
+        }
+
+        //~ Methods --------------------------------------------------------------------------------------------------------------
+
+        /**
+         * returns name of the class.
+         * @return name of the class
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * returns number of instances in every dump.
+         * @return instances count series
+         */
+        public long[] getInstancesCounts() {
+            return instancesCounts.clone();
+        }
+
+        /**
+         * returns shallow size of all instances in every dump.
+         * @return shallow size series
+         */
+        public long[] getOwnSizes() {
+            return ownSizes.clone();
+        }
+
+        /**
+         * returns retained size of the class in every dump.
+         * @return retained size series or <CODE>null</CODE> if retained sizes are not tracked
+         */
+        public long[] getRetainedSizes() {
+            return retainedSizes == null ? null : retainedSizes.clone();
+        }
+
+        /**
+         * distinguish if the size of the class never decreases across the dumps.
+         * Retained size is used if it is tracked, shallow size otherwise.
+         * @return <CODE>true</CODE> if the size grows monotonically
+         */
+        public boolean isMonotonic() {
+            long[] sizes = getSizes();
+
+            for (int i = 1; i < sizes.length; i++) {
+                if (sizes[i] < sizes[i - 1]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * returns growth score of the class. The score is the least squares slope
+         * of the size in bytes per dump, weighted by the fraction of dumps in which
+         * the size increased and decreased by the fraction of dumps in which it decreased.
+         * @return growth score, zero if the class does not grow
+         */
+        public double getGrowthScore() {
+            if (Double.isNaN(score)) {
+                score = computeScore();
+            }
+            return score;
+        }
+
+        private long[] getSizes() {
+            return retainedSizes != null ? retainedSizes : ownSizes;
+        }
+
+        private double computeScore() {
+            long[] sizes = getSizes();
+            int n = sizes.length;
+
+            if (n < 2 || sizes[n - 1] <= sizes[0] || instancesCounts[n - 1] <= instancesCounts[0]) {
+                return 0;
+            }
+            int ups = 0;
+            int downs = 0;
+            double meanX = (n - 1) / 2.0;
+            double meanY = 0;
+            for (int i = 0; i < n; i++) {
+                meanY += sizes[i];
+                if (i > 0 && sizes[i] > sizes[i - 1]) ups++;
+                if (i > 0 && sizes[i] < sizes[i - 1]) downs++;
+            }
+            meanY /= n;
+            double sxy = 0;
+            double sxx = 0;
+            for (int i = 0; i < n; i++) {
+                sxy += (i - meanX) * (sizes[i] - meanY);
+                sxx += (i - meanX) * (i - meanX);
+            }
+            double slope = sxy / sxx;
+            return Math.max(0, slope * (ups - downs) / (n - 1));
+        }
+
+        private void add(int dump, JavaClass jcls) {
+            instancesCounts[dump] += jcls.getInstancesCount();
+            ownSizes[dump] += jcls.getAllInstancesSize();
+            if (retainedSizes != null) {
+                retainedSizes[dump] += jcls.getRetainedSizeByClass();
+            }
+        }
+
+        private void reorder(Integer[] order) {
+            instancesCounts = reorder(instancesCounts, order);
+            ownSizes = reorder(ownSizes, order);
+            if (retainedSizes != null) {
+                retainedSizes = reorder(retainedSizes, order);
+            }
+        }
+
+        private static long[] reorder(long[] values, Integer[] order) {
+            long[] sorted = new long[values.length];
+
+            for (int i = 0; i < order.length; i++) {
+                sorted[i] = values[order[i]];
+            }
+            return sorted;
+        }
+    }
+}
@@ -72,12 +72,12 @@ abstract class HprofByteBuffer {
             if (fileLen < Integer.MAX_VALUE) {
                 return new HprofMappedByteBuffer(dumpFile);
             } else {
-                return new HprofLongMappedByteBuffer(dumpFile);
+                return new HprofConcurrentByteBuffer(dumpFile, true);
             }
         } catch (IOException ex) {
             if (ex.getCause() instanceof OutOfMemoryError) { // can happen on 32bit Windows, since there is only 2G for memory mapped data for whole java process.
 
-                return new HprofFileBuffer(dumpFile);
+                return new HprofConcurrentByteBuffer(dumpFile, false);
             }
 
             throw ex;
@@ -131,6 +131,10 @@ abstract class HprofByteBuffer {
 
     abstract void get(long position, byte[] chars);
 
+    // releases the dump file, the buffer must not be used after it is closed
+    void close() throws IOException {
+    }
+
     final void readHeader() throws IOException {
         long[] offset = new long[1];
         String magic = readStringNull(offset, MINIMAL_SIZE);
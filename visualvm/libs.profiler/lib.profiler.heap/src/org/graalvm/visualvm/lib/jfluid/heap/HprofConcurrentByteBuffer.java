@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.lib.jfluid.heap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+
+
+/**
+ * Heap dump buffer, which can be safely read by many threads at once.
+ * The dump is mapped as an array of read-only chunks and all reads are
+ * absolute, so no locking is needed. Chunks, which cannot be mapped
+ * (typically because the address space is exhausted), are read through
+ * per-thread windows filled by positional reads from the dump file.
+ * The file channel is closed when any reading thread is interrupted,
+ * so it is reopened and the read is retried.
+ */
+class HprofConcurrentByteBuffer extends HprofByteBuffer {
+    //~ Static fields/initializers -----------------------------------------------------------------------------------------------
+
+    private static final int BUFFER_SIZE_BITS = 30;
+    private static final long BUFFER_SIZE = 1L << BUFFER_SIZE_BITS;
+    private static final int BUFFER_SIZE_MASK = (int) ((BUFFER_SIZE) - 1);
+    private static final int BUFFER_EXT = 32 * 1024;
+    private static final int WINDOW_SIZE_BITS = 16;
+    private static final int WINDOW_SIZE = 1 << WINDOW_SIZE_BITS;
+    private static final int WINDOW_EXT = 8;
+
+    //~ Instance fields ----------------------------------------------------------------------------------------------------------
+
+    private final File file;
+    private volatile FileChannel channel;
+    private volatile boolean closed;
+    private final MappedByteBuffer[] dumpBuffer;
+    // windows do not reference the buffer, so that threads of a pool do not keep it reachable
+    private final ThreadLocal<Window> window = new ThreadLocal<Window>() {
+        protected Window initialValue() {
+            return new Window();
+        }
+    };
+
+    //~ Constructors -------------------------------------------------------------------------------------------------------------
+
+    HprofConcurrentByteBuffer(File dumpFile, boolean map) throws IOException {
+        file = dumpFile;
+        channel = new RandomAccessFile(dumpFile, "r").getChannel(); // NOI18N
+        length = channel.size();
+        dumpBuffer = new MappedByteBuffer[(int) (((length + BUFFER_SIZE) - 1) / BUFFER_SIZE)];
+
+        if (map) {
+            try {
+                for (int i = 0; i < dumpBuffer.length; i++) {
+                    long position = i * BUFFER_SIZE;
+                    long size = Math.min(BUFFER_SIZE + BUFFER_EXT, length - position);
+                    dumpBuffer[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+                }
+            } catch (IOException ex) {
+                if (!(ex.getCause() instanceof OutOfMemoryError)) {
+                    channel.close();
+                    throw ex;
+                }
+                // remaining chunks are read using per-thread windows
+            }
+        }
+        readHeader();
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------------------------------------
+
+    char getChar(long index) {
+        ByteBuffer buffer = dumpBuffer[getBufferIndex(index)];
+        if (buffer != null) {
+            return buffer.getChar(getBufferOffset(index));
+        }
+        return window.get().getChar(this, index);
+    }
+
+    double getDouble(long index) {
+        return Double.longBitsToDouble(getLong(index));
+    }
+
+    float getFloat(long index) {
+        return Float.intBitsToFloat(getInt(index));
+    }
+
+    int getInt(long index) {
+        ByteBuffer buffer = dumpBuffer[getBufferIndex(index)];
+        if (buffer != null) {
+            return buffer.getInt(getBufferOffset(index));
+        }
+        return window.get().getInt(this, index);
+    }
+
+    long getLong(long index) {
+        ByteBuffer buffer = dumpBuffer[getBufferIndex(index)];
+        if (buffer != null) {
+            return buffer.getLong(getBufferOffset(index));
+        }
+        return window.get().getLong(this, index);
+    }
+
+    short getShort(long index) {
+        ByteBuffer buffer = dumpBuffer[getBufferIndex(index)];
+        if (buffer != null) {
+            return buffer.getShort(getBufferOffset(index));
+        }
+        return window.get().getShort(this, index);
+    }
+
+    byte get(long index) {
+        ByteBuffer buffer = dumpBuffer[getBufferIndex(index)];
+        if (buffer != null) {
+            return buffer.get(getBufferOffset(index));
+        }
+        return window.get().get(this, index);
+    }
+
+    void get(long position, byte[] chars) {
+        int copied = 0;
+
+        while (copied < chars.length) {
+            long index = position + copied;
+            ByteBuffer buffer = dumpBuffer[getBufferIndex(index)];
+            int offset = getBufferOffset(index);
+            int size = (int) Math.min(chars.length - copied, BUFFER_SIZE - offset);
+
+            if (buffer != null) {
+                // duplicate has its own position, original buffer is not modified
+                ByteBuffer dup = buffer.duplicate();
+                dup.position(offset);
+                dup.get(chars, copied, size);
+            } else {
+                read(index, chars, copied, size);
+            }
+            copied += size;
+        }
+    }
+
+    void close() throws IOException {
+        closed = true;
+        window.remove();
+        channel.close();
+    }
+
+    private void read(long position, byte[] dest, int offset, int size) {
+        ByteBuffer buffer = ByteBuffer.wrap(dest, offset, size);
+        boolean interrupted = false;
+
+        try {
+            while (buffer.hasRemaining()) {
+                FileChannel currentChannel = channel;
+
+                try {
+                    if (currentChannel.read(buffer, position + buffer.position() - offset) == -1) {
+                        break;  // end of file
+                    }
+                } catch (ClosedChannelException ex) {
+                    if (closed) {
+                        throw ex;
+                    }
+                    if (ex instanceof ClosedByInterruptException) {
+                        // clear the interrupt, so that the read can be retried, and restore it later
+                        interrupted |= Thread.interrupted();
+                    }
+                    reopen(currentChannel);
+                }
+            }
+        } catch (IOException ex) {
+            throw new IllegalArgumentException(ex.getLocalizedMessage(), ex);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private synchronized void reopen(FileChannel closedChannel) throws IOException {
+        if (channel == closedChannel && !closed) {
+            channel = new RandomAccessFile(file, "r").getChannel(); // NOI18N
+        }
+    }
+
+    private static int getBufferIndex(long index) {
+        return (int) (index >> BUFFER_SIZE_BITS);
+    }
+
+    private static int getBufferOffset(long index) {
+        return (int) (index & BUFFER_SIZE_MASK);
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------------------------------------
+
+    private static class Window {
+        private final byte[] data = new byte[WINDOW_SIZE + WINDOW_EXT];
+        private final ByteBuffer buffer = ByteBuffer.wrap(data);
+        private long startOffset = Long.MAX_VALUE;
+
+        char getChar(HprofConcurrentByteBuffer dump, long index) {
+            return buffer.getChar(load(dump, index));
+        }
+
+        int getInt(HprofConcurrentByteBuffer dump, long index) {
+            return buffer.getInt(load(dump, index));
+        }
+
+        long getLong(HprofConcurrentByteBuffer dump, long index) {
+            return buffer.getLong(load(dump, index));
+        }
+
+        short getShort(HprofConcurrentByteBuffer dump, long index) {
+            return buffer.getShort(load(dump, index));
+        }
+
+        byte get(HprofConcurrentByteBuffer dump, long index) {
+            return buffer.get(load(dump, index));
+        }
+
+        private int load(HprofConcurrentByteBuffer dump, long index) {
+            if (index < startOffset || index >= startOffset + WINDOW_SIZE) {
+                long newStart = index & ~((long) WINDOW_SIZE - 1);
+
+                dump.read(newStart, data, 0, (int) Math.min(data.length, dump.length - newStart));
+                startOffset = newStart;
+            }
+            return (int) (index - startOffset);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+
+package org.graalvm.visualvm.lib.jfluid.heap;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * Group of duplicate primitive arrays stored as instance ids.
+ */
+class HprofDuplicateArrays implements DuplicateArrays {
+    //~ Instance fields ----------------------------------------------------------------------------------------------------------
+
+    private final HprofHeap heap;
+    private final long[] ids;
+    private final PrimitiveArrayDump first;
+
+    //~ Constructors -------------------------------------------------------------------------------------------------------------
+
+    HprofDuplicateArrays(HprofHeap h, long[] instanceIds) {
+        heap = h;
+        ids = instanceIds;
+        first = (PrimitiveArrayDump) heap.getInstanceByID(ids[0]);
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------------------------------------
+
+    public JavaClass getJavaClass() {
+        return first.getJavaClass();
+    }
+
+    public int getLength() {
+        return first.getLength();
+    }
+
+    public int getInstancesCount() {
+        return ids.length;
+    }
+
+    public long getInstanceSize() {
+        return first.getSize();
+    }
+
+    public long getWastedSize() {
+        return getInstanceSize() * (ids.length - 1);
+    }
+
+    public List<Instance> getInstances() {
+        return new AbstractList<Instance>() {
+            public Instance get(int index) {
+                return heap.getInstanceByID(ids[index]);
+            }
+
+            public int size() {
+                return ids.length;
+            }
+        };
+    }
+
+    public Collection<JavaClass> getOwnerClasses() {
+        Set<JavaClass> owners = new LinkedHashSet<>();
+
+        for (Instance array : getInstances()) {
+            for (Value ref : array.getReferences()) {
+                owners.add(ref.getDefiningInstance().getJavaClass());
+            }
+        }
+        return owners;
+    }
+}
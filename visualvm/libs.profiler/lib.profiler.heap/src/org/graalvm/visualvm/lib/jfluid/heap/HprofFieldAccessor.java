@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+
+package org.graalvm.visualvm.lib.jfluid.heap;
+
+
+/**
+ * Instance field of {@link ClassDump} with precomputed offset of its value
+ * relative to the start of INSTANCE_DUMP record.
+ */
+class HprofFieldAccessor implements FieldAccessor {
+    //~ Instance fields ----------------------------------------------------------------------------------------------------------
+
+    private final ClassDump classDump;
+    private final HprofField field;
+    private final String name;
+    private final byte type;
+    private final int offset;
+
+    //~ Constructors -------------------------------------------------------------------------------------------------------------
+
+    HprofFieldAccessor(ClassDump cls, HprofField f, String fieldName, int valueOffset) {
+        classDump = cls;
+        field = f;
+        name = fieldName;
+        type = f.getValueType();
+        offset = valueOffset;
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------------------------------------
+
+    public Field getField() {
+        return field;
+    }
+
+    public Object getValue(Instance instance) {
+        if (!isDirect(instance)) {
+            return instance.getValueOfField(name);
+        }
+        return getValue((InstanceDump) instance);
+    }
+
+    public FieldValue getFieldValue(Instance instance) {
+        if (!isDirect(instance)) {
+            return FieldLookupAccessor.getFieldValue(instance, field);
+        }
+        InstanceDump dump = (InstanceDump) instance;
+        long valueOffset = dump.fileOffset + offset;
+
+        if (type == HprofHeap.OBJECT) {
+            return new HprofInstanceObjectValue(dump, field, valueOffset);
+        }
+        return new HprofInstanceValue(dump, field, valueOffset);
+    }
+
+    Object getValue(InstanceDump instance) {
+        HprofByteBuffer dumpBuffer = classDump.getHprofBuffer();
+        long valueOffset = instance.fileOffset + offset;
+
+        if (type == HprofHeap.OBJECT) {
+            return classDump.getHprof().getInstanceByID(dumpBuffer.getID(valueOffset));
+        }
+        return HprofInstanceValue.getTypeValue(dumpBuffer, valueOffset, type);
+    }
+
+    private boolean isDirect(Instance instance) {
+        return instance instanceof InstanceDump && ((InstanceDump) instance).dumpClass == classDump
+               && !(instance instanceof ArrayDump);
+    }
+}
@@ -25,21 +25,24 @@
 
 package org.graalvm.visualvm.lib.jfluid.heap;
 
-import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Properties;
+import java.util.Set;
+import java.util.function.Predicate;
 
 /**
  *
@@ -103,8 +106,10 @@ class HprofHeap implements Heap {
     private static final boolean DEBUG = false;
 
     private static final String SNAPSHOT_ID = "NBPHD";
-    private static final int SNAPSHOT_VERSION  = 5;
+    private static final int SNAPSHOT_VERSION  = 10;
     private static final String OS_PROP = "os.name";
+    // number of the biggest objects by retained size kept in the snapshot
+    private static final int BIGGEST_OBJECTS_INDEX_SIZE = 10000;
     
     //~ Instance fields ----------------------------------------------------------------------------------------------------------
 
@@ -118,6 +123,7 @@ class HprofHeap implements Heap {
     private TagBounds allInstanceDumpBounds;
     private TagBounds heapDumpSegment;
     private TagBounds[] heapTagBounds;
+    private long[] instanceChunks;
     private TagBounds[] tagBounds = new TagBounds[0xff];
     private boolean instancesCountComputed;
     private final Object instancesCountLock = new Object();
@@ -127,6 +133,21 @@ class HprofHeap implements Heap {
     private final Object retainedSizeLock = new Object();
     private boolean retainedSizeByClassComputed;
     private final Object retainedSizeByClassLock = new Object();
+    // ids of the biggest objects by retained size, sorted from the biggest one
+    private long[] biggestObjects;
+    private DuplicateArraysIndex duplicateArrays;
+    private final Object duplicateArraysLock = new Object();
+    // computations of the cached data running, the snapshot is committed when none is running
+    private final Object snapshotLock = new Object();
+    private int runningComputations;
+    private boolean commitPending;
+    // computations, which failed and were not completed since, their partial data are never committed
+    private final Set<Object> failedComputations = new HashSet<>();
+    // sorted instances of classes, Map <class id:key, index>
+    private final Map<String,SortedInstancesIndex> sortedInstances = new HashMap<>();
+    // visited bitmap reused by getReachableSize(), only one traversal can use it at a time
+    private long[] reachableVisited;
+    private final Object reachableVisitedLock = new Object();
     private int idMapSize;
     private int segment;
 
@@ -176,13 +197,72 @@ class HprofHeap implements Heap {
         List<Instance> bigObjects = new ArrayList<>(number);
         
         computeRetainedSize();
-        ids = idToOffsetMap.getBiggestObjectsByRetainedSize(number);
+        if (number <= biggestObjects.length) {
+            ids = Arrays.copyOf(biggestObjects, number);
+        } else {
+            ids = idToOffsetMap.getBiggestObjectsByRetainedSize(number);
+        }
         for (long id : ids) {
             bigObjects.add(getInstanceByID(id));
         }
         return bigObjects;
     }
     
+    public List<DuplicateArrays> getDuplicateArrays(int number) {
+        synchronized (duplicateArraysLock) {
+            if (duplicateArrays == null) {
+                computeInstances();
+                startComputation();
+                boolean completed = false;
+                try {
+                    cacheDirectory.setDirty(true);
+                    duplicateArrays = DuplicateArraysIndex.compute(this);
+                    completed = true;
+                } catch (IOException ex) {
+                    throw new IllegalArgumentException(ex.getLocalizedMessage(), ex);
+                } finally {
+                    finishComputation(duplicateArraysLock, completed);
+                }
+            }
+        }
+        return duplicateArrays.getDuplicateArrays(number);
+    }
+
+    public SortedInstances getSortedInstances(JavaClass jcls, SortedInstances.Key key) {
+        String indexKey = jcls.getJavaClassId() + ":" + key; // NOI18N
+
+        synchronized (sortedInstances) {
+            SortedInstancesIndex index = sortedInstances.get(indexKey);
+
+            if (index == null) {
+                try {
+                    index = SortedInstancesIndex.create(this, jcls, key);
+                } catch (IOException ex) {
+                    throw new IllegalArgumentException(ex.getLocalizedMessage(), ex);
+                }
+                sortedInstances.put(indexKey, index);
+            }
+            return index;
+        }
+    }
+
+    // releases resources, which are not released by garbage collection, like
+    // the dump file or files of the sorted instances indexes; the heap must not
+    // be used after it is closed
+    void close() {
+        synchronized (sortedInstances) {
+            for (SortedInstancesIndex index : sortedInstances.values()) {
+                index.close();
+            }
+            sortedInstances.clear();
+        }
+        try {
+            dumpBuffer.close();
+        } catch (IOException ex) {
+            throw new IllegalArgumentException(ex.getLocalizedMessage(), ex);
+        }
+    }
+
     public Collection<GCRoot> getGCRoots(Instance instance) {
        Long instanceId = Long.valueOf(instance.getInstanceId());
        Object gcroot = gcRoots.getGCRoots(instanceId);
@@ -269,6 +349,10 @@ class HprofHeap implements Heap {
         }
         return new InstancesIterator();
     }
+
+    public Iterator<Instance> getReachableInstancesIterator(Instance root, Predicate<Field> excludedFields) {
+        return new ReachableInstancesIterator(this, root, excludedFields);
+    }
     
     public HeapSummary getSummary() {
         TagBounds summaryBound = tagBounds[HEAP_SUMMARY];
@@ -325,15 +409,50 @@ class HprofHeap implements Heap {
         return retainedSizeByClassComputed;
     }
 
+    // The computations update the cached data in place, a snapshot committed while
+    // another computation is running could capture or remap half-written data.
+    // Commits are deferred to the last running computation, new computations
+    // wait for a commit in progress.
+    void startComputation() {
+        synchronized (snapshotLock) {
+            runningComputations++;
+        }
+    }
+
+    // computation identifies the phase, once the failed phase is completed again, the snapshot can be committed
+    void finishComputation(Object computation, boolean completed) {
+        synchronized (snapshotLock) {
+            runningComputations--;
+            if (completed) {
+                failedComputations.remove(computation);
+                commitPending = true;
+            } else {
+                // partially computed data are never committed
+                failedComputations.add(computation);
+            }
+            if (runningComputations == 0 && commitPending && failedComputations.isEmpty()) {
+                commitPending = false;
+                writeToFile();
+            }
+        }
+    }
+
+    // Commits the data computed so far by the only running computation
+    void commitComputation() {
+        synchronized (snapshotLock) {
+            if (runningComputations == 1 && failedComputations.isEmpty()) {
+                writeToFile();
+            } else {
+                commitPending = true;
+            }
+        }
+    }
+
     //---- Serialization support
-    void writeToFile() {
+    synchronized void writeToFile() {
         if (!cacheDirectory.isTemporary()) {
             try {
-                DataOutputStream out;
-                File outFile = cacheDirectory.getHeapDumpAuxFile();
-                out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outFile), 32768));
-                writeToStream(out);
-                out.close();
+                cacheDirectory.commitSnapshot(this::writeToStream);
                 cacheDirectory.setDirty(false);
             } catch (IOException ex) {
                 ex.printStackTrace(System.err);
@@ -356,6 +475,12 @@ class HprofHeap implements Heap {
         out.writeBoolean(referencesComputed);
         out.writeBoolean(retainedSizeComputed);
         out.writeBoolean(retainedSizeByClassComputed);
+        if (retainedSizeComputed) {
+            out.writeInt(biggestObjects.length);
+            for (long id : biggestObjects) {
+                out.writeLong(id);
+            }
+        }
         out.writeInt(idMapSize);
         out.writeInt(segment);        
         idToOffsetMap.writeToStream(out);
@@ -363,12 +488,13 @@ class HprofHeap implements Heap {
         if (domTree != null) {
             domTree.writeToStream(out);
         }
+        out.writeBoolean(duplicateArrays != null);
+        if (duplicateArrays != null) {
+            duplicateArrays.writeToStream(out);
+        }
     }
 
     HprofHeap(DataInputStream dis, CacheDirectory cacheDir) throws IOException {
-        if (cacheDir.isDirty()) {
-            throw new IOException("Dirty cache "+cacheDir);
-        }
         String id = dis.readUTF();
         if (!SNAPSHOT_ID.equals(id)) {
             throw new IOException("Invalid HPROF dump id "+id);
@@ -398,12 +524,21 @@ class HprofHeap implements Heap {
         referencesComputed = dis.readBoolean();
         retainedSizeComputed = dis.readBoolean();
         retainedSizeByClassComputed = dis.readBoolean();
+        if (retainedSizeComputed) {
+            biggestObjects = new long[dis.readInt()];
+            for (int i = 0; i < biggestObjects.length; i++) {
+                biggestObjects[i] = dis.readLong();
+            }
+        }
         idMapSize = dis.readInt();
         segment = dis.readInt();
         idToOffsetMap = new LongMap(dis, cacheDirectory);
         if (dis.readBoolean()) {
             domTree = new DominatorTree(this, dis);
         }
+        if (dis.readBoolean()) {
+            duplicateArrays = new DuplicateArraysIndex(this, dis);
+        }
         gcRoots = new HprofGCRoots(this);
         getClassDumpSegment().extractSpecialClasses();            
     }
@@ -432,6 +567,27 @@ class HprofHeap implements Heap {
         return allInstanceDumpBounds;
     }
     
+    long getReachableSize(Instance instance) {
+        long[] visited;
+
+        synchronized (reachableVisitedLock) {
+            visited = reachableVisited;
+            reachableVisited = null;
+        }
+        if (visited == null) {
+            visited = ReachableInstancesIterator.createVisited(this);
+        }
+        ReachableInstancesIterator reachables = new ReachableInstancesIterator(this, instance, null, visited);
+        try {
+            return instance.getSize() + reachables.getReachableSize();
+        } finally {
+            reachables.clearVisited();
+            synchronized (reachableVisitedLock) {
+                reachableVisited = visited;
+            }
+        }
+    }
+
     long getRetainedSize(Instance instance) {
         computeRetainedSize();
         return idToOffsetMap.get(instance.getInstanceId()).getRetainedSize();
@@ -524,53 +680,215 @@ class HprofHeap implements Heap {
         }
 
         HeapProgress.progressStart();
-        cacheDirectory.setDirty(true);
-        ClassDumpSegment classDumpBounds = getClassDumpSegment();
-        int idSize = dumpBuffer.getIDSize();
-        long[] offset = new long[] { allInstanceDumpBounds.startOffset };
-        Map<Long,JavaClass> classIdToClassMap = classDumpBounds.getClassIdToClassMap();
+        startComputation();
+        boolean completed = false;
+        try {
+            cacheDirectory.setDirty(true);
+            ClassDumpSegment classDumpBounds = getClassDumpSegment();
+            int idSize = dumpBuffer.getIDSize();
+            long[] offset = new long[] { allInstanceDumpBounds.startOffset };
+            Map<Long,JavaClass> classIdToClassMap = classDumpBounds.getClassIdToClassMap();
+
+            if (ParallelScan.isEnabled()) {
+                long[] chunks = getInstanceChunks();
+
+                if (chunks.length > 1) {
+                    computeInstancesParallel(chunks, classIdToClassMap);
+                    offset[0] = allInstanceDumpBounds.endOffset;
+                }
+            }
+            for (long counter = 0; offset[0] < allInstanceDumpBounds.endOffset; counter++) {
+                int classIdOffset = 0;
+                int instanceIdOffset = 0;
+                ClassDump classDump = null;
+                long start = offset[0];
+                int tag = readDumpTag(offset);
+                LongMap.Entry instanceEntry = null;
+
+                if (tag == INSTANCE_DUMP) {
+                    instanceIdOffset = 1;
+                    classIdOffset = idSize + 4;
+                } else if (tag == OBJECT_ARRAY_DUMP) {
+                    instanceIdOffset = 1;
+                    classIdOffset = idSize + 4 + 4;
+                } else if (tag == PRIMITIVE_ARRAY_DUMP) {
+                    byte type = dumpBuffer.get(start + 1 + idSize + 4 + 4);
+                    instanceIdOffset = 1;
+                    classDump = classDumpBounds.getPrimitiveArrayClass(type);
+                }
 
-        for (long counter = 0; offset[0] < allInstanceDumpBounds.endOffset; counter++) {
-            int classIdOffset = 0;
-            int instanceIdOffset = 0;
-            ClassDump classDump = null;
-            long start = offset[0];
-            int tag = readDumpTag(offset);
-            LongMap.Entry instanceEntry = null;
+                if (instanceIdOffset != 0) {
+                    long instanceId = dumpBuffer.getID(start + instanceIdOffset);
+                    instanceEntry = idToOffsetMap.put(instanceId, start);
+                }
 
-            if (tag == INSTANCE_DUMP) {
-                instanceIdOffset = 1;
-                classIdOffset = idSize + 4;
-            } else if (tag == OBJECT_ARRAY_DUMP) {
-                instanceIdOffset = 1;
-                classIdOffset = idSize + 4 + 4;
-            } else if (tag == PRIMITIVE_ARRAY_DUMP) {
-                byte type = dumpBuffer.get(start + 1 + idSize + 4 + 4);
-                instanceIdOffset = 1;
-                classDump = classDumpBounds.getPrimitiveArrayClass(type);
+                if (classIdOffset != 0) {
+                    long classId = dumpBuffer.getID(start + 1 + classIdOffset);
+                    classDump = (ClassDump) classIdToClassMap.get(new Long(classId));
+                }
+
+                if (classDump != null) {
+                    classDump.registerInstance(start);
+                    instanceEntry.setIndex(classDump.getInstancesCount());
+                    classDumpBounds.addInstanceSize(classDump, tag, start);
+                }
+                HeapProgress.progress(counter,allInstanceDumpBounds.startOffset,start,allInstanceDumpBounds.endOffset);
             }
+            instancesCountComputed = true;
+            completed = true;
+        } finally {
+            finishComputation(instancesCountLock, completed);
+        }
+        }
+        HeapProgress.progressFinish();
+    }
 
-            if (instanceIdOffset != 0) {
-                long instanceId = dumpBuffer.getID(start + instanceIdOffset);
-                instanceEntry = idToOffsetMap.put(instanceId, start);
+    private static class InstancesCounter {
+        private final long firstOffset;
+        private int count;
+        private int index;
+        private long[] arraySize;
+
+        private InstancesCounter(long offset) {
+            firstOffset = offset;
+        }
+    }
+
+    private void computeInstancesParallel(long[] chunks, final Map<Long,JavaClass> classIdToClassMap) {
+        final ClassDumpSegment classDumpBounds = getClassDumpSegment();
+        final long endOffset = allInstanceDumpBounds.endOffset;
+
+        // first pass - count instances of each class in every chunk
+        HeapProgress.progressStart();
+        final List<Map<ClassDump,InstancesCounter>> counters = ParallelScan.scan(chunks, endOffset, (chunk, start, end) -> {
+            Map<ClassDump,InstancesCounter> chunkCounters = new HashMap<>();
+            long[] offset = new long[] { start };
+
+            while (offset[0] < end) {
+                long instanceOffset = offset[0];
+                int tag = readDumpTag(offset);
+                ClassDump classDump = getInstanceClassDump(tag, instanceOffset, classIdToClassMap);
+
+                if (classDump != null) {
+                    InstancesCounter counter = chunkCounters.get(classDump);
+
+                    if (counter == null) {
+                        counter = new InstancesCounter(instanceOffset);
+                        chunkCounters.put(classDump, counter);
+                    }
+                    counter.count++;
+                    if (tag == OBJECT_ARRAY_DUMP || tag == PRIMITIVE_ARRAY_DUMP) {
+                        if (counter.arraySize == null) {
+                            counter.arraySize = new long[ObjectSizeSettings.OBJECT_ALIGNMENT+1];
+                        }
+                        classDumpBounds.addArraySize(counter.arraySize, instanceOffset);
+                    }
+                }
             }
+            return chunkCounters;
+        });
+        HeapProgress.progressFinish();
+
+        // merge partial counters in chunk order, instance indexes are the same as with sequential scan
+        for (Map<ClassDump,InstancesCounter> chunkCounters : counters) {
+            for (Map.Entry<ClassDump,InstancesCounter> counterEntry : chunkCounters.entrySet()) {
+                ClassDump classDump = counterEntry.getKey();
+                InstancesCounter counter = counterEntry.getValue();
 
-            if (classIdOffset != 0) {
-                long classId = dumpBuffer.getID(start + 1 + classIdOffset);
-                classDump = (ClassDump) classIdToClassMap.get(new Long(classId));
+                counter.index = classDump.registerInstances(counter.count, counter.firstOffset);
+                if (counter.arraySize != null) {
+                    classDumpBounds.addArraySizes(classDump, counter.arraySize);
+                }
             }
+        }
 
-            if (classDump != null) {
-                classDump.registerInstance(start);
-                instanceEntry.setIndex(classDump.getInstancesCount());
-                classDumpBounds.addInstanceSize(classDump, tag, start);
+        // second pass - fill idToOffsetMap
+        HeapProgress.progressStart();
+        ParallelScan.scan(chunks, endOffset, (chunk, start, end) -> {
+            Map<ClassDump,InstancesCounter> chunkCounters = counters.get(chunk);
+            long[] offset = new long[] { start };
+
+            while (offset[0] < end) {
+                long instanceOffset = offset[0];
+                int tag = readDumpTag(offset);
+
+                if (tag == INSTANCE_DUMP || tag == OBJECT_ARRAY_DUMP || tag == PRIMITIVE_ARRAY_DUMP) {
+                    long instanceId = dumpBuffer.getID(instanceOffset + 1);
+                    LongMap.Entry instanceEntry = idToOffsetMap.putConcurrently(instanceId, instanceOffset);
+                    ClassDump classDump = getInstanceClassDump(tag, instanceOffset, classIdToClassMap);
+
+                    if (classDump != null) {
+                        instanceEntry.setIndex(++chunkCounters.get(classDump).index);
+                    }
+                }
             }
-            HeapProgress.progress(counter,allInstanceDumpBounds.startOffset,start,allInstanceDumpBounds.endOffset);
+            return null;
+        });
+        HeapProgress.progressFinish();
+    }
+
+    private ClassDump getInstanceClassDump(int tag, long start, Map<Long,JavaClass> classIdToClassMap) {
+        int idSize = dumpBuffer.getIDSize();
+
+        if (tag == INSTANCE_DUMP) {
+            return (ClassDump) classIdToClassMap.get(dumpBuffer.getID(start + 1 + idSize + 4));
+        } else if (tag == OBJECT_ARRAY_DUMP) {
+            return (ClassDump) classIdToClassMap.get(dumpBuffer.getID(start + 1 + idSize + 4 + 4));
+        } else if (tag == PRIMITIVE_ARRAY_DUMP) {
+            return getClassDumpSegment().getPrimitiveArrayClass(dumpBuffer.get(start + 1 + idSize + 4 + 4));
+        }
+        return null;
+    }
+
+    /**
+     * Returns start offsets of chunks of {@link #allInstanceDumpBounds}. Chunks
+     * always start at record boundary, so they can be scanned independently.
+     */
+    long[] getInstanceChunks() {
+        if (instanceChunks == null) {
+            List<Long> boundaries = new ArrayList<>();
+            long[] offset = new long[] { allInstanceDumpBounds.startOffset };
+            long chunkSize = ParallelScan.getChunkSize(allInstanceDumpBounds.endOffset - allInstanceDumpBounds.startOffset);
+            long chunkStart = offset[0];
+
+            while (offset[0] < allInstanceDumpBounds.endOffset) {
+                long start = offset[0];
+                int tag = readDumpTag(offset);
+
+                if (isChunkBoundary(tag, start - chunkStart, chunkSize)) {
+                    boundaries.add(start);
+                    chunkStart = start;
+                }
+            }
+            instanceChunks = createInstanceChunks(boundaries);
         }
-        instancesCountComputed = true;
-        writeToFile();
+        return instanceChunks;
+    }
+
+    private static boolean isChunkBoundary(int tag, long size, long chunkSize) {
+        // prefer heap dump segment boundaries
+        if (tag == HEAP_DUMP_SEGMENT) {
+            return size >= chunkSize / 2;
         }
-        HeapProgress.progressFinish();
+        return size >= chunkSize;
+    }
+
+    private long[] createInstanceChunks(List<Long> boundaries) {
+        List<Long> chunks = new ArrayList<>(boundaries.size() + 1);
+
+        chunks.add(allInstanceDumpBounds.startOffset);
+        for (Long boundary : boundaries) {
+            long start = boundary.longValue();
+
+            if (start > allInstanceDumpBounds.startOffset && start < allInstanceDumpBounds.endOffset) {
+                chunks.add(boundary);
+            }
+        }
+        long[] chunkArr = new long[chunks.size()];
+        for (int i = 0; i < chunkArr.length; i++) {
+            chunkArr[i] = chunks.get(i).longValue();
+        }
+        return chunkArr;
     }
 
     List<Value> findReferencesFor(long instanceId) {
@@ -645,74 +963,92 @@ class HprofHeap implements Heap {
         Map<Long,JavaClass> classIdToClassMap = classDumpBounds.getClassIdToClassMap();
 
         computeInstances();
-        cacheDirectory.setDirty(true);
-        for (long counter=0; offset[0] < allInstanceDumpBounds.endOffset; counter++) {
-            long start = offset[0];
-            int tag = readDumpTag(offset);
-
-            if (tag == INSTANCE_DUMP) {
-                long classId = dumpBuffer.getID(start+1+idSize+4);
-                ClassDump classDump = (ClassDump) classIdToClassMap.get(new Long(classId));
-                if (classDump != null) {
-                    long instanceId = dumpBuffer.getID(start+1);
-                    long inOff = start+1+idSize+4+idSize+4;
-
-                    for (Field f : classDump.getAllInstanceFields()) {
-                        HprofField field = (HprofField)f;
-                        if (field.getValueType() == HprofHeap.OBJECT) {
-                            long outId = dumpBuffer.getID(inOff);
-
-                            if (outId != 0) {
-                                LongMap.Entry entry = idToOffsetMap.get(outId);
-                                if (entry != null) {
-                                    entry.addReference(instanceId);
-                                } else {
-                                    //    System.err.println("instance entry:" + Long.toHexString(outId));
+        startComputation();
+        boolean completed = false;
+        try {
+            cacheDirectory.setDirty(true);
+            if (ParallelScan.isEnabled()) {
+                long[] chunks = getInstanceChunks();
+
+                if (chunks.length > 1) {
+                    try {
+                        new ReferencesBuilder(this, chunks).computeReferences();
+                        offset[0] = allInstanceDumpBounds.endOffset;
+                    } catch (IOException ex) {
+                        throw new IllegalArgumentException(ex.getLocalizedMessage(), ex);
+                    }
+                }
+            }
+            for (long counter=0; offset[0] < allInstanceDumpBounds.endOffset; counter++) {
+                long start = offset[0];
+                int tag = readDumpTag(offset);
+
+                if (tag == INSTANCE_DUMP) {
+                    long classId = dumpBuffer.getID(start+1+idSize+4);
+                    ClassDump classDump = (ClassDump) classIdToClassMap.get(new Long(classId));
+                    if (classDump != null) {
+                        long instanceId = dumpBuffer.getID(start+1);
+                        long inOff = start+1+idSize+4+idSize+4;
+
+                        for (Field f : classDump.getAllInstanceFields()) {
+                            HprofField field = (HprofField)f;
+                            if (field.getValueType() == HprofHeap.OBJECT) {
+                                long outId = dumpBuffer.getID(inOff);
+
+                                if (outId != 0) {
+                                    LongMap.Entry entry = idToOffsetMap.get(outId);
+                                    if (entry != null) {
+                                        entry.addReference(instanceId);
+                                    } else {
+                                        //    System.err.println("instance entry:" + Long.toHexString(outId));
+                                    }
                                 }
                             }
+                            inOff += field.getValueSize();
                         }
-                        inOff += field.getValueSize();
                     }
-                }
-            } else if (tag == OBJECT_ARRAY_DUMP) {
-                long instanceId = dumpBuffer.getID(start+1);
-                int elements = dumpBuffer.getInt(start+1+idSize+4);
-                long position = start+1+idSize+4+4+idSize;
+                } else if (tag == OBJECT_ARRAY_DUMP) {
+                    long instanceId = dumpBuffer.getID(start+1);
+                    int elements = dumpBuffer.getInt(start+1+idSize+4);
+                    long position = start+1+idSize+4+4+idSize;
                 
-                for(int i=0;i<elements;i++,position+=idSize) {
-                    long outId = dumpBuffer.getID(position);
+                    for(int i=0;i<elements;i++,position+=idSize) {
+                        long outId = dumpBuffer.getID(position);
                     
-                    if (outId == 0) continue;
-                    LongMap.Entry entry = idToOffsetMap.get(outId);
-                    if (entry != null) {
-                        entry.addReference(instanceId);
-                    } else {
-                        //    System.err.println("bad array entry:" + Long.toHexString(outId));
+                        if (outId == 0) continue;
+                        LongMap.Entry entry = idToOffsetMap.get(outId);
+                        if (entry != null) {
+                            entry.addReference(instanceId);
+                        } else {
+                            //    System.err.println("bad array entry:" + Long.toHexString(outId));
+                        }
                     }
                 }
+                HeapProgress.progress(counter,allInstanceDumpBounds.startOffset,start,allInstanceDumpBounds.endOffset);
             }
-            HeapProgress.progress(counter,allInstanceDumpBounds.startOffset,start,allInstanceDumpBounds.endOffset);
-        }
         
-        for (JavaClass cls : getClassDumpSegment().createClassCollection()) {
-            for (FieldValue field : cls.getStaticFieldValues()) {
-                if (field instanceof HprofFieldObjectValue) {
-                    long outId = ((HprofFieldObjectValue)field).getInstanceID();
-
-                    if (outId != 0) {
-                        LongMap.Entry entry = idToOffsetMap.get(outId);
-                        if (entry == null) {
-                            //    System.err.println("instance entry:" + Long.toHexString(outId));
-                            continue;
+            for (JavaClass cls : getClassDumpSegment().createClassCollection()) {
+                for (FieldValue field : cls.getStaticFieldValues()) {
+                    if (field instanceof HprofFieldObjectValue) {
+                        long outId = ((HprofFieldObjectValue)field).getInstanceID();
+
+                        if (outId != 0) {
+                            LongMap.Entry entry = idToOffsetMap.get(outId);
+                            if (entry == null) {
+                                //    System.err.println("instance entry:" + Long.toHexString(outId));
+                                continue;
+                            }
+                            entry.addReference(cls.getJavaClassId());
                         }
-                        entry.addReference(cls.getJavaClassId());
                     }
                 }
             }
+            idToOffsetMap.flush();
+            referencesComputed = true;
+            completed = true;
+        } finally {
+            finishComputation(referencesLock, completed);
         }
-        idToOffsetMap.flush();
-        referencesComputed = true;
-        writeToFile();
         }
         HeapProgress.progressFinish();        
     }
@@ -723,104 +1059,116 @@ class HprofHeap implements Heap {
             return;
         }
         HeapProgress.progressStart();
-        LongBuffer leaves = nearestGCRoot.getLeaves();
-        cacheDirectory.setDirty(true);
-        new TreeObject(this,leaves).computeTrees();
-        domTree = new DominatorTree(this,nearestGCRoot.getMultipleParents());
-        domTree.computeDominators();
-
-        // deep path first
+        startComputation();
+        boolean completed = false;
         try {
-            LongBuffer deepPathBuffer = nearestGCRoot.getDeepPathBuffer();
-            LongBuffer deepPath = deepPathBuffer.revertBuffer();
-
-            deepPathBuffer.reset();
-            deepPathBuffer.delete();
-            if (deepPath.hasData()) {
-                for (long deepObjId = deepPath.readLong(); deepObjId != 0; deepObjId = deepPath.readLong()) {
-                    LongMap.Entry deepObjEntry = idToOffsetMap.get(deepObjId);
-                    assert deepObjEntry.isDeepObj();
-                    long idomId = domTree.getIdomId(deepObjId, deepObjEntry);
-                    LongMap.Entry idomEntry = idToOffsetMap.get(idomId);
-
-                    if (!deepObjEntry.isTreeObj()) {
-                        Instance deepInstance = getInstanceByID(deepObjId);
-                        long size = deepInstance.getSize();
-                        long origSize = deepObjEntry.getRetainedSize();
-
-                        if (origSize < 0) origSize = 0;
-                        deepObjEntry.setRetainedSize(origSize + size);
-                    }
-                    if (idomEntry.isDeepObj() && !idomEntry.isTreeObj()) {
-                        long origSize = idomEntry.getRetainedSize();
-                        if (origSize < 0) origSize = 0;
-                        idomEntry.setRetainedSize(origSize + deepObjEntry.getRetainedSize());
+            if (domTree == null) {
+                LongBuffer leaves = nearestGCRoot.getLeaves();
+                cacheDirectory.setDirty(true);
+                new TreeObject(this,leaves).computeTrees();
+                domTree = new DominatorTree(this,nearestGCRoot.getMultipleParents());
+                domTree.computeDominators();
+                // commit dominators, retained sizes can be resumed from here
+                commitComputation();
+            }
+            cacheDirectory.setDirty(true);
+
+            // deep path first
+            try {
+                LongBuffer deepPathBuffer = nearestGCRoot.getDeepPathBuffer();
+                LongBuffer deepPath = deepPathBuffer.revertBuffer();
+
+                deepPathBuffer.reset();
+                deepPathBuffer.delete();
+                if (deepPath.hasData()) {
+                    for (long deepObjId = deepPath.readLong(); deepObjId != 0; deepObjId = deepPath.readLong()) {
+                        LongMap.Entry deepObjEntry = idToOffsetMap.get(deepObjId);
+                        assert deepObjEntry.isDeepObj();
+                        long idomId = domTree.getIdomId(deepObjId, deepObjEntry);
+                        LongMap.Entry idomEntry = idToOffsetMap.get(idomId);
+
+                        if (!deepObjEntry.isTreeObj()) {
+                            Instance deepInstance = getInstanceByID(deepObjId);
+                            long size = deepInstance.getSize();
+                            long origSize = deepObjEntry.getRetainedSize();
+
+                            if (origSize < 0) origSize = 0;
+                            deepObjEntry.setRetainedSize(origSize + size);
+                        }
+                        if (idomEntry.isDeepObj() && !idomEntry.isTreeObj()) {
+                            long origSize = idomEntry.getRetainedSize();
+                            if (origSize < 0) origSize = 0;
+                            idomEntry.setRetainedSize(origSize + deepObjEntry.getRetainedSize());
+                        }
                     }
                 }
+                deepPath.delete();
+            } catch (IOException ex) {
+                throw new IllegalArgumentException(ex.getLocalizedMessage(), ex);
             }
-            deepPath.delete();
-        } catch (IOException ex) {
-            throw new IllegalArgumentException(ex.getLocalizedMessage(), ex);
-        }
 
-        long[] offset = new long[] { allInstanceDumpBounds.startOffset };
+            long[] offset = new long[] { allInstanceDumpBounds.startOffset };
 
-        for (long counter=0; offset[0] < allInstanceDumpBounds.endOffset; counter++) {
-            int instanceIdOffset = 0;
-            long start = offset[0];
-            int tag = readDumpTag(offset);
+            for (long counter=0; offset[0] < allInstanceDumpBounds.endOffset; counter++) {
+                int instanceIdOffset = 0;
+                long start = offset[0];
+                int tag = readDumpTag(offset);
 
-            if (tag == INSTANCE_DUMP) {
-                instanceIdOffset = 1;
-            } else if (tag == OBJECT_ARRAY_DUMP) {
-                instanceIdOffset = 1;
-            } else if (tag == PRIMITIVE_ARRAY_DUMP) {
-                instanceIdOffset = 1;
-            } else {
-                continue;
-            }
-            long instanceId = dumpBuffer.getID(start + instanceIdOffset);
-            LongMap.Entry instanceEntry = idToOffsetMap.get(instanceId);
-            long idom = domTree.getIdomId(instanceId,instanceEntry);
-            boolean isTreeObj = instanceEntry.isTreeObj();
-            boolean deepObj = instanceEntry.isDeepObj();
-            long instSize = 0;
-            
-            if (!deepObj && !isTreeObj && (instanceEntry.getNearestGCRootPointer() != 0 || gcRoots.getGCRoots(new Long(instanceId)) != null)) {
-                long origSize = instanceEntry.getRetainedSize();
-                if (origSize < 0) origSize = 0;
-                Instance instance = getInstanceByOffset(new long[] {start});
-                instSize = instance != null ? instance.getSize() : getClassDumpSegment().sizeSettings.getMinimumInstanceSize();
-                instanceEntry.setRetainedSize(origSize + instSize);
-            }
-            if (idom != 0) {
-                long size;
-                LongMap.Entry entry = idToOffsetMap.get(idom);
-                
-                if (entry.isDeepObj()) {
-                    continue;
-                } else if (isTreeObj) {
-                    size = instanceEntry.getRetainedSize();
-                } else if (deepObj) {
-                    size = instanceEntry.getRetainedSize();
+                if (tag == INSTANCE_DUMP) {
+                    instanceIdOffset = 1;
+                } else if (tag == OBJECT_ARRAY_DUMP) {
+                    instanceIdOffset = 1;
+                } else if (tag == PRIMITIVE_ARRAY_DUMP) {
+                    instanceIdOffset = 1;
                 } else {
-                    assert instSize != 0;
-                    size = instSize;
+                    continue;
                 }
-                for (;idom!=0;idom=domTree.getIdomId(idom,entry)) {
-                    entry = idToOffsetMap.get(idom);
-                    if (entry.isTreeObj()) {
-                        break;
+                long instanceId = dumpBuffer.getID(start + instanceIdOffset);
+                LongMap.Entry instanceEntry = idToOffsetMap.get(instanceId);
+                long idom = domTree.getIdomId(instanceId,instanceEntry);
+                boolean isTreeObj = instanceEntry.isTreeObj();
+                boolean deepObj = instanceEntry.isDeepObj();
+                long instSize = 0;
+            
+                if (!deepObj && !isTreeObj && (instanceEntry.getNearestGCRootPointer() != 0 || gcRoots.getGCRoots(new Long(instanceId)) != null)) {
+                    long origSize = instanceEntry.getRetainedSize();
+                    if (origSize < 0) origSize = 0;
+                    Instance instance = getInstanceByOffset(new long[] {start});
+                    instSize = instance != null ? instance.getSize() : getClassDumpSegment().sizeSettings.getMinimumInstanceSize();
+                    instanceEntry.setRetainedSize(origSize + instSize);
+                }
+                if (idom != 0) {
+                    long size;
+                    LongMap.Entry entry = idToOffsetMap.get(idom);
+                
+                    if (entry.isDeepObj()) {
+                        continue;
+                    } else if (isTreeObj) {
+                        size = instanceEntry.getRetainedSize();
+                    } else if (deepObj) {
+                        size = instanceEntry.getRetainedSize();
+                    } else {
+                        assert instSize != 0;
+                        size = instSize;
+                    }
+                    for (;idom!=0;idom=domTree.getIdomId(idom,entry)) {
+                        entry = idToOffsetMap.get(idom);
+                        if (entry.isTreeObj()) {
+                            break;
+                        }
+                        long retainedSize = entry.getRetainedSize();
+                        if (retainedSize < 0) retainedSize = 0;
+                        entry.setRetainedSize(retainedSize+size);
                     }
-                    long retainedSize = entry.getRetainedSize();
-                    if (retainedSize < 0) retainedSize = 0;
-                    entry.setRetainedSize(retainedSize+size);
                 }
+                HeapProgress.progress(counter,allInstanceDumpBounds.startOffset,start,allInstanceDumpBounds.endOffset);
             }
-            HeapProgress.progress(counter,allInstanceDumpBounds.startOffset,start,allInstanceDumpBounds.endOffset);
+            biggestObjects = idToOffsetMap.getBiggestObjectsByRetainedSize(BIGGEST_OBJECTS_INDEX_SIZE);
+            retainedSizeComputed = true;
+            completed = true;
+        } finally {
+            finishComputation(retainedSizeLock, completed);
         }
-        retainedSizeComputed = true;
-        writeToFile();
         }
         HeapProgress.progressFinish();
     }
@@ -831,33 +1179,89 @@ class HprofHeap implements Heap {
             return;
         }
         computeRetainedSize();
-        cacheDirectory.setDirty(true);
-        HeapProgress.progressStart();
-        long[] offset = new long[] { allInstanceDumpBounds.startOffset };
+        startComputation();
+        boolean completed = false;
+        try {
+            cacheDirectory.setDirty(true);
+            HeapProgress.progressStart();
+            long[] offset = new long[] { allInstanceDumpBounds.startOffset };
 
-        for (long counter=0; offset[0] < allInstanceDumpBounds.endOffset; counter++) {
-            long start = offset[0];
-            int tag = readDumpTag(offset);
+            if (ParallelScan.isEnabled()) {
+                long[] chunks = getInstanceChunks();
 
-            if (tag == INSTANCE_DUMP || tag == OBJECT_ARRAY_DUMP || tag == PRIMITIVE_ARRAY_DUMP) {
-                Instance i = getInstanceByOffset(new long[] {start});
-                if (i != null) {
-                    ClassDump javaClass = (ClassDump) i.getJavaClass();
-                    if (javaClass != null && !domTree.hasInstanceInChain(tag, i)) {
-                        javaClass.addSizeForInstance(i);
+                if (chunks.length > 1) {
+                    computeRetainedSizeByClassParallel(chunks);
+                    offset[0] = allInstanceDumpBounds.endOffset;
+                }
+            }
+            for (long counter=0; offset[0] < allInstanceDumpBounds.endOffset; counter++) {
+                long start = offset[0];
+                int tag = readDumpTag(offset);
+
+                if (tag == INSTANCE_DUMP || tag == OBJECT_ARRAY_DUMP || tag == PRIMITIVE_ARRAY_DUMP) {
+                    Instance i = getInstanceByOffset(new long[] {start});
+                    if (i != null) {
+                        ClassDump javaClass = (ClassDump) i.getJavaClass();
+                        if (javaClass != null && !domTree.hasInstanceInChain(tag, i)) {
+                            javaClass.addSizeForInstance(i);
+                        }
                     }
                 }
+                HeapProgress.progress(counter,allInstanceDumpBounds.startOffset,start,allInstanceDumpBounds.endOffset);
             }
-            HeapProgress.progress(counter,allInstanceDumpBounds.startOffset,start,allInstanceDumpBounds.endOffset);
+            // all done, release domTree
+            domTree = null;
+            retainedSizeByClassComputed = true;
+            completed = true;
+        } finally {
+            finishComputation(retainedSizeByClassLock, completed);
         }
-        // all done, release domTree
-        domTree = null;
-        retainedSizeByClassComputed = true;
-        writeToFile();
         }
         HeapProgress.progressFinish();
     }
 
+    private void computeRetainedSizeByClassParallel(long[] chunks) {
+        final List<JavaClass> classes = getClassDumpSegment().createClassCollection();
+        final Map<JavaClass,Integer> ordinals = new HashMap<>(classes.size()*4/3);
+
+        for (int i = 0; i < classes.size(); i++) {
+            ordinals.put(classes.get(i), Integer.valueOf(i));
+        }
+        // every chunk sums retained sizes into its own array indexed by class ordinal
+        List<long[]> chunkSizes = ParallelScan.scan(chunks, allInstanceDumpBounds.endOffset, (chunk, start, end) -> {
+            long[] sizes = new long[classes.size()];
+            long[] offset = new long[] { start };
+
+            while (offset[0] < end) {
+                long instanceOffset = offset[0];
+                int tag = readDumpTag(offset);
+
+                if (tag == INSTANCE_DUMP || tag == OBJECT_ARRAY_DUMP || tag == PRIMITIVE_ARRAY_DUMP) {
+                    Instance i = getInstanceByOffset(new long[] {instanceOffset});
+                    if (i != null) {
+                        Integer ordinal = ordinals.get(i.getJavaClass());
+                        if (ordinal != null && !domTree.hasInstanceInChain(tag, i, true)) {
+                            sizes[ordinal.intValue()] += idToOffsetMap.get(i.getInstanceId()).getRetainedSize();
+                        }
+                    }
+                }
+            }
+            return sizes;
+        });
+        long[] totalSizes = new long[classes.size()];
+
+        for (long[] sizes : chunkSizes) {
+            for (int i = 0; i < sizes.length; i++) {
+                totalSizes[i] += sizes[i];
+            }
+        }
+        for (int i = 0; i < totalSizes.length; i++) {
+            if (totalSizes[i] != 0) {
+                ((ClassDump) classes.get(i)).addRetainedSizeByClass(totalSizes[i]);
+            }
+        }
+    }
+
     Instance getNearestGCRootPointer(Instance instance) {
         return nearestGCRoot.getNearestGCRootPointer(instance);
     }
@@ -1352,6 +1756,9 @@ class HprofHeap implements Heap {
         heapTagBounds = new TagBounds[0x100];
 
         long[] offset = new long[] { heapDumpSegment.startOffset + 1 + 4 + 4 };
+        List<Long> chunkBoundaries = new ArrayList<>();
+        long chunkSize = ParallelScan.getChunkSize(heapDumpSegment.endOffset - heapDumpSegment.startOffset);
+        long chunkStart = offset[0];
         
         for (long counter=0; offset[0] < heapDumpSegment.endOffset; counter++) {
             long start = offset[0];
@@ -1359,6 +1766,11 @@ class HprofHeap implements Heap {
             TagBounds bounds = heapTagBounds[tag];
             long end = offset[0];
 
+            if (isChunkBoundary(tag, start - chunkStart, chunkSize)) {
+                chunkBoundaries.add(start);
+                chunkStart = start;
+            }
+
             if (bounds == null) {
                 TagBounds newBounds;
 
@@ -1387,6 +1799,7 @@ class HprofHeap implements Heap {
         }
         allInstanceDumpBounds = instanceDumpBounds.union(objArrayDumpBounds);
         allInstanceDumpBounds = allInstanceDumpBounds.union(primArrayDumpBounds);
+        instanceChunks = createInstanceChunks(chunkBoundaries);
         HeapProgress.progressFinish();
     }
 
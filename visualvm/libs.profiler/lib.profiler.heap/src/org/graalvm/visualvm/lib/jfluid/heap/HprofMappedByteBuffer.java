@@ -28,6 +28,7 @@ package org.graalvm.visualvm.lib.jfluid.heap;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 
@@ -83,8 +84,10 @@ class HprofMappedByteBuffer extends HprofByteBuffer {
         return dumpBuffer.get((int) index);
     }
 
-    synchronized void get(long position, byte[] chars) {
-        dumpBuffer.position((int) position);
-        dumpBuffer.get(chars);
+    void get(long position, byte[] chars) {
+        // duplicate has its own position, so concurrent reads do not need to lock
+        ByteBuffer buffer = dumpBuffer.duplicate();
+        buffer.position((int) position);
+        buffer.get(chars);
     }
 }
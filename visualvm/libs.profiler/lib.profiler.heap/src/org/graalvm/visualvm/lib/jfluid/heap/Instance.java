@@ -86,6 +86,12 @@ public interface Instance {
      */
     Instance getNearestGCRootPointer();
 
+    /**
+     * returns the size of this instance and all instances reachable from it.
+     * <br>
+     * Speed: slow
+     * @return reachable size of this instance
+     */
     long getReachableSize();
 
     /**
@@ -48,7 +48,7 @@ class InstanceDump extends HprofObject implements Instance {
     //~ Methods ------------------------------------------------------------------------------------------------------------------
 
     public List<FieldValue> getFieldValues() {
-        long offset = fileOffset + getInstanceFieldValuesOffset();
+        long offset = fileOffset + getInstanceFieldValuesOffset(dumpClass.getHprofBuffer().getIDSize());
         List<Field> fields = dumpClass.getAllInstanceFields();
         List<FieldValue> values = new ArrayList<>(fields.size());
 
@@ -88,7 +88,7 @@ class InstanceDump extends HprofObject implements Instance {
     }
 
     public long getReachableSize() {
-        return 0;
+        return getHprof().getReachableSize(this);
     }
 
     public List<Value> getReferences() {
@@ -108,46 +108,16 @@ class InstanceDump extends HprofObject implements Instance {
     }
 
     public Object getValueOfField(String name) {
-        List<FieldValue> fieldValues = getFieldValues();
-        
-        for (int i = fieldValues.size() - 1; i >= 0; i--) {
-            FieldValue fieldValue = fieldValues.get(i);
-            if (fieldValue.getField().getName().equals(name)) {
-                if (fieldValue instanceof HprofInstanceObjectValue) {
-                    return ((HprofInstanceObjectValue) fieldValue).getInstance();
-                } else {
-                    return ((HprofInstanceValue) fieldValue).getTypeValue();
-                }
-            }
+        HprofFieldAccessor accessor = dumpClass.getFieldAccessors().get(name);
+
+        if (accessor == null) {
+            return null;
         }
-        
-        return null;
-        
-//        Iterator fIt = getFieldValues().iterator();
-//        FieldValue matchingFieldValue = null;
-//
-//        while (fIt.hasNext()) {
-//            FieldValue fieldValue = (FieldValue) fIt.next();
-//
-//            if (fieldValue.getField().getName().equals(name)) {
-//                matchingFieldValue = fieldValue;
-//            }
-//        }
-//
-//        if (matchingFieldValue == null) {
-//            return null;
-//        }
-//
-//        if (matchingFieldValue instanceof HprofInstanceObjectValue) {
-//            return ((HprofInstanceObjectValue) matchingFieldValue).getInstance();
-//        } else {
-//            return ((HprofInstanceValue) matchingFieldValue).getTypeValue();
-//        }
+        return accessor.getValue(this);
     }
 
-    private int getInstanceFieldValuesOffset() {
-        int idSize = dumpClass.getHprofBuffer().getIDSize();
-
+    // offset of the first field value relative to the start of INSTANCE_DUMP record
+    static int getInstanceFieldValuesOffset(int idSize) {
         return 1 + idSize + 4 + idSize + 4;
     }
     
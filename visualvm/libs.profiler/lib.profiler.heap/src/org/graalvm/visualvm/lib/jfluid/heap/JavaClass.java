@@ -103,6 +103,21 @@ public interface JavaClass {
      */
     List<Field> getFields();
 
+    /**
+     * returns {@link FieldAccessor} for the specified instance field of this class or its super classes.
+     * The field is resolved the same way as in {@link Instance#getValueOfField(String)}.
+     * The accessor reads the field of instances of this class without computing other field values.
+     * <br>
+     * Speed: fast
+     * @param name the name of the field
+     * @return {@link FieldAccessor} for the field or <CODE>null</CODE> if the field is not found
+     */
+    default FieldAccessor getFieldAccessor(String name) {
+        Field field = FieldLookupAccessor.findField(this, name);
+
+        return field == null ? null : new FieldLookupAccessor(field);
+    }
+
     /**
      * returns the size of the {@link Instance} in bytes if this JavaClass does
      * not represent array. For arrays -1 is returned
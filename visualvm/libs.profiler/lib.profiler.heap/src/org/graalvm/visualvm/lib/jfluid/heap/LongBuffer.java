@@ -25,35 +25,44 @@
 
 package org.graalvm.visualvm.lib.jfluid.heap;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
-import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
 
 
 /**
  * LongBuffer is a special kind of buffer for storing longs. It uses array of longs if there is only few longs
- * stored, otherwise longs are saved to backing temporary file.
+ * stored, otherwise longs are saved to backing temporary file. The backing file is written and read in blocks
+ * of the array size through {@link FileChannel}. Each block is stored either as plain longs or, if it is
+ * smaller, as variable length deltas, which is very efficient for sorted or clustered ids.
+ * Reverted buffer shares the backing file with the original buffer and reads its blocks backwards.
  * @author Tomas Hurka
  */
 class LongBuffer {
+    //~ Static fields/initializers -----------------------------------------------------------------------------------------------
+
+    // block header: number of longs, size of data, encoding
+    private static final int BLOCK_HEADER_SIZE = 4 + 4 + 1;
+    private static final byte PLAIN_ENCODING = 0;
+    private static final byte DELTA_ENCODING = 1;
+
     //~ Instance fields ----------------------------------------------------------------------------------------------------------
 
-    private DataInputStream readStream;
-    private boolean readStreamClosed;
-    private DataOutputStream writeStream;
-    private File backingFile;
     private long[] buffer;
     private boolean useBackingFile;
     private int bufferSize;
     private int readOffset;
     private int longs;
+    private BackingFile backingFile;
+    private int blocks;
+    private boolean reverted;
+    private boolean reading;
+    private int readBlock;
     private CacheDirectory cacheDirectory;
 
     //~ Constructors -------------------------------------------------------------------------------------------------------------
@@ -63,15 +72,24 @@ class LongBuffer {
         cacheDirectory = cacheDir;
     }
 
+    private LongBuffer(LongBuffer original) {
+        buffer = new long[original.buffer.length];
+        cacheDirectory = original.cacheDirectory;
+        longs = original.longs;
+        useBackingFile = true;
+        backingFile = original.backingFile.share();
+        blocks = original.blocks;
+        reverted = !original.reverted;
+    }
+
     //~ Methods ------------------------------------------------------------------------------------------------------------------
 
     void delete() {
         if (backingFile != null) {
-            assert writeStream == null;
-            assert readStreamClosed || readStream == null;
-            backingFile.delete();
-            useBackingFile = false;
+            backingFile.release(cacheDirectory);
             backingFile = null;
+            useBackingFile = false;
+            blocks = 0;
             longs = 0;
         }
     }
@@ -81,47 +99,44 @@ class LongBuffer {
     }
 
     long readLong() throws IOException {
-        if (!useBackingFile) {
-            if (readOffset < bufferSize) {
-                return buffer[readOffset++];
-            } else {
-                return 0;
-            }
+        if (readOffset < bufferSize) {
+            return buffer[readOffset++];
         }
-        if (readStreamClosed) {
+        if (!useBackingFile || readBlock >= blocks) {
             return 0;
         }
-        try {
-            return readStream.readLong();
-        } catch (EOFException ex) {
-            readStreamClosed = true;
-            readStream.close();
-            return 0L;
+        int block = reverted ? blocks - 1 - readBlock : readBlock;
+
+        readBlock++;
+        bufferSize = backingFile.readBlock(block, buffer);
+        readOffset = 0;
+        if (reverted) {
+            reverse(buffer, bufferSize);
         }
+        return readLong();
     }
 
     void reset() throws IOException {
-        bufferSize = 0;
-        if (writeStream != null) {
-            writeStream.close();
+        if (backingFile != null && (backingFile.isShared() || cacheDirectory.isCommitted(backingFile.file))) {
+            // reverted buffer still reads the backing file or the file is part of cache snapshot
+            delete();
         }
-        if (readStream != null) {
-            readStream.close();
+        if (backingFile != null) {
+            backingFile.truncate();
         }
-        writeStream = null;
-        readStream = null;
-        readStreamClosed = false;
+        bufferSize = 0;
         longs = 0;
         useBackingFile = false;
+        blocks = 0;
+        reverted = false;
+        reading = false;
         readOffset = 0;
+        readBlock = 0;
     }
 
     void startReading() throws IOException {
-        if (writeStream != null) {
-            writeStream.close();
-        }
-
-        writeStream = null;
+        flush();
+        reading = true;
         rewind();
     }
 
@@ -129,78 +144,88 @@ class LongBuffer {
         readOffset = 0;
 
         if (useBackingFile) {
-            try {
-                if (readStream != null) {
-                    readStream.close();
-                }
-                readStream = new DataInputStream(new BufferedInputStream(new FileInputStream(backingFile), buffer.length * Long.BYTES));
-                readStreamClosed = false;
-            } catch (IOException ex) {
-                ex.printStackTrace();
-            }
+            // force reading of the first block
+            bufferSize = 0;
+            readBlock = 0;
         }
     }
 
     void writeLong(long data) throws IOException {
+        assert !reverted;
+        assert !(reading && useBackingFile);
         longs++;
-        if (bufferSize < buffer.length) {
-            buffer[bufferSize++] = data;
-            return;
-        }
-
-        if (backingFile == null) {
-            backingFile = cacheDirectory.createTempFile("NBProfiler", ".gc"); // NOI18N
-        }
-
-        if (writeStream == null) {
-            writeStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(backingFile), buffer.length * Long.BYTES));
-
-            for (long l : buffer) {
-                writeStream.writeLong(l);
+        if (bufferSize == buffer.length) {
+            if (backingFile == null) {
+                backingFile = new BackingFile(cacheDirectory.createTempFile("NBProfiler", ".gc"), buffer.length); // NOI18N
             }
-
             useBackingFile = true;
+            writeBlock();
         }
-
-        writeStream.writeLong(data);
+        buffer[bufferSize++] = data;
     }
-    
+
+    /**
+     * Returns buffer, which reads longs of this buffer in reverse order.
+     * If the longs are stored in the backing file, the returned buffer shares
+     * it with this buffer; the file is deleted when both buffers are deleted.
+     */
     LongBuffer revertBuffer() throws IOException {
-        LongBuffer reverted = new LongBuffer(buffer.length, cacheDirectory);
-        
-        if (bufferSize < buffer.length) {
+        LongBuffer revertedBuffer;
+
+        if (!useBackingFile) {
+            revertedBuffer = new LongBuffer(buffer.length, cacheDirectory);
             for (int i=0;i<bufferSize;i++) {
-                reverted.writeLong(buffer[bufferSize - 1 - i]);
+                revertedBuffer.writeLong(buffer[bufferSize - 1 - i]);
             }
         } else {
-            if (writeStream != null) writeStream.flush();
-            try (RandomAccessFile raf = new RandomAccessFile(backingFile,"r")) {
-                long offset = raf.length();
-                while(offset > 0) {
-                    offset-=8;
-                    raf.seek(offset);
-                    reverted.writeLong(raf.readLong());
-                }
-            }
+            flush();
+            revertedBuffer = new LongBuffer(this);
         }
-        reverted.startReading();
-        return reverted;
+        revertedBuffer.startReading();
+        return revertedBuffer;
     }
-    
+
     int getSize() {
         return longs;
     }
-    
+
+    private void flush() throws IOException {
+        // buffer holds the last block, which is not written yet
+        if (useBackingFile && !reading && bufferSize > 0) {
+            writeBlock();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        blocks = backingFile.writeBlock(buffer, bufferSize);
+        bufferSize = 0;
+        readOffset = 0;
+    }
+
+    private static void reverse(long[] values, int size) {
+        for (int i = 0, j = size - 1; i < j; i++, j--) {
+            long tmp = values[i];
+            values[i] = values[j];
+            values[j] = tmp;
+        }
+    }
+
     // serialization support
     void writeToStream(DataOutputStream out) throws IOException {
-        out.writeInt(bufferSize);
-        out.writeInt(readOffset);
+        flush();
+        out.writeInt(useBackingFile ? 0 : bufferSize);
+        out.writeInt(useBackingFile ? 0 : readOffset);
         out.writeInt(longs);
         out.writeInt(buffer.length);
         out.writeBoolean(useBackingFile);
         if (useBackingFile) {
-            if (writeStream != null) writeStream.flush();
-            out.writeUTF(backingFile.getAbsolutePath());
+            CacheDirectory.writeFile(out, backingFile.file);
+            out.writeBoolean(reverted);
+            out.writeInt(blocks);
+            for (int i=0; i<blocks; i++) {
+                out.writeLong(backingFile.blockOffsets[i]);
+            }
+            out.writeLong(backingFile.size);
         } else {
             for (int i=0; i<bufferSize; i++) {
                 out.writeLong(buffer[i]);
@@ -215,12 +240,191 @@ class LongBuffer {
         buffer = new long[dis.readInt()];
         useBackingFile = dis.readBoolean();
         if (useBackingFile) {
-            backingFile = cacheDir.getCacheFile(dis.readUTF());
+            File file = cacheDir.getCacheFile(dis.readUTF());
+            long[] offsets;
+
+            reverted = dis.readBoolean();
+            blocks = dis.readInt();
+            offsets = new long[blocks];
+            for (int i=0; i<blocks; i++) {
+                offsets[i] = dis.readLong();
+            }
+            backingFile = new BackingFile(file, buffer.length, offsets, blocks, dis.readLong());
         } else {
             for (int i=0; i<bufferSize; i++) {
                 buffer[i] = dis.readLong();
             }
         }
         cacheDirectory = cacheDir;
-    } 
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Backing file of blocks, which can be shared by the buffer and its reverted buffer.
+     */
+    private static class BackingFile {
+        private final File file;
+        private final FileChannel channel;
+        private final ByteBuffer blockBuffer;
+        private long[] blockOffsets;
+        private int blockCount;
+        private long size;
+        private int references;
+
+        private BackingFile(File f, int blockLongs) throws IOException {
+            this(f, blockLongs, new long[16], 0, 0);
+        }
+
+        private BackingFile(File f, int blockLongs, long[] offsets, int count, long fileSize) throws IOException {
+            file = f;
+            channel = new RandomAccessFile(f, "rw").getChannel(); // NOI18N
+            blockBuffer = ByteBuffer.allocate(BLOCK_HEADER_SIZE + blockLongs * Long.BYTES);
+            blockOffsets = offsets;
+            blockCount = count;
+            size = fileSize;
+            references = 1;
+        }
+
+        private synchronized BackingFile share() {
+            references++;
+            return this;
+        }
+
+        private synchronized boolean isShared() {
+            return references > 1;
+        }
+
+        private synchronized void release(CacheDirectory cacheDir) {
+            if (--references == 0) {
+                try {
+                    channel.close();
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                }
+                cacheDir.deleteFile(file);
+            }
+        }
+
+        private synchronized void truncate() throws IOException {
+            assert references == 1;
+            blockCount = 0;
+            size = 0;
+            channel.truncate(0);
+        }
+
+        private synchronized int writeBlock(long[] values, int count) throws IOException {
+            blockBuffer.clear();
+            blockBuffer.position(BLOCK_HEADER_SIZE);
+            if (getDeltaSize(values, count) < count * Long.BYTES) {
+                writeDeltas(values, count);
+                blockBuffer.put(8, DELTA_ENCODING);
+            } else {
+                for (int i = 0; i < count; i++) {
+                    blockBuffer.putLong(values[i]);
+                }
+                blockBuffer.put(8, PLAIN_ENCODING);
+            }
+            blockBuffer.putInt(0, count);
+            blockBuffer.putInt(4, blockBuffer.position() - BLOCK_HEADER_SIZE);
+            blockBuffer.flip();
+            if (blockCount == blockOffsets.length) {
+                blockOffsets = Arrays.copyOf(blockOffsets, blockCount * 2);
+            }
+            blockOffsets[blockCount++] = size;
+            while (blockBuffer.hasRemaining()) {
+                size += channel.write(blockBuffer, size);
+            }
+            return blockCount;
+        }
+
+        private synchronized int readBlock(int block, long[] values) throws IOException {
+            long offset = blockOffsets[block];
+            int count;
+            int length;
+
+            blockBuffer.clear();
+            blockBuffer.limit(BLOCK_HEADER_SIZE);
+            read(offset);
+            count = blockBuffer.getInt(0);
+            length = blockBuffer.getInt(4);
+            blockBuffer.limit(BLOCK_HEADER_SIZE + length);
+            read(offset);
+            blockBuffer.position(BLOCK_HEADER_SIZE);
+            if (blockBuffer.get(8) == DELTA_ENCODING) {
+                readDeltas(values, count);
+            } else {
+                for (int i = 0; i < count; i++) {
+                    values[i] = blockBuffer.getLong();
+                }
+            }
+            return count;
+        }
+
+        private void read(long offset) throws IOException {
+            while (blockBuffer.hasRemaining()) {
+                if (channel.read(blockBuffer, offset + blockBuffer.position()) == -1) {
+                    throw new IOException("Unexpected end of file "+file);  // NOI18N
+                }
+            }
+        }
+
+        // deltas are zigzag encoded, so that decreasing ids are short too
+        private static int getDeltaSize(long[] values, int count) {
+            long previous = 0;
+            int deltaSize = 0;
+
+            for (int i = 0; i < count; i++) {
+                long delta = values[i] - previous;
+
+                deltaSize += getVarLongSize((delta << 1) ^ (delta >> 63));
+                previous = values[i];
+            }
+            return deltaSize;
+        }
+
+        private static int getVarLongSize(long value) {
+            int bytes = 1;
+
+            while ((value & ~0x7FL) != 0) {
+                value >>>= 7;
+                bytes++;
+            }
+            return bytes;
+        }
+
+        private void writeDeltas(long[] values, int count) {
+            long previous = 0;
+
+            for (int i = 0; i < count; i++) {
+                long delta = values[i] - previous;
+                long value = (delta << 1) ^ (delta >> 63);
+
+                while ((value & ~0x7FL) != 0) {
+                    blockBuffer.put((byte) ((value & 0x7F) | 0x80));
+                    value >>>= 7;
+                }
+                blockBuffer.put((byte) value);
+                previous = values[i];
+            }
+        }
+
+        private void readDeltas(long[] values, int count) {
+            long previous = 0;
+
+            for (int i = 0; i < count; i++) {
+                long value = 0;
+                int shift = 0;
+                byte b;
+
+                do {
+                    b = blockBuffer.get();
+                    value |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                previous += (value >>> 1) ^ -(value & 1);
+                values[i] = previous;
+            }
+        }
+    }
 }
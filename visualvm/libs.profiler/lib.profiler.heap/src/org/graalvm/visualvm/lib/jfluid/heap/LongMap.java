@@ -29,8 +29,7 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.List;
 
 /**
  * key - ID (long/int) of heap object
@@ -41,7 +40,8 @@ import java.util.TreeSet;
  *                            - bit 1 set - has GC root
  *                            - bit 2 set - tree object
  *                            - bit 3 set - deep object
- *  - ID/offset (long/int) - ID if reference flag bit 0 is set, otherwise offset to reference list file
+ *  - ID/offset (long/int) - ID if reference flag bit 0 is set, otherwise offset to reference list file;
+ *                           once references are computed, the offset points to contiguous run of references
  *  - retained size (long/int)
  *
  * @author Tomas Hurka
@@ -157,6 +157,13 @@ class LongMap extends AbstractLongMap {
             }
         }
         
+        void setReferences(long ref, boolean numberList) {
+            if (numberList) {
+                setFlags((byte)(getFlags() | NUMBER_LIST));
+            }
+            setReferencesPointer(ref);
+        }
+
         LongIterator getReferences() {
             byte flags = getFlags();
             long ref = getReferencesPointer();
@@ -180,6 +187,11 @@ class LongMap extends AbstractLongMap {
             return getFoffset(offset, KEY_SIZE);
         }
 
+        // position of the entry in the map, unique for each key
+        long getSlot() {
+            return offset / ENTRY_SIZE;
+        }
+
         void setRetainedSize(long size) {
             if (FOFFSET_SIZE == 4) {
                 dumpBuffer.putInt(offset, KEY_SIZE + FOFFSET_SIZE + 4 + 1 + ID_SIZE, (int)size);
@@ -212,42 +224,101 @@ class LongMap extends AbstractLongMap {
         }
     }
 
-    private static class RetainedSizeEntry implements Comparable<RetainedSizeEntry> {
-        private final long instanceId;
-        private final long retainedSize;
-        
-        private RetainedSizeEntry(long id,long size) {
-            instanceId = id;
-            retainedSize = size;
+    /**
+     * Bounded min-heap of the biggest objects by retained size. The smallest
+     * object is at the root, so it is replaced when bigger object is offered.
+     * Objects with the same retained size are ordered by their ids.
+     */
+    private static class BiggestObjects {
+        private final long[] ids;
+        private final long[] sizes;
+        private int size;
+
+        private BiggestObjects(int capacity) {
+            ids = new long[capacity];
+            sizes = new long[capacity];
+        }
+
+        private void offer(long id, long retainedSize) {
+            if (size < ids.length) {
+                ids[size] = id;
+                sizes[size] = retainedSize;
+                siftUp(size++);
+            } else if (size > 0 && isBigger(id, retainedSize, 0)) {
+                ids[0] = id;
+                sizes[0] = retainedSize;
+                siftDown(0);
+            }
         }
 
-        public int compareTo(RetainedSizeEntry other) {
-            // bigger object are at beginning
-            int diff = Long.compare(other.retainedSize, retainedSize);
-            if (diff == 0) {
-                // sizes are the same, compare ids
-                return Long.compare(instanceId, other.instanceId);
+        private void addAll(BiggestObjects other) {
+            for (int i = 0; i < other.size; i++) {
+                offer(other.ids[i], other.sizes[i]);
             }
-            return diff;
         }
 
-        @Override
-        public boolean equals(Object obj) {
-            if (obj == null) {
-                return false;
+        /**
+         * @return ids sorted from the biggest object, the heap is empty afterwards
+         */
+        private long[] toSortedIds() {
+            long[] sortedIds = new long[size];
+
+            while (size > 0) {
+                sortedIds[size - 1] = ids[0];
+                size--;
+                ids[0] = ids[size];
+                sizes[0] = sizes[size];
+                siftDown(0);
             }
-            if (getClass() != obj.getClass()) {
-                return false;
+            return sortedIds;
+        }
+
+        private boolean isBigger(long id, long retainedSize, int index) {
+            if (retainedSize != sizes[index]) {
+                return retainedSize > sizes[index];
             }
-            final RetainedSizeEntry other = (RetainedSizeEntry) obj;
-            return this.instanceId == other.instanceId;
+            return id < ids[index];
         }
 
-        @Override
-        public int hashCode() {
-            int hash = 7;
-            hash = 31 * hash + (int) (this.instanceId ^ (this.instanceId >>> 32));
-            return hash;
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (!isBigger(ids[parent], sizes[parent], index)) {
+                    break;
+                }
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            for (;;) {
+                int smallest = index;
+                int left = 2 * index + 1;
+                int right = left + 1;
+
+                if (left < size && !isBigger(ids[left], sizes[left], smallest)) {
+                    smallest = left;
+                }
+                if (right < size && !isBigger(ids[right], sizes[right], smallest)) {
+                    smallest = right;
+                }
+                if (smallest == index) {
+                    return;
+                }
+                swap(index, smallest);
+                index = smallest;
+            }
+        }
+
+        private void swap(int i, int j) {
+            long id = ids[i];
+            long retainedSize = sizes[i];
+
+            ids[i] = ids[j];
+            sizes[i] = sizes[j];
+            ids[j] = id;
+            sizes[j] = retainedSize;
         }
     }
     
@@ -268,6 +339,10 @@ class LongMap extends AbstractLongMap {
         return new Entry(index,value);
     }
     
+    long getSlotCount() {
+        return fileSize / ENTRY_SIZE;
+    }
+
     Entry get(long key) {
         return (Entry)super.get(key);
     }
@@ -276,33 +351,70 @@ class LongMap extends AbstractLongMap {
         return (Entry)super.put(key,value);
     }
 
+    Entry putConcurrently(long key, long value) {
+        return (Entry)super.putConcurrently(key,value);
+    }
+
     void flush() {
         referenceList.flush();
+        if (!referenceList.isCompacted()) {
+            compactReferences();
+        }
     }
 
-    long[] getBiggestObjectsByRetainedSize(int number) {
-        SortedSet<RetainedSizeEntry> bigObjects = new TreeSet<>();
-        long[] bigIds = new long[number];
-        long min = 0;
-        for (long index=0;index<fileSize;index+=ENTRY_SIZE) {
-            long id = getID(index, 0);
-            if (id != 0) {
-                long retainedSize = createEntry(index).getRetainedSize();
-                if (bigObjects.size()<number) {
-                    bigObjects.add(new RetainedSizeEntry(id,retainedSize));
-                    min = bigObjects.last().retainedSize;
-                } else if (retainedSize>min) {
-                    bigObjects.remove(bigObjects.last());
-                    bigObjects.add(new RetainedSizeEntry(id,retainedSize));
-                    min = bigObjects.last().retainedSize;
+    private void compactReferences() {
+        try {
+            NumberList compactList = referenceList.createCompactList();
+            long[][] buffer = new long[][] {new long[1024]};
+
+            for (long index=0;index<fileSize;index+=ENTRY_SIZE) {
+                if (getID(index, 0) != 0) {
+                    Entry entry = createEntry(index);
+                    if (!entry.hasOnlyOneReference()) {
+                        long ref = entry.getReferencesPointer();
+                        entry.setReferencesPointer(referenceList.copyList(ref, compactList, buffer));
+                    }
                 }
             }
+            referenceList.delete();
+            referenceList = compactList;
+        } catch (IOException ex) {
+            throw new IllegalArgumentException(ex.getLocalizedMessage(), ex);
         }
-        int i = 0;
-        for (RetainedSizeEntry rse : bigObjects) {
-            bigIds[i++]=rse.instanceId;
+    }
+
+    NumberList getReferenceList() {
+        return referenceList;
+    }
+
+    /**
+     * Returns ids of the biggest objects by retained size sorted from the biggest one.
+     * The map is split into ranges, which are scanned in parallel.
+     */
+    long[] getBiggestObjectsByRetainedSize(final int number) {
+        final long entries = fileSize / ENTRY_SIZE;
+        int chunks = ParallelScan.isEnabled() ? (int) Math.max(1, Math.min(ParallelScan.getParallelism() * 4, entries / (number + 1))) : 1;
+        final long chunkEntries = (entries + chunks - 1) / chunks;
+        BiggestObjects bigObjects = new BiggestObjects(number);
+        List<BiggestObjects> results;
+
+        results = ParallelScan.execute(chunks, (chunk) -> {
+            BiggestObjects chunkObjects = new BiggestObjects(number);
+            long start = chunk * chunkEntries * ENTRY_SIZE;
+            long end = Math.min(fileSize, start + chunkEntries * ENTRY_SIZE);
+
+            for (long index=start;index<end;index+=ENTRY_SIZE) {
+                long id = getID(index, 0);
+                if (id != 0) {
+                    chunkObjects.offer(id, createEntry(index).getRetainedSize());
+                }
+            }
+            return chunkObjects;
+        });
+        for (BiggestObjects chunkObjects : results) {
+            bigObjects.addAll(chunkObjects);
         }
-        return bigIds;
+        return bigObjects.toSortedIds();
     }
 
     //---- Serialization support    
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.lib.jfluid.heap;
+
+/**
+ * Sorting of pairs of longs stored in two parallel arrays. Pairs are ordered
+ * by the key, pairs with the same key by the value.
+ */
+final class LongPairSort {
+
+    //~ Constructors -------------------------------------------------------------------------------------------------------------
+
+    private LongPairSort() {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------------------------------------
+
+    static void sort(long[] keys, long[] values, int from, int to) {
+        while (to - from > 16) {
+            int mid = (from + to) >>> 1;
+            int pivotIndex = median(keys, values, from, mid, to - 1);
+            long pivotKey = keys[pivotIndex];
+            long pivotValue = values[pivotIndex];
+            int i = from;
+            int j = to - 1;
+
+            while (i <= j) {
+                while (compare(keys[i], values[i], pivotKey, pivotValue) < 0) i++;
+                while (compare(keys[j], values[j], pivotKey, pivotValue) > 0) j--;
+                if (i <= j) {
+                    swap(keys, values, i++, j--);
+                }
+            }
+            // recurse into the smaller part
+            if (j - from < to - i) {
+                sort(keys, values, from, j + 1);
+                from = i;
+            } else {
+                sort(keys, values, i, to);
+                to = j + 1;
+            }
+        }
+        for (int i = from + 1; i < to; i++) {
+            for (int j = i; j > from && compare(keys[j-1], values[j-1], keys[j], values[j]) > 0; j--) {
+                swap(keys, values, j, j-1);
+            }
+        }
+    }
+
+    private static int median(long[] keys, long[] values, int a, int b, int c) {
+        if (compare(keys[a], values[a], keys[b], values[b]) < 0) {
+            if (compare(keys[b], values[b], keys[c], values[c]) < 0) return b;
+            return compare(keys[a], values[a], keys[c], values[c]) < 0 ? c : a;
+        }
+        if (compare(keys[a], values[a], keys[c], values[c]) < 0) return a;
+        return compare(keys[b], values[b], keys[c], values[c]) < 0 ? c : b;
+    }
+
+    private static int compare(long key1, long value1, long key2, long value2) {
+        int diff = Long.compare(key1, key2);
+        return diff != 0 ? diff : Long.compare(value1, value2);
+    }
+
+    private static void swap(long[] keys, long[] values, int i, int j) {
+        long key = keys[i];
+        long value = values[i];
+
+        keys[i] = keys[j];
+        values[i] = values[j];
+        keys[j] = key;
+        values[j] = value;
+    }
+}
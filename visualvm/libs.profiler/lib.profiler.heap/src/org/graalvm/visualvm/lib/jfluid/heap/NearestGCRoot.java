@@ -106,26 +106,32 @@ class NearestGCRoot {
             }
         }
         heap.computeReferences(); // make sure references are computed first
-        heap.cacheDirectory.setDirty(true);
-        allInstances = heap.getSummary().getTotalLiveInstances();
-        Set<JavaClass> processedClasses = new HashSet<>(heap.getAllClasses().size()*4/3);
-        
+        heap.startComputation();
+        boolean completed = false;
         try {
-            createBuffers();
-            fillZeroLevel();
-
-            do {
-                switchBuffers();
-                computeOneLevel(processedClasses);
-            } while (hasMoreLevels());
-        } catch (IOException ex) {
-            ex.printStackTrace();
-        }
+            heap.cacheDirectory.setDirty(true);
+            allInstances = heap.getSummary().getTotalLiveInstances();
+            Set<JavaClass> processedClasses = new HashSet<>(heap.getAllClasses().size()*4/3);
+        
+            try {
+                createBuffers();
+                fillZeroLevel();
+
+                do {
+                    switchBuffers();
+                    computeOneLevel(processedClasses);
+                } while (hasMoreLevels());
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
 
-        deleteBuffers();
-        heap.idToOffsetMap.flush();
-        gcRootsComputed = true;
-        heap.writeToFile();
+            deleteBuffers();
+            heap.idToOffsetMap.flush();
+            gcRootsComputed = true;
+            completed = true;
+        } finally {
+            heap.finishComputation(this, completed);
+        }
         HeapProgress.progressFinish();
     }
 
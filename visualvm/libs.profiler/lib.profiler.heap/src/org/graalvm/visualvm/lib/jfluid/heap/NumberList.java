@@ -30,18 +30,21 @@ import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.Set;
 
 /**
+ * List of numbers stored either as chains of blocks or, once compacted, as
+ * contiguous runs. Chained list consists of blocks with {@link #NUMBERS_IN_BLOCK}
+ * numbers followed by an offset to the next block. Compacted list stores
+ * each list as a single run - count of numbers followed by the numbers
+ * in the iteration order, so the whole list is read sequentially.
+ *
  * @author Tomas Hurka
  */
 class NumberList {
@@ -51,10 +54,12 @@ class NumberList {
     private final RandomAccessFile data;
     private final int numberSize;
     private final int blockSize;
-    // Map <offset,block>
-    private final Map<Long,byte[]> blockCache;
-    private final Set<Long> dirtyBlocks;
+    private final BlockCache blockCache;
     private long blocks;
+    // compacted runs, null for chained list
+    private AbstractLongMap.Data runs;
+    private long runsSize;
+    private long runsCapacity;
     private MappedByteBuffer buf;
     private long mappedSize;
     private CacheDirectory cacheDirectory;
@@ -67,13 +72,24 @@ class NumberList {
         dataFile = cacheDir.createTempFile("NBProfiler", ".ref"); // NOI18N
         data = new RandomAccessFile(dataFile, "rw"); // NOI18N
         numberSize = elSize;
-        blockCache = new BlockLRUCache<>();
-        dirtyBlocks = new HashSet<>(100000);
+        blockCache = new BlockCache();
         blockSize = (NUMBERS_IN_BLOCK + 1) * numberSize;
         cacheDirectory = cacheDir;
         addBlock(); // first block is unused, since it starts at offset 0
     }
 
+    private NumberList(int elSize, long capacity, CacheDirectory cacheDir) throws IOException {
+        dataFile = null;
+        data = null;
+        numberSize = elSize;
+        blockCache = null;
+        blockSize = (NUMBERS_IN_BLOCK + 1) * numberSize;
+        cacheDirectory = cacheDir;
+        runsCapacity = Math.max(capacity, blockSize);
+        runs = cacheDir.createDumpBuffer(runsCapacity, numberSize);
+        runsSize = numberSize; // first number is unused, since it starts at offset 0
+    }
+
     private static int bytes(long number) {
         if ((number & ~0xFFL) == 0L) {
             return 1;
@@ -101,12 +117,19 @@ class NumberList {
     
     protected void finalize() throws Throwable {
         if (cacheDirectory.isTemporary()) {
-            dataFile.delete();
+            if (runs != null) {
+                runs.deleteFile();
+            } else {
+                dataFile.delete();
+            }
         }
         super.finalize();
     }
     
     long addNumber(long startOffset,long number) throws IOException {
+        if (runs != null) {
+            return addRunNumber(startOffset, number);
+        }
         int slot;
         byte[] block = getBlock(startOffset);
         for (slot=0;slot<NUMBERS_IN_BLOCK;slot++) {
@@ -127,6 +150,9 @@ class NumberList {
     }
     
     long addFirstNumber(long number1,long number2) throws IOException {
+        if (runs != null) {
+            return appendRun(new long[] {number1, number2}, 2);
+        }
         long blockOffset = addBlock();
         byte[] block = getBlock(blockOffset);
         writeNumber(blockOffset,block,0,number1);
@@ -135,6 +161,10 @@ class NumberList {
     }
     
     void putFirst(long startOffset,long number) throws IOException {
+        if (runs != null) {
+            putRunFirst(startOffset, number);
+            return;
+        }
         int slot;
         long offset = startOffset;
         long movedNumber = 0;
@@ -164,11 +194,17 @@ class NumberList {
     }
     
     long getFirstNumber(long startOffset) throws IOException {
+        if (runs != null) {
+            return readRunNumber(startOffset + numberSize);
+        }
         byte[] block = getBlock(startOffset);
         return readNumber(block,0);
     }
     
     LongIterator getNumbersIterator(long startOffset) throws IOException {
+        if (runs != null) {
+            return new RunIterator(startOffset);
+        }
         return new NumberIterator(startOffset);
     }
 
@@ -176,6 +212,13 @@ class NumberList {
         int slot;
         List<Long> numbers = new ArrayList<>();
         
+        if (runs != null) {
+            LongIterator it = new RunIterator(startOffset);
+            while (it.hasNext()) {
+                numbers.add(new Long(it.next()));
+            }
+            return numbers;
+        }
         for(;;) {
             byte[] block = getBlock(startOffset);
             for (slot=0;slot<NUMBERS_IN_BLOCK;slot++) {
@@ -193,6 +236,192 @@ class NumberList {
         }
     }
     
+    //---- Bulk write support
+    int getBlockSize() {
+        return blockSize;
+    }
+
+    static int getBlocksCount(int numbers) {
+        return (numbers + NUMBERS_IN_BLOCK - 1) / NUMBERS_IN_BLOCK;
+    }
+
+    /**
+     * Reserves space for the given number of blocks at the end of the list.
+     * The reserved blocks are filled by {@link #encodeNumbers} and {@link #writeBlocks}.
+     * @return offset of the first reserved block
+     */
+    synchronized long reserveBlocks(int count) {
+        long offset = blocks*blockSize;
+        blocks += count;
+        return offset;
+    }
+
+    /**
+     * Encodes numbers into a chain of blocks with the same layout as the one
+     * created by {@link #addFirstNumber} followed by {@link #addNumber} calls.
+     * @param dest destination array, which holds blocks starting at <code>destOffset</code>
+     * @param blockIndex index of the first block in <code>dest</code>
+     * @return offset of the head block of the list
+     */
+    long encodeNumbers(byte[] dest, long destOffset, int blockIndex, long[] numbers, int from, int to) {
+        int blockCount = getBlocksCount(to - from);
+
+        for (int i = 0; i < blockCount; i++) {
+            int blockStart = (blockIndex + i) * blockSize;
+            int first = from + i * NUMBERS_IN_BLOCK;
+            int last = Math.min(first + NUMBERS_IN_BLOCK, to);
+
+            for (int n = first; n < last; n++) {
+                putNumber(dest, blockStart + (n - first) * numberSize, numbers[n]);
+            }
+            if (i > 0) {
+                // next block pointer refers to the previous (older) block
+                putNumber(dest, blockStart + NUMBERS_IN_BLOCK * numberSize, destOffset + (blockIndex + i - 1) * blockSize);
+            }
+        }
+        return destOffset + (blockIndex + blockCount - 1) * blockSize;
+    }
+
+    void writeBlocks(long offset, byte[] blockData, int blockCount) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(blockData, 0, blockCount * blockSize);
+        FileChannel channel = data.getChannel();
+
+        while (buffer.hasRemaining()) {
+            offset += channel.write(buffer, offset);
+        }
+    }
+
+    private void putNumber(byte[] dest, int offset, long number) {
+        for (int i = numberSize - 1; i >= 0; i--) {
+            dest[offset++] = (byte)(number >> (i*8));
+        }
+    }
+
+    //---- Compaction support
+    boolean isCompacted() {
+        return runs != null;
+    }
+
+    /**
+     * Creates an empty compacted list, which can hold all numbers of this
+     * chained list. Lists are moved to it by {@link #copyList}.
+     */
+    NumberList createCompactList() throws IOException {
+        // every list occupies at least one block, so runs with a count never exceed chained blocks
+        return new NumberList(numberSize, blocks*blockSize, cacheDirectory);
+    }
+
+    /**
+     * Copies chained list starting at <code>startOffset</code> into the compacted list.
+     * @return offset of the run in the compacted list
+     */
+    long copyList(long startOffset, NumberList compactList, long[][] bufferHolder) throws IOException {
+        long[] numbers = bufferHolder[0];
+        int count = 0;
+        LongIterator it = getNumbersIterator(startOffset);
+
+        while (it.hasNext()) {
+            if (count == numbers.length) {
+                numbers = Arrays.copyOf(numbers, numbers.length * 2);
+                bufferHolder[0] = numbers;
+            }
+            numbers[count++] = it.next();
+        }
+        return compactList.appendRun(numbers, count);
+    }
+
+    /**
+     * Closes and deletes file with chained blocks. The list cannot be used afterwards.
+     */
+    synchronized void delete() throws IOException {
+        buf = null;
+        mappedSize = 0;
+        blockCache.clear();
+        data.close();
+        cacheDirectory.deleteFile(dataFile);
+    }
+
+    private synchronized long appendRun(long[] numbers, int count) throws IOException {
+        long offset = runsSize;
+        long size = (long)(count + 1) * numberSize;
+
+        if (offset + size > runsCapacity) {
+            growRuns(offset + size);
+        }
+        writeRunNumber(offset, count);
+        for (int i = 0; i < count; i++) {
+            writeRunNumber(offset + (long)(i + 1) * numberSize, numbers[i]);
+        }
+        runsSize += size;
+        return offset;
+    }
+
+    private void growRuns(long minCapacity) throws IOException {
+        long newCapacity = Math.max(runsCapacity * 2, minCapacity);
+        AbstractLongMap.Data newRuns = cacheDirectory.createDumpBuffer(newCapacity, numberSize);
+
+        for (long offset = 0; offset < runsSize; offset += numberSize) {
+            if (numberSize == 4) {
+                newRuns.putInt(offset, 0, runs.getInt(offset, 0));
+            } else {
+                newRuns.putLong(offset, 0, runs.getLong(offset, 0));
+            }
+        }
+        runs.deleteFile();
+        runs = newRuns;
+        runsCapacity = newCapacity;
+    }
+
+    private synchronized long addRunNumber(long startOffset, long number) throws IOException {
+        int count = (int) readRunNumber(startOffset);
+        long[] numbers = new long[count + 1];
+
+        for (int i = 0; i < count; i++) {
+            long el = readRunNumber(startOffset + (long)(i + 1) * numberSize);
+            if (el == number) { // number is already in the list
+                return startOffset; // do nothing
+            }
+            numbers[i] = el;
+        }
+        // list is relocated to the end, old run is abandoned
+        numbers[count] = number;
+        return appendRun(numbers, count + 1);
+    }
+
+    private synchronized void putRunFirst(long startOffset, long number) throws IOException {
+        int count = (int) readRunNumber(startOffset);
+        long firstOffset = startOffset + numberSize;
+        long first = readRunNumber(firstOffset);
+
+        if (first == number) { // already first element
+            return;
+        }
+        for (int i = 1; i < count; i++) {
+            long offset = firstOffset + (long)i * numberSize;
+            if (readRunNumber(offset) == number) {
+                writeRunNumber(offset, first);
+                writeRunNumber(firstOffset, number);
+                return;
+            }
+        }
+        System.out.println("Error - number not found at end");
+    }
+
+    private long readRunNumber(long offset) {
+        if (numberSize == 4) {
+            return ((long)runs.getInt(offset, 0)) & 0xFFFFFFFFL;
+        }
+        return runs.getLong(offset, 0);
+    }
+
+    private void writeRunNumber(long offset, long number) {
+        if (numberSize == 4) {
+            runs.putInt(offset, 0, (int)number);
+        } else {
+            runs.putLong(offset, 0, number);
+        }
+    }
+
     private void mmapData() {
         if (buf == null) {
             try {
@@ -207,8 +436,11 @@ class NumberList {
     }
     
     void flush() {
+        if (runs != null) {
+            return;
+        }
         try {
-            flushDirtyBlocks();
+            blockCache.flush();
             blockCache.clear();
             mmapData();
         } catch (IOException ex) {
@@ -265,98 +497,87 @@ class NumberList {
                 buf.put(el);
             }            
         } else {
-            Long offsetObj = new Long(blockOffset);
             int offset = slot*numberSize;
             for (int i=numberSize-1;i>=0;i--) {
                 byte el = (byte)(element >> (i*8));
                 block[offset++]=el;
             }
-            dirtyBlocks.add(offsetObj);
-            if (dirtyBlocks.size()>10000) {
-                flushDirtyBlocks();
-            }
+            blockCache.markDirty(blockOffset, block);
         }
     }
     
-    private synchronized byte[] getBlock(long offset) throws IOException {
-        byte[] block;
+    private byte[] getBlock(long offset) throws IOException {
         if (offset < mappedSize) {
-            block = new byte[blockSize];
-            buf.position((int)offset);
-            buf.get(block);
-            return block;
-        } else {
-            Long offsetObj = new Long(offset);
-
-            block = blockCache.get(offsetObj);
-            if (block == null) {
-                block = new byte[blockSize];
-                data.seek(offset);
-                data.readFully(block);
-                blockCache.put(offsetObj,block);
+            // absolute reads do not use buffer position, no need to lock
+            byte[] block = new byte[blockSize];
+            int index = (int)offset;
+            for (int i = 0; i < blockSize; i++) {
+                block[i] = buf.get(index + i);
             }
             return block;
         }
+        return getCachedBlock(offset);
+    }
+
+    private synchronized byte[] getCachedBlock(long offset) throws IOException {
+        byte[] block = blockCache.get(offset);
+
+        if (block == null) {
+            block = new byte[blockSize];
+            data.seek(offset);
+            data.readFully(block);
+            blockCache.put(offset,block,false);
+        }
+        return block;
     }
 
-    private long addBlock() throws IOException {
+    private synchronized long addBlock() throws IOException {
         long offset=blocks*blockSize;
-        blockCache.put(new Long(offset),new byte[blockSize]);
+        // new block exists only in the cache, it has to be written out before eviction
+        blockCache.put(offset,new byte[blockSize],true);
         blocks++;
         return offset;
     }
 
-    private void flushDirtyBlocks() throws IOException {
-        if (dirtyBlocks.isEmpty()) {
-            return;
-        }
-        Long[] dirty=dirtyBlocks.toArray(new Long[0]);
-        Arrays.sort(dirty);
-        byte blocks[] = new byte[1024*blockSize];
-        int dataOffset = 0;
-        long lastBlockOffset = 0;
-        for (Long blockOffsetLong : dirty) {
-            byte[] block = blockCache.get(blockOffsetLong);
-            long blockOffset = blockOffsetLong.longValue();
-            if (lastBlockOffset+dataOffset==blockOffset && dataOffset <= blocks.length - blockSize) {
-                System.arraycopy(block,0,blocks,dataOffset,blockSize);
-                dataOffset+=blockSize;
-            } else {
-                data.seek(lastBlockOffset);
-                data.write(blocks,0,dataOffset);
-                dataOffset = 0;
-                System.arraycopy(block,0,blocks,dataOffset,blockSize);
-                dataOffset+=blockSize;                
-                lastBlockOffset = blockOffset;
-            }
-        }
-        data.seek(lastBlockOffset);
-        data.write(blocks,0,dataOffset);
-        dirtyBlocks.clear();
-    }
-
     //---- Serialization support
     void writeToStream(DataOutputStream out) throws IOException {
-        out.writeUTF(dataFile.getAbsolutePath());
+        out.writeBoolean(runs != null);
         out.writeInt(numberSize);
-        out.writeLong(blocks);
-        out.writeBoolean(buf != null);        
+        if (runs != null) {
+            runs.writeToStream(out);
+            out.writeLong(runsSize);
+            out.writeLong(runsCapacity);
+        } else {
+            CacheDirectory.writeFile(out, dataFile);
+            out.writeLong(blocks);
+            out.writeBoolean(buf != null);
+        }
     }
 
     NumberList(DataInputStream dis, CacheDirectory cacheDir) throws IOException {
-        boolean mmaped;
+        boolean compacted = dis.readBoolean();
         
         cacheDirectory = cacheDir;
-        dataFile = cacheDirectory.getCacheFile(dis.readUTF());
-        data = new RandomAccessFile(dataFile, "rw"); // NOI18N
         numberSize = dis.readInt();
-        blocks = dis.readLong();
-        mmaped = dis.readBoolean();
-        blockCache = new BlockLRUCache<>();
-        dirtyBlocks = new HashSet<>(100000);
         blockSize = (NUMBERS_IN_BLOCK + 1) * numberSize;
-        if (mmaped) {
-            mmapData();
+        if (compacted) {
+            dataFile = null;
+            data = null;
+            blockCache = null;
+            runs = AbstractLongMap.Data.readFromStream(dis, cacheDir, numberSize);
+            runsSize = dis.readLong();
+            runsCapacity = dis.readLong();
+        } else {
+            boolean mmaped;
+
+            dataFile = cacheDirectory.getCacheFile(dis.readUTF());
+            data = new RandomAccessFile(dataFile, "rw"); // NOI18N
+            blocks = dis.readLong();
+            mmaped = dis.readBoolean();
+            blockCache = new BlockCache();
+            if (mmaped) {
+                mmapData();
+            }
         }
     }    
     
@@ -417,24 +638,137 @@ class NumberList {
         }
     }
 
-    private class BlockLRUCache<V> extends LinkedHashMap<Long,V> {
-        
-        private static final int MAX_CAPACITY = 10000;
-        
-        private BlockLRUCache() {
-            super(MAX_CAPACITY,0.75f,true);
+    private class RunIterator extends LongIterator {
+        private long offset;
+        private int remaining;
+
+        private RunIterator(long startOffset) {
+            remaining = (int) readRunNumber(startOffset);
+            offset = startOffset + numberSize;
+        }
+
+        @Override
+        boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        long next() {
+            if (hasNext()) {
+                long num = readRunNumber(offset);
+                offset += numberSize;
+                remaining--;
+                return num;
+            }
+            throw new NoSuchElementException();
+        }
+    }
+
+    /**
+     * Write-back cache of blocks, which are not memory mapped. Blocks are kept
+     * in open addressing table with primitive keys. Dirty blocks are written
+     * in offset order once there is too many of them and the whole cache is
+     * dropped at once when it is full.
+     */
+    private class BlockCache {
+
+        private static final int MAX_CAPACITY = 16384;
+        private static final int MAX_DIRTY = 10000;
+        private static final int WRITE_BLOCKS = 1024;
+
+        // block offset + 1, 0 is free slot
+        private final long[] keys = new long[MAX_CAPACITY * 2];
+        private final byte[][] values = new byte[MAX_CAPACITY * 2][];
+        private final boolean[] dirty = new boolean[MAX_CAPACITY * 2];
+        private int size;
+        private int dirtyCount;
+
+        private byte[] get(long offset) {
+            int slot = find(offset);
+            return keys[slot] == 0 ? null : values[slot];
+        }
+
+        private void put(long offset, byte[] block, boolean isDirty) throws IOException {
+            if (size == MAX_CAPACITY) {
+                flush();
+                clear();
+            }
+            int slot = find(offset);
+            if (keys[slot] == 0) {
+                keys[slot] = offset + 1;
+                size++;
+            }
+            values[slot] = block;
+            setDirty(slot, isDirty);
+        }
+
+        private void markDirty(long offset, byte[] block) throws IOException {
+            int slot = find(offset);
+            if (keys[slot] == 0) {
+                put(offset, block, true);
+            } else {
+                setDirty(slot, true);
+            }
         }
 
-        protected boolean removeEldestEntry(Map.Entry<Long,V> eldest) {
-            if (size()>MAX_CAPACITY) {
-                Long key = eldest.getKey();
-                if (!dirtyBlocks.contains(key)) {
-                    return true;
+        private void setDirty(int slot, boolean isDirty) throws IOException {
+            if (dirty[slot] != isDirty) {
+                dirty[slot] = isDirty;
+                dirtyCount += isDirty ? 1 : -1;
+                if (dirtyCount > MAX_DIRTY) {
+                    flush();
                 }
-                get(key);
             }
-            return false;
         }
 
+        private void flush() throws IOException {
+            if (dirtyCount == 0) {
+                return;
+            }
+            long[] offsets = new long[dirtyCount];
+            int count = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (dirty[i]) {
+                    offsets[count++] = keys[i] - 1;
+                    dirty[i] = false;
+                }
+            }
+            dirtyCount = 0;
+            Arrays.sort(offsets);
+            byte[] blockData = new byte[WRITE_BLOCKS * blockSize];
+            int dataOffset = 0;
+            long lastBlockOffset = offsets[0];
+            for (long blockOffset : offsets) {
+                if (lastBlockOffset + dataOffset != blockOffset || dataOffset == blockData.length) {
+                    data.seek(lastBlockOffset);
+                    data.write(blockData, 0, dataOffset);
+                    dataOffset = 0;
+                    lastBlockOffset = blockOffset;
+                }
+                System.arraycopy(values[find(blockOffset)], 0, blockData, dataOffset, blockSize);
+                dataOffset += blockSize;
+            }
+            data.seek(lastBlockOffset);
+            data.write(blockData, 0, dataOffset);
+        }
+
+        private void clear() {
+            Arrays.fill(keys, 0L);
+            Arrays.fill(values, null);
+            Arrays.fill(dirty, false);
+            size = 0;
+            dirtyCount = 0;
+        }
+
+        private int find(long offset) {
+            long key = offset + 1;
+            int mask = keys.length - 1;
+            int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
     }
 }
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+
+package org.graalvm.visualvm.lib.jfluid.heap;
+
+import java.io.IOException;
+
+/**
+ * Set for longs, which keeps its table outside of the Java heap in a memory
+ * mapped temporary file from {@link CacheDirectory}. Zero cannot be used as key.
+ * Load factor is 3/4. The set can be read by many threads at once, but updates
+ * must not run concurrently with other operations.
+ */
+class OffHeapLongSet {
+    //~ Static fields/initializers -----------------------------------------------------------------------------------------------
+
+    private static final int DEFAULT_CAPACITY = 32;
+    private static final int MINIMUM_CAPACITY = 4;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final int ENTRY_SIZE = 8;
+
+    //~ Instance fields ----------------------------------------------------------------------------------------------------------
+
+    private final CacheDirectory cacheDirectory;
+    private AbstractLongMap.Data table;
+    private int length;
+    private int size;
+    private int threshold;
+
+    //~ Constructors -------------------------------------------------------------------------------------------------------------
+
+    OffHeapLongSet(CacheDirectory cacheDir) throws IOException {
+        this(DEFAULT_CAPACITY*3/4, cacheDir);
+    }
+
+    OffHeapLongSet(int expectedMaxSize, CacheDirectory cacheDir) throws IOException {
+        cacheDirectory = cacheDir;
+        init(capacity(expectedMaxSize));
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------------------------------------
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(long key) {
+        assert key != 0;
+        int i = hash(key, length);
+
+        while (true) {
+            long item = getLong(i);
+
+            if (item == key) {
+                return true;
+            }
+            if (item == 0) {
+                return false;
+            }
+            i = nextKeyIndex(i, length);
+        }
+    }
+
+    /**
+     * Adds key to the set.
+     * @return <code>true</code> if the set did not already contain the key
+     */
+    boolean add(long key) throws IOException {
+        assert key != 0;
+        int i = hash(key, length);
+        long item;
+
+        while ((item = getLong(i)) != 0) {
+            if (item == key) {
+                return false;
+            }
+            i = nextKeyIndex(i, length);
+        }
+        putLong(i, key);
+        if (++size >= threshold) {
+            resize(2 * length);
+        }
+        return true;
+    }
+
+    /**
+     * Removes all keys. Table, which is much bigger than needed for the
+     * current number of keys, is replaced by a smaller one.
+     */
+    void clear() throws IOException {
+        if (size == 0) {
+            return;
+        }
+        if (length > DEFAULT_CAPACITY && size < threshold/8) {
+            AbstractLongMap.Data oldTable = table;
+
+            init(capacity(size));
+            oldTable.deleteFile();
+        } else {
+            for (int i = 0; i < length; i++) {
+                putLong(i, 0);
+            }
+        }
+        size = 0;
+    }
+
+    /**
+     * Deletes the backing file, the set cannot be used afterwards.
+     */
+    void delete() {
+        table.deleteFile();
+        table = null;
+    }
+
+    private static int capacity(int expectedMaxSize) {
+        // Compute min capacity for expectedMaxSize given a load factor of 3/4
+        int minCapacity = (4 * expectedMaxSize)/3;
+        int result;
+
+        if (minCapacity > MAXIMUM_CAPACITY || minCapacity < 0) {
+            result = MAXIMUM_CAPACITY;
+        } else {
+            result = MINIMUM_CAPACITY;
+            while (result < minCapacity) {
+                result <<= 1;
+            }
+        }
+        return result;
+    }
+
+    private void init(int initCapacity) throws IOException {
+        threshold = (initCapacity * 3)/ 4;
+        length = initCapacity;
+        table = cacheDirectory.createDumpBuffer((long) initCapacity * ENTRY_SIZE, ENTRY_SIZE);
+    }
+
+    private void resize(int newCapacity) throws IOException {
+        AbstractLongMap.Data oldTable = table;
+        int oldLength = length;
+
+        if (oldLength == MAXIMUM_CAPACITY) { // can't expand any further
+            if (threshold == MAXIMUM_CAPACITY-1) {
+                throw new IllegalStateException("Capacity exhausted.");   // NOI18N
+            }
+            threshold = MAXIMUM_CAPACITY-1;  // Gigantic set!
+            return;
+        }
+        init(newCapacity);
+        for (int j = 0; j < oldLength; j++) {
+            long key = oldTable.getLong(j * 8L, 0);
+
+            if (key != 0) {
+                int i = hash(key, length);
+
+                while (getLong(i) != 0) {
+                    i = nextKeyIndex(i, length);
+                }
+                putLong(i, key);
+            }
+        }
+        oldTable.deleteFile();
+    }
+
+    private long getLong(int index) {
+        return table.getLong(index * 8L, 0);
+    }
+
+    private void putLong(int index, long value) {
+        table.putLong(index * 8L, 0, value);
+    }
+
+    private static int hash(long x, int length) {
+        int h = (int)(x ^ (x >>> 32));
+        h ^= (h >>> 20) ^ (h >>> 12);
+        h ^= (h >>> 7) ^ (h >>> 4);
+        return (h) & (length - 1);
+    }
+
+    private static int nextKeyIndex(int i, int len) {
+        return (i + 1 < len ? i + 1 : 0);
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.lib.jfluid.heap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Temporary files of (key, value) pairs partitioned by a hash of the key.
+ * Pairs are added concurrently through per-thread {@link Writer}s, all pairs
+ * with the same key end up in the same partition. Every partition is later
+ * sorted in memory, so its size is limited by the maximum size of the Java
+ * heap. Partitions exceeding the limit are split again by another hash of
+ * the key, over as many passes as needed. Only a partition holding pairs
+ * of a single key cannot be split, it is returned regardless of the limit.
+ */
+class PairPartitions {
+
+    //~ Static fields/initializers -----------------------------------------------------------------------------------------------
+
+    // every partition keeps its file open while it is written
+    private static final int MAX_PARTITIONS = 256;
+    static final int PAIR_SIZE = 16;
+    // a partition sorted in memory takes at most this part of the maximum heap size
+    private static final int PARTITION_MEMORY_FRACTION = 8;
+    private static final long MAX_PAIRS_IN_PARTITION = Integer.MAX_VALUE / 2;
+    private static final int SPILL_BUFFER_PAIRS = 1024;
+
+    private static long pairsInPartition;
+
+    //~ Instance fields ----------------------------------------------------------------------------------------------------------
+
+    private final CacheDirectory cacheDirectory;
+    private final String suffix;
+    private final List<Partition> createdPartitions = new ArrayList<>();
+    private final Partition[] partitions;
+
+    //~ Constructors -------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Creates partitions for the first pass.
+     * @param maxPairs upper bound of the number of pairs, sizes just the first pass
+     */
+    PairPartitions(CacheDirectory dir, String fileSuffix, long maxPairs) throws IOException {
+        cacheDirectory = dir;
+        suffix = fileSuffix;
+        long count = Math.max(maxPairs / getPairsInPartition() + 1, ParallelScan.getParallelism());
+
+        partitions = createPartitions((int) Math.min(count, MAX_PARTITIONS), 0);
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Changes the number of pairs sorted in memory at once, so that tests can
+     * split partitions of small dumps. Values which are not positive restore
+     * the default derived from the maximum heap size.
+     */
+    static synchronized void configure(long newPairsInPartition) {
+        pairsInPartition = newPairsInPartition > 0 ? newPairsInPartition : 0;
+    }
+
+    /**
+     * Creates a writer for the current thread, it has to be flushed once
+     * all its pairs are added.
+     */
+    Writer createWriter() {
+        return new Writer(partitions, 0);
+    }
+
+    /**
+     * Finishes the first pass and splits partitions exceeding the memory limit.
+     * @return partitions, which can be sorted in memory
+     */
+    List<Partition> split() throws IOException {
+        long maxPairs = getPairsInPartition();
+        List<Partition> result = new ArrayList<>();
+        Deque<Partition> pending = new ArrayDeque<>(Arrays.asList(partitions));
+
+        for (Partition partition : partitions) {
+            partition.close();
+        }
+        while (!pending.isEmpty()) {
+            Partition partition = pending.poll();
+            long pairs = partition.size() / PAIR_SIZE;
+
+            if (pairs <= maxPairs || partition.singleKey) {
+                result.add(partition);
+                continue;
+            }
+            Partition[] parts = createPartitions((int) Math.min(pairs / maxPairs + 1, MAX_PARTITIONS), partition.level + 1);
+            Writer writer = new Writer(parts, partition.level + 1);
+
+            partition.read(writer::add);
+            writer.flush();
+            for (Partition part : parts) {
+                part.close();
+                // nothing has been split off, all pairs have the same key
+                part.singleKey = part.size() == partition.size();
+                pending.add(part);
+            }
+            partition.delete();
+        }
+        return result;
+    }
+
+    /**
+     * Processes the partitions in parallel, as many at once as fit into
+     * a quarter of the available memory.
+     */
+    static void process(List<Partition> partitionList, PartitionProcessor processor) {
+        Partition[] parts = partitionList.toArray(new Partition[0]);
+        long maxPartitionSize = 0;
+
+        for (Partition partition : parts) {
+            maxPartitionSize = Math.max(maxPartitionSize, partition.size());
+        }
+        long memory = Runtime.getRuntime().maxMemory() / 4;
+        int parallel = (int) Math.max(1, Math.min(ParallelScan.getParallelism(), memory / Math.max(1, maxPartitionSize)));
+
+        for (int i = 0; i < parts.length; i += parallel) {
+            final int first = i;
+            final int count = Math.min(parallel, parts.length - first);
+
+            ParallelScan.execute(count, (index) -> {
+                processor.process(parts[first + index]);
+                return null;
+            });
+            HeapProgress.progress(0, 0, first + count, parts.length);
+        }
+    }
+
+    void delete() throws IOException {
+        for (Partition partition : createdPartitions) {
+            partition.delete();
+        }
+    }
+
+    private Partition[] createPartitions(int count, int level) throws IOException {
+        Partition[] created = new Partition[count];
+
+        for (int i = 0; i < created.length; i++) {
+            created[i] = new Partition(cacheDirectory.createTempFile("NBProfiler", suffix), level); // NOI18N
+            createdPartitions.add(created[i]);
+        }
+        return created;
+    }
+
+    private static synchronized long getPairsInPartition() {
+        if (pairsInPartition > 0) {
+            return pairsInPartition;
+        }
+        long pairs = Runtime.getRuntime().maxMemory() / PARTITION_MEMORY_FRACTION / PAIR_SIZE;
+
+        return Math.max(1, Math.min(MAX_PAIRS_IN_PARTITION, pairs));
+    }
+
+    // every split level uses a different hash, so that keys of a partition are spread again
+    private static int getPartitionIndex(long key, int level, int count) {
+        long hash = key + level * 0x9E3779B97F4A7C15L;
+
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        hash ^= hash >>> 31;
+        return (int) ((hash >>> 1) % count);
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------------------------------------
+
+    static interface PairReader {
+        void pair(long key, long value) throws IOException;
+    }
+
+    static interface PartitionProcessor {
+        void process(Partition partition) throws IOException;
+    }
+
+    static class Partition {
+        private final File file;
+        private final int level;
+        private RandomAccessFile data;
+        private long size;
+        private boolean singleKey;
+
+        private Partition(File f, int l) throws IOException {
+            file = f;
+            level = l;
+            data = new RandomAccessFile(file, "rw"); // NOI18N
+        }
+
+        synchronized long size() {
+            return size;
+        }
+
+        int getPairsCount() {
+            return (int) (size() / PAIR_SIZE);
+        }
+
+        /**
+         * Reads all pairs into the arrays in the order they were written.
+         */
+        void read(long[] keys, long[] values) throws IOException {
+            int[] index = new int[1];
+
+            read((key, value) -> {
+                keys[index[0]] = key;
+                values[index[0]++] = value;
+            });
+        }
+
+        void read(PairReader reader) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(SPILL_BUFFER_PAIRS * 64 * PAIR_SIZE);
+
+            try (RandomAccessFile in = new RandomAccessFile(file, "r")) { // NOI18N
+                FileChannel channel = in.getChannel();
+
+                while (channel.read(buffer) > 0 || buffer.position() > 0) {
+                    buffer.flip();
+                    LongBuffer longs = buffer.asLongBuffer();
+                    int pairs = longs.remaining() / 2;
+
+                    for (int i = 0; i < pairs; i++) {
+                        reader.pair(longs.get(), longs.get());
+                    }
+                    buffer.position(pairs * PAIR_SIZE);
+                    buffer.compact();
+                }
+            }
+        }
+
+        synchronized void delete() throws IOException {
+            close();
+            file.delete();
+        }
+
+        private synchronized void write(ByteBuffer buffer) throws IOException {
+            FileChannel channel = data.getChannel();
+
+            while (buffer.hasRemaining()) {
+                size += channel.write(buffer);
+            }
+        }
+
+        // written partitions are closed, so that just the partitions being written keep their files open
+        private synchronized void close() throws IOException {
+            if (data != null) {
+                data.close();
+                data = null;
+            }
+        }
+    }
+
+    static class Writer {
+        private final Partition[] partitions;
+        private final int level;
+        private final ByteBuffer[] buffers;
+
+        private Writer(Partition[] parts, int l) {
+            partitions = parts;
+            level = l;
+            buffers = new ByteBuffer[parts.length];
+        }
+
+        void add(long key, long value) throws IOException {
+            int index = getPartitionIndex(key, level, partitions.length);
+            ByteBuffer buffer = buffers[index];
+
+            if (buffer == null) {
+                buffer = ByteBuffer.allocate(SPILL_BUFFER_PAIRS * PAIR_SIZE);
+                buffers[index] = buffer;
+            } else if (!buffer.hasRemaining()) {
+                flush(index);
+            }
+            buffer.putLong(key);
+            buffer.putLong(value);
+        }
+
+        void flush() throws IOException {
+            for (int i = 0; i < buffers.length; i++) {
+                if (buffers[i] != null) {
+                    flush(i);
+                }
+            }
+        }
+
+        private void flush(int index) throws IOException {
+            ByteBuffer buffer = buffers[index];
+
+            buffer.flip();
+            partitions[index].write(buffer);
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,458 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.lib.jfluid.heap;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Computes immediate dominators of instances with multiple parents in parallel.
+ * It is an alternative engine for {@link DominatorTree}, the result is the same
+ * fixpoint as the one computed by the sequential algorithm.
+ * <br>
+ * Instances with multiple parents are numbered once in BFS order and their
+ * immediate dominators are kept in a primitive array indexed by that number.
+ * Every instance, which can appear in a dominator chain, is assigned its
+ * distance from GC roots. Dominator chains are strictly decreasing in that
+ * distance, so two chains are intersected by the two-finger walk of the
+ * Cooper-Harvey-Kennedy algorithm without any temporary sets.
+ * <br>
+ * The numbered instances are processed in chunks on the shared pool. Each chunk
+ * reads and updates the shared idom array in place; since every update only
+ * removes dominators, the chunks converge to the same fixpoint regardless
+ * of their interleaving.
+ */
+class ParallelDominators {
+    //~ Static fields/initializers -----------------------------------------------------------------------------------------------
+
+    // minimal number of instances processed by one task
+    private static final int MIN_CHUNK_SIZE = 4096;
+    // number of chunks per worker, more chunks give better load balancing
+    private static final int CHUNKS_PER_WORKER = 8;
+    private static final int MAX_CAPACITY = 1 << 30;
+    // bytes of the ids and idoms arrays per instance
+    private static final int BYTES_PER_INSTANCE = 2 * 8;
+
+    //~ Instance fields ----------------------------------------------------------------------------------------------------------
+
+    private final HprofHeap heap;
+    private long[] ids;
+    private AtomicLongArray idoms;
+    private ChainTable chains;
+    private OffHeapLongSet dirtySet;
+
+    //~ Constructors -------------------------------------------------------------------------------------------------------------
+
+    ParallelDominators(HprofHeap h) {
+        heap = h;
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Computes immediate dominators of all instances from <code>multipleParents</code>
+     * and stores them into <code>map</code>.
+     * @return <code>false</code> if there are too many instances to be processed
+     * by this engine or not enough memory for them, <code>map</code> is not
+     * modified in that case
+     */
+    boolean computeDominators(LongBuffer multipleParents, OffHeapLongMap map) throws IOException {
+        if (!readIds(multipleParents)) {
+            return false;
+        }
+        try {
+            if (!computeChains()) {
+                return false;
+            }
+            boolean changed = true;
+            boolean ignoreDirty;
+            boolean reverse = false;
+            boolean all = true;
+
+            dirtySet = new OffHeapLongSet(heap.cacheDirectory);
+            do {
+                ignoreDirty = !changed;
+                changed = computeOneLevel(all || ignoreDirty, reverse);
+                reverse = !reverse;
+                all = false;
+            } while (changed || !ignoreDirty);
+            dirtySet.delete();
+
+            for (int i = 0; i < ids.length; i++) {
+                map.put(ids[i], idoms.get(i));
+            }
+            return true;
+        } finally {
+            chains.delete();
+        }
+    }
+
+    private boolean readIds(LongBuffer multipleParents) throws IOException {
+        int size = multipleParents.getSize();
+
+        if (size >= MAX_CAPACITY/2 || !isMemoryAvailable(size)) {
+            return false;
+        }
+        ids = new long[size];
+        multipleParents.startReading();
+        for (int i = 0; i < size; i++) {
+            ids[i] = multipleParents.readLong();
+        }
+        return true;
+    }
+
+    // the arrays can take at most half of the memory still available to the Java heap,
+    // otherwise the sequential algorithm, which keeps its data in the cache directory, is used
+    private static boolean isMemoryAvailable(int size) {
+        Runtime runtime = Runtime.getRuntime();
+        long available = runtime.maxMemory() - runtime.totalMemory() + runtime.freeMemory();
+
+        return (long) size * BYTES_PER_INSTANCE < available / 2;
+    }
+
+    /**
+     * Registers all instances, which can appear in a dominator chain. Dominator
+     * chains are always subsets of the chains of nearest GC root pointers of the
+     * referrers, so it is enough to walk these chains once.
+     */
+    private boolean computeChains() throws IOException {
+        chains = new ChainTable(ids.length * 4L, heap.cacheDirectory);
+        idoms = new AtomicLongArray(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            int slot = chains.add(ids[i]);
+
+            if (slot == -1) {
+                return false;
+            }
+            chains.setIndex(slot, i);
+        }
+        for (int i = 0; i < ids.length; i++) {
+            LongMap.Entry entry = heap.idToOffsetMap.get(ids[i]);
+            LongIterator refIt = entry.getReferences();
+
+            if (!addChain(ids[i], entry)) {
+                return false;
+            }
+            idoms.set(i, chains.getParent(chains.find(ids[i])));
+            while (refIt.hasNext()) {
+                if (!addChain(refIt.next(), null)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean addChain(long instanceId, LongMap.Entry instanceEntry) throws IOException {
+        long[] path = new long[16];
+        int length = 0;
+        long id = instanceId;
+        LongMap.Entry entry = instanceEntry;
+        int level = -1;
+
+        while (id != 0) {
+            int slot = chains.find(id);
+
+            if (slot != -1 && chains.getLevel(slot) != -1) {
+                level = chains.getLevel(slot);
+                break;
+            }
+            if (length == path.length) {
+                path = Arrays.copyOf(path, length * 2);
+            }
+            path[length++] = id;
+            if (entry == null) {
+                entry = heap.idToOffsetMap.get(id);
+            }
+            id = entry == null ? 0 : entry.getNearestGCRootPointer();
+            entry = null;
+        }
+        // assign distances from GC roots, topmost instance first
+        for (int i = length - 1; i >= 0; i--) {
+            int slot = chains.add(path[i]);
+
+            if (slot == -1) {
+                return false;
+            }
+            chains.setParent(slot, i + 1 < length ? path[i + 1] : id);
+            chains.setLevel(slot, ++level);
+        }
+        return true;
+    }
+
+    private boolean computeOneLevel(final boolean ignoreDirty, final boolean reverse) throws IOException {
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, ids.length / (ParallelScan.getParallelism() * CHUNKS_PER_WORKER));
+        final int chunkCount = (ids.length + chunkSize - 1) / chunkSize;
+        final int size = chunkSize;
+        List<ChunkResult> results = ParallelScan.execute(chunkCount, new ParallelScan.Task<ChunkResult>() {
+            public ChunkResult run(int index) throws IOException {
+                int chunk = reverse ? chunkCount - 1 - index : index;
+                int start = chunk * size;
+                int end = Math.min(start + size, ids.length);
+
+                return computeChunk(start, end, ignoreDirty, reverse);
+            }
+        });
+        OffHeapLongSet newDirtySet = new OffHeapLongSet(ids.length/10, heap.cacheDirectory);
+        boolean changed = false;
+
+        for (ChunkResult result : results) {
+            for (int i = 0; i < result.dirtyIdsCount; i++) {
+                newDirtySet.add(result.dirtyIds[i]);
+            }
+            changed |= result.changed;
+        }
+        dirtySet.delete();
+        dirtySet = newDirtySet;
+        return changed;
+    }
+
+    private ChunkResult computeChunk(int start, int end, boolean ignoreDirty, boolean reverse) throws IOException {
+        ChunkResult result = new ChunkResult();
+
+        for (int j = start; j < end; j++) {
+            int i = reverse ? start + end - 1 - j : j;
+            long instanceId = ids[i];
+            long oldIdom = idoms.get(i);
+
+            if (oldIdom != 0 && (ignoreDirty || isDirty(result, oldIdom) || isDirty(result, instanceId))) {
+                LongMap.Entry entry = heap.idToOffsetMap.get(instanceId);
+                LongIterator refIt = entry.getReferences();
+                long newIdomId = refIt.next();
+
+                while (refIt.hasNext() && newIdomId != 0) {
+                    newIdomId = intersect(newIdomId, refIt.next());
+                }
+                if (oldIdom != newIdomId) {
+                    idoms.set(i, newIdomId);
+                    result.addDirty(oldIdom);
+                    if (newIdomId != 0) result.addDirty(newIdomId);
+                    result.changed = true;
+                }
+            }
+        }
+        return result;
+    }
+
+    private boolean isDirty(ChunkResult result, long instanceId) {
+        return dirtySet.contains(instanceId) || result.dirty.contains(instanceId);
+    }
+
+    private long intersect(long leftIdom, long rightIdom) {
+        long left = leftIdom;
+        long right = rightIdom;
+
+        while (left != right) {
+            if (left == 0 || right == 0) {
+                return 0;
+            }
+            int leftSlot = chains.find(left);
+            int rightSlot = chains.find(right);
+            int leftLevel = chains.getLevel(leftSlot);
+            int rightLevel = chains.getLevel(rightSlot);
+
+            if (leftLevel >= rightLevel) {
+                left = getIdomId(leftSlot);
+            }
+            if (rightLevel >= leftLevel) {
+                right = getIdomId(rightSlot);
+            }
+        }
+        return left;
+    }
+
+    private long getIdomId(int slot) {
+        int index = chains.getIndex(slot);
+
+        if (index != -1) {
+            return idoms.get(index);
+        }
+        return chains.getParent(slot);
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------------------------------------
+
+    private static final class ChunkResult {
+        private final LongSet dirty = new LongSet();
+        private long[] dirtyIds = new long[64];
+        private int dirtyIdsCount;
+        private boolean changed;
+
+        private void addDirty(long instanceId) {
+            if (!dirty.add(instanceId)) {
+                if (dirtyIdsCount == dirtyIds.length) {
+                    dirtyIds = Arrays.copyOf(dirtyIds, dirtyIdsCount * 2);
+                }
+                dirtyIds[dirtyIdsCount++] = instanceId;
+            }
+        }
+    }
+
+    /**
+     * Open addressing table of instances, which can appear in dominator chains.
+     * For each instance it keeps the nearest GC root pointer, the distance
+     * from GC roots and the index to the idom array. The table is kept outside
+     * of the Java heap, since it can be much larger than the idom array.
+     */
+    private static final class ChainTable {
+        // key, nearest GC root pointer, level and index
+        private static final int ENTRY_SIZE = 3 * 8;
+        private static final int PARENT_OFFSET = 8;
+        private static final int META_OFFSET = 16;
+
+        private final CacheDirectory cacheDirectory;
+        private AbstractLongMap.Data table;
+        private int capacity;
+        private int size;
+        private int threshold;
+
+        private ChainTable(long expectedSize, CacheDirectory cacheDir) throws IOException {
+            int initCapacity = 16;
+
+            while (initCapacity < expectedSize && initCapacity < MAX_CAPACITY) {
+                initCapacity <<= 1;
+            }
+            cacheDirectory = cacheDir;
+            init(initCapacity);
+        }
+
+        private void init(int newCapacity) throws IOException {
+            capacity = newCapacity;
+            threshold = (int) (capacity * 3L / 4);
+            table = cacheDirectory.createDumpBuffer((long) capacity * ENTRY_SIZE, ENTRY_SIZE);
+        }
+
+        private int find(long key) {
+            int mask = capacity - 1;
+
+            for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+                long item = getKey(i);
+
+                if (item == key) {
+                    return i;
+                }
+                if (item == 0) {
+                    return -1;
+                }
+            }
+        }
+
+        private int add(long key) throws IOException {
+            int mask = capacity - 1;
+            int i;
+
+            for (i = hash(key) & mask; getKey(i) != 0; i = (i + 1) & mask) {
+                if (getKey(i) == key) {
+                    return i;
+                }
+            }
+            if (size >= threshold) {
+                if (capacity >= MAX_CAPACITY) {
+                    return -1;
+                }
+                resize();
+                return add(key);
+            }
+            table.putLong(slotOffset(i), 0, key);
+            size++;
+            return i;
+        }
+
+        private long getKey(int slot) {
+            return table.getLong(slotOffset(slot), 0);
+        }
+
+        private long getParent(int slot) {
+            return table.getLong(slotOffset(slot), PARENT_OFFSET);
+        }
+
+        private void setParent(int slot, long parent) {
+            table.putLong(slotOffset(slot), PARENT_OFFSET, parent);
+        }
+
+        // level and index are stored incremented by one, so that zero means unknown
+        private int getLevel(int slot) {
+            return (int) (table.getLong(slotOffset(slot), META_OFFSET) >>> 32) - 1;
+        }
+
+        private void setLevel(int slot, int level) {
+            long meta = table.getLong(slotOffset(slot), META_OFFSET);
+
+            table.putLong(slotOffset(slot), META_OFFSET, ((long) (level + 1) << 32) | (meta & 0xFFFFFFFFL));
+        }
+
+        private int getIndex(int slot) {
+            return (int) table.getLong(slotOffset(slot), META_OFFSET) - 1;
+        }
+
+        private void setIndex(int slot, int index) {
+            long meta = table.getLong(slotOffset(slot), META_OFFSET);
+
+            table.putLong(slotOffset(slot), META_OFFSET, (meta & ~0xFFFFFFFFL) | ((index + 1) & 0xFFFFFFFFL));
+        }
+
+        private void delete() {
+            table.deleteFile();
+            table = null;
+        }
+
+        private void resize() throws IOException {
+            AbstractLongMap.Data oldTable = table;
+            int oldCapacity = capacity;
+
+            init(capacity * 2);
+            for (int j = 0; j < oldCapacity; j++) {
+                long base = slotOffset(j);
+                long key = oldTable.getLong(base, 0);
+
+                if (key != 0) {
+                    int mask = capacity - 1;
+                    int i = hash(key) & mask;
+
+                    while (getKey(i) != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    table.putLong(slotOffset(i), 0, key);
+                    table.putLong(slotOffset(i), PARENT_OFFSET, oldTable.getLong(base, PARENT_OFFSET));
+                    table.putLong(slotOffset(i), META_OFFSET, oldTable.getLong(base, META_OFFSET));
+                }
+            }
+            oldTable.deleteFile();
+        }
+
+        private static long slotOffset(int slot) {
+            return (long) slot * ENTRY_SIZE;
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
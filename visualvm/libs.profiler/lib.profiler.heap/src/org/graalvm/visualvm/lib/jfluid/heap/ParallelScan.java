@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.lib.jfluid.heap;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Runs a scan of heap dump records split into chunks on a shared ForkJoin pool.
+ * Chunks are described by an array of record start offsets; chunk <code>i</code>
+ * spans from <code>chunks[i]</code> to <code>chunks[i+1]</code> (or to the end offset
+ * for the last chunk). Results are returned in chunk order so that callers can
+ * merge them deterministically.
+ */
+class ParallelScan {
+
+    //~ Static fields/initializers -----------------------------------------------------------------------------------------------
+
+    private static final String PARALLELISM_PROP = "org.graalvm.visualvm.lib.jfluid.heap.parallelism";   // NOI18N
+    // minimal chunk size in bytes, smaller chunks are not worth the task overhead
+    private static final long MIN_CHUNK_SIZE = 4L * 1024 * 1024;
+    // number of chunks per worker, more chunks give better load balancing
+    private static final int CHUNKS_PER_WORKER = 8;
+    private static volatile int parallelism = computeParallelism();
+    private static volatile long minChunkSize = MIN_CHUNK_SIZE;
+    private static ForkJoinPool pool;
+
+    //~ Inner Interfaces ---------------------------------------------------------------------------------------------------------
+
+    interface ChunkScanner<T> {
+        T scan(int chunk, long start, long end) throws IOException;
+    }
+
+    interface Task<T> {
+        T run(int index) throws IOException;
+    }
+
+    //~ Constructors -------------------------------------------------------------------------------------------------------------
+
+    private ParallelScan() {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------------------------------------
+
+    static boolean isEnabled() {
+        return parallelism > 1;
+    }
+
+    static int getParallelism() {
+        return parallelism;
+    }
+
+    static long getChunkSize(long length) {
+        return Math.max(minChunkSize, length / (parallelism * CHUNKS_PER_WORKER));
+    }
+
+    /**
+     * Changes the parallelism and the minimal chunk size, so that tests can
+     * run parallel scans of small dumps. Values which are not positive
+     * restore the defaults.
+     */
+    static synchronized void configure(int newParallelism, long newMinChunkSize) {
+        parallelism = newParallelism > 0 ? newParallelism : computeParallelism();
+        minChunkSize = newMinChunkSize > 0 ? newMinChunkSize : MIN_CHUNK_SIZE;
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    static <T> List<T> scan(long[] chunks, long endOffset, final ChunkScanner<T> scanner) {
+        List<Callable<T>> tasks = new ArrayList<>(chunks.length);
+        long[] progress = new long[chunks.length];
+
+        for (int i = 0; i < chunks.length; i++) {
+            final int chunk = i;
+            final long start = chunks[i];
+            final long end = i+1 < chunks.length ? chunks[i+1] : endOffset;
+
+            tasks.add(() -> scanner.scan(chunk, start, end));
+            progress[i] = end;
+        }
+        return invokeAll(tasks, chunks[0], progress, endOffset);
+    }
+
+    static <T> List<T> execute(int count, final Task<T> task) {
+        List<Callable<T>> tasks = new ArrayList<>(count);
+        long[] progress = new long[count];
+
+        for (int i = 0; i < count; i++) {
+            final int index = i;
+
+            tasks.add(() -> task.run(index));
+            progress[i] = i + 1;
+        }
+        return invokeAll(tasks, 0, progress, count);
+    }
+
+    private static <T> List<T> invokeAll(List<Callable<T>> tasks, long startValue, long[] progress, long endValue) {
+        List<ForkJoinTask<T>> futures = new ArrayList<>(tasks.size());
+        List<T> results = new ArrayList<>(tasks.size());
+        ForkJoinPool fjPool = getPool();
+
+        for (Callable<T> task : tasks) {
+            futures.add(fjPool.submit(task));
+        }
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                results.add(futures.get(i).get());
+                // progress is thread local, report it from the calling thread
+                HeapProgress.progress(0, startValue, progress[i], endValue);
+            }
+        } catch (InterruptedException ex) {
+            cancel(futures);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        } catch (ExecutionException ex) {
+            cancel(futures);
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            if (cause instanceof IOException) {
+                throw new IllegalArgumentException(cause.getLocalizedMessage(), cause);
+            }
+            throw new IllegalStateException(cause);
+        }
+        return results;
+    }
+
+    private static void cancel(List<? extends ForkJoinTask<?>> tasks) {
+        for (ForkJoinTask<?> task : tasks) {
+            task.cancel(false);
+        }
+    }
+
+    private static synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(parallelism);
+        }
+        return pool;
+    }
+
+    private static int computeParallelism() {
+        Integer value = Integer.getInteger(PARALLELISM_PROP);
+
+        if (value != null && value.intValue() > 0) {
+            return value.intValue();
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+}
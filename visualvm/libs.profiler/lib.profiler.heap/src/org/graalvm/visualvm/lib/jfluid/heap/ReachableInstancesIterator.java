@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+
+package org.graalvm.visualvm.lib.jfluid.heap;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+
+/**
+ * Iterates instances reachable from the root instance. Outgoing references
+ * are read directly from the dump buffer and visited instances are kept
+ * in a bitmap indexed by the position of the instance in idToOffsetMap.
+ * Instances are returned in the order of depth first traversal, children
+ * of every traversed instance are returned before the traversal continues
+ * with the last of them. The root is returned only if it is reachable
+ * from itself.
+ * <br>
+ * The bitmap can be reused by another traversal after {@link #clearVisited()},
+ * only the words set by this traversal are cleared.
+ */
+class ReachableInstancesIterator implements Iterator<Instance> {
+    //~ Instance fields ----------------------------------------------------------------------------------------------------------
+
+    private final HprofHeap heap;
+    private final HprofByteBuffer dumpBuffer;
+    private final int idSize;
+    private final Predicate<Field> excludedFields;
+    private final Map<Long,int[]> fieldOffsets;
+    private final long[] visited;
+    private int[] visitedWords;
+    private int visitedWordsCount;
+    private final long rootSlot;
+    private final long rootOffset;
+    private long[] stack;
+    private int stackSize;
+    private long[] next;
+    private int nextIndex;
+    private int nextSize;
+
+    //~ Constructors -------------------------------------------------------------------------------------------------------------
+
+    ReachableInstancesIterator(HprofHeap h, Instance root, Predicate<Field> excluded) {
+        this(h, root, excluded, createVisited(h));
+    }
+
+    ReachableInstancesIterator(HprofHeap h, Instance root, Predicate<Field> excluded, long[] visitedBitmap) {
+        heap = h;
+        dumpBuffer = h.dumpBuffer;
+        idSize = dumpBuffer.getIDSize();
+        excludedFields = excluded;
+        fieldOffsets = new HashMap<>();
+        visited = visitedBitmap;
+        visitedWords = new int[64];
+        stack = new long[64];
+        next = new long[64];
+
+        LongMap.Entry entry = h.idToOffsetMap.get(root.getInstanceId());
+        if (entry != null) {
+            rootSlot = entry.getSlot();
+            rootOffset = entry.getOffset();
+            stack[stackSize++] = rootOffset;
+        } else {
+            rootSlot = -1;
+            rootOffset = -1;
+        }
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------------------------------------
+
+    static long[] createVisited(HprofHeap h) {
+        return new long[(int) ((h.idToOffsetMap.getSlotCount() + 63) / 64)];
+    }
+
+    public boolean hasNext() {
+        while (nextIndex == nextSize) {
+            if (stackSize == 0) {
+                return false;
+            }
+            nextIndex = 0;
+            nextSize = 0;
+            addReferences(stack[--stackSize]);
+        }
+        return true;
+    }
+
+    public Instance next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return heap.getInstanceByOffset(new long[] {next[nextIndex++]});
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Sums sizes of the remaining reachable instances except the root,
+     * the sizes are read from the dump records without creating {@link Instance}s.
+     */
+    long getReachableSize() {
+        long size = 0;
+
+        while (hasNext()) {
+            long offset = next[nextIndex++];
+
+            if (offset != rootOffset) {
+                size += getSize(offset);
+            }
+        }
+        return size;
+    }
+
+    void clearVisited() {
+        for (int i = 0; i < visitedWordsCount; i++) {
+            visited[visitedWords[i]] = 0;
+        }
+        visitedWordsCount = 0;
+    }
+
+    private long getSize(long offset) {
+        ClassDumpSegment classDumpBounds = heap.getClassDumpSegment();
+        int tag = dumpBuffer.get(offset);
+
+        if (tag == HprofHeap.INSTANCE_DUMP) {
+            ClassDump classDump = classDumpBounds.getClassDumpByID(dumpBuffer.getID(offset + 1 + idSize + 4));
+
+            return classDump == null ? 0 : classDump.getInstanceSize();
+        } else if (tag == HprofHeap.OBJECT_ARRAY_DUMP) {
+            return classDumpBounds.getArraySize((byte) HprofHeap.OBJECT, dumpBuffer.getInt(offset + 1 + idSize + 4));
+        } else if (tag == HprofHeap.PRIMITIVE_ARRAY_DUMP) {
+            int length = dumpBuffer.getInt(offset + 1 + idSize + 4);
+
+            return classDumpBounds.getArraySize(dumpBuffer.get(offset + 1 + idSize + 4 + 4), length);
+        } else if (tag == HprofHeap.CLASS_DUMP) {
+            JavaClass javaLangClass = classDumpBounds.java_lang_Class;
+
+            return javaLangClass == null ? 0 : javaLangClass.getInstanceSize();
+        }
+        return 0;
+    }
+
+    private void addReferences(long offset) {
+        int tag = dumpBuffer.get(offset);
+
+        if (tag == HprofHeap.INSTANCE_DUMP) {
+            long classId = dumpBuffer.getID(offset + 1 + idSize + 4);
+
+            for (int fieldOffset : getFieldOffsets(classId)) {
+                addReference(dumpBuffer.getID(offset + fieldOffset));
+            }
+        } else if (tag == HprofHeap.OBJECT_ARRAY_DUMP) {
+            int length = dumpBuffer.getInt(offset + 1 + idSize + 4);
+            long position = offset + 1 + idSize + 4 + 4 + idSize;
+
+            for (int i = 0; i < length; i++, position += idSize) {
+                addReference(dumpBuffer.getID(position));
+            }
+        }
+    }
+
+    private void addReference(long instanceId) {
+        if (instanceId == 0L) {
+            return;
+        }
+        LongMap.Entry entry = heap.idToOffsetMap.get(instanceId);
+
+        if (entry == null) {
+            return;
+        }
+        long offset = entry.getOffset();
+        int tag = dumpBuffer.get(offset);
+
+        if (tag != HprofHeap.INSTANCE_DUMP && tag != HprofHeap.OBJECT_ARRAY_DUMP
+                && tag != HprofHeap.PRIMITIVE_ARRAY_DUMP && tag != HprofHeap.CLASS_DUMP) {
+            return;
+        }
+        long slot = entry.getSlot();
+        int word = (int) (slot >>> 6);
+        long mask = 1L << slot;
+
+        if ((visited[word] & mask) != 0) {
+            return;
+        }
+        if (visited[word] == 0) {
+            if (visitedWordsCount == visitedWords.length) {
+                visitedWords = Arrays.copyOf(visitedWords, visitedWordsCount * 2);
+            }
+            visitedWords[visitedWordsCount++] = word;
+        }
+        visited[word] |= mask;
+        if (nextSize == next.length) {
+            next = Arrays.copyOf(next, nextSize * 2);
+        }
+        next[nextSize++] = offset;
+        // the root is traversed already, other instances only when they are found first time
+        if (slot != rootSlot && tag != HprofHeap.PRIMITIVE_ARRAY_DUMP && tag != HprofHeap.CLASS_DUMP) {
+            if (stackSize == stack.length) {
+                stack = Arrays.copyOf(stack, stackSize * 2);
+            }
+            stack[stackSize++] = offset;
+        }
+    }
+
+    // offsets of followed object fields relative to the start of INSTANCE_DUMP record
+    private int[] getFieldOffsets(long classId) {
+        Long key = Long.valueOf(classId);
+        int[] offsets = fieldOffsets.get(key);
+
+        if (offsets == null) {
+            ClassDump classDump = heap.getClassDumpSegment().getClassDumpByID(classId);
+
+            offsets = new int[0];
+            if (classDump != null) {
+                List<Field> fields = classDump.getAllInstanceFields();
+                int fieldOffset = InstanceDump.getInstanceFieldValuesOffset(idSize);
+                int count = 0;
+
+                offsets = new int[fields.size()];
+                for (Field f : fields) {
+                    HprofField field = (HprofField) f;
+
+                    if (field.getValueType() == HprofHeap.OBJECT && (excludedFields == null || !excludedFields.test(field))) {
+                        offsets[count++] = fieldOffset;
+                    }
+                    fieldOffset += field.getValueSize();
+                }
+                offsets = Arrays.copyOf(offsets, count);
+            }
+            fieldOffsets.put(key, offsets);
+        }
+        return offsets;
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.lib.jfluid.heap;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds reverse references (referrers) of all instances in parallel.
+ * Instance chunks are scanned concurrently and every outgoing reference is
+ * emitted as a (target ID, referrer offset) pair into {@link PairPartitions}.
+ * Partitions are then sorted and written to {@link NumberList} as contiguous
+ * block chains. Referrers are sorted by their offset, so the resulting lists
+ * are the same as the lists created by sequential
+ * {@link LongMap.Entry#addReference(long)} calls.
+ */
+class ReferencesBuilder {
+
+    //~ Static fields/initializers -----------------------------------------------------------------------------------------------
+
+    private static final int WRITE_BUFFER_BLOCKS = 64 * 1024;
+
+    //~ Instance fields ----------------------------------------------------------------------------------------------------------
+
+    private final HprofHeap heap;
+    private final HprofByteBuffer dumpBuffer;
+    private final LongMap idToOffsetMap;
+    private final long[] chunks;
+    private PairPartitions partitions;
+
+    //~ Constructors -------------------------------------------------------------------------------------------------------------
+
+    ReferencesBuilder(HprofHeap h, long[] instanceChunks) {
+        heap = h;
+        dumpBuffer = heap.dumpBuffer;
+        idToOffsetMap = heap.idToOffsetMap;
+        chunks = instanceChunks;
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Computes references of all instances.
+     */
+    void computeReferences() throws IOException {
+        TagBounds bounds = heap.getAllInstanceDumpBounds();
+        // upper bound of number of references
+        long maxPairs = (bounds.endOffset - bounds.startOffset) / dumpBuffer.getIDSize();
+
+        partitions = new PairPartitions(heap.cacheDirectory, ".rpt", maxPairs); // NOI18N
+        try {
+            HeapProgress.progressStart();
+            ParallelScan.scan(chunks, bounds.endOffset, this::scanChunk);
+            HeapProgress.progressFinish();
+            HeapProgress.progressStart();
+            PairPartitions.process(partitions.split(), this::writePartition);
+            HeapProgress.progressFinish();
+        } finally {
+            partitions.delete();
+        }
+    }
+
+    private Object scanChunk(int chunk, long start, long end) throws IOException {
+        ClassDumpSegment classDumpBounds = heap.getClassDumpSegment();
+        Map<Long,JavaClass> classIdToClassMap = classDumpBounds.getClassIdToClassMap();
+        Map<ClassDump,int[]> objectFieldsMap = new HashMap<>();
+        PairPartitions.Writer writer = partitions.createWriter();
+        int idSize = dumpBuffer.getIDSize();
+        long[] offset = new long[] { start };
+
+        while (offset[0] < end) {
+            long instanceOffset = offset[0];
+            int tag = heap.readDumpTag(offset);
+
+            if (tag == HprofHeap.INSTANCE_DUMP) {
+                long classId = dumpBuffer.getID(instanceOffset+1+idSize+4);
+                ClassDump classDump = (ClassDump) classIdToClassMap.get(classId);
+
+                if (classDump != null) {
+                    int[] objectFields = objectFieldsMap.get(classDump);
+                    long inOff = instanceOffset+1+idSize+4+idSize+4;
+
+                    if (objectFields == null) {
+                        objectFields = getObjectFieldOffsets(classDump);
+                        objectFieldsMap.put(classDump, objectFields);
+                    }
+                    for (int fieldOffset : objectFields) {
+                        addPair(writer, dumpBuffer.getID(inOff+fieldOffset), instanceOffset);
+                    }
+                }
+            } else if (tag == HprofHeap.OBJECT_ARRAY_DUMP) {
+                int elements = dumpBuffer.getInt(instanceOffset+1+idSize+4);
+                long position = instanceOffset+1+idSize+4+4+idSize;
+
+                for (int i = 0; i < elements; i++, position += idSize) {
+                    addPair(writer, dumpBuffer.getID(position), instanceOffset);
+                }
+            }
+        }
+        writer.flush();
+        return null;
+    }
+
+    private static int[] getObjectFieldOffsets(ClassDump classDump) {
+        List<Integer> offsets = new ArrayList<>();
+        int fieldOffset = 0;
+
+        for (Field f : classDump.getAllInstanceFields()) {
+            HprofField field = (HprofField) f;
+
+            if (field.getValueType() == HprofHeap.OBJECT) {
+                offsets.add(fieldOffset);
+            }
+            fieldOffset += field.getValueSize();
+        }
+        int[] offsetsArr = new int[offsets.size()];
+        for (int i = 0; i < offsetsArr.length; i++) {
+            offsetsArr[i] = offsets.get(i).intValue();
+        }
+        return offsetsArr;
+    }
+
+    private static void addPair(PairPartitions.Writer writer, long targetId, long referrerOffset) throws IOException {
+        if (targetId != 0) {
+            writer.add(targetId, referrerOffset);
+        }
+    }
+
+    private void writePartition(PairPartitions.Partition partition) throws IOException {
+        int pairs = partition.getPairsCount();
+        long[] targets = new long[pairs];
+        long[] referrers = new long[pairs];
+        NumberList referenceList = idToOffsetMap.getReferenceList();
+        int blockSize = referenceList.getBlockSize();
+        byte[] blocks = new byte[WRITE_BUFFER_BLOCKS * blockSize];
+        long blocksOffset = 0;
+        int usedBlocks = 0;
+        int reservedBlocks = 0;
+        long[] referrerIds = new long[16];
+
+        partition.read(targets, referrers);
+        partition.delete();
+        LongPairSort.sort(targets, referrers, 0, pairs);
+        for (int i = 0; i < pairs; ) {
+            long targetId = targets[i];
+            int refs = 0;
+
+            for (long lastReferrer = -1; i < pairs && targets[i] == targetId; i++) {
+                long referrer = referrers[i];
+
+                if (referrer != lastReferrer) {
+                    if (refs == referrerIds.length) {
+                        long[] newIds = new long[refs * 2];
+                        System.arraycopy(referrerIds, 0, newIds, 0, refs);
+                        referrerIds = newIds;
+                    }
+                    referrerIds[refs++] = dumpBuffer.getID(referrer + 1);
+                    lastReferrer = referrer;
+                }
+            }
+            LongMap.Entry entry = idToOffsetMap.get(targetId);
+
+            if (entry == null) {
+                continue;
+            }
+            if (refs == 1) {
+                entry.setReferences(referrerIds[0], false);
+                continue;
+            }
+            int listBlocks = NumberList.getBlocksCount(refs);
+
+            if (usedBlocks + listBlocks > reservedBlocks) {
+                if (usedBlocks > 0) {
+                    referenceList.writeBlocks(blocksOffset, blocks, usedBlocks);
+                }
+                reservedBlocks = Math.max(WRITE_BUFFER_BLOCKS, listBlocks);
+                if (reservedBlocks * blockSize > blocks.length) {
+                    blocks = new byte[reservedBlocks * blockSize];
+                } else {
+                    Arrays.fill(blocks, 0, usedBlocks * blockSize, (byte) 0);
+                }
+                blocksOffset = referenceList.reserveBlocks(reservedBlocks);
+                usedBlocks = 0;
+            }
+            long listOffset = referenceList.encodeNumbers(blocks, blocksOffset, usedBlocks, referrerIds, 0, refs);
+
+            entry.setReferences(listOffset, true);
+            usedBlocks += listBlocks;
+        }
+        if (usedBlocks > 0) {
+            referenceList.writeBlocks(blocksOffset, blocks, usedBlocks);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+
+package org.graalvm.visualvm.lib.jfluid.heap;
+
+import java.util.Iterator;
+
+
+/**
+ * Instances of one {@link JavaClass} ordered by a size from the biggest one.
+ * Instances with the same size are in the order of {@link JavaClass#getInstancesIterator()}.
+ * The order is computed once and supports random access, so that any range of
+ * the sorted instances can be read without sorting them again.
+ */
+public interface SortedInstances {
+    //~ Inner Classes ------------------------------------------------------------------------------------------------------------
+
+    /**
+     * size used to order the instances.
+     */
+    enum Key {
+        /** shallow size, see {@link Instance#getSize()} */
+        SIZE,
+        /** retained size, see {@link Instance#getRetainedSize()} */
+        RETAINED_SIZE
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * returns number of the sorted instances.
+     * <br>
+     * Speed: fast
+     * @return number of instances
+     */
+    long getInstancesCount();
+
+    /**
+     * returns ID of the instance at the index.
+     * <br>
+     * Speed: fast
+     * @param index position of the instance, the biggest instance has index 0
+     * @return ID of the instance
+     */
+    long getInstanceId(long index);
+
+    /**
+     * returns an iterator over the sorted instances starting at the index.
+     * <br>
+     * Speed: fast for the first {@link Instance}, normal for the rest
+     * @param index position of the first returned instance
+     * @return an <tt>Iterator</tt> over the sorted {@link Instance}es
+     */
+    Iterator<Instance> getInstancesIterator(long index);
+}
@@ -0,0 +1,371 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+
+package org.graalvm.visualvm.lib.jfluid.heap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Order of instances of one class by size. Instances are read in runs, which are
+ * sorted in memory. If there is more than one run, the runs are spilled to the
+ * cache directory and merged into a file with sorted instance ids. The file is
+ * deleted when the index is closed.
+ */
+class SortedInstancesIndex implements SortedInstances {
+
+    //~ Static fields/initializers -----------------------------------------------------------------------------------------------
+
+    // number of instances sorted in memory
+    private static final int RUN_SIZE = Integer.getInteger("org.graalvm.visualvm.lib.jfluid.heap.sortRunSize", 1024 * 1024);  // NOI18N
+
+    //~ Instance fields ----------------------------------------------------------------------------------------------------------
+
+    private final HprofHeap heap;
+    private final long count;
+    // sorted ids of small classes
+    private final long[] ids;
+    // file with sorted ids of big classes
+    private final File idsFile;
+    private RandomAccessFile idsRaFile;
+
+    //~ Constructors -------------------------------------------------------------------------------------------------------------
+
+    private SortedInstancesIndex(HprofHeap h, long[] sortedIds) {
+        heap = h;
+        count = sortedIds.length;
+        ids = sortedIds;
+        idsFile = null;
+    }
+
+    private SortedInstancesIndex(HprofHeap h, long c, File file) {
+        heap = h;
+        count = c;
+        ids = null;
+        idsFile = file;
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------------------------------------
+
+    static SortedInstancesIndex create(HprofHeap heap, JavaClass jcls, Key key) throws IOException {
+        return create(heap, jcls, key, RUN_SIZE);
+    }
+
+    static SortedInstancesIndex create(HprofHeap heap, JavaClass jcls, Key key, int runSize) throws IOException {
+        Iterator<Instance> instances = jcls.getInstancesIterator();
+        List<File> runs = new ArrayList<>();
+        Run run = new Run(Math.max(1, Math.min(jcls.getInstancesCount(), runSize)));
+        long seq = 0;
+
+        HeapProgress.progressStart();
+        try {
+            while (instances.hasNext()) {
+                Instance instance = instances.next();
+
+                if (run.isFull()) {
+                    runs.add(run.spill(heap.cacheDirectory));
+                }
+                run.add(getValue(instance, key), seq, instance.getInstanceId());
+                HeapProgress.progress(seq, 0, seq, jcls.getInstancesCount());
+                seq++;
+            }
+            if (runs.isEmpty()) {
+                return new SortedInstancesIndex(heap, run.sortedIds());
+            }
+            runs.add(run.spill(heap.cacheDirectory));
+            return new SortedInstancesIndex(heap, seq, merge(heap.cacheDirectory, runs));
+        } finally {
+            for (File f : runs) {
+                f.delete();
+            }
+            HeapProgress.progressFinish();
+        }
+    }
+
+    public long getInstancesCount() {
+        return count;
+    }
+
+    public long getInstanceId(long index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index: "+index+", Size: "+count);   // NOI18N
+        }
+        if (ids != null) {
+            return ids[(int) index];
+        }
+        long[] id = new long[1];
+        readIds(index, id, 1);
+        return id[0];
+    }
+
+    public Iterator<Instance> getInstancesIterator(long index) {
+        if (ids != null) {
+            return new ArrayIterator(index);
+        }
+        return new FileIterator(index);
+    }
+
+    /**
+     * Closes the index, the file with sorted ids is deleted. The index must
+     * not be used after it is closed.
+     */
+    synchronized void close() {
+        if (idsFile == null) {
+            return;
+        }
+        try {
+            if (idsRaFile != null) {
+                idsRaFile.close();
+                idsRaFile = null;
+            }
+        } catch (IOException ex) {
+            throw new IllegalArgumentException(ex.getLocalizedMessage(), ex);
+        } finally {
+            idsFile.delete();
+        }
+    }
+
+    private synchronized void readIds(long index, long[] buffer, int length) {
+        try {
+            if (idsRaFile == null) {
+                idsRaFile = new RandomAccessFile(idsFile, "r");   // NOI18N
+            }
+            byte[] bytes = new byte[length * 8];
+
+            idsRaFile.seek(index * 8);
+            idsRaFile.readFully(bytes);
+            ByteBuffer.wrap(bytes).asLongBuffer().get(buffer, 0, length);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException(ex.getLocalizedMessage(), ex);
+        }
+    }
+
+    private static long getValue(Instance instance, Key key) {
+        switch (key) {
+            case SIZE:
+                return instance.getSize();
+            case RETAINED_SIZE:
+                return instance.getRetainedSize();
+            default:
+                throw new IllegalArgumentException("Invalid key " + key); // NOI18N
+        }
+    }
+
+    private static File merge(CacheDirectory cacheDirectory, List<File> runs) throws IOException {
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(runs.size());
+        File sorted = cacheDirectory.createTempFile("NBProfiler", ".ord"); // NOI18N
+        boolean merged = false;
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(sorted), 64 * 1024))) {
+            for (File run : runs) {
+                RunReader reader = new RunReader(run);
+
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+
+                out.writeLong(reader.id);
+                if (reader.next()) {
+                    queue.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+            merged = true;
+        } finally {
+            for (RunReader reader : queue) {
+                reader.close();
+            }
+            if (!merged) {
+                sorted.delete();
+            }
+        }
+        return sorted;
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------------------------------------
+
+    private static class Run {
+
+        // negated values, so that the biggest value is sorted first
+        private final long[] keys;
+        private final long[] seqs;
+        // ids by seq - firstSeq, seqs of a run are consecutive
+        private final long[] ids;
+        private long firstSeq;
+        private int size;
+
+        private Run(int capacity) {
+            keys = new long[capacity];
+            seqs = new long[capacity];
+            ids = new long[capacity];
+        }
+
+        private boolean isFull() {
+            return size == ids.length;
+        }
+
+        private void add(long value, long seq, long id) {
+            if (size == 0) {
+                firstSeq = seq;
+            }
+            keys[size] = -value;
+            seqs[size] = seq;
+            ids[size++] = id;
+        }
+
+        private long[] sortedIds() {
+            LongPairSort.sort(keys, seqs, 0, size);
+            long[] sortedIds = new long[size];
+
+            for (int i = 0; i < size; i++) {
+                sortedIds[i] = getId(i);
+            }
+            return sortedIds;
+        }
+
+        private File spill(CacheDirectory cacheDirectory) throws IOException {
+            LongPairSort.sort(keys, seqs, 0, size);
+            File file = cacheDirectory.createTempFile("NBProfiler", ".run"); // NOI18N
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024))) {
+                for (int i = 0; i < size; i++) {
+                    out.writeLong(keys[i]);
+                    out.writeLong(seqs[i]);
+                    out.writeLong(getId(i));
+                }
+            }
+            size = 0;
+            return file;
+        }
+
+        private long getId(int index) {
+            return ids[(int) (seqs[index] - firstSeq)];
+        }
+    }
+
+    private static class RunReader implements Comparable<RunReader> {
+
+        private final DataInputStream in;
+        private long key;
+        private long seq;
+        private long id;
+
+        private RunReader(File run) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(run), 64 * 1024));
+        }
+
+        private boolean next() throws IOException {
+            try {
+                key = in.readLong();
+            } catch (EOFException ex) {
+                return false;
+            }
+            seq = in.readLong();
+            id = in.readLong();
+            return true;
+        }
+
+        private void close() throws IOException {
+            in.close();
+        }
+
+        public int compareTo(RunReader other) {
+            int result = Long.compare(key, other.key);
+            return result != 0 ? result : Long.compare(seq, other.seq);
+        }
+    }
+
+    private class ArrayIterator implements Iterator<Instance> {
+
+        private int index;
+
+        private ArrayIterator(long start) {
+            index = (int) Math.min(Math.max(start, 0), count);
+        }
+
+        public boolean hasNext() {
+            return index < ids.length;
+        }
+
+        public Instance next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return heap.getInstanceByID(ids[index++]);
+        }
+    }
+
+    private class FileIterator implements Iterator<Instance> {
+
+        private final long[] buffer = new long[4096];
+        private long bufferStart;
+        private int bufferSize;
+        private long index;
+
+        private FileIterator(long start) {
+            index = Math.min(Math.max(start, 0), count);
+            bufferStart = index;
+        }
+
+        public boolean hasNext() {
+            return index < count;
+        }
+
+        public Instance next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (index - bufferStart >= bufferSize) {
+                fillBuffer();
+            }
+            return heap.getInstanceByID(buffer[(int) (index++ - bufferStart)]);
+        }
+
+        private void fillBuffer() {
+            bufferStart = index;
+            bufferSize = (int) Math.min(buffer.length, count - index);
+            readIds(index, buffer, bufferSize);
+        }
+    }
+}
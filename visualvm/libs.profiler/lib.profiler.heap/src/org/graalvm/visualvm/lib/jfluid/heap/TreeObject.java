@@ -26,10 +26,8 @@
 package org.graalvm.visualvm.lib.jfluid.heap;
 
 import java.io.IOException;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
 
 /**
  *
@@ -45,7 +43,7 @@ class TreeObject {
     private HprofHeap heap;
     private LongBuffer readBuffer;
     private LongBuffer writeBuffer;
-    private Set<Long> unique;
+    private OffHeapLongSet unique;
 //private long nextLevelSize;
 
     //~ Constructors -------------------------------------------------------------------------------------------------------------
@@ -162,6 +160,10 @@ class TreeObject {
     private void deleteBuffers() {
         readBuffer.delete();
         writeBuffer.delete();
+        if (unique != null) {
+            unique.delete();
+            unique = null;
+        }
     }
         
     private long readLong() throws IOException {
@@ -174,7 +176,11 @@ class TreeObject {
         writeBuffer = b;
         readBuffer.startReading();
         writeBuffer.reset();
-        unique = new HashSet<>(4000);
+        if (unique == null) {
+            unique = new OffHeapLongSet(heap.cacheDirectory);
+        } else {
+            unique.clear();
+        }
     }
     
     private void writeLong(long instanceId) throws IOException {
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.lib.jfluid.heap;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the snapshot segments of the heap cache directory.
+ */
+public class CacheDirectoryTest {
+    private File dir;
+    private CacheDirectory cacheDir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("CacheDirectoryTest").toFile();
+        cacheDir = new CacheDirectory(dir);
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    /**
+     * Test of commitSnapshot and openSnapshot methods, of class CacheDirectory.
+     */
+    @Test
+    public void testCommitAndOpenSnapshot() throws IOException {
+        System.out.println("commitAndOpenSnapshot");
+        final File index = createFile("index.map", 100000);
+        cacheDir.commitSnapshot(out -> {
+            out.writeUTF("snapshot");
+            CacheDirectory.writeFile(out, index);
+            out.writeLong(42);
+        });
+        cacheDir.commitSnapshot(out -> {
+            out.writeUTF("second");
+            CacheDirectory.writeFile(out, index);
+        });
+        assertTrue(cacheDir.hasSnapshot());
+        assertTrue(cacheDir.isCommitted(index));
+
+        CacheDirectory reopened = new CacheDirectory(dir);
+        try (DataInputStream dis = reopened.openSnapshot()) {
+            assertEquals("second", dis.readUTF());
+            assertEquals(index, reopened.getCacheFile(dis.readUTF()));
+        }
+        assertTrue(reopened.isCommitted(index));
+    }
+
+    /**
+     * Test that only files referenced by the snapshot are part of it.
+     */
+    @Test
+    public void testReferencedFilesOnly() throws IOException {
+        System.out.println("referencedFilesOnly");
+        final File index = createFile("index.map", 1000);
+        File running = createFile("phase.run", 1000);
+        cacheDir.setDirty(true);
+        cacheDir.commitSnapshot(out -> CacheDirectory.writeFile(out, index));
+        assertTrue(cacheDir.isCommitted(index));
+        assertFalse(cacheDir.isCommitted(running));
+
+        // content of a file of an unfinished phase is not verified, the file is deleted
+        writeByte(running, 0, 1);
+        CacheDirectory reopened = new CacheDirectory(dir);
+        reopened.openSnapshot().close();
+        assertTrue(index.exists());
+        assertFalse(running.exists());
+    }
+
+    /**
+     * Test of the checksum of a snapshot segment.
+     */
+    @Test(expected = IOException.class)
+    public void testCorruptedSegment() throws IOException {
+        System.out.println("corruptedSegment");
+        cacheDir.commitSnapshot(out -> out.writeUTF("snapshot"));
+        File[] segments = dir.listFiles((d, name) -> name.endsWith(".nphd"));
+        assertEquals(1, segments.length);
+        writeByte(segments[0], 10, 'x');
+        new CacheDirectory(dir).openSnapshot();
+    }
+
+    /**
+     * Test of the checksum of a referenced file after an interrupted session.
+     */
+    @Test
+    public void testCorruptedFile() throws IOException {
+        System.out.println("corruptedFile");
+        final File index = createFile("index.map", 1000);
+        cacheDir.commitSnapshot(out -> CacheDirectory.writeFile(out, index));
+        writeByte(index, 500, 1);
+
+        // the content is verified only if the cache is dirty
+        new CacheDirectory(dir).openSnapshot().close();
+        cacheDir.setDirty(true);
+        try {
+            new CacheDirectory(dir).openSnapshot();
+            fail("Corrupted file not detected");
+        } catch (IOException ex) {
+            // expected
+        }
+    }
+
+    private File createFile(String name, int length) throws IOException {
+        File f = new File(dir, name);
+        try (FileOutputStream out = new FileOutputStream(f)) {
+            out.write(new byte[length]);
+        }
+        return f;
+    }
+
+    private static void writeByte(File f, long offset, int value) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.seek(offset);
+            raf.write(value);
+        }
+    }
+}
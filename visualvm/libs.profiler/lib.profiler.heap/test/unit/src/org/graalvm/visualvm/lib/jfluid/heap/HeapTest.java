@@ -26,6 +26,7 @@
 package org.graalvm.visualvm.lib.jfluid.heap;
 
 import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
 import java.util.Map;
 import java.util.Date;
 import java.io.File;
@@ -36,18 +37,31 @@ import java.io.InputStreamReader;
 import java.io.LineNumberReader;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.RandomAccessFile;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Properties;
+import java.util.Set;
 import java.util.TimeZone;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -204,6 +218,69 @@ public class HeapTest {
         assertEquals(25080, i2.getRetainedSize());
     }
     
+    /**
+     * Test of getBiggestObjectsByRetainedSize method, the objects have to be
+     * the biggest instances sorted by retained size and instance id, both from
+     * the index kept in the snapshot and above its size, sequentially and in parallel.
+     */
+    @Test
+    public void testGetBiggestObjectsByRetainedSizeOrder() throws Exception {
+        System.out.println("getBiggestObjectsByRetainedSizeOrder");
+        File dir = Files.createTempDirectory("testGetBiggestObjectsByRetainedSizeOrder").toFile();
+        try {
+            List<Instance> instances = new ArrayList<>();
+            Iterator<Instance> it = heap.getAllInstancesIterator();
+
+            while (it.hasNext()) {
+                instances.add(it.next());
+            }
+            // class objects are indexed together with instances
+            for (JavaClass jcls : heap.getAllClasses()) {
+                Instance classObject = heap.getInstanceByID(jcls.getJavaClassId());
+
+                if (classObject != null) {
+                    instances.add(classObject);
+                }
+            }
+            instances.sort((i1, i2) -> {
+                int diff = Long.compare(i2.getRetainedSize(), i1.getRetainedSize());
+                return diff != 0 ? diff : Long.compare(i1.getInstanceId(), i2.getInstanceId());
+            });
+            List<Long> expected = new ArrayList<>();
+            for (Instance i : instances) {
+                expected.add(i.getInstanceId());
+            }
+            // the index holds all objects of the small heap dump, bigger number is computed from idToOffsetMap
+            int[] counts = new int[] {1, 100, expected.size(), expected.size() + 10};
+
+            ParallelScan.configure(4, 64 * 1024);
+            File dumpFile = copyHeapDump(dir);
+            Heap parallelHeap = HeapFactory.createHeap(dumpFile);
+            parallelHeap.getBiggestObjectsByRetainedSize(1);
+            // the index is loaded from the snapshot committed by the parallel heap
+            Heap cachedHeap = HeapFactory.createHeap(dumpFile);
+            for (int count : counts) {
+                int number = Math.min(count, expected.size());
+
+                assertEquals(expected.subList(0, number), getInstanceIds(heap.getBiggestObjectsByRetainedSize(count)));
+                assertEquals(expected.subList(0, number), getInstanceIds(parallelHeap.getBiggestObjectsByRetainedSize(count)));
+                assertEquals(expected.subList(0, number), getInstanceIds(cachedHeap.getBiggestObjectsByRetainedSize(count)));
+            }
+        } finally {
+            ParallelScan.configure(0, 0);
+            deleteDirectory(dir);
+        }
+    }
+
+    private static List<Long> getInstanceIds(List<Instance> instances) {
+        List<Long> ids = new ArrayList<>(instances.size());
+
+        for (Instance i : instances) {
+            ids.add(i.getInstanceId());
+        }
+        return ids;
+    }
+
     /**
      * Test of getRetainedSizeByClass method, of class JavaClass.
      */
@@ -219,6 +296,55 @@ public class HeapTest {
         assertEquals(600, array.getRetainedSizeByClass());
     }
 
+    /**
+     * Test of getReachableSize method, of class Instance.
+     */
+    @Test
+    public void testGetReachableSize() {
+        System.out.println("getReachableSize");
+        Iterator<Instance> instanceIt = heap.getAllInstancesIterator();
+
+        for (int i = 0; instanceIt.hasNext(); i++) {
+            Instance instance = instanceIt.next();
+
+            if (i % 97 == 0) {
+                assertEquals("Reachable size of 0x"+Long.toHexString(instance.getInstanceId()), getReachableSizeByBFS(instance), instance.getReachableSize());
+            }
+        }
+        Instance biggest = heap.getBiggestObjectsByRetainedSize(1).get(0);
+        assertEquals(getReachableSizeByBFS(biggest), biggest.getReachableSize());
+    }
+
+    private static long getReachableSizeByBFS(Instance root) {
+        Set<Long> visited = new HashSet<>();
+        Deque<Instance> queue = new ArrayDeque<>();
+        long size = 0;
+
+        visited.add(root.getInstanceId());
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            Instance instance = queue.poll();
+            List<Instance> references = new ArrayList<>();
+
+            size += instance.getSize();
+            if (instance instanceof ObjectArrayInstance) {
+                references.addAll(((ObjectArrayInstance) instance).getValues());
+            } else {
+                for (FieldValue value : instance.getFieldValues()) {
+                    if (value instanceof ObjectFieldValue) {
+                        references.add(((ObjectFieldValue) value).getInstance());
+                    }
+                }
+            }
+            for (Instance reference : references) {
+                if (reference != null && visited.add(reference.getInstanceId())) {
+                    queue.add(reference);
+                }
+            }
+        }
+        return size;
+    }
+
     /**
      * Test of getAllInstancesIterator method, of class Heap.
      */
@@ -361,6 +487,785 @@ public class HeapTest {
         outFile.delete();
     }
 
+    /**
+     * Test of getSortedInstances method, instances of every class have to be
+     * in the order of the instances of the class sorted by size or retained size.
+     */
+    @Test
+    public void testGetSortedInstances() {
+        System.out.println("getSortedInstances");
+        int sorted = 0;
+
+        for (JavaClass jcls : heap.getAllClasses()) {
+            if (jcls.getInstancesCount() < 2) continue;
+            for (final SortedInstances.Key key : SortedInstances.Key.values()) {
+                List<Instance> instances = new ArrayList<>(jcls.getInstances());
+                // List.sort is stable, instances with the same size keep the order of the class
+                instances.sort(Comparator.comparingLong((Instance i) -> key == SortedInstances.Key.SIZE ? i.getSize() : i.getRetainedSize()).reversed());
+                SortedInstances sortedInstances = heap.getSortedInstances(jcls, key);
+                Iterator<Instance> it = sortedInstances.getInstancesIterator(0);
+
+                assertEquals(jcls.getName(), instances.size(), sortedInstances.getInstancesCount());
+                for (Instance i : instances) {
+                    assertEquals(jcls.getName(), i.getInstanceId(), it.next().getInstanceId());
+                }
+                assertFalse(it.hasNext());
+                sorted++;
+            }
+        }
+        assertTrue(sorted > 0);
+    }
+
+    /**
+     * Test of getDuplicateArrays method, the groups have to be the same as
+     * primitive arrays grouped by their class and values, ordered by wasted
+     * size, sequentially, in parallel, with partitions split over several
+     * passes and from the cache snapshot.
+     */
+    @Test
+    public void testGetDuplicateArrays() throws Exception {
+        System.out.println("getDuplicateArrays");
+        File dir = Files.createTempDirectory("testGetDuplicateArrays").toFile();
+        try {
+            Map<List<Object>,List<Long>> arrays = new HashMap<>();
+            Iterator<Instance> it = heap.getAllInstancesIterator();
+
+            while (it.hasNext()) {
+                Instance i = it.next();
+
+                if (i instanceof PrimitiveArrayInstance) {
+                    List<Object> content = new ArrayList<>();
+                    content.add(i.getJavaClass().getName());
+                    content.addAll(((PrimitiveArrayInstance) i).getValues());
+                    arrays.computeIfAbsent(content, k -> new ArrayList<>()).add(i.getInstanceId());
+                }
+            }
+            List<List<Long>> expected = new ArrayList<>();
+            for (List<Long> ids : arrays.values()) {
+                if (ids.size() > 1) {
+                    Collections.sort(ids);
+                    expected.add(ids);
+                }
+            }
+            expected.sort((ids1, ids2) -> {
+                int diff = Long.compare(getWastedSize(ids2), getWastedSize(ids1));
+                return diff != 0 ? diff : Long.compare(ids1.get(0), ids2.get(0));
+            });
+            assertFalse(expected.isEmpty());
+
+            ParallelScan.configure(1, 0);
+            File dumpFile = copyHeapDump(dir);
+            Heap sequentialHeap = HeapFactory.createHeap(dumpFile);
+            assertSameDuplicateArrays(expected, sequentialHeap.getDuplicateArrays(Integer.MAX_VALUE));
+            ((HprofHeap) sequentialHeap).close();
+            ParallelScan.configure(4, 64 * 1024);
+            deleteDirectory(new File(dir, dumpFile.getName()+".hwcache"));
+            Heap parallelHeap = HeapFactory.createHeap(dumpFile);
+            assertSameDuplicateArrays(expected, parallelHeap.getDuplicateArrays(Integer.MAX_VALUE));
+            ((HprofHeap) parallelHeap).close();
+            PairPartitions.configure(16);
+            deleteDirectory(new File(dir, dumpFile.getName()+".hwcache"));
+            Heap splitHeap = HeapFactory.createHeap(dumpFile);
+            assertSameDuplicateArrays(expected, splitHeap.getDuplicateArrays(Integer.MAX_VALUE));
+            Heap cachedHeap = HeapFactory.createHeap(dumpFile);
+            assertSameDuplicateArrays(expected, cachedHeap.getDuplicateArrays(Integer.MAX_VALUE));
+            assertSameDuplicateArrays(expected.subList(0, 1), cachedHeap.getDuplicateArrays(1));
+        } finally {
+            ParallelScan.configure(0, 0);
+            PairPartitions.configure(0);
+            deleteDirectory(dir);
+        }
+    }
+
+    private long getWastedSize(List<Long> ids) {
+        return heap.getInstanceByID(ids.get(0)).getSize() * (ids.size() - 1);
+    }
+
+    private void assertSameDuplicateArrays(List<List<Long>> expected, List<DuplicateArrays> duplicates) {
+        assertEquals(expected.size(), duplicates.size());
+        for (int i = 0; i < expected.size(); i++) {
+            List<Long> ids = expected.get(i);
+            DuplicateArrays group = duplicates.get(i);
+            PrimitiveArrayInstance array = (PrimitiveArrayInstance) heap.getInstanceByID(ids.get(0));
+
+            assertEquals(ids, getInstanceIds(group.getInstances()));
+            assertEquals(ids.size(), group.getInstancesCount());
+            assertEquals(array.getJavaClass().getName(), group.getJavaClass().getName());
+            assertEquals(array.getLength(), group.getLength());
+            assertEquals(array.getSize(), group.getInstanceSize());
+            assertEquals(getWastedSize(ids), group.getWastedSize());
+        }
+    }
+
+    /**
+     * Test of concurrent computations, the cache snapshot is committed
+     * only when no computation is running.
+     */
+    @Test
+    public void testConcurrentComputations() throws Exception {
+        System.out.println("concurrentComputations");
+        File dir = Files.createTempDirectory("testConcurrentComputations").toFile();
+        try {
+            File dumpFile = copyHeapDump(dir);
+            final Heap concurrentHeap = HeapFactory.createHeap(dumpFile);
+            final Instance string = concurrentHeap.getJavaClassByName(String.class.getName()).getInstances().get(0);
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<?>> results = new ArrayList<>();
+                results.add(executor.submit(() -> concurrentHeap.getBiggestObjectsByRetainedSize(1)));
+                results.add(executor.submit(() -> concurrentHeap.getDuplicateArrays(10)));
+                results.add(executor.submit(() -> concurrentHeap.getJavaClassByName(String.class.getName()).getRetainedSizeByClass()));
+                results.add(executor.submit(() -> string.getNearestGCRootPointer()));
+                for (Future<?> result : results) {
+                    result.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+            assertSameHeap(heap, concurrentHeap);
+            assertEquals(heap.getDuplicateArrays(10).size(), concurrentHeap.getDuplicateArrays(10).size());
+            // reopen from the committed cache snapshot
+            Heap cachedHeap = HeapFactory.createHeap(dumpFile);
+            assertSameHeap(heap, cachedHeap);
+            assertEquals(concurrentHeap.getDuplicateArrays(10).size(), cachedHeap.getDuplicateArrays(10).size());
+        } finally {
+            deleteDirectory(dir);
+        }
+    }
+
+    /**
+     * Test of a failed computation, no snapshot is committed until the failed
+     * computation is completed again.
+     */
+    @Test
+    public void testFailedComputation() throws Exception {
+        System.out.println("failedComputation");
+        File dir = Files.createTempDirectory("testFailedComputation").toFile();
+        try {
+            File dumpFile = copyHeapDump(dir);
+            File cacheDir = new File(dir, dumpFile.getName()+".hwcache");
+            HprofHeap failingHeap = (HprofHeap) HeapFactory.createHeap(dumpFile);
+            Object computation = new Object();
+            List<String> segments = getSegmentNames(cacheDir);
+
+            failingHeap.startComputation();
+            failingHeap.finishComputation(computation, false);
+            failingHeap.getBiggestObjectsByRetainedSize(1);
+            assertEquals(segments, getSegmentNames(cacheDir));
+
+            failingHeap.startComputation();
+            failingHeap.finishComputation(computation, true);
+            assertFalse(segments.equals(getSegmentNames(cacheDir)));
+            segments = getSegmentNames(cacheDir);
+            failingHeap.getJavaClassByName(String.class.getName()).getRetainedSizeByClass();
+            assertFalse(segments.equals(getSegmentNames(cacheDir)));
+            failingHeap.close();
+        } finally {
+            deleteDirectory(dir);
+        }
+    }
+
+    private static List<String> getSegmentNames(File cacheDir) {
+        List<String> names = new ArrayList<>();
+
+        for (File f : cacheDir.listFiles((d, name) -> name.endsWith(".nphd"))) {
+            names.add(f.getName());
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * Test of the dominator tree committed to the cache.
+     */
+    @Test
+    public void testDominatorTreeSnapshot() throws Exception {
+        System.out.println("dominatorTreeSnapshot");
+        File dir = Files.createTempDirectory("testDominatorTreeSnapshot").toFile();
+        try {
+            File dumpFile = copyHeapDump(dir);
+            // retained sizes by class are computed from the dominator tree of the reopened heap
+            HeapFactory.createHeap(dumpFile).getBiggestObjectsByRetainedSize(1);
+            Heap cachedHeap = HeapFactory.createHeap(dumpFile);
+            for (JavaClass jcls : heap.getAllClasses()) {
+                JavaClass cachedClass = cachedHeap.getJavaClassByID(jcls.getJavaClassId());
+                assertEquals(jcls.getName(), jcls.getRetainedSizeByClass(), cachedClass.getRetainedSizeByClass());
+            }
+        } finally {
+            deleteDirectory(dir);
+        }
+    }
+
+    /**
+     * Test of the heap loaded from the cache snapshot, the heap has to be the
+     * same as the one computed from the dump. Corrupted snapshot segment or
+     * index file of an interrupted session is detected and the heap is
+     * computed again.
+     */
+    @Test
+    public void testCacheSnapshot() throws Exception {
+        System.out.println("cacheSnapshot");
+        File dir = Files.createTempDirectory("testCacheSnapshot").toFile();
+        try {
+            File dumpFile = copyHeapDump(dir);
+            File cacheDir = new File(dir, dumpFile.getName()+".hwcache");
+            Heap computedHeap = HeapFactory.createHeap(dumpFile);
+            computedHeap.getBiggestObjectsByRetainedSize(1);
+            ((HprofHeap) computedHeap).close();
+
+            Heap cachedHeap = HeapFactory.createHeap(dumpFile);
+            assertSameHeap(heap, cachedHeap);
+            ((HprofHeap) cachedHeap).close();
+
+            // index file changed during an interrupted session
+            File index = null;
+            for (File f : cacheDir.listFiles()) {
+                if (!f.getName().endsWith(".nphd") && (index == null || f.length() > index.length())) {
+                    index = f;
+                }
+            }
+            assertNotNull(index);
+            new CacheDirectory(cacheDir).setDirty(true);
+            invertByte(index, index.length() / 2);
+            Heap recomputedHeap = HeapFactory.createHeap(dumpFile);
+            assertSameHeap(heap, recomputedHeap);
+            recomputedHeap.getBiggestObjectsByRetainedSize(1);
+            ((HprofHeap) recomputedHeap).close();
+
+            // corrupted snapshot segment
+            File[] segments = cacheDir.listFiles((d, name) -> name.endsWith(".nphd"));
+            assertEquals(1, segments.length);
+            invertByte(segments[0], segments[0].length() / 2);
+            recomputedHeap = HeapFactory.createHeap(dumpFile);
+            assertSameHeap(heap, recomputedHeap);
+            ((HprofHeap) recomputedHeap).close();
+        } finally {
+            deleteDirectory(dir);
+        }
+    }
+
+    private static void assertSameHeap(Heap expected, Heap actual) {
+        Iterator<Instance> expectedIt = expected.getAllInstancesIterator();
+
+        while (expectedIt.hasNext()) {
+            Instance i = expectedIt.next();
+            Instance other = actual.getInstanceByID(i.getInstanceId());
+            String id = "0x"+Long.toHexString(i.getInstanceId());
+            Instance root = i.getNearestGCRootPointer();
+
+            assertEquals("Retained size of "+id, i.getRetainedSize(), other.getRetainedSize());
+            assertEquals("References of "+id, getReferrerIds(i), getReferrerIds(other));
+            assertEquals("GC root of "+id, root == null ? null : root.getInstanceId(),
+                    other.getNearestGCRootPointer() == null ? null : other.getNearestGCRootPointer().getInstanceId());
+        }
+    }
+
+    private static void invertByte(File f, long offset) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.seek(offset);
+            int value = raf.read();
+            raf.seek(offset);
+            raf.write(~value);
+        }
+    }
+
+    /**
+     * Test of the heap read through the buffer for concurrent readers, used
+     * for dumps bigger than 2GB, the heap computed in parallel has to be the
+     * same as the heap read through the mapped buffer.
+     */
+    @Test
+    public void testConcurrentByteBuffer() throws Exception {
+        System.out.println("concurrentByteBuffer");
+        for (final boolean mapped : new boolean[] {true, false}) {
+            File dir = Files.createTempDirectory("testConcurrentByteBuffer").toFile();
+            try {
+                File dumpFile = copyHeapDump(dir);
+                CacheDirectory cacheDir = new CacheDirectory(new File(dir, "cache")) {
+                    HprofByteBuffer createHprofByteBuffer(File file) throws IOException {
+                        return new HprofConcurrentByteBuffer(file, mapped);
+                    }
+                };
+                ParallelScan.configure(4, 64 * 1024);
+                HprofHeap concurrentHeap = new HprofHeap(dumpFile, 0, cacheDir);
+                assertTrue(concurrentHeap.dumpBuffer instanceof HprofConcurrentByteBuffer);
+                concurrentHeap.getBiggestObjectsByRetainedSize(1);
+                assertSameHeap(heap, concurrentHeap);
+                concurrentHeap.close();
+            } finally {
+                ParallelScan.configure(0, 0);
+                deleteDirectory(dir);
+            }
+        }
+    }
+
+    /**
+     * Test of the off-heap map and set used by the dominator computation,
+     * they have to give the same results as LongHashMap and LongSet for
+     * the instance ids of the heap dump.
+     */
+    @Test
+    public void testOffHeapMaps() throws Exception {
+        System.out.println("offHeapMaps");
+        File dir = Files.createTempDirectory("testOffHeapMaps").toFile();
+        try {
+            CacheDirectory cacheDir = new CacheDirectory(dir);
+            OffHeapLongMap map = new OffHeapLongMap(cacheDir);
+            OffHeapLongSet set = new OffHeapLongSet(cacheDir);
+            LongHashMap expectedMap = new LongHashMap();
+            LongSet expectedSet = new LongSet();
+            List<Long> ids = new ArrayList<>();
+            Iterator<Instance> it = heap.getAllInstancesIterator();
+
+            while (it.hasNext()) {
+                Instance i = it.next();
+                long id = i.getInstanceId();
+                long value = i.getJavaClass().getJavaClassId();
+
+                ids.add(id);
+                assertEquals(expectedMap.put(id, value), map.put(id, value));
+                if (ids.size() % 2 == 0) {
+                    // LongSet.add returns true if the key was already present
+                    assertEquals(!expectedSet.add(id), set.add(id));
+                }
+            }
+            assertEquals(expectedMap.size(), map.size());
+            assertEquals(expectedSet.size(), set.size());
+            for (long id : ids) {
+                assertEquals(expectedMap.get(id), map.get(id));
+                assertEquals(expectedMap.get(id + 1), map.get(id + 1));
+                assertEquals(expectedSet.contains(id), set.contains(id));
+                assertEquals(!expectedSet.add(id), set.add(id));
+            }
+            set.clear();
+            expectedSet.clear();
+            assertTrue(set.isEmpty());
+            for (long id : ids) {
+                assertEquals(expectedSet.contains(id), set.contains(id));
+            }
+            map.delete();
+            set.delete();
+        } finally {
+            deleteDirectory(dir);
+        }
+    }
+
+    /**
+     * Test of the LongBuffer spilled to the backing file, the longs have to
+     * be read back in the written order, reverted and from the cache snapshot.
+     */
+    @Test
+    public void testLongBuffer() throws Exception {
+        System.out.println("longBuffer");
+        File dir = Files.createTempDirectory("testLongBuffer").toFile();
+        try {
+            CacheDirectory cacheDir = new CacheDirectory(dir);
+            LongBuffer buffer = new LongBuffer(100, cacheDir);
+            List<Long> values = new ArrayList<>();
+            Iterator<Instance> it = heap.getAllInstancesIterator();
+
+            // sorted instance ids are delta encoded, interleaved class ids and sizes are not
+            while (it.hasNext()) {
+                Instance i = it.next();
+
+                values.add(i.getInstanceId());
+                if (values.size() % 7 == 0) {
+                    values.add(i.getJavaClass().getJavaClassId());
+                    values.add(-i.getSize());
+                }
+            }
+            for (long value : values) {
+                buffer.writeLong(value);
+            }
+            assertEquals(values.size(), buffer.getSize());
+            buffer.startReading();
+            assertLongs(values, buffer);
+            buffer.rewind();
+            assertLongs(values, buffer);
+
+            List<Long> revertedValues = new ArrayList<>(values);
+            Collections.reverse(revertedValues);
+            LongBuffer reverted = buffer.revertBuffer();
+            assertLongs(revertedValues, reverted);
+
+            cacheDir.commitSnapshot(buffer::writeToStream);
+            try (DataInputStream dis = new CacheDirectory(dir).openSnapshot()) {
+                LongBuffer loaded = new LongBuffer(dis, cacheDir);
+                loaded.startReading();
+                assertLongs(values, loaded);
+            }
+            reverted.delete();
+            buffer.reset();
+            assertFalse(buffer.hasData());
+            buffer.writeLong(1);
+            buffer.startReading();
+            assertEquals(1, buffer.readLong());
+            buffer.delete();
+        } finally {
+            deleteDirectory(dir);
+        }
+    }
+
+    private static void assertLongs(List<Long> expected, LongBuffer buffer) throws IOException {
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals("Long "+i, expected.get(i).longValue(), buffer.readLong());
+        }
+        assertEquals(0, buffer.readLong());
+    }
+
+    /**
+     * Test of the NumberList with the referrers of the heap dump instances,
+     * lists written in bulk and compacted lists have to iterate in the same
+     * order as the chained lists.
+     */
+    @Test
+    public void testNumberList() throws Exception {
+        System.out.println("numberList");
+        File dir = Files.createTempDirectory("testNumberList").toFile();
+        try {
+            CacheDirectory cacheDir = new CacheDirectory(dir);
+            NumberList chained = new NumberList(8, cacheDir);
+            NumberList encoded = new NumberList(8, cacheDir);
+            List<List<Long>> lists = new ArrayList<>();
+            List<Long> chainedOffsets = new ArrayList<>();
+            List<Long> encodedOffsets = new ArrayList<>();
+            Iterator<Instance> it = heap.getAllInstancesIterator();
+
+            while (it.hasNext()) {
+                Set<Long> referrers = new LinkedHashSet<>(getReferrerIds(it.next()));
+                long[] numbers = new long[referrers.size()];
+                int n = 0;
+
+                if (numbers.length < 2) continue;
+                for (Long referrer : referrers) {
+                    numbers[n++] = referrer.longValue();
+                }
+                long offset = chained.addFirstNumber(numbers[0], numbers[1]);
+                for (int i = 2; i < numbers.length; i++) {
+                    offset = chained.addNumber(offset, numbers[i]);
+                }
+                int blocks = NumberList.getBlocksCount(numbers.length);
+                long blocksOffset = encoded.reserveBlocks(blocks);
+                byte[] blockData = new byte[blocks * encoded.getBlockSize()];
+                encodedOffsets.add(encoded.encodeNumbers(blockData, blocksOffset, 0, numbers, 0, numbers.length));
+                encoded.writeBlocks(blocksOffset, blockData, blocks);
+                chainedOffsets.add(offset);
+                lists.add(getChainedOrder(numbers));
+            }
+            assertTrue(lists.size() > 0);
+            chained.flush();
+            encoded.flush();
+
+            NumberList compacted = chained.createCompactList();
+            List<Long> compactedOffsets = new ArrayList<>();
+            long[][] buffer = new long[][] {new long[4]};
+            for (int i = 0; i < lists.size(); i++) {
+                List<Long> expected = lists.get(i);
+
+                assertEquals(expected, chained.getNumbers(chainedOffsets.get(i)));
+                assertEquals(expected, encoded.getNumbers(encodedOffsets.get(i)));
+                compactedOffsets.add(chained.copyList(chainedOffsets.get(i), compacted, buffer));
+            }
+            assertTrue(compacted.isCompacted());
+            for (int i = 0; i < lists.size(); i++) {
+                List<Long> expected = lists.get(i);
+                long offset = compactedOffsets.get(i);
+                long last = expected.get(expected.size() - 1);
+                List<Long> numbers = new ArrayList<>();
+                LongIterator numbersIt = compacted.getNumbersIterator(offset);
+
+                while (numbersIt.hasNext()) {
+                    numbers.add(numbersIt.next());
+                }
+                assertEquals(expected, numbers);
+                assertEquals(expected.get(0).longValue(), compacted.getFirstNumber(offset));
+                chained.putFirst(chainedOffsets.get(i), last);
+                compacted.putFirst(offset, last);
+                assertEquals(chained.getNumbers(chainedOffsets.get(i)), compacted.getNumbers(offset));
+                assertEquals(last, compacted.getFirstNumber(offset));
+                // number already in the list is not added again
+                assertEquals(offset, compacted.addNumber(offset, last));
+            }
+            chained.delete();
+            encoded.delete();
+        } finally {
+            deleteDirectory(dir);
+        }
+    }
+
+    // chained list iterates from the last block, numbers in a block are in the order they were added
+    private static List<Long> getChainedOrder(long[] numbers) {
+        List<Long> order = new ArrayList<>();
+
+        for (int block = (numbers.length - 1) / 3; block >= 0; block--) {
+            for (int i = block * 3; i < Math.min(block * 3 + 3, numbers.length); i++) {
+                order.add(numbers[i]);
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Test of instances indexed in parallel, instance counts, sizes and
+     * instance numbers have to be the same as the ones indexed sequentially.
+     */
+    @Test
+    public void testParallelInstances() throws Exception {
+        System.out.println("parallelInstances");
+        File sequentialDir = Files.createTempDirectory("testParallelInstances").toFile();
+        File parallelDir = Files.createTempDirectory("testParallelInstances").toFile();
+        try {
+            ParallelScan.configure(1, 0);
+            Heap sequentialHeap = HeapFactory.createHeap(copyHeapDump(sequentialDir));
+            ParallelScan.configure(4, 64 * 1024);
+            Heap parallelHeap = HeapFactory.createHeap(copyHeapDump(parallelDir));
+            HeapSummary expectedSummary = sequentialHeap.getSummary();
+            HeapSummary summary = parallelHeap.getSummary();
+
+            assertEquals(expectedSummary.getTotalLiveInstances(), summary.getTotalLiveInstances());
+            assertEquals(expectedSummary.getTotalLiveBytes(), summary.getTotalLiveBytes());
+            for (JavaClass jcls : sequentialHeap.getAllClasses()) {
+                JavaClass other = parallelHeap.getJavaClassByID(jcls.getJavaClassId());
+                List<Instance> expectedInstances = jcls.getInstances();
+                List<Instance> instances = other.getInstances();
+
+                assertEquals(jcls.getName(), jcls.getInstancesCount(), other.getInstancesCount());
+                assertEquals(jcls.getName(), jcls.getAllInstancesSize(), other.getAllInstancesSize());
+                assertEquals(jcls.getName(), expectedInstances.size(), instances.size());
+                for (int i = 0; i < expectedInstances.size(); i++) {
+                    Instance expected = expectedInstances.get(i);
+                    Instance instance = instances.get(i);
+
+                    assertEquals(jcls.getName(), expected.getInstanceId(), instance.getInstanceId());
+                    assertEquals(jcls.getName(), expected.getInstanceNumber(), instance.getInstanceNumber());
+                    assertEquals(jcls.getName(), expected.getSize(), instance.getSize());
+                }
+            }
+        } finally {
+            ParallelScan.configure(0, 0);
+            deleteDirectory(sequentialDir);
+            deleteDirectory(parallelDir);
+        }
+    }
+
+    /**
+     * Test of dominators computed in parallel, retained sizes are the same
+     * as the ones computed by the sequential algorithm.
+     */
+    @Test
+    public void testParallelDominators() throws Exception {
+        System.out.println("parallelDominators");
+        File sequentialDir = Files.createTempDirectory("testParallelDominators").toFile();
+        File parallelDir = Files.createTempDirectory("testParallelDominators").toFile();
+        try {
+            ParallelScan.configure(1, 0);
+            Heap sequentialHeap = HeapFactory.createHeap(copyHeapDump(sequentialDir));
+            sequentialHeap.getBiggestObjectsByRetainedSize(1);
+            ParallelScan.configure(4, 64 * 1024);
+            Heap parallelHeap = HeapFactory.createHeap(copyHeapDump(parallelDir));
+            parallelHeap.getBiggestObjectsByRetainedSize(1);
+            assertSameRetainedSizes(sequentialHeap, parallelHeap);
+        } finally {
+            ParallelScan.configure(0, 0);
+            deleteDirectory(sequentialDir);
+            deleteDirectory(parallelDir);
+        }
+    }
+
+    /**
+     * Test of parallel retained size by class computation, the sizes have
+     * to be the same as the ones computed sequentially.
+     */
+    @Test
+    public void testParallelRetainedSizeByClass() throws Exception {
+        System.out.println("parallelRetainedSizeByClass");
+        File sequentialDir = Files.createTempDirectory("testParallelRetainedSizeByClass").toFile();
+        File parallelDir = Files.createTempDirectory("testParallelRetainedSizeByClass").toFile();
+        try {
+            ParallelScan.configure(1, 0);
+            Heap sequentialHeap = HeapFactory.createHeap(copyHeapDump(sequentialDir));
+            sequentialHeap.getJavaClassByName(String.class.getName()).getRetainedSizeByClass();
+            ParallelScan.configure(4, 64 * 1024);
+            Heap parallelHeap = HeapFactory.createHeap(copyHeapDump(parallelDir));
+            parallelHeap.getJavaClassByName(String.class.getName()).getRetainedSizeByClass();
+            long total = 0;
+
+            for (JavaClass jcls : sequentialHeap.getAllClasses()) {
+                JavaClass other = parallelHeap.getJavaClassByID(jcls.getJavaClassId());
+
+                assertEquals(jcls.getName(), jcls.getRetainedSizeByClass(), other.getRetainedSizeByClass());
+                total += jcls.getRetainedSizeByClass();
+            }
+            assertTrue(total > 0);
+        } finally {
+            ParallelScan.configure(0, 0);
+            deleteDirectory(sequentialDir);
+            deleteDirectory(parallelDir);
+        }
+    }
+
+    /**
+     * Test of parallel references computation, the referrers have to be the
+     * same and in the same order as the referrers computed sequentially.
+     */
+    @Test
+    public void testParallelReferences() throws Exception {
+        System.out.println("parallelReferences");
+        assertParallelReferences();
+    }
+
+    /**
+     * Test of parallel references computation with partitions exceeding
+     * the memory limit, they have to be split over several passes.
+     */
+    @Test
+    public void testParallelReferencesSplit() throws Exception {
+        System.out.println("parallelReferencesSplit");
+        try {
+            PairPartitions.configure(16);
+            assertParallelReferences();
+        } finally {
+            PairPartitions.configure(0);
+        }
+    }
+
+    private void assertParallelReferences() throws Exception {
+        File sequentialDir = Files.createTempDirectory("testParallelReferences").toFile();
+        File parallelDir = Files.createTempDirectory("testParallelReferences").toFile();
+        try {
+            ParallelScan.configure(1, 0);
+            Heap sequentialHeap = HeapFactory.createHeap(copyHeapDump(sequentialDir));
+            ParallelScan.configure(4, 64 * 1024);
+            Heap parallelHeap = HeapFactory.createHeap(copyHeapDump(parallelDir));
+            Iterator<Instance> expectedIt = sequentialHeap.getAllInstancesIterator();
+            int references = 0;
+
+            while (expectedIt.hasNext()) {
+                Instance i = expectedIt.next();
+                Instance other = parallelHeap.getInstanceByID(i.getInstanceId());
+                List<Long> expectedReferrers = getReferrerIds(i);
+
+                assertEquals("References of 0x"+Long.toHexString(i.getInstanceId()), expectedReferrers, getReferrerIds(other));
+                references += expectedReferrers.size();
+            }
+            assertTrue(references > 0);
+        } finally {
+            ParallelScan.configure(0, 0);
+            deleteDirectory(sequentialDir);
+            deleteDirectory(parallelDir);
+        }
+    }
+
+    /**
+     * Test of getFieldAccessor method, the accessors have to return the same
+     * values as Instance.getValueOfField and Instance.getFieldValues.
+     */
+    @Test
+    public void testGetFieldAccessor() {
+        System.out.println("getFieldAccessor");
+        int values = 0;
+
+        for (JavaClass cls : heap.getAllClasses()) {
+            List<Instance> instances = cls.getInstances();
+
+            if (instances.isEmpty()) continue;
+            assertNull(cls.getFieldAccessor("noSuchField"));
+            for (Field field : ((ClassDump) cls).getAllInstanceFields()) {
+                String name = field.getName();
+                FieldAccessor accessor = cls.getFieldAccessor(name);
+                Field expectedField = FieldLookupAccessor.findField(cls, name);
+                FieldAccessor lookup = new FieldLookupAccessor(expectedField);
+
+                assertEquals(cls.getName()+"."+name, expectedField, accessor.getField());
+                for (Instance i : instances.subList(0, Math.min(10, instances.size()))) {
+                    Object expected = i.getValueOfField(name);
+
+                    assertEquals(cls.getName()+"."+name, expected, accessor.getValue(i));
+                    assertEquals(cls.getName()+"."+name, expected, lookup.getValue(i));
+                    assertSameFieldValue(FieldLookupAccessor.getFieldValue(i, expectedField), accessor.getFieldValue(i));
+                    assertSameFieldValue(accessor.getFieldValue(i), lookup.getFieldValue(i));
+                    values++;
+                }
+            }
+        }
+        assertTrue(values > 0);
+    }
+
+    /**
+     * Test of getFieldAccessor method for a field hidden by a subclass field,
+     * the field declared nearest to java.lang.Object is used.
+     */
+    @Test
+    public void testGetFieldAccessorHiddenField() {
+        System.out.println("getFieldAccessorHiddenField");
+        int hidden = 0;
+
+        for (JavaClass cls : heap.getAllClasses()) {
+            Set<String> names = new HashSet<>();
+
+            for (Field field : ((ClassDump) cls).getAllInstanceFields()) {
+                if (!names.add(field.getName())) {
+                    Field expected = null;
+
+                    for (Field f : ((ClassDump) cls).getAllInstanceFields()) {
+                        if (f.getName().equals(field.getName())) expected = f;
+                    }
+                    assertEquals(expected, cls.getFieldAccessor(field.getName()).getField());
+                    hidden++;
+                }
+            }
+        }
+        assertTrue(hidden > 0);
+    }
+
+    private static void assertSameFieldValue(FieldValue expected, FieldValue actual) {
+        assertNotNull(expected);
+        assertNotNull(actual);
+        assertEquals(expected.getField(), actual.getField());
+        assertEquals(expected.getValue(), actual.getValue());
+    }
+
+    private static List<Long> getReferrerIds(Instance instance) {
+        List<Long> ids = new ArrayList<>();
+
+        for (Value value : instance.getReferences()) {
+            ids.add(value.getDefiningInstance().getInstanceId());
+        }
+        return ids;
+    }
+
+    private static void assertSameRetainedSizes(Heap expected, Heap actual) {
+        Iterator<Instance> expectedIt = expected.getAllInstancesIterator();
+
+        while (expectedIt.hasNext()) {
+            Instance i = expectedIt.next();
+            Instance other = actual.getInstanceByID(i.getInstanceId());
+            assertEquals("Retained size of 0x"+Long.toHexString(i.getInstanceId()), i.getRetainedSize(), other.getRetainedSize());
+        }
+    }
+
+    private File copyHeapDump(File dir) throws IOException, URISyntaxException {
+        File dumpFile = new File(getClass().getResource("small_heap.bin").toURI());
+        File copy = new File(dir, dumpFile.getName());
+        Files.copy(dumpFile.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return copy;
+    }
+
+    private static void deleteDirectory(File dir) {
+        File[] files = dir.listFiles();
+
+        if (files != null) {
+            for (File f : files) {
+                if (f.isDirectory()) {
+                    deleteDirectory(f);
+                } else {
+                    f.delete();
+                }
+            }
+        }
+        dir.delete();
+    }
+
     private void compareTextFiles(File goledFile, File outFile) throws IOException {
         InputStreamReader goldenIsr = new InputStreamReader(new FileInputStream(goledFile),"UTF-8");
         LineNumberReader goldenReader = new LineNumberReader(goldenIsr);
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.lib.jfluid.heap;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the per-class trend across several heap dumps.
+ */
+public class HeapTrendTest {
+    private File dir;
+    private List<File> dumps;
+
+    @Before
+    public void setUp() throws IOException, URISyntaxException {
+        File dumpFile = new File(getClass().getResource("small_heap.bin").toURI());
+        dir = Files.createTempDirectory("HeapTrendTest").toFile();
+        dumps = Arrays.asList(copy(dumpFile, "first"), copy(dumpFile, "second"), copy(dumpFile, "third"));
+    }
+
+    @After
+    public void tearDown() {
+        deleteDirectory(dir);
+    }
+
+    /**
+     * Test of compute method, of class HeapTrend.
+     */
+    @Test
+    public void testCompute() throws IOException {
+        System.out.println("compute");
+        HeapTrend trend = HeapTrend.compute(dumps, true);
+        Heap heap = HeapFactory.createHeap(dumps.get(0));
+        Map<String,long[]> expected = new HashMap<>();
+
+        for (JavaClass jcls : heap.getAllClasses()) {
+            long[] values = expected.computeIfAbsent(jcls.getName(), name -> new long[3]);
+
+            values[0] += jcls.getInstancesCount();
+            values[1] += jcls.getAllInstancesSize();
+            values[2] += jcls.getRetainedSizeByClass();
+        }
+        assertEquals(dumps.size(), trend.getDumps().size());
+        assertEquals(expected.size(), trend.getClasses().size());
+        for (HeapTrend.ClassTrend classTrend : trend.getClasses()) {
+            long[] values = expected.get(classTrend.getName());
+
+            assertNotNull(classTrend.getName(), values);
+            for (int i = 0; i < dumps.size(); i++) {
+                assertEquals(values[0], classTrend.getInstancesCounts()[i]);
+                assertEquals(values[1], classTrend.getOwnSizes()[i]);
+                assertEquals(values[2], classTrend.getRetainedSizes()[i]);
+            }
+            assertTrue(classTrend.isMonotonic());
+            assertEquals(0, classTrend.getGrowthScore(), 0);
+        }
+        assertTrue(trend.getGrowthSuspects(10).isEmpty());
+    }
+
+    /**
+     * Test that retained sizes computed by compute method are committed to the cache.
+     */
+    @Test
+    public void testRetainedSizesCached() throws IOException {
+        System.out.println("retainedSizesCached");
+        HeapTrend.compute(dumps, true);
+        for (File dump : dumps) {
+            assertTrue(CacheDirectory.getHeapDumpCacheDirectory(dump, 0).hasSnapshot());
+            Heap heap = HeapFactory.createHeap(dump);
+            assertTrue(heap.isRetainedSizeByClassComputed());
+        }
+    }
+
+    /**
+     * Test of compute method without retained sizes, of class HeapTrend.
+     */
+    @Test
+    public void testComputeWithoutRetainedSizes() throws IOException {
+        System.out.println("computeWithoutRetainedSizes");
+        HeapTrend trend = HeapTrend.compute(dumps, false);
+
+        assertFalse(trend.isRetainedSizeTracked());
+        for (HeapTrend.ClassTrend classTrend : trend.getClasses()) {
+            assertNull(classTrend.getRetainedSizes());
+        }
+    }
+
+    private File copy(File dumpFile, String name) throws IOException {
+        File dumpDir = new File(dir, name);
+        File copy = new File(dumpDir, dumpFile.getName());
+
+        dumpDir.mkdir();
+        Files.copy(dumpFile.toPath(), copy.toPath());
+        return copy;
+    }
+
+    private static void deleteDirectory(File dir) {
+        File[] files = dir.listFiles();
+
+        if (files != null) {
+            for (File f : files) {
+                if (f.isDirectory()) {
+                    deleteDirectory(f);
+                } else {
+                    f.delete();
+                }
+            }
+        }
+        dir.delete();
+    }
+}
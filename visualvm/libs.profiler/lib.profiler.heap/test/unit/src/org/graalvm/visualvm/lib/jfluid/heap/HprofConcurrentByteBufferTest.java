@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.lib.jfluid.heap;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the heap dump buffer for concurrent readers.
+ */
+public class HprofConcurrentByteBufferTest {
+    private HprofByteBuffer expected;
+    private HprofConcurrentByteBuffer mapped;
+    private HprofConcurrentByteBuffer unmapped;
+
+    @Before
+    public void setUp() throws IOException, URISyntaxException {
+        File dumpFile = new File(getClass().getResource("small_heap.bin").toURI());
+        expected = new HprofMappedByteBuffer(dumpFile);
+        mapped = new HprofConcurrentByteBuffer(dumpFile, true);
+        unmapped = new HprofConcurrentByteBuffer(dumpFile, false);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mapped.close();
+        unmapped.close();
+    }
+
+    /**
+     * Test of reads from mapped chunks and from per-thread windows.
+     */
+    @Test
+    public void testRead() {
+        System.out.println("read");
+        assertEquals(expected.getIDSize(), unmapped.getIDSize());
+        assertEquals(expected.getHeaderSize(), unmapped.getHeaderSize());
+        assertEquals(expected.capacity(), unmapped.capacity());
+        for (long i = 0; i < expected.capacity() - 8; i += 7) {
+            assertEquals(expected.get(i), mapped.get(i));
+            assertEquals(expected.get(i), unmapped.get(i));
+            assertEquals(expected.getInt(i), mapped.getInt(i));
+            assertEquals(expected.getInt(i), unmapped.getInt(i));
+            assertEquals(expected.getLong(i), unmapped.getLong(i));
+            assertEquals(expected.getShort(i), unmapped.getShort(i));
+            assertEquals(expected.getChar(i), unmapped.getChar(i));
+        }
+        byte[] expectedBytes = new byte[100000];
+        byte[] bytes = new byte[expectedBytes.length];
+        expected.get(12345, expectedBytes);
+        unmapped.get(12345, bytes);
+        assertArrayEquals(expectedBytes, bytes);
+    }
+
+    /**
+     * Test of a read by an interrupted thread, the file channel closed by
+     * the interrupt is reopened and the interrupt is kept.
+     */
+    @Test
+    public void testInterruptedRead() throws Exception {
+        System.out.println("interruptedRead");
+        final long offset = expected.capacity() / 2;
+        final AtomicReference<Object> result = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            Thread.currentThread().interrupt();
+            long value = unmapped.getLong(offset);
+            result.set(Thread.currentThread().isInterrupted() ? Long.valueOf(value) : "not interrupted"); // NOI18N
+        });
+        reader.start();
+        reader.join();
+        assertEquals(expected.getLong(offset), result.get());
+        // other threads still read the dump
+        long otherOffset = expected.capacity() / 4;
+        assertEquals(expected.getLong(otherOffset), unmapped.getLong(otherOffset));
+    }
+
+    /**
+     * Test of a failed read, the failure is not hidden by zero filled data.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testFailedRead() throws IOException {
+        System.out.println("failedRead");
+        unmapped.close();
+        unmapped.getLong(expected.capacity() / 3);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.lib.jfluid.heap;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the off-heap map.
+ */
+public class OffHeapLongMapTest {
+    private static final int ENTRIES = 100000;
+
+    private File dir;
+    private CacheDirectory cacheDir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("OffHeapLongMapTest").toFile();
+        cacheDir = new CacheDirectory(dir);
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    /**
+     * Test of put and get methods, of class OffHeapLongMap.
+     */
+    @Test
+    public void testPutGet() throws IOException {
+        System.out.println("putGet");
+        OffHeapLongMap map = new OffHeapLongMap(cacheDir);
+        for (long key = 1; key <= ENTRIES; key++) {
+            assertEquals(-1, map.put(key * 31, key));
+        }
+        assertEquals(ENTRIES, map.size());
+        assertEquals(1, map.put(31, 2));
+        assertEquals(2, map.get(31));
+        assertEquals(-1, map.get(30));
+        assertFalse(map.containsKey(ENTRIES * 31L + 1));
+        map.delete();
+    }
+
+    /**
+     * Test of the snapshot of the map, the table is committed as a file and
+     * not copied to the snapshot.
+     */
+    @Test
+    public void testSnapshot() throws IOException {
+        System.out.println("snapshot");
+        final OffHeapLongMap map = new OffHeapLongMap(ENTRIES, cacheDir);
+        for (long key = 1; key <= ENTRIES; key++) {
+            map.put(key * 31, key);
+        }
+        cacheDir.commitSnapshot(map::writeToStream);
+        File[] segments = dir.listFiles((d, name) -> name.endsWith(".nphd"));
+        assertEquals(1, segments.length);
+        assertTrue("Snapshot size "+segments[0].length(), segments[0].length() < 1024);
+
+        CacheDirectory reopened = new CacheDirectory(dir);
+        try (DataInputStream dis = reopened.openSnapshot()) {
+            OffHeapLongMap loaded = new OffHeapLongMap(dis, reopened);
+            assertEquals(ENTRIES, loaded.size());
+            for (long key = 1; key <= ENTRIES; key++) {
+                assertEquals(key, loaded.get(key * 31));
+            }
+        }
+    }
+}
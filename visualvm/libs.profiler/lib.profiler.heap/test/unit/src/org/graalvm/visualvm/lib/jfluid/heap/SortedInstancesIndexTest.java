@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.lib.jfluid.heap;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the index of instances sorted by size.
+ */
+public class SortedInstancesIndexTest {
+    private File dir;
+    private HprofHeap heap;
+    private JavaClass jcls;
+
+    @Before
+    public void setUp() throws IOException, URISyntaxException {
+        dir = Files.createTempDirectory("SortedInstancesIndexTest").toFile();
+        File dumpFile = new File(getClass().getResource("small_heap.bin").toURI());
+        File copy = new File(dir, dumpFile.getName());
+        Files.copy(dumpFile.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        heap = (HprofHeap) HeapFactory.createHeap(copy);
+        for (JavaClass cls : heap.getAllClasses()) {
+            if (jcls == null || cls.getInstancesCount() > jcls.getInstancesCount()) {
+                jcls = cls;
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        heap.close();
+        deleteDirectory(dir);
+    }
+
+    /**
+     * Test of the index sorted in memory.
+     */
+    @Test
+    public void testSortedBySize() throws IOException {
+        System.out.println("sortedBySize");
+        SortedInstancesIndex index = SortedInstancesIndex.create(heap, jcls, SortedInstances.Key.SIZE);
+        assertSorted(expectedIds(SortedInstances.Key.SIZE), index);
+        assertEquals(0, countFiles(".ord"));
+    }
+
+    /**
+     * Test of the index merged from runs spilled to the cache directory.
+     */
+    @Test
+    public void testExternalSort() throws IOException {
+        System.out.println("externalSort");
+        assertTrue(jcls.getInstancesCount() > 100);
+        SortedInstancesIndex index = SortedInstancesIndex.create(heap, jcls, SortedInstances.Key.SIZE, 16);
+        assertSorted(expectedIds(SortedInstances.Key.SIZE), index);
+        assertEquals(0, countFiles(".run"));
+        assertEquals(1, countFiles(".ord"));
+        index.close();
+        assertEquals(0, countFiles(".ord"));
+    }
+
+    /**
+     * Test of the order by retained size, instances with the same size keep the order of the class.
+     */
+    @Test
+    public void testSortedByRetainedSize() throws IOException {
+        System.out.println("sortedByRetainedSize");
+        SortedInstancesIndex index = SortedInstancesIndex.create(heap, jcls, SortedInstances.Key.RETAINED_SIZE, 16);
+        assertSorted(expectedIds(SortedInstances.Key.RETAINED_SIZE), index);
+        index.close();
+    }
+
+    /**
+     * Test of the indexes created by the heap, they are computed once.
+     */
+    @Test
+    public void testGetSortedInstances() {
+        System.out.println("getSortedInstances");
+        SortedInstances sorted = heap.getSortedInstances(jcls, SortedInstances.Key.SIZE);
+        assertSame(sorted, heap.getSortedInstances(jcls, SortedInstances.Key.SIZE));
+        assertSorted(expectedIds(SortedInstances.Key.SIZE), sorted);
+    }
+
+    private List<Long> expectedIds(final SortedInstances.Key key) {
+        List<Instance> instances = new ArrayList<>(jcls.getInstances());
+        // List.sort is stable, instances with the same size keep the order of the class
+        instances.sort(Comparator.comparingLong((Instance i) -> key == SortedInstances.Key.SIZE ? i.getSize() : i.getRetainedSize()).reversed());
+        List<Long> ids = new ArrayList<>();
+        for (Instance instance : instances) {
+            ids.add(instance.getInstanceId());
+        }
+        return ids;
+    }
+
+    private static void assertSorted(List<Long> expectedIds, SortedInstances sorted) {
+        assertEquals(expectedIds.size(), sorted.getInstancesCount());
+        for (int i = 0; i < expectedIds.size(); i++) {
+            assertEquals(expectedIds.get(i).longValue(), sorted.getInstanceId(i));
+        }
+        for (int start : new int[] { 0, 1, expectedIds.size() / 2, expectedIds.size() }) {
+            Iterator<Instance> it = sorted.getInstancesIterator(start);
+            for (int i = start; i < expectedIds.size(); i++) {
+                assertEquals(expectedIds.get(i).longValue(), it.next().getInstanceId());
+            }
+            assertFalse(it.hasNext());
+        }
+    }
+
+    private int countFiles(String suffix) {
+        int count = 0;
+        for (File f : new File(dir, "small_heap.bin.hwcache").listFiles()) { // NOI18N
+            if (f.getName().endsWith(suffix)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void deleteDirectory(File dir) {
+        File[] files = dir.listFiles();
+
+        if (files != null) {
+            for (File f : files) {
+                if (f.isDirectory()) {
+                    deleteDirectory(f);
+                } else {
+                    f.delete();
+                }
+            }
+        }
+        dir.delete();
+    }
+}
@@ -315,6 +315,7 @@ public class StackTraceSnapshotBuilder {
     //    int builderBatchSize;
     final Set<String> ignoredThreadNames = new HashSet<>();
     final Map<Long,Long> threadtimes = new HashMap();
+    final Map<Long,Long> threadTimeStamps = new HashMap<>();
     
     {
         registerNewMethodInfo(new MethodInfo("Thread","")); // NOI18N
@@ -409,54 +410,98 @@ public class StackTraceSnapshotBuilder {
         }
     }
 
+    /**
+     * Adds a single sample of one thread. Unlike {@link #addStacktrace(java.lang.management.ThreadInfo[], long)}
+     * the sample does not describe all live threads, the other threads keep their last
+     * sampled stack trace. Samples thus only need to be ordered per thread, a sample
+     * which is not newer than the previous sample of the same thread is ignored.
+     * 
+     * @param threadId id of the sampled thread
+     * @param threadName name of the sampled thread
+     * @param state state of the sampled thread, <code>null</code> for {@link State#RUNNABLE}
+     * @param stackTrace stack trace of the sampled thread
+     * @param timeStamp time of the sample in nanoseconds
+     * @throws IllegalStateException 
+     */
+    final public void addThreadSample(long threadId, String threadName, State state, StackTraceElement[] stackTrace, long timeStamp) throws IllegalStateException {
+        synchronized (lock) {
+            long timediff = processThreadTimeStamp(threadId, timeStamp);
+
+            if (timediff < 0) return;
+            Map<Long,SampledThreadInfo> tinfoMap = getStreamedStackTraces();
+            SampledThreadInfo tinfo = new SampledThreadInfo(threadName, threadId, state == null ? State.RUNNABLE : state, stackTrace, filter);
+            SampledThreadInfo oldTinfo = tinfoMap.get(threadId);
+
+            if (processThreadSample(timediff, timeStamp, tinfo, oldTinfo)) {
+                tinfoMap.put(threadId, tinfo);
+            } else if (oldTinfo != null) {
+                processThreadEnd(timediff, timeStamp, tinfoMap.remove(threadId));
+            }
+            stackTraceCount++;
+        }
+    }
+
+    /**
+     * Marks the end of a thread sampled by {@link #addThreadSample(long, java.lang.String, java.lang.Thread.State, java.lang.StackTraceElement[], long)}.
+     * 
+     * @param threadId id of the terminated thread
+     * @param timeStamp time of the thread end in nanoseconds
+     * @throws IllegalStateException 
+     */
+    final public void addThreadEnd(long threadId, long timeStamp) throws IllegalStateException {
+        synchronized (lock) {
+            long timediff = processThreadTimeStamp(threadId, timeStamp);
+
+            if (timediff < 0) return;
+            SampledThreadInfo oldTinfo = getStreamedStackTraces().remove(threadId);
+
+            if (oldTinfo != null) {
+                processThreadEnd(timediff, timeStamp, oldTinfo);
+            }
+        }
+    }
+
+    /**
+     * Extends all live threads sampled by {@link #addThreadSample(long, java.lang.String, java.lang.Thread.State, java.lang.StackTraceElement[], long)}
+     * up to the newest sample of any thread, as if their last stack trace was sampled again.
+     * A thread without a thread end otherwise stops accruing time at its own last sample.
+     * Should be called once all samples have been added.
+     *
+     * @throws IllegalStateException
+     */
+    final public void finishThreadSamples() throws IllegalStateException {
+        synchronized (lock) {
+            long timeStamp;
+            synchronized(stampLock) {
+                timeStamp = currentDumpTimeStamp;
+            }
+            for (SampledThreadInfo tinfo : getStreamedStackTraces().values()) {
+                long threadId = tinfo.getThreadId();
+                long timediff = processThreadTimeStamp(threadId, timeStamp);
+
+                if (timediff > 0) {
+                    processThreadSample(timediff, timeStamp, tinfo, tinfo);
+                }
+            }
+        }
+    }
+
     private void processThreadDump(final long timediff, final long dumpTimeStamp, final Map<Long, SampledThreadInfo> tinfoMap) throws IllegalStateException {
         Iterator<Map.Entry<Long,SampledThreadInfo>> tinfoIt = tinfoMap.entrySet().iterator();
         
         while (tinfoIt.hasNext()) {
             Map.Entry<Long,SampledThreadInfo> tinfoEntry = tinfoIt.next();
             SampledThreadInfo tinfo = tinfoEntry.getValue();
-            String tname = tinfo.getThreadName();
+            SampledThreadInfo oldTinfo = lastStackTrace.get().get(tinfo.getThreadId());
             
-            if (ignoredThreadNames.contains(tname)) {
-                tinfoIt.remove();
-                continue;
-            }
-            Thread.State newState = tinfo.getThreadState();
-            // ignore threads, which has not yet started.
-            if (Thread.State.NEW.equals(newState)) {
+            if (!processThreadSample(timediff, dumpTimeStamp, tinfo, oldTinfo)) {
                 tinfoIt.remove();
-                continue;
             }
-            
-            long threadId = tinfo.getThreadId();
-            if (!threadIds.contains(threadId)) {
-                long threadCpuTime = tinfo.threadCpuTime;
-                threadIds.add(threadId);
-                threadNames.add(tname);
-                ccgb.newThread((int) threadId, tname, "<none>");
-                if (threadCpuTime != -1) {
-                    threadtimes.put(threadId,threadCpuTime);
-                } else {
-                    threadtimes.put(threadId,dumpTimeStamp);
-                }
-            }
-            StackTraceElement[] newElements = tinfo.getStackTrace();
-            SampledThreadInfo oldTinfo = lastStackTrace.get().get(threadId);
-            StackTraceElement[] oldElements = NO_STACK_TRACE;
-            Thread.State oldState = Thread.State.NEW;
-            
-            if (oldTinfo != null) {
-                oldElements = oldTinfo.getStackTrace();
-                oldState = oldTinfo.getThreadState();
-            }
-            processDiffs((int) threadId, oldElements, newElements, dumpTimeStamp, tinfo.threadCpuTime, timediff, oldState, newState);
         }
         
         for (SampledThreadInfo oldTinfo : lastStackTrace.get().values()) {            
             if (!tinfoMap.containsKey(oldTinfo.getThreadId())) {
-                Thread.State oldState = oldTinfo.getThreadState();
-                Thread.State newState = Thread.State.TERMINATED;
-                processDiffs((int) oldTinfo.getThreadId(), oldTinfo.getStackTrace(), NO_STACK_TRACE, dumpTimeStamp, oldTinfo.threadCpuTime, timediff, oldState, newState);
+                processThreadEnd(timediff, dumpTimeStamp, oldTinfo);
             }
         }
         
@@ -465,6 +510,74 @@ public class StackTraceSnapshotBuilder {
         stackTraceCount++;
     }
 
+    private boolean processThreadSample(final long timediff, final long dumpTimeStamp, final SampledThreadInfo tinfo, final SampledThreadInfo oldTinfo) throws IllegalStateException {
+        String tname = tinfo.getThreadName();
+
+        if (ignoredThreadNames.contains(tname)) {
+            return false;
+        }
+        Thread.State newState = tinfo.getThreadState();
+        // ignore threads, which has not yet started.
+        if (Thread.State.NEW.equals(newState)) {
+            return false;
+        }
+
+        long threadId = tinfo.getThreadId();
+        if (!threadIds.contains(threadId)) {
+            long threadCpuTime = tinfo.threadCpuTime;
+            threadIds.add(threadId);
+            threadNames.add(tname);
+            ccgb.newThread((int) threadId, tname, "<none>");
+            if (threadCpuTime != -1) {
+                threadtimes.put(threadId,threadCpuTime);
+            } else {
+                threadtimes.put(threadId,dumpTimeStamp);
+            }
+        }
+        StackTraceElement[] newElements = tinfo.getStackTrace();
+        StackTraceElement[] oldElements = NO_STACK_TRACE;
+        Thread.State oldState = Thread.State.NEW;
+
+        if (oldTinfo != null) {
+            oldElements = oldTinfo.getStackTrace();
+            oldState = oldTinfo.getThreadState();
+        }
+        processDiffs((int) threadId, oldElements, newElements, dumpTimeStamp, tinfo.threadCpuTime, timediff, oldState, newState);
+        return true;
+    }
+
+    private void processThreadEnd(final long timediff, final long dumpTimeStamp, final SampledThreadInfo oldTinfo) throws IllegalStateException {
+        Thread.State oldState = oldTinfo.getThreadState();
+        Thread.State newState = Thread.State.TERMINATED;
+        processDiffs((int) oldTinfo.getThreadId(), oldTinfo.getStackTrace(), NO_STACK_TRACE, dumpTimeStamp, oldTinfo.threadCpuTime, timediff, oldState, newState);
+    }
+
+    private Map<Long, SampledThreadInfo> getStreamedStackTraces() {
+        Map<Long,SampledThreadInfo> tinfoMap = lastStackTrace.get();
+
+        if (tinfoMap == Collections.EMPTY_MAP) {
+            tinfoMap = new HashMap<>();
+            lastStackTrace.set(tinfoMap);
+        }
+        return tinfoMap;
+    }
+
+    private long processThreadTimeStamp(long threadId, long timeStamp) {
+        Long lastTimeStamp = threadTimeStamps.get(threadId);
+
+        if (lastTimeStamp != null && timeStamp <= lastTimeStamp.longValue()) {
+            // misplaced sample of the thread, see processDumpTimeStamp()
+            return -1;
+        }
+        threadTimeStamps.put(threadId, timeStamp);
+        synchronized(stampLock) {
+            if (timeStamp > currentDumpTimeStamp) {
+                currentDumpTimeStamp = timeStamp;
+            }
+        }
+        return lastTimeStamp == null ? 0 : timeStamp - lastTimeStamp.longValue();
+    }
+
     private long processDumpTimeStamp(long dumpTimeStamp) {
         long timediff;
         synchronized(stampLock) {
@@ -703,6 +816,7 @@ public class StackTraceSnapshotBuilder {
             methodInfoMap.clear();
             threadIds.clear();
             threadNames.clear();
+            threadTimeStamps.clear();
             stackTraceCount = 0;
             lastStackTrace.set(Collections.EMPTY_MAP);
             registerNewMethodInfo(new MethodInfo("Thread","")); // NOI18N
@@ -733,6 +733,107 @@ public class StackTraceSnapshotBuilderTest {
 
 
 
+    @Test
+    public void testAddThreadSample() {
+        System.out.println("add thread sample");
+
+        instance.addThreadSample(thread0.getId(), thread0.getName(), State.RUNNABLE, elements0, 500000);
+        instance.addThreadSample(thread0.getId(), thread0.getName(), State.RUNNABLE, elementsPlus, 1000000);
+        // samples are only ordered per thread
+        instance.addThreadSample(thread1.getId(), thread1.getName(), State.WAITING, elements0, 0);
+
+        assertEquals(2, instance.threadIds.size());
+        assertEquals(elementsPlus.length, instance.methodInfos.size()-1);
+        assertEquals(3, instance.stackTraceCount);
+        assertEquals(1000000, instance.currentDumpTimeStamp);
+        assertEquals(Thread.State.RUNNABLE, instance.lastStackTrace.get().get(thread0.getId()).getThreadState());
+        assertEquals(Thread.State.WAITING, instance.lastStackTrace.get().get(thread1.getId()).getThreadState());
+    }
+
+    @Test
+    public void testAddThreadSampleMisplaced() {
+        System.out.println("add thread sample : misplaced");
+
+        instance.addThreadSample(thread0.getId(), thread0.getName(), State.RUNNABLE, elements0, 500000);
+        instance.addThreadSample(thread0.getId(), thread0.getName(), State.WAITING, elementsPlus, 500000);
+        instance.addThreadSample(thread0.getId(), thread0.getName(), State.WAITING, elementsPlus, 0);
+
+        assertEquals(1, instance.stackTraceCount);
+        assertEquals(elements0.length, instance.methodInfos.size()-1);
+        assertEquals(Thread.State.RUNNABLE, instance.lastStackTrace.get().get(thread0.getId()).getThreadState());
+    }
+
+    @Test
+    public void testAddThreadEnd() {
+        System.out.println("add thread end");
+
+        instance.addThreadSample(thread0.getId(), thread0.getName(), State.RUNNABLE, elements0, 0);
+        instance.addThreadSample(thread1.getId(), thread1.getName(), State.RUNNABLE, elements0, 0);
+        instance.addThreadEnd(thread0.getId(), 500000);
+
+        assertNull(instance.lastStackTrace.get().get(thread0.getId()));
+        assertNotNull(instance.lastStackTrace.get().get(thread1.getId()));
+        assertEquals(500000, instance.currentDumpTimeStamp);
+    }
+
+    @Test
+    public void testAddThreadSampleSnapshot() throws CPUResultsSnapshot.NoDataAvailableException {
+        System.out.println("add thread sample : snapshot");
+
+        StackTraceSnapshotBuilder dumps = new StackTraceSnapshotBuilder();
+        dumps.addStacktrace(stack0, 0);
+        dumps.addStacktrace(stackPlus, 500000);
+        dumps.addStacktrace(stackMinus, 1000000);
+
+        instance.addThreadSample(thread1.getId(), thread1.getName(), State.RUNNABLE, elements0, 0);
+        instance.addThreadEnd(thread1.getId(), 1000000);
+        instance.addThreadSample(thread2.getId(), thread2.getName(), State.RUNNABLE, elements0, 500000);
+        instance.addThreadEnd(thread2.getId(), 1000000);
+        instance.addThreadSample(thread0.getId(), thread0.getName(), State.RUNNABLE, elements0, 0);
+        instance.addThreadSample(thread0.getId(), thread0.getName(), State.RUNNABLE, elementsPlus, 500000);
+        instance.addThreadSample(thread0.getId(), thread0.getName(), State.RUNNABLE, elementsMinus, 1000000);
+
+        CPUResultsSnapshot expected = dumps.createSnapshot(System.currentTimeMillis());
+        CPUResultsSnapshot snapshot = instance.createSnapshot(System.currentTimeMillis());
+        assertEquals(expected.nInstrMethods, snapshot.nInstrMethods);
+        for (Thread thread : new Thread[] { thread0, thread1, thread2 }) {
+            PrestimeCPUCCTNode expectedRoot = expected.getContainerForThread((int) thread.getId(), CPUResultsSnapshot.METHOD_LEVEL_VIEW).getRootNode();
+            PrestimeCPUCCTNode root = snapshot.getContainerForThread((int) thread.getId(), CPUResultsSnapshot.METHOD_LEVEL_VIEW).getRootNode();
+            assertEquals(expectedRoot.getTotalTime0(), root.getTotalTime0());
+            assertEquals(expectedRoot.getNCalls(), root.getNCalls());
+        }
+    }
+
+    @Test
+    public void testAddThreadSampleSnapshotLive() throws CPUResultsSnapshot.NoDataAvailableException {
+        System.out.println("add thread sample : snapshot without thread end");
+
+        StackTraceSnapshotBuilder dumps = new StackTraceSnapshotBuilder();
+        dumps.addStacktrace(stack0, 0);
+        dumps.addStacktrace(stackDup, 500000);
+        dumps.addStacktrace(new java.lang.management.ThreadInfo[] {
+                createThreadInfo(thread0, elementsMinus),
+                createThreadInfo(thread1, elements0)
+        }, 1000000);
+
+        // thread1 is never sampled again and does not end, it is live until the last sample
+        instance.addThreadSample(thread1.getId(), thread1.getName(), State.RUNNABLE, elements0, 0);
+        instance.addThreadSample(thread0.getId(), thread0.getName(), State.RUNNABLE, elements0, 0);
+        instance.addThreadSample(thread0.getId(), thread0.getName(), State.RUNNABLE, elementsDup, 500000);
+        instance.addThreadSample(thread0.getId(), thread0.getName(), State.RUNNABLE, elementsMinus, 1000000);
+        instance.finishThreadSamples();
+
+        CPUResultsSnapshot expected = dumps.createSnapshot(System.currentTimeMillis());
+        CPUResultsSnapshot snapshot = instance.createSnapshot(System.currentTimeMillis());
+        for (Thread thread : new Thread[] { thread0, thread1 }) {
+            PrestimeCPUCCTNode expectedRoot = expected.getContainerForThread((int) thread.getId(), CPUResultsSnapshot.METHOD_LEVEL_VIEW).getRootNode();
+            PrestimeCPUCCTNode root = snapshot.getContainerForThread((int) thread.getId(), CPUResultsSnapshot.METHOD_LEVEL_VIEW).getRootNode();
+            assertEquals(expectedRoot.getTotalTime0(), root.getTotalTime0());
+            assertEquals(expectedRoot.getTotalTime1(), root.getTotalTime1());
+            assertEquals(expectedRoot.getNCalls(), root.getNCalls());
+        }
+    }
+
     @Test
     public void testReset() {
         System.out.println("reset");
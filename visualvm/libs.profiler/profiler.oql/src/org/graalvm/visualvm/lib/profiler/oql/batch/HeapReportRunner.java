@@ -0,0 +1,391 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.lib.profiler.oql.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.graalvm.visualvm.lib.jfluid.heap.DuplicateArrays;
+import org.graalvm.visualvm.lib.jfluid.heap.GCRoot;
+import org.graalvm.visualvm.lib.jfluid.heap.Heap;
+import org.graalvm.visualvm.lib.jfluid.heap.HeapFactory;
+import org.graalvm.visualvm.lib.jfluid.heap.HeapTrend;
+import org.graalvm.visualvm.lib.jfluid.heap.Instance;
+import org.graalvm.visualvm.lib.jfluid.heap.JavaClass;
+import org.graalvm.visualvm.lib.jfluid.heap.Value;
+import org.graalvm.visualvm.lib.profiler.oql.engine.api.OQLEngine;
+import org.graalvm.visualvm.lib.profiler.oql.engine.api.OQLException;
+import org.graalvm.visualvm.lib.profiler.oql.engine.api.impl.Snapshot;
+
+/**
+ * Headless driver which analyzes a heap dump without any UI and writes the
+ * results as JSON or CSV reports. All index phases are computed using all
+ * available processors and committed to the heap dump cache directory, so
+ * a later VisualVM session opens the dump without recomputing them.
+ * Other heap dumps of the same application can be added to report classes
+ * which grow across the dumps.
+ * <p>
+ * Usage: <code>java -cp &lt;classpath&gt; org.graalvm.visualvm.lib.profiler.oql.batch.HeapReportRunner [options] &lt;heap dump&gt;</code>
+ * <p>
+ * Exit code is 0 on success, 1 when the analysis failed and 2 for invalid arguments.
+ */
+public final class HeapReportRunner {
+
+    static final String HISTOGRAM = "histogram"; // NOI18N
+    static final String DOMINATORS = "dominators"; // NOI18N
+    static final String DUPLICATE_STRINGS = "duplicate-strings"; // NOI18N
+    static final String GC_ROOT_PATHS = "gc-root-paths"; // NOI18N
+    static final String GROWTH_TREND = "growth-trend"; // NOI18N
+    private static final List<String> ANALYSES = Arrays.asList(HISTOGRAM, DOMINATORS, DUPLICATE_STRINGS, GC_ROOT_PATHS);
+
+    private static final int DEFAULT_TOP = 20;
+    private static final int DEFAULT_OQL_LIMIT = 1000;
+    // longest string value written to the duplicate strings report
+    private static final int MAX_STRING_LENGTH = 200;
+    // number of duplicate array groups inspected when looking for duplicate strings
+    private static final int DUPLICATES_SCAN = 10000;
+
+    private static final String USAGE =
+        "Usage: HeapReportRunner [options] <heap dump>\n" + // NOI18N
+        "Options:\n" + // NOI18N
+        "  --output <dir>       directory for the reports, default is the current directory\n" + // NOI18N
+        "  --format json|csv    report format, default is json\n" + // NOI18N
+        "  --analysis <name>    predefined analysis: histogram, dominators, duplicate-strings,\n" + // NOI18N
+        "                       gc-root-paths or all; can be repeated, default is all\n" + // NOI18N
+        "  --oql <query>        OQL query to evaluate; can be repeated\n" + // NOI18N
+        "  --oql-file <file>    file with an OQL query to evaluate; can be repeated\n" + // NOI18N
+        "  --oql-limit <n>      maximum number of results of an OQL query, default is 1000\n" + // NOI18N
+        "  --top <n>            number of items in top-N analyses, default is 20\n" + // NOI18N
+        "  --trend <heap dump>  another heap dump of the same application, reports classes\n" + // NOI18N
+        "                       growing across all the dumps; can be repeated\n"; // NOI18N
+
+    private final File heapDump;
+    private final File outputDir;
+    private final String format;
+    private final Set<String> analyses;
+    private final List<String> queries;
+    private final List<File> trendDumps;
+    private final int top;
+    private final int oqlLimit;
+    private final PrintStream log;
+
+    private HeapReportRunner(File heapDump, File outputDir, String format, Set<String> analyses,
+                             List<String> queries, List<File> trendDumps, int top, int oqlLimit, PrintStream log) {
+        this.heapDump = heapDump;
+        this.outputDir = outputDir;
+        this.format = format;
+        this.analyses = analyses;
+        this.queries = queries;
+        this.trendDumps = trendDumps;
+        this.top = top;
+        this.oqlLimit = oqlLimit;
+        this.log = log;
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true"); // NOI18N
+        System.exit(run(args, System.err));
+    }
+
+    static int run(String[] args, PrintStream log) {
+        HeapReportRunner runner;
+        try {
+            runner = parse(args, log);
+        } catch (IllegalArgumentException ex) {
+            log.println(ex.getMessage());
+            log.print(USAGE);
+            return 2;
+        }
+        try {
+            runner.run();
+            return 0;
+        } catch (IOException | OQLException | RuntimeException ex) {
+            log.println("Heap analysis failed: " + ex); // NOI18N
+            ex.printStackTrace(log);
+            return 1;
+        }
+    }
+
+    private static HeapReportRunner parse(String[] args, PrintStream log) {
+        File heapDump = null;
+        File outputDir = new File("."); // NOI18N
+        String format = ReportWriter.JSON;
+        Set<String> analyses = new LinkedHashSet<>();
+        List<String> queries = new ArrayList<>();
+        List<File> trendDumps = new ArrayList<>();
+        int top = DEFAULT_TOP;
+        int oqlLimit = DEFAULT_OQL_LIMIT;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) { // NOI18N
+                if (heapDump != null) throw new IllegalArgumentException("More than one heap dump specified"); // NOI18N
+                heapDump = new File(arg);
+                continue;
+            }
+            if (i + 1 == args.length) throw new IllegalArgumentException("Missing value of " + arg); // NOI18N
+            String value = args[++i];
+            switch (arg) {
+                case "--output": // NOI18N
+                    outputDir = new File(value);
+                    break;
+                case "--format": // NOI18N
+                    if (ReportWriter.create(value) == null) throw new IllegalArgumentException("Unknown format " + value); // NOI18N
+                    format = value;
+                    break;
+                case "--analysis": // NOI18N
+                    if ("all".equals(value)) analyses.addAll(ANALYSES); // NOI18N
+                    else if (ANALYSES.contains(value)) analyses.add(value);
+                    else throw new IllegalArgumentException("Unknown analysis " + value); // NOI18N
+                    break;
+                case "--oql": // NOI18N
+                    queries.add(value);
+                    break;
+                case "--oql-file": // NOI18N
+                    try {
+                        queries.add(new String(Files.readAllBytes(new File(value).toPath()), StandardCharsets.UTF_8));
+                    } catch (IOException ex) {
+                        throw new IllegalArgumentException("Cannot read " + value + ": " + ex.getLocalizedMessage()); // NOI18N
+                    }
+                    break;
+                case "--oql-limit": // NOI18N
+                    oqlLimit = parsePositive(arg, value);
+                    break;
+                case "--top": // NOI18N
+                    top = parsePositive(arg, value);
+                    break;
+                case "--trend": // NOI18N
+                    File trendDump = new File(value);
+                    if (!trendDump.isFile()) throw new IllegalArgumentException("Heap dump " + trendDump + " not found"); // NOI18N
+                    trendDumps.add(trendDump);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg); // NOI18N
+            }
+        }
+        if (heapDump == null) throw new IllegalArgumentException("No heap dump specified"); // NOI18N
+        if (!heapDump.isFile()) throw new IllegalArgumentException("Heap dump " + heapDump + " not found"); // NOI18N
+        if (analyses.isEmpty() && queries.isEmpty() && trendDumps.isEmpty()) analyses.addAll(ANALYSES);
+
+        return new HeapReportRunner(heapDump, outputDir, format, analyses, queries, trendDumps, top, oqlLimit, log);
+    }
+
+    private static int parsePositive(String option, String value) {
+        try {
+            int number = Integer.parseInt(value);
+            if (number > 0) return number;
+        } catch (NumberFormatException ex) {}
+        throw new IllegalArgumentException("Invalid value of " + option + ": " + value); // NOI18N
+    }
+
+    private void run() throws IOException, OQLException {
+        if (!queries.isEmpty() && !OQLEngine.isOQLSupported())
+            throw new IllegalStateException("OQL is not supported, no JavaScript engine available"); // NOI18N
+        if (!outputDir.isDirectory() && !outputDir.mkdirs())
+            throw new IOException("Cannot create output directory " + outputDir); // NOI18N
+
+        List<Report> reports = new ArrayList<>();
+        // the dumps are opened and closed one by one before the analyzed dump is opened
+        if (!trendDumps.isEmpty()) reports.add(growthTrend(heapDump, trendDumps, top, log));
+
+        long time = System.currentTimeMillis();
+        Heap heap = HeapFactory.createHeap(heapDump);
+        log.println("Heap dump opened in " + (System.currentTimeMillis() - time) + " ms"); // NOI18N
+
+        computeIndexes(heap);
+
+        if (analyses.contains(HISTOGRAM)) reports.add(histogram(heap));
+        if (analyses.contains(DOMINATORS)) reports.add(dominators(heap, top));
+        if (analyses.contains(DUPLICATE_STRINGS)) reports.add(duplicateStrings(heap, top));
+        if (analyses.contains(GC_ROOT_PATHS)) reports.add(gcRootPaths(heap, top));
+        if (!queries.isEmpty()) {
+            OQLEngine engine = new OQLEngine(heap);
+            try {
+                for (int i = 0; i < queries.size(); i++)
+                    reports.add(oql(engine, "oql-" + (i + 1), queries.get(i), oqlLimit)); // NOI18N
+            } finally {
+                engine.release();
+            }
+        }
+
+        for (File file : ReportWriter.create(format).write(heapDump, reports, outputDir))
+            log.println("Report written to " + file); // NOI18N
+    }
+
+    // Computes all heap indexes the same way a VisualVM session does, each phase is
+    // committed to the cache directory once computed. The phases run one after another,
+    // duplicate arrays are computed once the references based phases are finished.
+    private void computeIndexes(Heap heap) {
+        phase("instances", () -> heap.getAllClasses().get(0).getInstancesCount()); // NOI18N
+        phase("references", () -> heap.getAllInstancesIterator().next().getReferences()); // NOI18N
+        phase("GC roots", () -> heap.getAllInstancesIterator().next().getNearestGCRootPointer()); // NOI18N
+        phase("retained sizes", () -> heap.getBiggestObjectsByRetainedSize(1)); // NOI18N
+        phase("retained sizes by class", () -> heap.getAllClasses().get(0).getRetainedSizeByClass()); // NOI18N
+        phase("duplicate arrays", () -> heap.getDuplicateArrays(1)); // NOI18N
+    }
+
+    private void phase(String name, Runnable computation) {
+        long time = System.currentTimeMillis();
+        computation.run();
+        log.println("Computed " + name + " in " + (System.currentTimeMillis() - time) + " ms"); // NOI18N
+    }
+
+    static Report histogram(Heap heap) {
+        List<JavaClass> classes = new ArrayList<>(heap.getAllClasses());
+        classes.sort((c1, c2) -> Long.compare(c2.getAllInstancesSize(), c1.getAllInstancesSize()));
+
+        boolean retained = heap.isRetainedSizeByClassComputed();
+        Report report = new Report(HISTOGRAM, "class", "instances", "size", "retainedSize"); // NOI18N
+        for (JavaClass jcls : classes) {
+            if (jcls.getInstancesCount() == 0) continue;
+            report.addRow(jcls.getName(), jcls.getInstancesCount(), jcls.getAllInstancesSize(),
+                          retained ? jcls.getRetainedSizeByClass() : null);
+        }
+        return report;
+    }
+
+    static Report growthTrend(File heapDump, List<File> trendDumps, int top, PrintStream log) throws IOException {
+        List<File> dumps = new ArrayList<>(trendDumps);
+        dumps.add(heapDump);
+
+        long time = System.currentTimeMillis();
+        HeapTrend trend = HeapTrend.compute(dumps, true);
+        log.println("Computed growth trend of " + dumps.size() + " heap dumps in " + (System.currentTimeMillis() - time) + " ms"); // NOI18N
+
+        Report report = new Report(GROWTH_TREND, "class", "growthScore", "instances", "size", "retainedSize"); // NOI18N
+        for (HeapTrend.ClassTrend classTrend : trend.getGrowthSuspects(top)) {
+            report.addRow(classTrend.getName(), classTrend.getGrowthScore(), toList(classTrend.getInstancesCounts()),
+                          toList(classTrend.getOwnSizes()), toList(classTrend.getRetainedSizes()));
+        }
+        return report;
+    }
+
+    private static List<Long> toList(long[] values) {
+        List<Long> list = new ArrayList<>(values.length);
+        for (long value : values) list.add(value);
+        return list;
+    }
+
+    static Report dominators(Heap heap, int top) {
+        Report report = new Report(DOMINATORS, "instance", "id", "class", "size", "retainedSize"); // NOI18N
+        for (Instance instance : heap.getBiggestObjectsByRetainedSize(top)) {
+            report.addRow(name(instance), instance.getInstanceId(), instance.getJavaClass().getName(),
+                          instance.getSize(), instance.getRetainedSize());
+        }
+        return report;
+    }
+
+    static Report duplicateStrings(Heap heap, int top) {
+        Snapshot snapshot = new Snapshot(heap, null);
+        JavaClass stringClass = heap.getJavaClassByName(String.class.getName());
+        Report report = new Report(DUPLICATE_STRINGS, "value", "count", "arrayClass", "wastedSize"); // NOI18N
+
+        for (DuplicateArrays duplicates : heap.getDuplicateArrays(DUPLICATES_SCAN)) {
+            if (report.getRows().size() == top) break;
+            if (stringClass == null || !duplicates.getOwnerClasses().contains(stringClass)) continue;
+
+            Instance string = getReferrer(duplicates.getInstances().get(0), stringClass);
+            if (string == null) continue;
+            String value = snapshot.valueString(string);
+            if (value.length() > MAX_STRING_LENGTH) value = value.substring(0, MAX_STRING_LENGTH) + "..."; // NOI18N
+            report.addRow(value, duplicates.getInstancesCount(), duplicates.getJavaClass().getName(),
+                          duplicates.getWastedSize());
+        }
+        return report;
+    }
+
+    private static Instance getReferrer(Instance array, JavaClass referrerClass) {
+        for (Value reference : array.getReferences()) {
+            Instance referrer = reference.getDefiningInstance();
+            if (referrer != null && referrerClass.equals(referrer.getJavaClass())) return referrer;
+        }
+        return null;
+    }
+
+    static Report gcRootPaths(Heap heap, int top) {
+        Report report = new Report(GC_ROOT_PATHS, "instance", "retainedSize", "gcRoot", "path"); // NOI18N
+        for (Instance instance : heap.getBiggestObjectsByRetainedSize(top)) {
+            List<String> path = new ArrayList<>();
+            Instance root = instance;
+            path.add(name(instance));
+            for (Instance parent = instance.getNearestGCRootPointer(); parent != null && !parent.equals(root);
+                 parent = parent.getNearestGCRootPointer()) {
+                path.add(name(parent));
+                root = parent;
+            }
+            Collection<GCRoot> gcRoots = root.isGCRoot() ? heap.getGCRoots(root) : Collections.emptyList();
+            String kind = gcRoots.isEmpty() ? null : gcRoots.iterator().next().getKind();
+            report.addRow(name(instance), instance.getRetainedSize(), kind, path);
+        }
+        return report;
+    }
+
+    static Report oql(OQLEngine engine, String name, String query, int limit) throws OQLException {
+        Snapshot snapshot = new Snapshot(engine.getHeap(), engine);
+        Report report = new Report(name, "result"); // NOI18N
+        engine.executeQuery(query, (Object o) -> {
+            report.addRow(toString(engine, snapshot, o));
+            return report.getRows().size() >= limit;
+        });
+        return report;
+    }
+
+    private static Object toString(OQLEngine engine, Snapshot snapshot, Object o) {
+        Object value = engine.unwrapJavaObject(o, true);
+        if (value instanceof Instance) {
+            Instance instance = (Instance)value;
+            String className = instance.getJavaClass().getName();
+            if (String.class.getName().equals(className) || "char[]".equals(className)) // NOI18N
+                return snapshot.valueString(instance);
+            return name(instance);
+        }
+        if (value instanceof JavaClass) return ((JavaClass)value).getName();
+        if (value instanceof Number || value == null) return value;
+        if (value instanceof Map) {
+            StringBuilder sb = new StringBuilder("{"); // NOI18N
+            for (Map.Entry<?,?> entry : ((Map<?,?>)value).entrySet()) {
+                if (sb.length() > 1) sb.append(", "); // NOI18N
+                sb.append(entry.getKey()).append(": ").append(toString(engine, snapshot, entry.getValue())); // NOI18N
+            }
+            return sb.append('}').toString();
+        }
+        return value.toString();
+    }
+
+    private static String name(Instance instance) {
+        return instance.getJavaClass().getName() + "#" + instance.getInstanceNumber(); // NOI18N
+    }
+}
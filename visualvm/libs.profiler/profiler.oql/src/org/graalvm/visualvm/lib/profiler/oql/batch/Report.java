@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.lib.profiler.oql.batch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tabular result of a single analysis. Cell values are numbers, strings or
+ * lists of strings.
+ */
+final class Report {
+
+    private final String name;
+    private final List<String> columns;
+    private final List<Object[]> rows = new ArrayList<>();
+
+    Report(String name, String... columns) {
+        this.name = name;
+        this.columns = Collections.unmodifiableList(Arrays.asList(columns));
+    }
+
+    String getName() {
+        return name;
+    }
+
+    List<String> getColumns() {
+        return columns;
+    }
+
+    List<Object[]> getRows() {
+        return rows;
+    }
+
+    void addRow(Object... values) {
+        assert values.length == columns.size();
+        rows.add(values);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.lib.profiler.oql.batch;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes reports either as a single JSON document or as one CSV file per report.
+ */
+abstract class ReportWriter {
+
+    static final String JSON = "json"; // NOI18N
+    static final String CSV = "csv"; // NOI18N
+
+    static ReportWriter create(String format) {
+        if (JSON.equals(format)) return new JsonWriter();
+        if (CSV.equals(format)) return new CsvWriter();
+        return null;
+    }
+
+    abstract List<File> write(File heapDump, List<Report> reports, File outputDir) throws IOException;
+
+    static Writer createWriter(File file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+    }
+
+    static String fileName(String reportName) {
+        return reportName.replaceAll("[^A-Za-z0-9._-]", "_"); // NOI18N
+    }
+
+
+    private static final class JsonWriter extends ReportWriter {
+
+        List<File> write(File heapDump, List<Report> reports, File outputDir) throws IOException {
+            File file = new File(outputDir, "report.json"); // NOI18N
+            try (Writer out = createWriter(file)) {
+                out.write("{\n  \"heapDump\": "); // NOI18N
+                writeValue(out, heapDump.getAbsolutePath());
+                out.write(",\n  \"reports\": ["); // NOI18N
+                for (int r = 0; r < reports.size(); r++) {
+                    Report report = reports.get(r);
+                    List<String> columns = report.getColumns();
+                    out.write(r == 0 ? "\n    {\"name\": " : ",\n    {\"name\": "); // NOI18N
+                    writeValue(out, report.getName());
+                    out.write(", \"rows\": ["); // NOI18N
+                    List<Object[]> rows = report.getRows();
+                    for (int i = 0; i < rows.size(); i++) {
+                        Object[] row = rows.get(i);
+                        out.write(i == 0 ? "\n      {" : ",\n      {"); // NOI18N
+                        for (int c = 0; c < row.length; c++) {
+                            if (c > 0) out.write(", "); // NOI18N
+                            writeValue(out, columns.get(c));
+                            out.write(": "); // NOI18N
+                            writeValue(out, row[c]);
+                        }
+                        out.write('}');
+                    }
+                    out.write(rows.isEmpty() ? "]}" : "\n    ]}"); // NOI18N
+                }
+                out.write(reports.isEmpty() ? "]\n}\n" : "\n  ]\n}\n"); // NOI18N
+            }
+            return Collections.singletonList(file);
+        }
+
+        private static void writeValue(Writer out, Object value) throws IOException {
+            if (value == null || isNonFinite(value)) {
+                // JSON has no literals for NaN and infinities
+                out.write("null"); // NOI18N
+            } else if (value instanceof Number || value instanceof Boolean) {
+                out.write(value.toString());
+            } else if (value instanceof List) {
+                List<?> list = (List<?>)value;
+                out.write('[');
+                for (int i = 0; i < list.size(); i++) {
+                    if (i > 0) out.write(", "); // NOI18N
+                    writeValue(out, list.get(i));
+                }
+                out.write(']');
+            } else {
+                String s = value.toString();
+                out.write('"');
+                for (int i = 0; i < s.length(); i++) {
+                    char ch = s.charAt(i);
+                    switch (ch) {
+                        case '"':  out.write("\\\""); break; // NOI18N
+                        case '\\': out.write("\\\\"); break; // NOI18N
+                        case '\n': out.write("\\n"); break; // NOI18N
+                        case '\r': out.write("\\r"); break; // NOI18N
+                        case '\t': out.write("\\t"); break; // NOI18N
+                        default:
+                            if (ch < 0x20) out.write(String.format("\\u%04x", (int)ch)); // NOI18N
+                            else out.write(ch);
+                    }
+                }
+                out.write('"');
+            }
+        }
+
+        private static boolean isNonFinite(Object value) {
+            if (value instanceof Double) return ((Double)value).isNaN() || ((Double)value).isInfinite();
+            if (value instanceof Float) return ((Float)value).isNaN() || ((Float)value).isInfinite();
+            return false;
+        }
+    }
+
+
+    private static final class CsvWriter extends ReportWriter {
+
+        // separates items of list values inside a single cell
+        private static final String LIST_SEPARATOR = " <- "; // NOI18N
+
+        List<File> write(File heapDump, List<Report> reports, File outputDir) throws IOException {
+            List<File> files = new ArrayList<>(reports.size());
+            for (Report report : reports) {
+                File file = new File(outputDir, fileName(report.getName()) + ".csv"); // NOI18N
+                try (Writer out = createWriter(file)) {
+                    writeRow(out, report.getColumns().toArray());
+                    for (Object[] row : report.getRows()) writeRow(out, row);
+                }
+                files.add(file);
+            }
+            return files;
+        }
+
+        private static void writeRow(Writer out, Object[] row) throws IOException {
+            for (int c = 0; c < row.length; c++) {
+                if (c > 0) out.write(',');
+                writeValue(out, row[c]);
+            }
+            out.write("\r\n"); // NOI18N
+        }
+
+        private static void writeValue(Writer out, Object value) throws IOException {
+            if (value == null) return;
+            if (value instanceof Number) {
+                out.write(value.toString());
+                return;
+            }
+            String s = value instanceof List ? join((List<?>)value) : value.toString();
+            if (s.indexOf(',') == -1 && s.indexOf('"') == -1 && s.indexOf('\n') == -1 && s.indexOf('\r') == -1) {
+                out.write(s);
+            } else {
+                out.write('"');
+                out.write(s.replace("\"", "\"\"")); // NOI18N
+                out.write('"');
+            }
+        }
+
+        private static String join(List<?> values) {
+            StringBuilder sb = new StringBuilder();
+            for (Object value : values) {
+                if (sb.length() > 0) sb.append(LIST_SEPARATOR);
+                sb.append(value);
+            }
+            return sb.toString();
+        }
+    }
+}
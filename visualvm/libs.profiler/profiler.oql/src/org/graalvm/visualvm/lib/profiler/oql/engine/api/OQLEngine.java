@@ -116,4 +116,12 @@ final public class OQLEngine {
     public boolean isCancelled() {
         return delegate.isCancelled();
     }
+
+    /**
+     * Releases resources kept for next queries, like script engines used by parallel
+     * queries. The engine remains usable, the resources are created again when needed.
+     */
+    public void release() {
+        delegate.release();
+    }
 }
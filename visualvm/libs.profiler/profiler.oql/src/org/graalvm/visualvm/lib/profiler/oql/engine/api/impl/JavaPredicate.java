@@ -0,0 +1,646 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+
+package org.graalvm.visualvm.lib.profiler.oql.engine.api.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.graalvm.visualvm.lib.jfluid.heap.FieldAccessor;
+import org.graalvm.visualvm.lib.jfluid.heap.Instance;
+import org.graalvm.visualvm.lib.jfluid.heap.JavaClass;
+import org.graalvm.visualvm.lib.jfluid.heap.ObjectArrayInstance;
+import org.graalvm.visualvm.lib.jfluid.heap.PrimitiveArrayInstance;
+
+/**
+ * Native evaluator for the common subset of OQL where conditions. Supported are
+ * literals, field access, comparisons, boolean operators, <code>sizeof</code>,
+ * <code>rsizeof</code>, <code>classof</code> with <code>name</code> and
+ * <code>isSubclassOf</code>, <code>toString</code>, string <code>length</code>,
+ * <code>startsWith</code> and <code>endsWith</code>. Values follow the semantics
+ * of the script wrappers defined in hat.js. Whenever a value cannot be evaluated
+ * with the same result as the script engine would produce, the predicate
+ * answers <code>null</code> and the caller evaluates the condition by the script
+ * engine instead.
+ */
+class JavaPredicate {
+
+    private static final Object UNKNOWN = new Object();
+
+    private final Node root;
+
+    private JavaPredicate(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Compiles where condition of a query.
+     *
+     * @return compiled predicate or <code>null</code> if the condition is not supported
+     */
+    static JavaPredicate compile(String expr, String identifier, Snapshot snapshot) {
+        if (expr == null || identifier == null) {
+            return null;
+        }
+        try {
+            Parser parser = new Parser(tokenize(expr), identifier, snapshot);
+            Node root = parser.parseExpression();
+            if (!parser.isAtEnd()) {
+                return null;
+            }
+            return new JavaPredicate(root);
+        } catch (UnsupportedExpressionException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Evaluates the condition for given instance.
+     *
+     * @return result of the condition or <code>null</code> if it has to be evaluated by the script engine
+     */
+    Boolean test(Instance instance) {
+        Object value = root.eval(instance);
+        if (value == UNKNOWN) {
+            return null;
+        }
+        // the same conversion as OQLEngineImpl.isTrue() applies to script results
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        } else if (value instanceof Number) {
+            return Boolean.valueOf(((Number) value).intValue() != 0);
+        }
+        return Boolean.valueOf(value != null);
+    }
+
+    //~ Values -------------------------------------------------------------------------------------------------------------------
+
+    // script numbers are Double here, Long and Character stay wrapped Java objects as in the script engine
+    private static Object toScriptValue(Object value) {
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte
+                || value instanceof Float || value instanceof Double) {
+            return Double.valueOf(((Number) value).doubleValue());
+        }
+        return value;
+    }
+
+    private static boolean isNumber(Object value) {
+        return value instanceof Double || value instanceof Long;
+    }
+
+    private static boolean isHeapObject(Object value) {
+        return value instanceof Instance || value instanceof JavaClass;
+    }
+
+    private static boolean isTruthy(Object value) {
+        if (value == null) {
+            return false;
+        } else if (value instanceof Boolean) {
+            return ((Boolean) value).booleanValue();
+        } else if (value instanceof Number) {
+            double d = ((Number) value).doubleValue();
+            return d != 0 && !Double.isNaN(d);
+        } else if (value instanceof String) {
+            return !((String) value).isEmpty();
+        }
+        return true;
+    }
+
+    private static Object looseEquals(Object v1, Object v2) {
+        if (v1 == null || v2 == null) {
+            if (v1 == null && v2 == null) {
+                return Boolean.TRUE;
+            }
+            Object other = v1 == null ? v2 : v1;
+            return isNumber(other) || other instanceof String || other instanceof Boolean || isHeapObject(other)
+                    ? Boolean.FALSE : UNKNOWN;
+        }
+        if (isNumber(v1) && isNumber(v2)) {
+            return Boolean.valueOf(((Number) v1).doubleValue() == ((Number) v2).doubleValue());
+        }
+        if ((v1 instanceof String && v2 instanceof String) || (v1 instanceof Boolean && v2 instanceof Boolean)) {
+            return Boolean.valueOf(v1.equals(v2));
+        }
+        return UNKNOWN;
+    }
+
+    private static Object strictEquals(Object v1, Object v2) {
+        if (v1 == null || v2 == null) {
+            return looseEquals(v1, v2);
+        }
+        if (v1 instanceof Long || v2 instanceof Long) {
+            // Long is an object for the script engine, equal only to itself
+            return v1 instanceof Long && v2 instanceof Long ? UNKNOWN : Boolean.FALSE;
+        }
+        if (v1 instanceof Double && v2 instanceof Double) {
+            return Boolean.valueOf(((Double) v1).doubleValue() == ((Double) v2).doubleValue());
+        }
+        if (v1 instanceof String || v1 instanceof Boolean) {
+            return Boolean.valueOf(v1.getClass() == v2.getClass() && v1.equals(v2));
+        }
+        return UNKNOWN;
+    }
+
+    private static Object compare(String op, Object v1, Object v2) {
+        int res;
+        if (isNumber(v1) && isNumber(v2)) {
+            double d1 = ((Number) v1).doubleValue();
+            double d2 = ((Number) v2).doubleValue();
+            if (Double.isNaN(d1) || Double.isNaN(d2)) {
+                return Boolean.FALSE;
+            }
+            res = Double.compare(d1 + 0.0, d2 + 0.0);
+        } else if (v1 instanceof String && v2 instanceof String) {
+            res = ((String) v1).compareTo((String) v2);
+        } else {
+            return UNKNOWN;
+        }
+        switch (op) {
+            case "<":  return Boolean.valueOf(res < 0);   // NOI18N
+            case "<=": return Boolean.valueOf(res <= 0);  // NOI18N
+            case ">":  return Boolean.valueOf(res > 0);   // NOI18N
+            default:   return Boolean.valueOf(res >= 0);
+        }
+    }
+
+    private static Object getProperty(Object target, String name, Property node) {
+        if (target instanceof JavaClass) {
+            return "name".equals(name) ? ((JavaClass) target).getName() : UNKNOWN; // NOI18N
+        } else if (target instanceof String) {
+            return "length".equals(name) ? Double.valueOf(((String) target).length()) : UNKNOWN; // NOI18N
+        } else if (!(target instanceof Instance)) {
+            return UNKNOWN;
+        }
+        Instance instance = (Instance) target;
+        if ("clazz".equals(name)) { // NOI18N
+            return instance.getJavaClass();
+        } else if (instance instanceof ObjectArrayInstance || instance instanceof PrimitiveArrayInstance) {
+            if ("length".equals(name)) { // NOI18N
+                int length = instance instanceof ObjectArrayInstance
+                        ? ((ObjectArrayInstance) instance).getLength()
+                        : ((PrimitiveArrayInstance) instance).getLength();
+                return Double.valueOf(length);
+            }
+            return UNKNOWN;
+        } else if ("id".equals(name)) { // NOI18N
+            return Long.valueOf(instance.getInstanceId());
+        } else if ("statics".equals(name) || "wrapped-object".equals(name) || "toString".equals(name)) { // NOI18N
+            return UNKNOWN;
+        }
+        FieldAccessor accessor = node.getAccessor(instance.getJavaClass());
+        return accessor == null ? null : toScriptValue(accessor.getValue(instance));
+    }
+
+    private static boolean isSubclassOf(JavaClass cls, JavaClass other) {
+        for (JavaClass tmp = cls; tmp != null; tmp = tmp.getSuperClass()) {
+            if (tmp.getJavaClassId() == other.getJavaClassId()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //~ Expression tree ----------------------------------------------------------------------------------------------------------
+
+    private static abstract class Node {
+        abstract Object eval(Instance instance);
+    }
+
+    private static class Constant extends Node {
+        private final Object value;
+
+        Constant(Object value) {
+            this.value = value;
+        }
+
+        Object eval(Instance instance) {
+            return value;
+        }
+    }
+
+    private static class Identifier extends Node {
+        Object eval(Instance instance) {
+            return instance;
+        }
+    }
+
+    private static class Not extends Node {
+        private final Node operand;
+
+        Not(Node operand) {
+            this.operand = operand;
+        }
+
+        Object eval(Instance instance) {
+            Object value = operand.eval(instance);
+            return value == UNKNOWN ? UNKNOWN : Boolean.valueOf(!isTruthy(value));
+        }
+    }
+
+    private static class Logical extends Node {
+        private final boolean and;
+        private final Node left;
+        private final Node right;
+
+        Logical(boolean and, Node left, Node right) {
+            this.and = and;
+            this.left = left;
+            this.right = right;
+        }
+
+        Object eval(Instance instance) {
+            Object value = left.eval(instance);
+            if (value == UNKNOWN || isTruthy(value) != and) {
+                return value;
+            }
+            return right.eval(instance);
+        }
+    }
+
+    private static class Comparison extends Node {
+        private final String op;
+        private final Node left;
+        private final Node right;
+
+        Comparison(String op, Node left, Node right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        Object eval(Instance instance) {
+            Object v1 = left.eval(instance);
+            if (v1 == UNKNOWN) {
+                return UNKNOWN;
+            }
+            Object v2 = right.eval(instance);
+            if (v2 == UNKNOWN) {
+                return UNKNOWN;
+            }
+            Object res;
+            switch (op) {
+                case "==":  return looseEquals(v1, v2);       // NOI18N
+                case "===": return strictEquals(v1, v2);      // NOI18N
+                case "!=":  res = looseEquals(v1, v2); break; // NOI18N
+                case "!==": res = strictEquals(v1, v2); break; // NOI18N
+                default:    return compare(op, v1, v2);
+            }
+            return res == UNKNOWN ? UNKNOWN : Boolean.valueOf(!((Boolean) res).booleanValue());
+        }
+    }
+
+    private static class Property extends Node {
+        private final Node target;
+        private final String name;
+        // field accessor of the last evaluated class, instances come class by class
+        private volatile ResolvedField resolved;
+
+        Property(Node target, String name) {
+            this.target = target;
+            this.name = name;
+        }
+
+        Object eval(Instance instance) {
+            Object value = target.eval(instance);
+            return value == UNKNOWN ? UNKNOWN : getProperty(value, name, this);
+        }
+
+        FieldAccessor getAccessor(JavaClass cls) {
+            ResolvedField field = resolved;
+            if (field == null || !field.cls.equals(cls)) {
+                field = new ResolvedField(cls, cls.getFieldAccessor(name));
+                resolved = field;
+            }
+            return field.accessor;
+        }
+    }
+
+    private static class ResolvedField {
+        private final JavaClass cls;
+        private final FieldAccessor accessor;
+
+        ResolvedField(JavaClass cls, FieldAccessor accessor) {
+            this.cls = cls;
+            this.accessor = accessor;
+        }
+    }
+
+    private static class Call extends Node {
+        private final String name;
+        private final Node target;
+        private final Node argument;
+        private final Snapshot snapshot;
+
+        Call(String name, Node target, Node argument, Snapshot snapshot) {
+            this.name = name;
+            this.target = target;
+            this.argument = argument;
+            this.snapshot = snapshot;
+        }
+
+        Object eval(Instance instance) {
+            Object value = target.eval(instance);
+            Object arg = argument == null ? null : argument.eval(instance);
+            if (value == UNKNOWN || arg == UNKNOWN) {
+                return UNKNOWN;
+            }
+            switch (name) {
+                case "sizeof": // NOI18N
+                    return value instanceof Instance ? Long.valueOf(((Instance) value).getSize()) : UNKNOWN;
+                case "rsizeof": // NOI18N
+                    return value instanceof Instance ? Long.valueOf(((Instance) value).getRetainedSize()) : UNKNOWN;
+                case "classof": // NOI18N
+                    return value instanceof Instance ? ((Instance) value).getJavaClass() : UNKNOWN;
+                case "toString": // NOI18N
+                    return toString(value);
+                case "startsWith": // NOI18N
+                    return value instanceof String && arg instanceof String
+                            ? Boolean.valueOf(((String) value).startsWith((String) arg)) : UNKNOWN;
+                case "endsWith": // NOI18N
+                    return value instanceof String && arg instanceof String
+                            ? Boolean.valueOf(((String) value).endsWith((String) arg)) : UNKNOWN;
+                default: // isSubclassOf
+                    return value instanceof JavaClass && arg instanceof JavaClass
+                            ? Boolean.valueOf(isSubclassOf((JavaClass) value, (JavaClass) arg)) : UNKNOWN;
+            }
+        }
+
+        private Object toString(Object value) {
+            if (!(value instanceof Instance)) {
+                return UNKNOWN;
+            }
+            Instance instance = (Instance) value;
+            String className = instance.getJavaClass().getName();
+            if (instance instanceof PrimitiveArrayInstance) {
+                return "char[]".equals(className) ? snapshot.valueString(instance) : instance.toString(); // NOI18N
+            } else if (instance instanceof ObjectArrayInstance) {
+                return instance.toString();
+            }
+            return String.class.getName().equals(className) ? snapshot.valueString(instance) : instance.toString();
+        }
+    }
+
+    //~ Parser -------------------------------------------------------------------------------------------------------------------
+
+    // the condition is left to the script engine, thrown for every unsupported query so no stack trace is filled in
+    private static class UnsupportedExpressionException extends Exception {
+        UnsupportedExpressionException() {
+            this(null);
+        }
+
+        UnsupportedExpressionException(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    private static final String[] OPERATORS = {
+        "===", "!==", "==", "!=", "<=", ">=", "&&", "||", "<", ">", "!", "(", ")", ".", // NOI18N
+    };
+
+    // tokens are identifiers, operators, Double number literals and String literals wrapped in Object[]
+    private static List<Object> tokenize(String expr) throws UnsupportedExpressionException {
+        List<Object> tokens = new ArrayList<>();
+        int i = 0;
+
+        next: while (i < expr.length()) {
+            char c = expr.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int start = i;
+                while (i < expr.length() && Character.isJavaIdentifierPart(expr.charAt(i))) {
+                    i++;
+                }
+                tokens.add(expr.substring(start, i));
+            } else if (c >= '0' && c <= '9') {
+                int start = i;
+                while (i < expr.length() && (Character.isDigit(expr.charAt(i)) || expr.charAt(i) == '.')) {
+                    i++;
+                }
+                if (i < expr.length() && Character.isJavaIdentifierPart(expr.charAt(i))) {
+                    throw new UnsupportedExpressionException(expr); // hex, exponent
+                }
+                try {
+                    tokens.add(Double.valueOf(expr.substring(start, i)));
+                } catch (NumberFormatException ex) {
+                    throw new UnsupportedExpressionException(expr);
+                }
+            } else if (c == '"' || c == '\'') {
+                StringBuilder sb = new StringBuilder();
+                for (i++; i < expr.length() && expr.charAt(i) != c; i++) {
+                    char ch = expr.charAt(i);
+                    if (ch == '\\') {
+                        i++;
+                        if (i == expr.length() || "\\'\"".indexOf(expr.charAt(i)) == -1) { // NOI18N
+                            throw new UnsupportedExpressionException(expr);
+                        }
+                        ch = expr.charAt(i);
+                    }
+                    sb.append(ch);
+                }
+                if (i == expr.length()) {
+                    throw new UnsupportedExpressionException(expr);
+                }
+                i++;
+                tokens.add(new Object[] { sb.toString() });
+            } else {
+                for (String op : OPERATORS) {
+                    if (expr.startsWith(op, i)) {
+                        tokens.add(op);
+                        i += op.length();
+                        continue next;
+                    }
+                }
+                throw new UnsupportedExpressionException(expr);
+            }
+        }
+        return tokens;
+    }
+
+    private static class Parser {
+        private final List<Object> tokens;
+        private final String identifier;
+        private final Snapshot snapshot;
+        private int pos;
+
+        Parser(List<Object> tokens, String identifier, Snapshot snapshot) {
+            this.tokens = tokens;
+            this.identifier = identifier;
+            this.snapshot = snapshot;
+        }
+
+        boolean isAtEnd() {
+            return pos == tokens.size();
+        }
+
+        Node parseExpression() throws UnsupportedExpressionException {
+            Node node = parseAnd();
+            while (accept("||")) { // NOI18N
+                node = new Logical(false, node, parseAnd());
+            }
+            return node;
+        }
+
+        private Node parseAnd() throws UnsupportedExpressionException {
+            Node node = parseEquality();
+            while (accept("&&")) { // NOI18N
+                node = new Logical(true, node, parseEquality());
+            }
+            return node;
+        }
+
+        private Node parseEquality() throws UnsupportedExpressionException {
+            Node node = parseRelational();
+            String op;
+            while ((op = acceptOperator("==", "!=", "===", "!==")) != null) { // NOI18N
+                node = new Comparison(op, node, parseRelational());
+            }
+            return node;
+        }
+
+        private Node parseRelational() throws UnsupportedExpressionException {
+            Node node = parseUnary();
+            String op;
+            while ((op = acceptOperator("<", "<=", ">", ">=")) != null) { // NOI18N
+                node = new Comparison(op, node, parseUnary());
+            }
+            return node;
+        }
+
+        private Node parseUnary() throws UnsupportedExpressionException {
+            if (accept("!")) { // NOI18N
+                return new Not(parseUnary());
+            }
+            return parsePostfix(parsePrimary());
+        }
+
+        private Node parsePostfix(Node node) throws UnsupportedExpressionException {
+            while (accept(".")) { // NOI18N
+                String name = expectIdentifier();
+                if (accept("(")) { // NOI18N
+                    Node argument = null;
+                    switch (name) {
+                        case "toString": // NOI18N
+                            break;
+                        case "startsWith": // NOI18N
+                        case "endsWith": // NOI18N
+                        case "isSubclassOf": // NOI18N
+                            argument = parseExpression();
+                            break;
+                        default:
+                            throw new UnsupportedExpressionException(name);
+                    }
+                    expect(")"); // NOI18N
+                    node = new Call(name, node, argument, snapshot);
+                } else {
+                    node = new Property(node, name);
+                }
+            }
+            return node;
+        }
+
+        private Node parsePrimary() throws UnsupportedExpressionException {
+            if (pos == tokens.size()) {
+                throw new UnsupportedExpressionException();
+            }
+            Object token = tokens.get(pos++);
+            if (token instanceof Double) {
+                return new Constant(token);
+            } else if (token instanceof Object[]) {
+                return new Constant(((Object[]) token)[0]);
+            } else if ("(".equals(token)) { // NOI18N
+                Node node = parseExpression();
+                expect(")"); // NOI18N
+                return node;
+            }
+            String name = (String) token;
+            if (name.equals(identifier)) {
+                return new Identifier();
+            }
+            switch (name) {
+                case "true": // NOI18N
+                    return new Constant(Boolean.TRUE);
+                case "false": // NOI18N
+                    return new Constant(Boolean.FALSE);
+                case "null": // NOI18N
+                    return new Constant(null);
+                case "sizeof": // NOI18N
+                case "rsizeof": // NOI18N
+                case "classof": // NOI18N
+                    expect("("); // NOI18N
+                    Node argument = parseExpression();
+                    expect(")"); // NOI18N
+                    return new Call(name, argument, null, snapshot);
+                case "heap": // NOI18N
+                    // heap.findClass("name") is resolved once, unknown class is left to the script
+                    expect("."); // NOI18N
+                    if (!"findClass".equals(expectIdentifier())) { // NOI18N
+                        throw new UnsupportedExpressionException(name);
+                    }
+                    expect("("); // NOI18N
+                    Object className = pos < tokens.size() ? tokens.get(pos++) : null;
+                    expect(")"); // NOI18N
+                    JavaClass cls = className instanceof Object[] ? snapshot.findClass((String) ((Object[]) className)[0]) : null;
+                    if (cls == null) {
+                        throw new UnsupportedExpressionException(name);
+                    }
+                    return new Constant(cls);
+                default:
+                    throw new UnsupportedExpressionException(name);
+            }
+        }
+
+        private boolean accept(String op) {
+            if (pos < tokens.size() && op.equals(tokens.get(pos))) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private String acceptOperator(String... ops) {
+            for (String op : ops) {
+                if (accept(op)) {
+                    return op;
+                }
+            }
+            return null;
+        }
+
+        private void expect(String op) throws UnsupportedExpressionException {
+            if (!accept(op)) {
+                throw new UnsupportedExpressionException(op);
+            }
+        }
+
+        private String expectIdentifier() throws UnsupportedExpressionException {
+            Object token = pos < tokens.size() ? tokens.get(pos++) : null;
+            if (!(token instanceof String) || !Character.isJavaIdentifierStart(((String) token).charAt(0))) {
+                throw new UnsupportedExpressionException();
+            }
+            return (String) token;
+        }
+    }
+}
@@ -26,6 +26,17 @@ package org.graalvm.visualvm.lib.profiler.oql.engine.api.impl;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -52,6 +63,17 @@ import org.openide.util.NbBundle;
 public class OQLEngineImpl {
     final private static Logger LOGGER = Logger.getLogger(OQLEngineImpl.class.getName());
 
+    // number of script engines used to evaluate 'select ... from ...' queries, 1 disables parallel execution
+    private static final String PARALLELISM_PROP = "org.graalvm.visualvm.lib.profiler.oql.parallelism"; // NOI18N
+    // results of parallel query are passed to the visitor as soon as they are available
+    private static final String UNORDERED_PROP = "org.graalvm.visualvm.lib.profiler.oql.unordered"; // NOI18N
+    // simple where conditions are evaluated natively without the script engine, false disables it
+    private static final String NATIVE_WHERE_PROP = "org.graalvm.visualvm.lib.profiler.oql.nativeWhere"; // NOI18N
+    private static final int BATCH_SIZE = 512;
+
+    // parallel queries of all engines share the worker threads, idle threads time out
+    private static final ExecutorService WORKERS;
+
     private static boolean oqlSupported;
 
     static {
@@ -65,6 +87,15 @@ public class OQLEngineImpl {
             LOGGER.log(Level.INFO,"OQLEngine init",ex); // NOI18N
             oqlSupported = false;
         }
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), (Runnable r) -> {
+            Thread t = new Thread(r, "OQL worker"); // NOI18N
+            t.setDaemon(true);
+            return t;
+        });
+        workers.allowCoreThreadTimeOut(true);
+        WORKERS = workers;
     }
 
     // check OQL is supported or not before creating OQLEngine
@@ -73,6 +104,7 @@ public class OQLEngineImpl {
     }
 
     private ScriptEngine engine;
+    private final List<ScriptEngine> workerEngines = new ArrayList<>();
     private Snapshot snapshot;
 
     public OQLEngineImpl(Snapshot snapshot) {
@@ -246,40 +278,42 @@ public class OQLEngineImpl {
             }
 
             if (q.className != null) {
-                Stack<JavaClass> toInspect = new Stack<>();
-                Set<JavaClass> inspected = new HashSet<>();
-
-                toInspect.push(clazz);
-
-                while(!toInspect.isEmpty()) {
-                    JavaClass inspecting = toInspect.pop();
-                    inspected.add(inspecting);
-                    if (q.isInstanceOf) {
-                        for(JavaClass subclass : inspecting.getSubClasses()) {
-                            if (!inspected.contains(subclass) && !toInspect.contains(subclass)) {
-                                toInspect.push(subclass);
-                            }
-                        }
-                    }
+                List<JavaClass> classes = getClassesToInspect(clazz, q.isInstanceOf);
+                int parallelism = Integer.getInteger(PARALLELISM_PROP, 1).intValue();
+                JavaPredicate where = compileWhere(q);
+                boolean selectsIdentifier = q.selectExpr.trim().equals(q.identifier);
+
+                if (parallelism > 1 && getInstancesCount(classes) > BATCH_SIZE) {
+                    executeParallel(q, selectCode, where, classes, parallelism, visitor);
+                    return;
+                }
+                for (JavaClass inspecting : classes) {
                     Iterator<Instance> objectsIt = inspecting.getInstancesIterator();
 
                     while (objectsIt.hasNext()) {
-                        Object wrapped = wrapJavaObject(objectsIt.next());
+                        Instance inst = objectsIt.next();
+                        Object wrapped = null;
                         boolean b = (whereCs == null);
                         if (!b) {
-                            bindings.put(q.identifier, wrapped);
-                            Object res = whereCs.eval(bindings);
-                            if (res instanceof Boolean) {
-                                b = ((Boolean) res).booleanValue();
-                            } else if (res instanceof Number) {
-                                b = ((Number) res).intValue() != 0;
+                            Boolean res = where == null ? null : where.test(inst);
+                            if (res != null) {
+                                b = res.booleanValue();
                             } else {
-                                b = (res != null);
+                                wrapped = wrapJavaObject(inst);
+                                bindings.put(q.identifier, wrapped);
+                                b = isTrue(whereCs.eval(bindings));
                             }
                         }
 
                         if (b) {
-                            bindings.put(q.identifier, wrapped);
+                            if (selectsIdentifier) {
+                                // 'select o' dispatches the instance itself
+                                if (visitor.visit(inst)) {
+                                    return;
+                                }
+                                continue;
+                            }
+                            bindings.put(q.identifier, wrapped != null ? wrapped : wrapJavaObject(inst));
                             Object select = selectCs.eval(bindings);
                             if (dispatchValue(select, visitor)) {
                                 return;
@@ -299,7 +333,182 @@ public class OQLEngineImpl {
         }
     }
 
+    private JavaPredicate compileWhere(OQLQueryImpl q) {
+        String nativeWhere = System.getProperty(NATIVE_WHERE_PROP, "true"); // NOI18N
+        if (!Boolean.parseBoolean(nativeWhere)) {
+            return null;
+        }
+        JavaPredicate where = JavaPredicate.compile(q.whereExpr, q.identifier, snapshot);
+        if (where == null && q.whereExpr != null) {
+            LOGGER.log(Level.FINE, "Where condition is evaluated by script engine: {0}", q.whereExpr); // NOI18N
+        }
+        return where;
+    }
+
+    private static List<JavaClass> getClassesToInspect(JavaClass clazz, boolean isInstanceOf) {
+        List<JavaClass> classes = new ArrayList<>();
+        Stack<JavaClass> toInspect = new Stack<>();
+        Set<JavaClass> inspected = new HashSet<>();
+
+        toInspect.push(clazz);
+
+        while(!toInspect.isEmpty()) {
+            JavaClass inspecting = toInspect.pop();
+            inspected.add(inspecting);
+            if (isInstanceOf) {
+                for(JavaClass subclass : inspecting.getSubClasses()) {
+                    if (!inspected.contains(subclass) && !toInspect.contains(subclass)) {
+                        toInspect.push(subclass);
+                    }
+                }
+            }
+            classes.add(inspecting);
+        }
+        return classes;
+    }
+
+    private static long getInstancesCount(List<JavaClass> classes) {
+        long count = 0;
+
+        for (JavaClass cls : classes) {
+            count += cls.getInstancesCount();
+        }
+        return count;
+    }
+
+    private static boolean isTrue(Object res) {
+        if (res instanceof Boolean) {
+            return ((Boolean) res).booleanValue();
+        } else if (res instanceof Number) {
+            return ((Number) res).intValue() != 0;
+        }
+        return res != null;
+    }
+
+    /**
+     * Instances of inspected classes are split into batches, which are evaluated
+     * by worker script engines. Every worker has its own engine with its own bindings.
+     * Results are passed to the visitor in the order of batches, which gives the same
+     * order as sequential execution, unless unordered mode is requested.
+     */
+    private void executeParallel(final OQLQueryImpl q, String selectCode, JavaPredicate where, List<JavaClass> classes,
+                                 int parallelism, ObjectVisitor visitor) throws Exception {
+        final BlockingQueue<Worker> idleWorkers = new ArrayBlockingQueue<>(parallelism);
+        final AtomicBoolean stop = new AtomicBoolean();
+        boolean unordered = Boolean.getBoolean(UNORDERED_PROP);
+        CompletionService<List<Object>> completion = unordered ? new ExecutorCompletionService<>(WORKERS) : null;
+        Deque<Future<List<Object>>> pending = new ArrayDeque<>();
+
+        for (ScriptEngine workerEngine : getWorkerEngines(parallelism)) {
+            idleWorkers.add(new Worker(workerEngine, selectCode, q, where));
+        }
+        try {
+            for (JavaClass inspecting : classes) {
+                Iterator<Instance> objectsIt = inspecting.getInstancesIterator();
+
+                while (objectsIt.hasNext()) {
+                    final List<Instance> batch = new ArrayList<>(BATCH_SIZE);
+
+                    while (objectsIt.hasNext() && batch.size() < BATCH_SIZE) {
+                        batch.add(objectsIt.next());
+                    }
+                    Callable<List<Object>> task = () -> {
+                        Worker worker = idleWorkers.take();
+                        try {
+                            return worker.evaluate(batch, stop);
+                        } finally {
+                            idleWorkers.add(worker);
+                        }
+                    };
+                    pending.add(unordered ? completion.submit(task) : WORKERS.submit(task));
+                    // limit number of batches waiting for dispatch
+                    if (pending.size() >= 2 * parallelism && dispatchBatch(pending, completion, visitor)) {
+                        return;
+                    }
+                    if (cancelled.get()) {
+                        return;
+                    }
+                }
+            }
+            while (!pending.isEmpty()) {
+                if (dispatchBatch(pending, completion, visitor)) {
+                    return;
+                }
+            }
+        } finally {
+            stop.set(true);
+            for (Future<List<Object>> f : pending) {
+                f.cancel(false);
+            }
+            // batches still being evaluated stop early, the engines are free for the next query once returned
+            awaitWorkers(idleWorkers, parallelism);
+        }
+    }
+
+    private static void awaitWorkers(BlockingQueue<Worker> idleWorkers, int count) {
+        boolean interrupted = false;
+        int returned = 0;
+        while (returned < count) {
+            try {
+                idleWorkers.take();
+                returned++;
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean dispatchBatch(Deque<Future<List<Object>>> pending, CompletionService<List<Object>> completion,
+                                         ObjectVisitor visitor) throws Exception {
+        Future<List<Object>> next;
+
+        if (completion != null) {
+            next = completion.take();
+            pending.remove(next);
+        } else {
+            next = pending.poll();
+        }
+        try {
+            for (Object o : next.get()) {
+                if (visitor.visit(o)) {
+                    return true;
+                }
+            }
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            throw cause instanceof Exception ? (Exception) cause : ex;
+        }
+        return false;
+    }
+
+    private List<ScriptEngine> getWorkerEngines(int count) throws Exception {
+        synchronized (workerEngines) {
+            // worker engines are expensive to initialize, keep them for next queries until released
+            while (workerEngines.size() < count) {
+                workerEngines.add(createEngine());
+            }
+            return new ArrayList<>(workerEngines.subList(0, count));
+        }
+    }
+
+    /**
+     * Releases the script engines kept for parallel queries. The engine remains
+     * usable, the worker engines are created again by the next parallel query.
+     */
+    public void release() {
+        synchronized (workerEngines) {
+            workerEngines.clear();
+        }
+    }
+
     private boolean dispatchValue(Object jsObject, ObjectVisitor visitor) {
+        return dispatchValue(jsObject, visitor, engine);
+    }
+
+    private static boolean dispatchValue(Object jsObject, ObjectVisitor visitor, ScriptEngine engine) {
         if (jsObject == null) {
             return false;
         }
@@ -307,21 +516,21 @@ public class OQLEngineImpl {
         if (jsObject instanceof Iterator) {
             Iterator<?> iter = (Iterator) jsObject;
             while (iter.hasNext()) {
-                if (dispatchValue(iter.next(), visitor)) return true;
+                if (dispatchValue(iter.next(), visitor, engine)) return true;
             }
             return false;
         } else if (jsObject instanceof Enumeration) {
             Enumeration<?> enm = (Enumeration) jsObject;
             while (enm.hasMoreElements()) {
                 Object elem = enm.nextElement();
-                if (dispatchValue(elem, visitor)) return true;
+                if (dispatchValue(elem, visitor, engine)) return true;
             }
             return false;
         } else {
-            Object object = unwrapJavaObject(jsObject, true);
+            Object object = unwrapJavaObject(jsObject, true, engine);
             if (object instanceof Object[]) {
                 for (Object obj1 : (Object[]) object) {
-                    if (dispatchValue(obj1, visitor)) return true;
+                    if (dispatchValue(obj1, visitor, engine)) return true;
                 }
                 return false;
             }
@@ -356,6 +565,10 @@ public class OQLEngineImpl {
     }
 
     public Object unwrapJavaObject(Object object, boolean tryAssociativeArray) {
+        return unwrapJavaObject(object, tryAssociativeArray, engine);
+    }
+
+    private static Object unwrapJavaObject(Object object, boolean tryAssociativeArray, ScriptEngine engine) {
         if (object == null) return null;
         String className = object.getClass().getName();
         boolean isNativeJS = className.startsWith("com.oracle.truffle.object.") // NOI18N
@@ -377,21 +590,88 @@ public class OQLEngineImpl {
     private void init(Snapshot snapshot) throws RuntimeException {
         this.snapshot = snapshot;
         try {
-            ScriptEngineManager manager = new ScriptEngineManager();
-            engine = manager.getEngineByName("JavaScript"); // NOI18N
-            InputStream strm = getInitStream();
-            CompiledScript cs = ((Compilable)engine).compile(new InputStreamReader(strm));
-            cs.eval();
-            Object heap = ((Invocable)engine).invokeFunction("wrapHeapSnapshot", snapshot); // NOI18N
-            engine.put("heap", heap); // NOI18N
-            engine.put("cancelled", cancelled); // NOI18N
+            engine = createEngine();
         } catch (Exception ex) {
             LOGGER.log(Level.INFO, "Error initializing snapshot", ex); // NOI18N
             throw new RuntimeException(ex);
         }
     }
 
+    private ScriptEngine createEngine() throws Exception {
+        ScriptEngineManager manager = new ScriptEngineManager();
+        ScriptEngine newEngine = manager.getEngineByName("JavaScript"); // NOI18N
+        InputStream strm = getInitStream();
+        CompiledScript cs = ((Compilable)newEngine).compile(new InputStreamReader(strm));
+        cs.eval();
+        Object heap = ((Invocable)newEngine).invokeFunction("wrapHeapSnapshot", snapshot); // NOI18N
+        newEngine.put("heap", heap); // NOI18N
+        newEngine.put("cancelled", cancelled); // NOI18N
+        return newEngine;
+    }
+
     private InputStream getInitStream() {
         return getClass().getResourceAsStream("/org/graalvm/visualvm/lib/profiler/oql/engine/api/impl/hat.js"); // NOI18N
     }
+
+    /**
+     * Script engine with compiled query used by one worker thread at a time.
+     */
+    private class Worker {
+        private final ScriptEngine workerEngine;
+        private final CompiledScript whereCs;
+        private final CompiledScript selectCs;
+        private final JavaPredicate where;
+        private final String identifier;
+        private final boolean selectsIdentifier;
+
+        private Worker(ScriptEngine e, String selectCode, OQLQueryImpl q, JavaPredicate where) throws Exception {
+            workerEngine = e;
+            selectCs = ((Compilable)e).compile(selectCode);
+            whereCs = q.whereExpr == null ? null : ((Compilable)e).compile(q.whereExpr.replace('\n', ' ')); // NOI18N
+            this.where = where;
+            identifier = q.identifier;
+            selectsIdentifier = q.selectExpr.trim().equals(identifier);
+        }
+
+        private List<Object> evaluate(List<Instance> batch, AtomicBoolean stop) throws Exception {
+            final List<Object> results = new ArrayList<>();
+            Bindings bindings = workerEngine.getBindings(ScriptContext.ENGINE_SCOPE);
+            ObjectVisitor collector = (Object o) -> {
+                results.add(o);
+                return false;
+            };
+
+            for (Instance inst : batch) {
+                if (stop.get() || cancelled.get()) {
+                    break;
+                }
+                Object wrapped = null;
+                boolean b = (whereCs == null);
+                if (!b) {
+                    Boolean res = where == null ? null : where.test(inst);
+                    if (res != null) {
+                        b = res.booleanValue();
+                    } else {
+                        wrapped = wrap(inst);
+                        bindings.put(identifier, wrapped);
+                        b = isTrue(whereCs.eval(bindings));
+                    }
+                }
+                if (b) {
+                    if (selectsIdentifier) {
+                        results.add(inst);
+                        continue;
+                    }
+                    bindings.put(identifier, wrapped != null ? wrapped : wrap(inst));
+                    // results are unwrapped by the worker engine, which created them
+                    dispatchValue(selectCs.eval(bindings), collector, workerEngine);
+                }
+            }
+            return results;
+        }
+
+        private Object wrap(Instance inst) throws Exception {
+            return ((Invocable)workerEngine).invokeFunction("wrapJavaObject", inst); // NOI18N
+        }
+    }
 }
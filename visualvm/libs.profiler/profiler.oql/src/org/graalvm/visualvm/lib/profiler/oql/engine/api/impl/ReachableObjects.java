@@ -25,16 +25,11 @@
 
 package org.graalvm.visualvm.lib.profiler.oql.engine.api.impl;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.Set;
+import java.util.function.Predicate;
 import org.graalvm.visualvm.lib.jfluid.heap.Field;
-import org.graalvm.visualvm.lib.jfluid.heap.FieldValue;
 import org.graalvm.visualvm.lib.jfluid.heap.Instance;
-import org.graalvm.visualvm.lib.jfluid.heap.ObjectArrayInstance;
-import org.graalvm.visualvm.lib.jfluid.heap.ObjectFieldValue;
 
 /**
  *
@@ -43,12 +38,10 @@ import org.graalvm.visualvm.lib.jfluid.heap.ObjectFieldValue;
 public class ReachableObjects {
     private ReachableExcludes excludes;
     private Instance root;
-    private Set<Instance> alreadyReached;
 
     public ReachableObjects(Instance root, final ReachableExcludes excludes) {
         this.root = root;
         this.excludes = excludes;
-        alreadyReached = new HashSet<>();
     }
 
     public Instance getRoot() {
@@ -56,56 +49,14 @@ public class ReachableObjects {
     }
 
     public Iterator<Instance> getReachables() {
-        return new TreeIterator<Instance, Instance>(root) {
-
-            @Override
-            protected Iterator<Instance> getSameLevelIterator(Instance popped) {
-                Collection<Instance> instances = new ArrayList<>();
-                for(Object fv : popped.getFieldValues()) {
-                    if (fv instanceof ObjectFieldValue) {
-                        if (excludes == null || !excludes.isExcluded(getFQFieldName(((FieldValue)fv).getField()))) {
-                            Instance i = ((ObjectFieldValue)fv).getInstance();
-                            if (i != null && !alreadyReached.contains(i)) {
-                                instances.add(i);
-                                alreadyReached.add(i);
-                            }
-                        }
-                    }
-                }
-                if (popped instanceof ObjectArrayInstance) {
-                    for(Instance i : ((ObjectArrayInstance)popped).getValues()) {
-                        if (i != null && !alreadyReached.contains(i)) {
-                            instances.add(i);
-                            alreadyReached.add(i);
-                        }
-                    }
-                }
-                return instances.iterator();
-            }
-
-            @Override
-            protected Iterator<Instance> getTraversingIterator(Instance popped) {
-                Collection<Instance> instances = new ArrayList<>();
-                for(Object fv : popped.getFieldValues()) {
-                    if (fv instanceof ObjectFieldValue) {
-                        if (excludes == null || !excludes.isExcluded(getFQFieldName(((FieldValue)fv).getField()))) {
-                            Instance i = ((ObjectFieldValue)fv).getInstance();
-                            if (i != null) {
-                                instances.add(i);
-                            }
-                        }
-                    }
-                }
-                if (popped instanceof ObjectArrayInstance) {
-                    for(Instance el : ((ObjectArrayInstance)popped).getValues()) {
-                        if (el != null) {
-                            instances.add(el);
-                        }
-                    }
-                }
-                return instances.iterator();
-            }
-        };
+        if (root == null) {
+            return Collections.emptyIterator();
+        }
+        Predicate<Field> excludedFields = null;
+        if (excludes != null) {
+            excludedFields = (Field fld) -> excludes.isExcluded(getFQFieldName(fld));
+        }
+        return root.getJavaClass().getHeap().getReachableInstancesIterator(root, excludedFields);
     }
 
     public long getTotalSize() {
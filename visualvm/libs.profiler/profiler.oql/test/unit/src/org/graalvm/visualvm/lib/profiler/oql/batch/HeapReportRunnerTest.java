@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.lib.profiler.oql.batch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import org.graalvm.visualvm.lib.jfluid.heap.Heap;
+import org.graalvm.visualvm.lib.jfluid.heap.HeapFactory;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class HeapReportRunnerTest {
+
+    private static final String HEAP_DUMP = "/org/graalvm/visualvm/lib/profiler/oql/engine/api/impl/small_heap.bin"; // NOI18N
+
+    @Rule
+    public TemporaryFolder output = new TemporaryFolder();
+
+    private File heapDump;
+
+    @Before
+    public void setUp() throws Exception {
+        // the heap cache is created next to the dump, keep it out of the shared resource
+        URL url = getClass().getResource(HEAP_DUMP);
+        File resource = new File(url.toURI());
+        heapDump = new File(output.newFolder("dump"), resource.getName()); // NOI18N
+        Files.copy(resource.toPath(), heapDump.toPath());
+    }
+
+    @Test
+    public void testHistogram() throws Exception {
+        Heap heap = HeapFactory.createHeap(heapDump);
+        Report report = HeapReportRunner.histogram(heap);
+        List<Object[]> rows = report.getRows();
+
+        assertFalse(rows.isEmpty());
+        long total = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            if (i > 0) assertTrue((Long)rows.get(i - 1)[2] >= (Long)rows.get(i)[2]);
+            total += (Integer)rows.get(i)[1];
+        }
+        assertEquals(heap.getSummary().getTotalLiveInstances(), total);
+    }
+
+    @Test
+    public void testJsonReport() throws Exception {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        int result = HeapReportRunner.run(new String[] {
+            "--output", output.getRoot().getPath(), "--top", "3", // NOI18N
+            "--analysis", "dominators", "--analysis", "gc-root-paths", // NOI18N
+            "--oql", "select t.name from java.lang.Thread t", // NOI18N
+            heapDump.getPath()
+        }, new PrintStream(log));
+
+        assertEquals(log.toString(), 0, result);
+        String json = new String(Files.readAllBytes(new File(output.getRoot(), "report.json").toPath()), StandardCharsets.UTF_8); // NOI18N
+        assertTrue(json.contains("\"name\": \"dominators\"")); // NOI18N
+        assertTrue(json.contains("\"name\": \"gc-root-paths\"")); // NOI18N
+        assertTrue(json.contains("\"name\": \"oql-1\"")); // NOI18N
+        assertTrue(json.contains("{\"result\": \"main\"}")); // NOI18N
+        assertFalse(json.contains("\"name\": \"histogram\"")); // NOI18N
+    }
+
+    @Test
+    public void testCsvReport() throws Exception {
+        int result = HeapReportRunner.run(new String[] {
+            "--output", output.getRoot().getPath(), "--format", "csv", "--analysis", "histogram", heapDump.getPath() // NOI18N
+        }, new PrintStream(new ByteArrayOutputStream()));
+
+        assertEquals(0, result);
+        List<String> lines = Files.readAllLines(new File(output.getRoot(), "histogram.csv").toPath(), StandardCharsets.UTF_8); // NOI18N
+        assertEquals("class,instances,size,retainedSize", lines.get(0)); // NOI18N
+        assertTrue(lines.size() > 1);
+    }
+
+    @Test
+    public void testJsonNonFiniteNumbers() throws Exception {
+        Report report = new Report("numbers", "nan", "infinity", "float", "value"); // NOI18N
+        report.addRow(Double.NaN, Double.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY, 1.5d);
+        File file = ReportWriter.create(ReportWriter.JSON).write(heapDump, Collections.singletonList(report), output.getRoot()).get(0);
+
+        String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertTrue(json, json.contains("{\"nan\": null, \"infinity\": null, \"float\": null, \"value\": 1.5}")); // NOI18N
+    }
+
+    @Test
+    public void testGrowthTrend() throws Exception {
+        File trendDump = new File(output.newFolder("trend"), heapDump.getName()); // NOI18N
+        Files.copy(heapDump.toPath(), trendDump.toPath());
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        int result = HeapReportRunner.run(new String[] {
+            "--output", output.getRoot().getPath(), "--analysis", "histogram", // NOI18N
+            "--trend", trendDump.getPath(), heapDump.getPath() // NOI18N
+        }, new PrintStream(log));
+
+        assertEquals(log.toString(), 0, result);
+        assertTrue(log.toString(), log.toString().contains("Computed growth trend of 2 heap dumps")); // NOI18N
+        String json = new String(Files.readAllBytes(new File(output.getRoot(), "report.json").toPath()), StandardCharsets.UTF_8); // NOI18N
+        // both dumps are the same, no class grows
+        assertTrue(json.contains("\"name\": \"growth-trend\"")); // NOI18N
+        assertTrue(json.contains("\"name\": \"histogram\"")); // NOI18N
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        PrintStream log = new PrintStream(new ByteArrayOutputStream());
+
+        assertEquals(2, HeapReportRunner.run(new String[0], log));
+        assertEquals(2, HeapReportRunner.run(new String[] { "--format", "xml", heapDump.getPath() }, log)); // NOI18N
+        assertEquals(2, HeapReportRunner.run(new String[] { "--top", "0", heapDump.getPath() }, log)); // NOI18N
+        assertEquals(2, HeapReportRunner.run(new String[] { "--trend", "missing.hprof", heapDump.getPath() }, log)); // NOI18N
+    }
+}
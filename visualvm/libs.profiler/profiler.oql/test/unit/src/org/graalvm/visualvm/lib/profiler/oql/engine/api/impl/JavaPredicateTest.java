@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.lib.profiler.oql.engine.api.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import org.graalvm.visualvm.lib.jfluid.heap.Heap;
+import org.graalvm.visualvm.lib.jfluid.heap.HeapFactory;
+import org.graalvm.visualvm.lib.jfluid.heap.Instance;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class JavaPredicateTest {
+
+    private Snapshot snapshot;
+    private Instance string;
+    private Instance hashMap;
+
+    @Before
+    public void setUp() throws IOException, URISyntaxException {
+        URL url = getClass().getResource("small_heap.bin");
+        Heap heap = HeapFactory.createHeap(new File(url.toURI()));
+        snapshot = new Snapshot(heap, null);
+        string = heap.getJavaClassByName("java.lang.String").getInstances().get(0);
+        hashMap = heap.getJavaClassByName("java.util.HashMap").getInstances().get(0);
+    }
+
+    /**
+     * Conditions which cannot be evaluated natively are not compiled.
+     */
+    @Test
+    public void testUnsupported() {
+        assertNull(JavaPredicate.compile(null, "s", snapshot));
+        assertNull(JavaPredicate.compile("s.hash > 0", null, snapshot));
+        String[] conditions = {
+            "s.value[0] == 1",
+            "s.hash > 0x10",
+            "s.hash > 1e3",
+            "s.hash >",
+            "s.hash > 1 1",
+            "s.toString().indexOf('a') > 0",
+            "t.hash > 0",
+            "heap.findClass('no.such.Class') != null",
+            "s.toString() == 'unterminated",
+            "s.hash + 1 > 0",
+        };
+        for (String condition : conditions) {
+            assertNull(condition, JavaPredicate.compile(condition, "s", snapshot));
+        }
+    }
+
+    @Test
+    public void testNull() {
+        assertEquals(Boolean.TRUE, test("s.noSuchField == null", string));
+        assertEquals(Boolean.FALSE, test("s.noSuchField", string));
+        assertEquals(Boolean.TRUE, test("!s.noSuchField", string));
+        assertEquals(Boolean.TRUE, test("s.value != null", string));
+        assertEquals(Boolean.FALSE, test("s == null", string));
+        assertEquals(Boolean.TRUE, test("null === null", string));
+        // relational comparison with null is left to the script engine
+        assertNull(test("s.hash < null", string));
+    }
+
+    @Test
+    public void testCoercion() {
+        assertEquals(Boolean.TRUE, test("1 == 1.0", string));
+        assertEquals(Boolean.TRUE, test("s.value.length == s.value.length", string));
+        assertEquals(Boolean.TRUE, test("s.value.length >= 0 && s.value.length < 1000000", string));
+        assertEquals(Boolean.TRUE, test("'abc' < 'abd'", string));
+        assertEquals(Boolean.TRUE, test("'abc' === 'abc'", string));
+        assertEquals(Boolean.FALSE, test("'1' === 1", string));
+        assertEquals(Boolean.TRUE, test("s.id == s.id", string));
+        assertEquals(Boolean.valueOf(snapshot.valueString(string).length() > 0), test("s.toString().length > 0", string));
+        // mixed types and Long objects follow the script engine conversions
+        assertNull(test("'1' == 1", string));
+        assertNull(test("s.id === s.id", string));
+        assertNull(test("s.id < 'a'", string));
+    }
+
+    @Test
+    public void testIsSubclassOf() {
+        assertEquals(Boolean.TRUE, test("classof(o).isSubclassOf(heap.findClass('java.util.AbstractMap'))", hashMap));
+        assertEquals(Boolean.TRUE, test("classof(o).isSubclassOf(heap.findClass('java.util.HashMap'))", hashMap));
+        assertEquals(Boolean.FALSE, test("classof(s).isSubclassOf(heap.findClass('java.util.HashMap'))", string));
+        assertEquals(Boolean.TRUE, test("classof(o).name == 'java.util.HashMap'", hashMap));
+        // the argument must be a class
+        assertNull(test("classof(o).isSubclassOf('java.util.HashMap')", hashMap));
+    }
+
+    private Boolean test(String condition, Instance instance) {
+        String identifier = instance == hashMap ? "o" : "s"; // NOI18N
+        JavaPredicate predicate = JavaPredicate.compile(condition, identifier, snapshot);
+        assertNotNull(condition, predicate);
+        return predicate.test(instance);
+    }
+}
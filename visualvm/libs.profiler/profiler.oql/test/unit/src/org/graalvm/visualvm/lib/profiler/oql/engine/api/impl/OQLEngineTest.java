@@ -746,6 +746,91 @@ public class OQLEngineTest {
         });
     }
 
+    @Test
+    public void testParallelQuery() throws Exception {
+        System.out.println("parallel query");
+        String query = "select o.id from instanceof java.lang.Object o where o.id % 3 == 0";
+        List<Object> sequential = collect(query, Integer.MAX_VALUE);
+
+        System.setProperty("org.graalvm.visualvm.lib.profiler.oql.parallelism", "4");
+        try {
+            assertEquals(sequential, collect(query, Integer.MAX_VALUE));
+            assertEquals(sequential.subList(0, 10), collect(query, 10));
+        } finally {
+            System.clearProperty("org.graalvm.visualvm.lib.profiler.oql.parallelism");
+        }
+    }
+
+    @Test
+    public void testParallelQueryRelease() throws Exception {
+        System.out.println("parallel query release");
+        String query = "select o.id from instanceof java.lang.Object o where o.id % 3 == 0";
+        List<Object> sequential = collect(query, Integer.MAX_VALUE);
+
+        System.setProperty("org.graalvm.visualvm.lib.profiler.oql.parallelism", "4");
+        try {
+            for (int i = 0; i < 5; i++) {
+                assertEquals(sequential.subList(0, 10), collect(query, 10));
+            }
+            // worker threads are shared by the queries
+            assertTrue(countThreads("OQL worker") <= Runtime.getRuntime().availableProcessors());
+
+            instance.release();
+            assertEquals(sequential, collect(query, Integer.MAX_VALUE));
+        } finally {
+            System.clearProperty("org.graalvm.visualvm.lib.profiler.oql.parallelism");
+        }
+    }
+
+    @Test
+    public void testNativeWhere() throws Exception {
+        System.out.println("native where");
+        String[] queries = {
+            "select s from java.lang.String s where s.value.length > 10 && s.hash != 0",
+            "select s from java.lang.String s where s.toString().startsWith('java.') || s.toString().length == 4",
+            "select o from instanceof java.util.AbstractMap o where classof(o).isSubclassOf(heap.findClass('java.util.HashMap')) && !(o.size === 0)",
+            "select o from java.util.HashMap o where o.table != null && sizeof(o) >= 40",
+            "select o.size from java.util.HashMap o where classof(o).name == 'java.util.HashMap' && o.table.length > 0",
+        };
+
+        Snapshot snapshot = new Snapshot(instance.getHeap(), instance);
+        for (String query : queries) {
+            // the conditions must be evaluated natively, not left to the script engine
+            OQLQueryImpl parsed = (OQLQueryImpl) instance.parseQuery(query);
+            assertNotNull(query, JavaPredicate.compile(parsed.whereExpr, parsed.identifier, snapshot));
+
+            System.setProperty("org.graalvm.visualvm.lib.profiler.oql.nativeWhere", "false");
+            List<Object> script;
+            try {
+                script = collect(query, Integer.MAX_VALUE);
+            } finally {
+                System.clearProperty("org.graalvm.visualvm.lib.profiler.oql.nativeWhere");
+            }
+            assertEquals(query, script, collect(query, Integer.MAX_VALUE));
+        }
+    }
+
+    private List<Object> collect(String query, final int limit) throws Exception {
+        final List<Object> results = new ArrayList<>();
+
+        instance.executeQuery(query, new ObjectVisitor() {
+
+            public boolean visit(Object o) {
+                results.add(o);
+                return results.size() >= limit;
+            }
+        });
+        return results;
+    }
+
+    private static int countThreads(String name) {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (name.equals(thread.getName())) count++;
+        }
+        return count;
+    }
+
     private String dump(Object o) {
         if (o instanceof Map) {
             List<String> els = new ArrayList<>();